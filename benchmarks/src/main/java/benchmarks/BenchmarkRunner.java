@@ -0,0 +1,143 @@
+package benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openqa.selenium.json.Json;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs the benchmarks, stores the results as results/&lt;git sha&gt;.json and compares them
+ * with the most recent earlier result file, flagging regressions.
+ *
+ * Accepts the usual JMH command line options, e.g. {@code java -jar target/benchmarks.jar getText -p latencyMillis=0}.
+ */
+public class BenchmarkRunner {
+    private static final Path RESULTS_DIR = Paths.get("results");
+    private static final double REGRESSION_THRESHOLD = 0.10;
+
+    public static void main(String[] args) throws IOException, RunnerException, CommandLineOptionException {
+        Files.createDirectories(RESULTS_DIR);
+        Path resultFile = RESULTS_DIR.resolve(gitSha() + ".json");
+        Optional<Path> previous = latestResultExcept(resultFile);
+
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder()
+                .parent(commandLine)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile.toString())
+                .build()).run();
+        System.out.println("\n📁 Results saved: " + resultFile.toAbsolutePath());
+
+        if (previous.isPresent()) {
+            compare(previous.get(), resultFile);
+        } else {
+            System.out.println("No earlier results to compare with.");
+        }
+    }
+
+    /**
+     * Print the score change of every benchmark present in both files.
+     */
+    static void compare(Path before, Path after) throws IOException {
+        Map<String, double[]> old = scores(before);
+        Map<String, double[]> current = scores(after);
+        System.out.println("\n📊 Compared with " + before.getFileName() + " (avg ms/op, lower is better)");
+        for (Map.Entry<String, double[]> entry : current.entrySet()) {
+            double[] was = old.get(entry.getKey());
+            if (was == null) {
+                System.out.printf("   %-60s %10s -> %10.3f%n", entry.getKey(), "new", entry.getValue()[0]);
+                continue;
+            }
+            double now = entry.getValue()[0];
+            double change = was[0] == 0 ? 0 : (now - was[0]) / was[0];
+            // Only flag changes larger than both the threshold and the combined measurement error
+            boolean regression = change > REGRESSION_THRESHOLD && now - was[0] > was[1] + entry.getValue()[1];
+            System.out.printf("   %-60s %10.3f -> %10.3f  %+6.1f%%%s%n", entry.getKey(), was[0], now,
+                    change * 100, regression ? "  ⚠ REGRESSION" : "");
+        }
+    }
+
+    /**
+     * Benchmark name with its parameters mapped to {score, error}.
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, double[]> scores(Path file) throws IOException {
+        List<Map<String, Object>> runs = new Json().toType(Files.readString(file), List.class);
+        Map<String, double[]> scores = new TreeMap<>();
+        for (Map<String, Object> run : runs) {
+            String name = String.valueOf(run.get("benchmark")).replace("benchmarks.", "");
+            Map<String, Object> params = (Map<String, Object>) run.getOrDefault("params", Map.of());
+            if (!params.isEmpty()) {
+                name += new TreeMap<>(params).toString();
+            }
+            Map<String, Object> metric = (Map<String, Object>) run.get("primaryMetric");
+            double error = metric.get("scoreError") instanceof Number ? ((Number) metric.get("scoreError")).doubleValue() : 0;
+            scores.put(name, new double[]{((Number) metric.get("score")).doubleValue(), Double.isNaN(error) ? 0 : error});
+        }
+        return scores;
+    }
+
+    private static Optional<Path> latestResultExcept(Path current) throws IOException {
+        try (Stream<Path> files = Files.list(RESULTS_DIR)) {
+            return files.filter(path -> path.toString().endsWith(".json"))
+                    .filter(path -> !path.getFileName().equals(current.getFileName()))
+                    .max(Comparator.comparingLong(BenchmarkRunner::lastModified));
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Short commit id, suffixed with "-dirty" when the working tree has uncommitted changes.
+     */
+    static String gitSha() {
+        String sha = git("rev-parse", "--short", "HEAD");
+        if (sha.isEmpty()) {
+            return "unknown";
+        }
+        return git("status", "--porcelain", "--untracked-files=no").isEmpty() ? sha : sha + "-dirty";
+    }
+
+    private static String git(String... args) {
+        try {
+            Process process = new ProcessBuilder(Stream.concat(Stream.of("git"), Stream.of(args))
+                    .collect(Collectors.toList())).redirectErrorStream(true).start();
+            String output;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                output = reader.lines().collect(Collectors.joining("\n")).trim();
+            }
+            return process.waitFor() == 0 ? output : "";
+        } catch (IOException e) {
+            return "";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "";
+        }
+    }
+}
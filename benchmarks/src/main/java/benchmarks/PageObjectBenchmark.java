@@ -0,0 +1,185 @@
+package benchmarks;
+
+import config.DeviceTarget;
+import config.DriverManager;
+import io.appium.java_client.AppiumBy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+import pages.TestPage;
+import stub.RunningApp;
+import stub.StubAppiumServer;
+import stub.TrustTestApp;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Page-object hot paths against the stub Appium server with a fixed injected latency per command.
+ *
+ * With latency 0 the score is pure client-side cost (wait objects, polling, locator building,
+ * JSON and HTTP on loopback); comparing it with the 5 ms runs separates that from network time:
+ * a method issuing N commands should cost about N x 5 ms more.
+ *
+ * The forked JVM runs with a 1 s implicit wait to keep any failing plain find short; the negative
+ * isDisplayed case polls with the implicit wait off and costs its own 1 s timeout.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-Dtimeout.implicit=1")
+public class PageObjectBenchmark {
+
+    private static final By USERNAME = AppiumBy.id("com.example.trusttest:id/editTextUsername");
+    private static final By SUBMIT = AppiumBy.id("com.example.trusttest:id/buttonSubmit");
+    private static final By ERROR = AppiumBy.id("com.example.trusttest:id/textViewError");
+    private static final By BUTTONS_TAB = AppiumBy.androidUIAutomator("new UiSelector().text(\"Buttons\")");
+
+    /**
+     * One stub server and session per benchmark thread: DriverManager confines sessions to threads,
+     * so setup has to run on the thread that calls the page objects.
+     */
+    @State(Scope.Thread)
+    public abstract static class Session {
+        @Param({"0", "5"})
+        public int latencyMillis;
+
+        StubAppiumServer server;
+        RunningApp app;
+        BenchPage page;
+
+        @Setup(Level.Trial)
+        public void start() throws IOException {
+            server = new StubAppiumServer(TrustTestApp.model(dumpDir()), 0)
+                    .setCommandLatency(Duration.ofMillis(latencyMillis));
+            DriverManager.configureDevices(List.of(new DeviceTarget("bench", server.getUrl())));
+            String sessionId = DriverManager.getDriver().getSessionId().toString();
+            app = server.getApp(sessionId);
+            page = new BenchPage();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            DriverManager.quitDriver();
+            server.close();
+        }
+    }
+
+    /**
+     * Session on the login screen.
+     */
+    @State(Scope.Thread)
+    public static class LoginScreen extends Session {
+        @Setup(Level.Invocation)
+        public void showLogin() {
+            app.goTo(TrustTestApp.LOGIN);
+        }
+    }
+
+    /**
+     * Session on the Test page with the list scrolled to the top.
+     */
+    @State(Scope.Thread)
+    public static class ListScreen extends Session {
+        @Setup(Level.Invocation)
+        public void showListTop() {
+            app.goTo(TrustTestApp.LIST);
+        }
+    }
+
+    @Benchmark
+    public void click(ListScreen screen) {
+        screen.page.click(BUTTONS_TAB);
+    }
+
+    @Benchmark
+    public void type(LoginScreen screen) {
+        screen.page.type(USERNAME, "admin");
+    }
+
+    @Benchmark
+    public String getText(LoginScreen screen) {
+        return screen.page.getText(USERNAME);
+    }
+
+    @Benchmark
+    public boolean isDisplayedPresent(LoginScreen screen) {
+        return screen.page.isDisplayed(SUBMIT, 3);
+    }
+
+    @Benchmark
+    public boolean isDisplayedAbsent(LoginScreen screen) {
+        return screen.page.isDisplayed(ERROR, 1);
+    }
+
+    @Benchmark
+    public void scrollToText(ListScreen screen, Blackhole blackhole) {
+        // The app renders list items with a non-breaking space
+        blackhole.consume(screen.page.scrollToText("Item\u00a020"));
+    }
+
+    @Benchmark
+    public int getVisibleItemCount(ListScreen screen) {
+        return screen.page.getVisibleItemCount();
+    }
+
+    /**
+     * The recorded dumps live in the framework's root directory; benchmarks usually run from benchmarks/.
+     */
+    static Path dumpDir() {
+        String configured = System.getProperty("stub.dumps");
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        return Files.exists(Paths.get("fresh.xml")) ? Paths.get(".") : Paths.get("..");
+    }
+
+    /**
+     * Exposes the protected BasePage primitives to the benchmarks.
+     */
+    static class BenchPage extends TestPage {
+        @Override
+        public void click(By locator) {
+            super.click(locator);
+        }
+
+        @Override
+        public void type(By locator, String text) {
+            super.type(locator, text);
+        }
+
+        @Override
+        public String getText(By locator) {
+            return super.getText(locator);
+        }
+
+        @Override
+        public boolean isDisplayed(By locator, int timeoutSeconds) {
+            return super.isDisplayed(locator, timeoutSeconds);
+        }
+
+        @Override
+        public WebElement scrollToText(String text) {
+            return super.scrollToText(text);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package artifacts;
+
+import config.AppConfig;
+import metrics.EventJournal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes test artifacts (screenshots, page sources, logs) on background threads, so a failing
+ * test hands its artifacts over and the next test starts at once.
+ *
+ * The queue is bounded: when the writers fall behind (a cascade of failures), submitting blocks
+ * until a slot frees up instead of piling screenshots up in memory. Screenshots are submitted
+ * as the driver's base64 and decoded by the writer; text artifacts can be gzipped on the way.
+ * Each file is written next to its target and moved into place, so a file that exists is
+ * complete. {@link #flush} waits for everything submitted so far, which the suite end does.
+ */
+public class ArtifactWriter implements AutoCloseable {
+    private static volatile ArtifactWriter shared;
+
+    private final BlockingQueue<Job> queue;
+    private final int capacity;
+    private final Thread[] writers;
+    private final Object idle = new Object();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger maxQueued = new AtomicInteger();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong stallNanos = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * @param capacity artifacts that may wait for a writer before submitting blocks
+     * @param threads  background writer threads
+     */
+    public ArtifactWriter(int capacity, int threads) {
+        if (capacity < 1 || threads < 1) {
+            throw new IllegalArgumentException("Invalid artifact writer: capacity=" + capacity + ", threads=" + threads);
+        }
+        this.capacity = capacity;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            writers[i] = new Thread(this::drain, "artifact-writer-" + i);
+            writers[i].setDaemon(true);
+            writers[i].start();
+        }
+    }
+
+    /**
+     * The writer shared by the listeners, sized by artifacts.queue and artifacts.writers.
+     */
+    public static ArtifactWriter shared() {
+        if (shared == null) {
+            synchronized (ArtifactWriter.class) {
+                if (shared == null) {
+                    shared = new ArtifactWriter(AppConfig.getArtifactQueueCapacity(), AppConfig.getArtifactWriters());
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Write the bytes to the target file.
+     */
+    public void submit(Path target, byte[] content) {
+        enqueue(new Job(target, () -> content));
+    }
+
+    /**
+     * Write a base64 payload (as returned by getScreenshotAs(OutputType.BASE64)) decoded.
+     */
+    public void submitBase64(Path target, String base64) {
+        enqueue(new Job(target, () -> Base64.getMimeDecoder().decode(base64)));
+    }
+
+    /**
+     * Write text as UTF-8, gzipped when asked (the target name should then end in .gz).
+     */
+    public void submitText(Path target, String text, boolean gzip) {
+        enqueue(new Job(target, () -> gzip ? gzip(text) : text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Wait until every artifact submitted so far is on disk (or has failed).
+     *
+     * @return false if some were still pending when the timeout expired
+     */
+    public boolean flush(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (idle) {
+            while (pending.get() > 0) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    return false;
+                }
+                try {
+                    idle.wait(remainingMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * Most artifacts ever waiting in the queue at once; never above the capacity.
+     */
+    public int getMaxQueued() {
+        return maxQueued.get();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Time submitters spent blocked on a full queue, in milliseconds.
+     */
+    public long getStallMillis() {
+        return stallNanos.get() / 1_000_000;
+    }
+
+    /**
+     * One line for the console run summary.
+     */
+    public String summary() {
+        return "Artifacts: " + written.get() + " written (" + bytesWritten.get() / 1024 + " KB), "
+                + failed.get() + " failed, " + getStallMillis() + "ms blocked on a full queue (capacity "
+                + capacity + ")";
+    }
+
+    /**
+     * Flush (up to 30 s) and stop the writer threads.
+     */
+    @Override
+    public void close() {
+        flush(Duration.ofSeconds(30));
+        closed = true;
+        for (Thread writer : writers) {
+            writer.interrupt();
+        }
+    }
+
+    private void enqueue(Job job) {
+        if (closed) {
+            throw new IllegalStateException("Artifact writer is closed: " + job.target);
+        }
+        pending.incrementAndGet();
+        try {
+            if (!queue.offer(job)) {
+                long start = System.nanoTime();
+                queue.put(job);
+                stallNanos.addAndGet(System.nanoTime() - start);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finished();
+            throw new RuntimeException("Interrupted while queueing artifact " + job.target, e);
+        }
+        maxQueued.accumulateAndGet(queue.size(), Math::max);
+    }
+
+    private void drain() {
+        while (!closed) {
+            Job job;
+            try {
+                job = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                byte[] content = job.content.get();
+                write(job.target, content);
+                written.incrementAndGet();
+                bytesWritten.addAndGet(content.length);
+                EventJournal.record("artifact", "path", job.target.toString(), "bytes", content.length);
+            } catch (IOException | RuntimeException e) {
+                failed.incrementAndGet();
+                EventJournal.record("artifact", "path", job.target.toString(), "error", String.valueOf(e.getMessage()));
+            } finally {
+                finished();
+            }
+        }
+    }
+
+    private void finished() {
+        if (pending.decrementAndGet() == 0) {
+            synchronized (idle) {
+                idle.notifyAll();
+            }
+        }
+    }
+
+    private static void write(Path target, byte[] content) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path partial = Files.createTempFile(directory, target.getFileName().toString(), ".part");
+        try {
+            Files.write(partial, content);
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    private static byte[] gzip(String text) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static final class Job {
+        private final Path target;
+        private final Supplier<byte[]> content;
+
+        private Job(Path target, Supplier<byte[]> content) {
+            this.target = target;
+            this.content = content;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package artifacts;
+
+import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.logging.LogEntry;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Everything needed to diagnose a failure without rerunning: screenshot, page source and the
+ * logcat tail, fetched concurrently into one bundle directory with a bundle.json manifest.
+ *
+ * The three fetches run on capture threads, under a single time cap. The caller waits for the
+ * screenshot and page source, at most until the cap, because they show the screen as it was at
+ * the failure and the next test would change it. The logcat lines are filtered to the failure
+ * time, so logcat finishes in the background. A fetch that hangs past the cap is recorded as
+ * timed out in the manifest and abandoned. Its thread is not reused, so it cannot hold up later
+ * bundles. Files are written through the {@link ArtifactWriter}.
+ *
+ * The fetches keep using the failed test's driver after capture returns, so whoever quits,
+ * resets or hands on that session first waits for them with {@link #awaitCaptures}.
+ */
+public class FailureCapture {
+    public static final String SCREENSHOT = "screenshot.png";
+    public static final String PAGE_SOURCE = "page-source.xml";
+    public static final String LOGCAT = "logcat.txt";
+    public static final String MANIFEST = "bundle.json";
+
+    private static final ExecutorService captureThreads = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "failure-capture");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Map<AndroidDriver, Set<CompletableFuture<Void>>> inFlight = new ConcurrentHashMap<>();
+    private static final AtomicInteger unfinished = new AtomicInteger();
+    private static final Object finished = new Object();
+
+    private final ArtifactWriter writer;
+    private final Duration cap;
+    private final int logcatLines;
+
+    /**
+     * @param cap         longest any fetch may take, measured from the start of the capture
+     * @param logcatLines logcat lines kept, the most recent before the failure
+     */
+    public FailureCapture(ArtifactWriter writer, Duration cap, int logcatLines) {
+        this.writer = writer;
+        this.cap = cap;
+        this.logcatLines = logcatLines;
+    }
+
+    /**
+     * Fetch the bundle for a failed test into the directory.
+     *
+     * @return the manifest: test, failure, and per artifact "ok", "timeout" or "error: ..."
+     *         with its fetch time. The logcat entry may still read "pending"; the manifest
+     *         file itself is written once logcat is done too.
+     */
+    public Map<String, Object> capture(AndroidDriver driver, String testName, Throwable failure, Path bundleDir) {
+        long start = System.nanoTime();
+        long failedAt = System.currentTimeMillis();
+        Map<String, Object> manifest = new LinkedHashMap<>();
+        manifest.put("test", testName);
+        manifest.put("failure", failure == null ? null : String.valueOf(failure));
+        manifest.put("capturedAt", Instant.ofEpochMilli(failedAt).toString());
+        Map<String, Object> artifacts = new LinkedHashMap<>();
+        manifest.put("artifacts", artifacts);
+
+        CompletableFuture<String> screenshot = fetch(driver, () -> driver.getScreenshotAs(OutputType.BASE64));
+        CompletableFuture<String> source = fetch(driver, driver::getPageSource);
+        CompletableFuture<String> logcat = fetch(driver, () -> logcatTail(driver, failedAt));
+
+        artifacts.put(SCREENSHOT, collect(screenshot, start, content ->
+                writer.submitBase64(bundleDir.resolve(SCREENSHOT), content)));
+        artifacts.put(PAGE_SOURCE, collect(source, start, content ->
+                writer.submitText(bundleDir.resolve(PAGE_SOURCE), content, false)));
+        artifacts.put(LOGCAT, "pending");
+
+        Map<String, Object> result = new LinkedHashMap<>(manifest);
+        result.put("artifacts", new LinkedHashMap<>(artifacts));
+        unfinished.incrementAndGet();
+        CompletableFuture.runAsync(() -> {
+            try {
+                artifacts.put(LOGCAT, collect(logcat, start, content ->
+                        writer.submitText(bundleDir.resolve(LOGCAT), content, false)));
+                writer.submitText(bundleDir.resolve(MANIFEST), new Json().toJson(manifest), false);
+            } finally {
+                synchronized (finished) {
+                    unfinished.decrementAndGet();
+                    finished.notifyAll();
+                }
+            }
+        }, captureThreads);
+        return result;
+    }
+
+    /**
+     * Wait until every bundle has handed all its files to the writer; flush the writer afterwards.
+     *
+     * @return false if some were still capturing when the timeout expired
+     */
+    public static boolean awaitBundles(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (finished) {
+            while (unfinished.get() > 0) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    return false;
+                }
+                try {
+                    finished.wait(remainingMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wait until no capture thread is using the driver any more, at most for the timeout.
+     *
+     * @return false if a fetch was still running when the timeout expired
+     */
+    public static boolean awaitCaptures(AndroidDriver driver, Duration timeout) {
+        Set<CompletableFuture<Void>> fetches = inFlight.get(driver);
+        if (fetches == null || fetches.isEmpty()) {
+            return true;
+        }
+        try {
+            CompletableFuture.allOf(fetches.toArray(new CompletableFuture[0]))
+                    .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Run the fetch on a capture thread. The returned future may be given up on at the cap; the
+     * fetch itself stays registered against the driver until its thread is done with it.
+     */
+    private static CompletableFuture<String> fetch(AndroidDriver driver, Supplier<String> fetch) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        CompletableFuture<Void> running = new CompletableFuture<>();
+        inFlight.compute(driver, (key, fetches) -> {
+            Set<CompletableFuture<Void>> registered = fetches == null ? ConcurrentHashMap.newKeySet() : fetches;
+            registered.add(running);
+            return registered;
+        });
+        running.whenComplete((ignored, error) -> inFlight.computeIfPresent(driver, (key, fetches) -> {
+            fetches.remove(running);
+            return fetches.isEmpty() ? null : fetches;
+        }));
+        captureThreads.execute(() -> {
+            try {
+                result.complete(fetch.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                running.complete(null);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Wait for the fetch until the cap (counted from the capture start) and hand its content to
+     * the sink; describe the outcome for the manifest.
+     */
+    private String collect(CompletableFuture<String> fetch, long startNanos, Consumer<String> sink) {
+        long remainingNanos = cap.toNanos() - (System.nanoTime() - startNanos);
+        try {
+            String content = fetch.get(Math.max(0, remainingNanos), TimeUnit.NANOSECONDS);
+            sink.accept(content);
+            return "ok " + (System.nanoTime() - startNanos) / 1_000_000 + "ms";
+        } catch (TimeoutException e) {
+            fetch.cancel(true);
+            return "timeout after " + cap.toMillis() + "ms";
+        } catch (ExecutionException e) {
+            return "error: " + String.valueOf(e.getCause().getMessage()).lines().findFirst().orElse("");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "interrupted";
+        }
+    }
+
+    private String logcatTail(AndroidDriver driver, long failedAt) {
+        List<String> lines = new ArrayList<>();
+        for (LogEntry entry : driver.manage().logs().get("logcat")) {
+            if (entry.getTimestamp() <= failedAt) {
+                lines.add(Instant.ofEpochMilli(entry.getTimestamp()) + " " + entry.getLevel() + " " + entry.getMessage());
+            }
+        }
+        return String.join("\n", lines.subList(Math.max(0, lines.size() - logcatLines), lines.size())) + "\n";
+    }
+}
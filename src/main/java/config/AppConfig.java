@@ -1,7 +1,12 @@
 package config;
 
+import scheduler.TestOrder;
+
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -23,53 +28,298 @@ public class AppConfig {
         }
     }
 
+    /**
+     * Read a setting. A JVM system property with the same key (-Dkey=value) wins over the file.
+     */
+    private static String getProperty(String key, String defaultValue) {
+        String override = System.getProperty(key);
+        if (override != null) {
+            return override;
+        }
+        return properties.getProperty(key, defaultValue);
+    }
+
     // App settings
     public static String getAppPath() {
-        return properties.getProperty("app.path", "app/trust_test.apk");
+        return getProperty("app.path", "app/trust_test.apk");
     }
 
     public static String getAppPackage() {
-        return properties.getProperty("app.package", "com.example.trusttest");
+        return getProperty("app.package", "com.example.trusttest");
     }
 
     public static String getAppActivity() {
-        return properties.getProperty("app.activity", "com.example.trusttest.MainActivity");
+        return getProperty("app.activity", "com.example.trusttest.MainActivity");
     }
 
     // Device settings
     public static String getDeviceName() {
-        return properties.getProperty("device.name", "Android Device");
+        return getProperty("device.name", "Android Device");
     }
 
     public static String getPlatformVersion() {
-        return properties.getProperty("platform.version", "8.0");
+        return getProperty("platform.version", "8.0");
     }
 
     public static String getUdid() {
-        return properties.getProperty("device.udid", "");
+        return getProperty("device.udid", "");
     }
 
     // Appium settings
     public static String getAppiumUrl() {
-        return properties.getProperty("appium.url", "http://127.0.0.1:4723");
+        return getProperty("appium.url", "http://127.0.0.1:4723");
+    }
+
+    // Parallel execution and session lifecycle
+
+    /**
+     * Devices to run on. device.list holds comma-separated "udid@appiumUrl" entries;
+     * when empty, the single device.udid / appium.url pair is used.
+     * Devices get distinct UiAutomator2 system ports starting at device.systemPort.base.
+     */
+    public static List<DeviceTarget> getDevices() {
+        String list = getProperty("device.list", "").trim();
+        if (list.isEmpty()) {
+            return Collections.singletonList(DeviceTarget.fromConfig());
+        }
+        String[] entries = list.split(",");
+        int basePort = Integer.parseInt(getProperty("device.systemPort.base", "8200"));
+        List<DeviceTarget> devices = new ArrayList<>();
+        for (int i = 0; i < entries.length; i++) {
+            if (!entries[i].isBlank()) {
+                int systemPort = entries.length > 1 ? basePort + i : 0;
+                devices.add(DeviceTarget.parse(entries[i], getAppiumUrl(), systemPort));
+            }
+        }
+        return devices;
+    }
+
+    public static int getDeviceAcquireTimeout() {
+        return Integer.parseInt(getProperty("device.acquire.timeout", "300"));
+    }
+
+    public static SessionLifecycle getSessionLifecycle() {
+        return SessionLifecycle.fromConfig(getProperty("session.lifecycle", "class"));
+    }
+
+    /**
+     * Reset the app of a released warm session only when the next class takes it, so classes
+     * starting logged in can continue from where the previous class left the app.
+     */
+    public static boolean isAppResetDeferred() {
+        return Boolean.parseBoolean(getProperty("session.reset.deferred", "false"));
+    }
+
+    /**
+     * Deep link opening the app logged in on a tab, with {tab} standing for list, buttons,
+     * switches or input. Empty when the app has none; fixtures then log in through the UI.
+     */
+    public static String getFixtureDeepLink() {
+        return getProperty("fixture.deeplink", "");
+    }
+
+    /**
+     * Append-only history of suite, class and test durations and outcomes across runs.
+     */
+    public static String getDurationHistoryPath() {
+        return getProperty("history.path", "test-output/history/durations.tsv");
+    }
+
+    /**
+     * Order of test classes on each device: suite, slowest-first or failing-first.
+     */
+    public static TestOrder getTestOrder() {
+        return TestOrder.fromConfig(getProperty("schedule.order", "suite"));
+    }
+
+    /**
+     * Relative slowdown (0.2 = 20%) of recent runs over older ones reported at suite end.
+     */
+    public static double getTrendThreshold() {
+        return Double.parseDouble(getProperty("history.trend.threshold", "0.2"));
+    }
+
+    public static boolean isSessionPrewarmEnabled() {
+        return Boolean.parseBoolean(getProperty("session.prewarm", "false"));
+    }
+
+    // Stub server
+
+    /**
+     * Directory holding the recorded hierarchy dumps served by stub.StubAppiumServer.
+     * Locator rewrites are verified against the same dumps.
+     */
+    public static String getStubDumpDir() {
+        return getProperty("stub.dumps", ".");
+    }
+
+    /**
+     * Run the suite against stub.StubAppiumServer serving the golden states in replay.dir
+     * instead of a device: no Appium server, emulator or APK needed.
+     */
+    public static boolean isReplayEnabled() {
+        return Boolean.parseBoolean(getProperty("replay.enabled", "false"));
+    }
+
+    /**
+     * Golden states replayed in replay mode; defaults to stub.dumps.
+     */
+    public static String getReplayDir() {
+        return getProperty("replay.dir", getStubDumpDir());
+    }
+
+    /**
+     * Directory a live run records golden states into (the first time each screen is seen),
+     * named as replay mode loads them. Empty to not record.
+     */
+    public static String getGoldenRecordDir() {
+        return getProperty("golden.record.dir", "");
+    }
+
+    // Locators
+
+    /**
+     * Send verified resource-id / accessibility id equivalents instead of text-based locators.
+     */
+    public static boolean isLocatorRewriteEnabled() {
+        return Boolean.parseBoolean(getProperty("locator.rewrite", "false"));
+    }
+
+    /**
+     * Reuse resolved element handles within a page object until navigation or staleness.
+     */
+    public static boolean isElementCacheEnabled() {
+        return Boolean.parseBoolean(getProperty("element.cache", "false"));
     }
 
     // Timeouts
+    /**
+     * Implicit wait in seconds; replay.timeout in replay mode, where a screen never changes by waiting.
+     */
     public static int getImplicitWait() {
-        return Integer.parseInt(properties.getProperty("timeout.implicit", "10"));
+        return Integer.parseInt(isReplayEnabled() ? getReplayTimeout() : getProperty("timeout.implicit", "10"));
     }
 
+    /**
+     * Explicit wait in seconds; replay.timeout in replay mode.
+     */
     public static int getExplicitWait() {
-        return Integer.parseInt(properties.getProperty("timeout.explicit", "15"));
+        return Integer.parseInt(isReplayEnabled() ? getReplayTimeout() : getProperty("timeout.explicit", "15"));
+    }
+
+    private static String getReplayTimeout() {
+        return getProperty("replay.timeout", "1");
+    }
+
+    /**
+     * First pause between polls of a WaitEngine condition, in milliseconds.
+     */
+    public static long getPollInterval() {
+        return Long.parseLong(getProperty("wait.poll.interval", "100"));
+    }
+
+    /**
+     * Factor the poll pause grows by after every unsuccessful poll (1 = fixed interval).
+     */
+    public static double getPollBackoff() {
+        return Double.parseDouble(getProperty("wait.poll.backoff", "1.5"));
+    }
+
+    /**
+     * Upper bound of the poll pause, in milliseconds.
+     */
+    public static long getPollMaxInterval() {
+        return Long.parseLong(getProperty("wait.poll.max", "1000"));
+    }
+
+    /**
+     * How long the screen must stay unchanged to count as settled, in milliseconds.
+     */
+    public static long getStableQuiet() {
+        return Long.parseLong(getProperty("wait.stable.quiet", "300"));
+    }
+
+    /**
+     * Longest wait for the screen to settle, in milliseconds.
+     */
+    public static long getStableTimeout() {
+        return Long.parseLong(getProperty("wait.stable.timeout", "5000"));
+    }
+
+    /**
+     * Log in with one driver-script round trip when the Appium server allows it.
+     */
+    public static boolean isBulkFillEnabled() {
+        return Boolean.parseBoolean(getProperty("login.bulk", "false"));
+    }
+
+    /**
+     * Scroll lists to an item with gestures computed from the visible rows instead of UiScrollable.
+     */
+    public static boolean isPredictiveScrollEnabled() {
+        return Boolean.parseBoolean(getProperty("list.scroll.predictive", "false"));
+    }
+
+    /**
+     * Artifacts (screenshots, page sources) that may wait for a writer before a failing test blocks.
+     */
+    public static int getArtifactQueueCapacity() {
+        return Integer.parseInt(getProperty("artifacts.queue", "16"));
+    }
+
+    /**
+     * Background threads writing artifacts to disk.
+     */
+    public static int getArtifactWriters() {
+        return Integer.parseInt(getProperty("artifacts.writers", "1"));
+    }
+
+    /**
+     * Longest a failure bundle's screenshot, page source or logcat fetch may take, in milliseconds.
+     */
+    public static long getFailureCaptureTimeout() {
+        return Long.parseLong(getProperty("failure.capture.timeout", "5000"));
+    }
+
+    /**
+     * Most recent logcat lines kept in a failure bundle.
+     */
+    public static int getFailureLogcatLines() {
+        return Integer.parseInt(getProperty("failure.logcat.lines", "200"));
+    }
+
+    /**
+     * Record suite, test, session, command, wait and artifact events to a JSONL journal.
+     */
+    public static boolean isJournalEnabled() {
+        return Boolean.parseBoolean(getProperty("journal.enabled", "false"));
+    }
+
+    public static String getJournalDir() {
+        return getProperty("journal.dir", "test-output/journal");
+    }
+
+    /**
+     * Name of this run in the journal, to tell shards apart once merged; defaults to the process id.
+     */
+    public static String getJournalRun() {
+        return getProperty("journal.run", "pid-" + ProcessHandle.current().pid());
+    }
+
+    /**
+     * Events that may wait for the journal writer before new ones are dropped.
+     */
+    public static int getJournalQueueCapacity() {
+        return Integer.parseInt(getProperty("journal.queue", "65536"));
     }
 
     // Credentials
     public static String getUsername() {
-        return properties.getProperty("login.username", "admin");
+        return getProperty("login.username", "admin");
     }
 
     public static String getPassword() {
-        return properties.getProperty("login.password", "password");
+        return getProperty("login.password", "password");
     }
 }
 
@@ -0,0 +1,64 @@
+package config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of devices available to worker threads.
+ * A device is leased by exactly one thread at a time and returned when its session ends.
+ */
+public class DevicePool {
+    private final List<DeviceTarget> devices;
+    private final BlockingQueue<DeviceTarget> free;
+
+    public DevicePool(List<DeviceTarget> devices) {
+        if (devices.isEmpty()) {
+            throw new IllegalArgumentException("Device pool needs at least one device");
+        }
+        this.devices = Collections.unmodifiableList(new ArrayList<>(devices));
+        this.free = new LinkedBlockingQueue<>(devices);
+    }
+
+    /**
+     * Lease a free device, waiting up to the given timeout for another thread to release one.
+     */
+    public DeviceTarget acquire(Duration timeout) {
+        try {
+            DeviceTarget device = free.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (device == null) {
+                throw new IllegalStateException("No free device within " + timeout.getSeconds()
+                        + "s (pool size " + devices.size() + "). Lower the TestNG thread-count or add devices.");
+            }
+            return device;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a free device");
+        }
+    }
+
+    /**
+     * Return a leased device to the pool. Devices not owned by this pool are ignored.
+     */
+    public void release(DeviceTarget device) {
+        if (devices.contains(device) && !free.contains(device)) {
+            free.offer(device);
+        }
+    }
+
+    public boolean contains(DeviceTarget device) {
+        return devices.contains(device);
+    }
+
+    public List<DeviceTarget> getDevices() {
+        return devices;
+    }
+
+    public int size() {
+        return devices.size();
+    }
+}
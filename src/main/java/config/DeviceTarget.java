@@ -0,0 +1,79 @@
+package config;
+
+import java.util.Objects;
+
+/**
+ * A single Android device reachable through an Appium server.
+ * Used as the key of the driver registry: at most one session per device.
+ */
+public final class DeviceTarget {
+    private final String udid;
+    private final String appiumUrl;
+    private final int systemPort;
+
+    public DeviceTarget(String udid, String appiumUrl) {
+        this(udid, appiumUrl, 0);
+    }
+
+    /**
+     * @param systemPort UiAutomator2 system port, required to be unique when several
+     *                   devices share one Appium server (0 lets Appium pick the default)
+     */
+    public DeviceTarget(String udid, String appiumUrl, int systemPort) {
+        this.udid = udid == null ? "" : udid;
+        this.appiumUrl = Objects.requireNonNull(appiumUrl, "appiumUrl");
+        this.systemPort = systemPort;
+    }
+
+    /**
+     * Device described by the single-device settings in config.properties.
+     */
+    public static DeviceTarget fromConfig() {
+        return new DeviceTarget(AppConfig.getUdid(), AppConfig.getAppiumUrl());
+    }
+
+    /**
+     * Parse a device list entry: "udid@http://host:port" or just "udid" (uses the default URL).
+     */
+    public static DeviceTarget parse(String spec, String defaultUrl, int systemPort) {
+        int at = spec.indexOf('@');
+        if (at < 0) {
+            return new DeviceTarget(spec.trim(), defaultUrl, systemPort);
+        }
+        return new DeviceTarget(spec.substring(0, at).trim(), spec.substring(at + 1).trim(), systemPort);
+    }
+
+    public String getUdid() {
+        return udid;
+    }
+
+    public String getAppiumUrl() {
+        return appiumUrl;
+    }
+
+    public int getSystemPort() {
+        return systemPort;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DeviceTarget)) {
+            return false;
+        }
+        DeviceTarget other = (DeviceTarget) o;
+        return udid.equals(other.udid) && appiumUrl.equals(other.appiumUrl);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(udid, appiumUrl);
+    }
+
+    @Override
+    public String toString() {
+        return (udid.isEmpty() ? "default" : udid) + "@" + appiumUrl;
+    }
+}
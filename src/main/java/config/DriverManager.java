@@ -1,52 +1,293 @@
 package config;
 
+import artifacts.FailureCapture;
 import io.appium.java_client.android.AndroidDriver;
 import io.appium.java_client.android.options.UiAutomator2Options;
+import metrics.EventJournal;
+import metrics.TimedCommandExecutor;
 import org.openqa.selenium.support.ui.WebDriverWait;
+import waits.BudgetedWait;
+import waits.WaitEngine;
 
 import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
- * Manages AndroidDriver instance and configuration.
- * Implements singleton pattern for driver reuse across tests.
+ * Manages AndroidDriver instances and configuration.
+ * Each worker thread owns at most one session, and each device serves at most one session,
+ * so TestNG can run classes in parallel (one thread per device) without sharing a driver.
+ * With {@link SessionLifecycle#SUITE} released sessions stay warm and are handed to the
+ * next class on the same device after an app reset. {@link #prewarm()} starts session
+ * creation in the background so the first class does not pay for it in full.
  */
 public class DriverManager {
-    private static AndroidDriver driver;
-    private static WebDriverWait wait;
+    private static final Duration NEW_COMMAND_TIMEOUT = Duration.ofSeconds(300);
+
+    private static final ThreadLocal<DriverSession> currentSession = new ThreadLocal<>();
+    private static final ThreadLocal<DeviceTarget> boundDevice = new ThreadLocal<>();
+    private static final Map<DeviceTarget, DriverSession> activeSessions = new ConcurrentHashMap<>();
+    private static final Map<DeviceTarget, DriverSession> warmSessions = new ConcurrentHashMap<>();
+    private static final Map<DeviceTarget, CompletableFuture<DriverSession>> prewarmingSessions =
+            new ConcurrentHashMap<>();
+    private static final ExecutorService prewarmExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "session-prewarm");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static volatile DevicePool devicePool;
+    private static volatile CompletableFuture<File> resolvedApp;
 
     /**
-     * Initialize and return AndroidDriver instance.
-     * Creates new driver if none exists.
+     * Initialize and return the AndroidDriver of the calling thread.
+     * Creates a new session on a free device if the thread has none.
      */
     public static AndroidDriver getDriver() {
-        if (driver == null) {
-            initializeDriver();
+        return getDriver(false);
+    }
+
+    /**
+     * Like {@link #getDriver()}, but a warm session whose app reset was deferred
+     * (session.reset.deferred) is handed over with the app as the previous class left it.
+     * The caller takes responsibility for bringing the app into the state it needs.
+     */
+    public static AndroidDriver getDriverKeepingAppState() {
+        return getDriver(true);
+    }
+
+    private static AndroidDriver getDriver(boolean keepAppState) {
+        DriverSession session = currentSession.get();
+        if (session == null) {
+            session = openSession();
+            currentSession.set(session);
+            EventJournal.setThreadDevice(session.device.toString());
+            EventJournal.record("session.start", "sessionId", String.valueOf(session.driver.getSessionId()),
+                    "creationMs", session.creationNanos / 1_000_000);
+        }
+        if (session.appResetPending) {
+            if (keepAppState) {
+                session.appResetPending = false;
+            } else {
+                resetApp();
+            }
         }
-        return driver;
+        return session.driver;
+    }
+
+    /**
+     * Return the calling thread's driver without creating one, or null.
+     */
+    public static AndroidDriver getCurrentDriver() {
+        DriverSession session = currentSession.get();
+        return session == null ? null : session.driver;
+    }
+
+    /**
+     * How often the calling thread's session has reset its app, 0 without a session. Lets page
+     * objects tell whether what they last saw on screen can still be there.
+     */
+    public static long getAppResetCount() {
+        DriverSession session = currentSession.get();
+        return session == null ? 0 : session.appResets;
     }
 
     /**
      * Get WebDriverWait instance for explicit waits.
      */
     public static WebDriverWait getWait() {
-        if (wait == null) {
-            wait = new WebDriverWait(getDriver(), Duration.ofSeconds(AppConfig.getExplicitWait()));
+        getDriver();
+        return currentSession.get().wait;
+    }
+
+    /**
+     * Get the WaitEngine for presence/absence checks on the calling thread's session.
+     */
+    public static WaitEngine getWaitEngine() {
+        getDriver();
+        return currentSession.get().waits;
+    }
+
+    /**
+     * Device the calling thread's session runs on, or null if it has no session.
+     */
+    public static DeviceTarget getCurrentDevice() {
+        DriverSession session = currentSession.get();
+        return session == null ? null : session.device;
+    }
+
+    /**
+     * Pin the calling thread to a specific device instead of leasing one from the pool.
+     * Takes effect for the next session opened on this thread.
+     */
+    public static void bindDevice(DeviceTarget device) {
+        boundDevice.set(device);
+    }
+
+    /**
+     * Replace the device pool used by threads that are not bound to a device.
+     */
+    public static synchronized void configureDevices(List<DeviceTarget> devices) {
+        devicePool = new DevicePool(devices);
+    }
+
+    /**
+     * Devices of the pool, one entry per attached device.
+     */
+    public static List<DeviceTarget> getDevices() {
+        return getDevicePool().getDevices();
+    }
+
+    private static DevicePool getDevicePool() {
+        DevicePool pool = devicePool;
+        if (pool == null) {
+            synchronized (DriverManager.class) {
+                if (devicePool == null) {
+                    devicePool = new DevicePool(AppConfig.getDevices());
+                }
+                pool = devicePool;
+            }
         }
-        return wait;
+        return pool;
+    }
+
+    /**
+     * Lease a device for the calling thread and start a session on it.
+     */
+    private static DriverSession openSession() {
+        DeviceTarget device = boundDevice.get();
+        boolean pooled = device == null;
+        if (pooled) {
+            device = getDevicePool().acquire(Duration.ofSeconds(AppConfig.getDeviceAcquireTimeout()));
+        }
+
+        DriverSession session = new DriverSession(device, pooled);
+        DriverSession existing = activeSessions.putIfAbsent(device, session);
+        if (existing != null) {
+            throw new IllegalStateException("Device " + device + " is already in use by thread "
+                    + existing.owner.getName());
+        }
+
+        DriverSession warm = takeWarmSession(device);
+        if (warm != null) {
+            SessionStats.recordReuse();
+            EventJournal.record("session.reuse", "target", device.toString());
+        } else {
+            warm = awaitPrewarmedSession(device);
+        }
+        if (warm != null) {
+            activeSessions.replace(device, session, warm);
+            warm.owner = Thread.currentThread();
+            warm.pooled = pooled;
+            return warm;
+        }
+
+        try {
+            createDriver(session);
+            return session;
+        } catch (RuntimeException e) {
+            activeSessions.remove(device, session);
+            if (pooled) {
+                getDevicePool().release(device);
+            }
+            throw e;
+        }
+    }
+
+    private static void createDriver(DriverSession session) {
+        long start = System.nanoTime();
+        session.driver = initializeDriver(session.device);
+        session.creationNanos = System.nanoTime() - start;
+        SessionStats.recordCreation(session.creationNanos);
+        session.wait = new BudgetedWait(session.driver, Duration.ofSeconds(AppConfig.getExplicitWait()));
+        session.waits = new WaitEngine(session.driver, Duration.ofSeconds(AppConfig.getImplicitWait()));
+    }
+
+    /**
+     * Start creating one session per pooled device in the background, together with APK resolution.
+     * Meant to be called once when the suite loads; the first getDriver() on a device awaits
+     * the returned work instead of starting its own handshake.
+     *
+     * @return future completing when every pre-warm attempt has finished (successfully or not)
+     */
+    public static CompletableFuture<Void> prewarm() {
+        resolveAppAsync();
+        List<CompletableFuture<DriverSession>> started = new ArrayList<>();
+        for (DeviceTarget device : getDevices()) {
+            if (activeSessions.containsKey(device) || warmSessions.containsKey(device)) {
+                continue;
+            }
+            CompletableFuture<DriverSession> future = prewarmingSessions.computeIfAbsent(device,
+                    d -> CompletableFuture.supplyAsync(() -> {
+                        DriverSession session = new DriverSession(d, true);
+                        createDriver(session);
+                        return session;
+                    }, prewarmExecutor));
+            started.add(future);
+        }
+        EventJournal.record("session.prewarm", "sessions", started.size());
+        return CompletableFuture.allOf(started.toArray(new CompletableFuture[0]))
+                .handle((ignored, error) -> null);
+    }
+
+    /**
+     * Claim the device's pre-warmed session, waiting for it if still being created.
+     * Returns null if none was started or creation failed (the caller then creates one itself).
+     */
+    private static DriverSession awaitPrewarmedSession(DeviceTarget device) {
+        CompletableFuture<DriverSession> future = prewarmingSessions.remove(device);
+        if (future == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        try {
+            DriverSession session = future.join();
+            long waitedNanos = System.nanoTime() - start;
+            SessionStats.recordPrewarmClaim(session.creationNanos, waitedNanos);
+            EventJournal.record("session.prewarm.claim", "target", device.toString(),
+                    "waitedMs", waitedNanos / 1_000_000, "creationMs", session.creationNanos / 1_000_000);
+            return session;
+        } catch (Exception e) {
+            EventJournal.record("session.prewarm.failed", "target", device.toString(), "error", String.valueOf(e.getMessage()));
+            return null;
+        }
+    }
+
+    /**
+     * Resolve the APK location once; shared by every session created during the run.
+     */
+    private static CompletableFuture<File> resolveAppAsync() {
+        CompletableFuture<File> app = resolvedApp;
+        if (app == null) {
+            synchronized (DriverManager.class) {
+                if (resolvedApp == null) {
+                    resolvedApp = CompletableFuture.supplyAsync(() -> {
+                        File appFile = new File(AppConfig.getAppPath()).getAbsoluteFile();
+                        return appFile.exists() ? appFile : null;
+                    }, prewarmExecutor);
+                }
+                app = resolvedApp;
+            }
+        }
+        return app;
     }
 
     /**
      * Initialize the AndroidDriver with UiAutomator2 options.
      */
-    private static void initializeDriver() {
+    private static AndroidDriver initializeDriver(DeviceTarget device) {
         UiAutomator2Options options = new UiAutomator2Options();
 
         // Set app path
-        File appFile = new File(AppConfig.getAppPath());
-        if (appFile.exists()) {
+        File appFile = resolveAppAsync().join();
+        if (appFile != null) {
             options.setApp(appFile.getAbsolutePath());
         } else {
             // If APK not found, use package/activity (app must be installed)
@@ -60,54 +301,211 @@ public class DriverManager {
         options.setAutomationName("UiAutomator2");
 
         // Set UDID if specified (for specific device)
-        String udid = AppConfig.getUdid();
+        String udid = device.getUdid();
         if (udid != null && !udid.isEmpty()) {
             options.setUdid(udid);
         }
+        // Parallel sessions on one Appium server need distinct UiAutomator2 ports
+        if (device.getSystemPort() > 0) {
+            options.setSystemPort(device.getSystemPort());
+        }
 
         // Additional options for stability
         options.setNoReset(false);        // Fresh app state for each session
         options.setFullReset(false);      // Don't uninstall app after test
         options.setAutoGrantPermissions(true);  // Auto-grant app permissions
-        options.setNewCommandTimeout(Duration.ofSeconds(300));
+        options.setNewCommandTimeout(NEW_COMMAND_TIMEOUT);
 
         try {
-            URL appiumUrl = new URL(AppConfig.getAppiumUrl());
-            driver = new AndroidDriver(appiumUrl, options);
+            URL appiumUrl = new URL(device.getAppiumUrl());
+            // Every command is timed into CommandMetrics
+            AndroidDriver driver = new AndroidDriver(new TimedCommandExecutor(appiumUrl), options);
             driver.manage().timeouts().implicitlyWait(Duration.ofSeconds(AppConfig.getImplicitWait()));
             System.out.println("Driver initialized successfully!");
+            return driver;
         } catch (MalformedURLException e) {
             throw new RuntimeException("Invalid Appium URL: " + e.getMessage());
         } catch (Exception e) {
-            throw new RuntimeException("Failed to initialize driver: " + e.getMessage());
+            throw new RuntimeException("Failed to initialize driver on " + device + ": " + e.getMessage());
         }
     }
 
     /**
-     * Quit driver and clean up resources.
+     * Take the device's parked session if it is still within Appium's idle timeout.
      */
-    public static void quitDriver() {
-        if (driver != null) {
+    private static DriverSession takeWarmSession(DeviceTarget device) {
+        DriverSession warm = warmSessions.remove(device);
+        if (warm == null) {
+            return null;
+        }
+        long idleMillis = (System.nanoTime() - warm.parkedAt) / 1_000_000;
+        if (idleMillis > NEW_COMMAND_TIMEOUT.toMillis() - 30_000) {
+            EventJournal.record("session.discard", "target", device.toString(), "idleMs", idleMillis);
+            quietlyQuit(warm);
+            return null;
+        }
+        return warm;
+    }
+
+    /**
+     * End the calling thread's use of its driver according to the configured lifecycle:
+     * quit it ({@link SessionLifecycle#CLASS}) or reset the app and park the session
+     * for the next class on the same device ({@link SessionLifecycle#SUITE}).
+     * With session.reset.deferred the reset waits until the next class takes the session with
+     * {@link #getDriver()}; one taking it with {@link #getDriverKeepingAppState()} skips it.
+     */
+    public static void releaseDriver() {
+        if (AppConfig.getSessionLifecycle() == SessionLifecycle.CLASS) {
+            quitDriver();
+            return;
+        }
+        DriverSession session = currentSession.get();
+        if (session == null) {
+            return;
+        }
+        awaitCaptures(session);
+        if (AppConfig.isAppResetDeferred()) {
+            session.appResetPending = true;
+        } else {
             try {
-                driver.quit();
-                System.out.println("Driver quit successfully!");
+                resetApp();
             } catch (Exception e) {
-                System.out.println("Error quitting driver: " + e.getMessage());
-            } finally {
-                driver = null;
-                wait = null;
+                EventJournal.record("session.reset.failed", "error", String.valueOf(e.getMessage()));
+                quitDriver();
+                return;
             }
         }
+        currentSession.remove();
+        EventJournal.record("session.release");
+        EventJournal.setThreadDevice(null);
+        session.parkedAt = System.nanoTime();
+        warmSessions.put(session.device, session);
+        activeSessions.remove(session.device, session);
+        if (session.pooled) {
+            getDevicePool().release(session.device);
+        }
+    }
+
+    /**
+     * Quit the calling thread's driver and return its device to the pool.
+     */
+    public static void quitDriver() {
+        DriverSession session = currentSession.get();
+        if (session != null) {
+            currentSession.remove();
+            closeSession(session);
+            EventJournal.record("session.quit");
+            EventJournal.setThreadDevice(null);
+        }
+    }
+
+    /**
+     * Quit every open session, including those leaked by threads that never called quitDriver().
+     * Intended for suite teardown.
+     */
+    public static void quitAll() {
+        currentSession.remove();
+        for (DriverSession session : new ArrayList<>(activeSessions.values())) {
+            closeSession(session);
+        }
+        for (DriverSession session : new ArrayList<>(warmSessions.values())) {
+            warmSessions.remove(session.device, session);
+            quietlyQuit(session);
+        }
+        for (DeviceTarget device : new ArrayList<>(prewarmingSessions.keySet())) {
+            CompletableFuture<DriverSession> future = prewarmingSessions.remove(device);
+            if (future != null) {
+                future.thenAccept(DriverManager::quietlyQuit);
+            }
+        }
+    }
+
+    private static void quietlyQuit(DriverSession session) {
+        awaitCaptures(session);
+        try {
+            session.driver.quit();
+        } catch (Exception e) {
+            EventJournal.record("session.quit.failed", "target", session.device.toString(),
+                    "error", String.valueOf(e.getMessage()));
+        }
+    }
+
+    private static void closeSession(DriverSession session) {
+        awaitCaptures(session);
+        try {
+            session.driver.quit();
+            System.out.println("Driver quit successfully!");
+        } catch (Exception e) {
+            System.out.println("Error quitting driver: " + e.getMessage());
+        } finally {
+            activeSessions.remove(session.device, session);
+            if (session.pooled) {
+                getDevicePool().release(session.device);
+            }
+        }
+    }
+
+    /**
+     * Let a failure capture still reading from the session (the logcat tail finishes in the
+     * background) finish before the session is quit, reset or handed on.
+     */
+    private static void awaitCaptures(DriverSession session) {
+        if (session.driver != null
+                && !FailureCapture.awaitCaptures(session.driver, Duration.ofMillis(AppConfig.getFailureCaptureTimeout()))) {
+            EventJournal.record("capture.abandoned", "target", session.device.toString());
+        }
     }
 
     /**
      * Reset the app to initial state.
+     * Clears app data (same state a fresh session with noReset=false starts from) and relaunches;
+     * falls back to a plain restart when the server does not support mobile: clearApp.
      */
     public static void resetApp() {
-        if (driver != null) {
-            driver.terminateApp(AppConfig.getAppPackage());
-            driver.activateApp(AppConfig.getAppPackage());
+        DriverSession session = currentSession.get();
+        if (session == null) {
+            return;
+        }
+        awaitCaptures(session);
+        session.appResetPending = false;
+        session.appResets++;
+        long start = System.nanoTime();
+        AndroidDriver driver = session.driver;
+        String appPackage = AppConfig.getAppPackage();
+        if (session.clearAppSupported) {
+            try {
+                driver.executeScript("mobile: clearApp", Map.of("appId", appPackage));
+            } catch (Exception e) {
+                EventJournal.record("session.reset.fallback", "reason", "mobile: clearApp unavailable");
+                session.clearAppSupported = false;
+            }
         }
+        if (!session.clearAppSupported) {
+            driver.terminateApp(appPackage);
+        }
+        driver.activateApp(appPackage);
+        SessionStats.recordAppReset(System.nanoTime() - start);
     }
-}
 
+    /**
+     * A driver session confined to the thread that opened it.
+     */
+    private static final class DriverSession {
+        private final DeviceTarget device;
+        private boolean pooled;
+        private Thread owner = Thread.currentThread();
+        private AndroidDriver driver;
+        private WebDriverWait wait;
+        private WaitEngine waits;
+        private long parkedAt;
+        private long creationNanos;
+        private boolean clearAppSupported = true;
+        private boolean appResetPending;
+        private long appResets;
+
+        private DriverSession(DeviceTarget device, boolean pooled) {
+            this.device = device;
+            this.pooled = pooled;
+        }
+    }
+}
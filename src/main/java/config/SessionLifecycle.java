@@ -0,0 +1,20 @@
+package config;
+
+/**
+ * How long a driver session lives.
+ */
+public enum SessionLifecycle {
+    /** Quit the session after every test class (fresh session per class). */
+    CLASS,
+    /** Keep sessions warm for the whole suite and only reset the app between classes. */
+    SUITE;
+
+    public static SessionLifecycle fromConfig(String value) {
+        for (SessionLifecycle lifecycle : values()) {
+            if (lifecycle.name().equalsIgnoreCase(value.trim())) {
+                return lifecycle;
+            }
+        }
+        throw new IllegalArgumentException("Unknown session.lifecycle '" + value + "', expected class or suite");
+    }
+}
@@ -0,0 +1,100 @@
+package config;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Suite-wide counters for session creation and reuse.
+ */
+public final class SessionStats {
+    private static final AtomicLong sessionsCreated = new AtomicLong();
+    private static final AtomicLong creationNanos = new AtomicLong();
+    private static final AtomicLong sessionsReused = new AtomicLong();
+    private static final AtomicLong appResets = new AtomicLong();
+    private static final AtomicLong resetNanos = new AtomicLong();
+    private static final AtomicLong prewarmedClaimed = new AtomicLong();
+    private static final AtomicLong prewarmOverlapNanos = new AtomicLong();
+
+    private SessionStats() {
+    }
+
+    static void recordCreation(long nanos) {
+        sessionsCreated.incrementAndGet();
+        creationNanos.addAndGet(nanos);
+    }
+
+    static void recordReuse() {
+        sessionsReused.incrementAndGet();
+    }
+
+    static void recordAppReset(long nanos) {
+        appResets.incrementAndGet();
+        resetNanos.addAndGet(nanos);
+    }
+
+    /**
+     * A pre-warmed session was claimed: the part of its creation time the caller did not
+     * have to wait for ran in parallel with suite setup.
+     */
+    static void recordPrewarmClaim(long creationNanos, long waitedNanos) {
+        prewarmedClaimed.incrementAndGet();
+        prewarmOverlapNanos.addAndGet(Math.max(0, creationNanos - waitedNanos));
+    }
+
+    public static long getSessionsCreated() {
+        return sessionsCreated.get();
+    }
+
+    /**
+     * Session creations avoided by handing a warm session to the next class.
+     */
+    public static long getSessionsReused() {
+        return sessionsReused.get();
+    }
+
+    public static long getAverageCreationMillis() {
+        long created = sessionsCreated.get();
+        return created == 0 ? 0 : creationNanos.get() / created / 1_000_000;
+    }
+
+    /**
+     * Session creation time hidden behind suite setup by pre-warming.
+     */
+    public static long getPrewarmOverlapMillis() {
+        return prewarmOverlapNanos.get() / 1_000_000;
+    }
+
+    public static long getTotalResetMillis() {
+        return resetNanos.get() / 1_000_000;
+    }
+
+    /**
+     * Estimated wall-clock time saved: avoided creations at the measured average cost,
+     * minus the time spent resetting the app instead.
+     */
+    public static long getEstimatedSavedMillis() {
+        return sessionsReused.get() * getAverageCreationMillis() - getTotalResetMillis();
+    }
+
+    public static String summary() {
+        return "Sessions created: " + getSessionsCreated()
+                + " (avg " + getAverageCreationMillis() + "ms)"
+                + ", session creations saved: " + getSessionsReused()
+                + ", app resets: " + appResets.get() + " (" + getTotalResetMillis() + "ms)"
+                + ", estimated time saved: " + getEstimatedSavedMillis() + "ms"
+                + ", pre-warmed sessions used: " + prewarmedClaimed.get()
+                + " (overlap gained: " + getPrewarmOverlapMillis() + "ms)";
+    }
+
+    /**
+     * Clear all counters. Used between framework test runs.
+     */
+    public static void reset() {
+        sessionsCreated.set(0);
+        creationNanos.set(0);
+        sessionsReused.set(0);
+        appResets.set(0);
+        resetNanos.set(0);
+        prewarmedClaimed.set(0);
+        prewarmOverlapNanos.set(0);
+    }
+}
@@ -0,0 +1,536 @@
+package hierarchy;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable UI hierarchy (uiautomator dump or UiAutomator2 page source) stored as a
+ * struct-of-arrays tree: node i is a row across int columns, every string is interned once
+ * in a shared pool, and the boolean attributes are packed into one bit mask per node.
+ *
+ * Nodes are numbered in document order, so the subtree of node i is the contiguous range
+ * [i + 1, {@link #subtreeEnd(int)}) and the node order matches what findElements returns.
+ * The &lt;hierarchy&gt; root element itself is not a node; top-level nodes have parent -1.
+ *
+ * Equality checks can compare pool ids instead of strings: {@link #lookup(String)} returns
+ * the id of a string, or -1 when no attribute on this screen has that value.
+ */
+public final class CompactHierarchy {
+
+    public static final int CHECKABLE = 1;
+    public static final int CHECKED = 1 << 1;
+    public static final int CLICKABLE = 1 << 2;
+    public static final int ENABLED = 1 << 3;
+    public static final int FOCUSABLE = 1 << 4;
+    public static final int FOCUSED = 1 << 5;
+    public static final int SCROLLABLE = 1 << 6;
+    public static final int LONG_CLICKABLE = 1 << 7;
+    public static final int PASSWORD = 1 << 8;
+    public static final int SELECTED = 1 << 9;
+    public static final int DISPLAYED = 1 << 10;
+    /** Set when the source carries an explicit "displayed" attribute (UiAutomator2 page source). */
+    private static final int HAS_DISPLAYED = 1 << 11;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final XMLInputFactory XML = XMLInputFactory.newFactory();
+
+    static {
+        XML.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private final String rootTag;
+    private final int size;
+    private final int[] parent;
+    private final int[] subtreeEnd;
+    private final int[] tag;
+    private final int[] text;
+    private final int[] resourceId;
+    private final int[] className;
+    private final int[] contentDesc;
+    private final int[] packageName;
+    private final int[] flags;
+    private final int[] bounds;
+    private final int[] attributeStart;
+    private final int[] attributeName;
+    private final int[] attributeValue;
+    private final String[] strings;
+    private final Map<String, Integer> stringIds;
+
+    private CompactHierarchy(Builder builder) {
+        this.rootTag = builder.rootTag;
+        this.size = builder.size;
+        this.parent = Arrays.copyOf(builder.parent, size);
+        this.subtreeEnd = Arrays.copyOf(builder.subtreeEnd, size);
+        this.tag = Arrays.copyOf(builder.tag, size);
+        this.text = Arrays.copyOf(builder.text, size);
+        this.resourceId = Arrays.copyOf(builder.resourceId, size);
+        this.className = Arrays.copyOf(builder.className, size);
+        this.contentDesc = Arrays.copyOf(builder.contentDesc, size);
+        this.packageName = Arrays.copyOf(builder.packageName, size);
+        this.flags = Arrays.copyOf(builder.flags, size);
+        this.bounds = Arrays.copyOf(builder.bounds, size * 4);
+        this.attributeStart = Arrays.copyOf(builder.attributeStart, size + 1);
+        this.attributeStart[size] = builder.attributeCount;
+        this.attributeName = Arrays.copyOf(builder.attributeName, builder.attributeCount);
+        this.attributeValue = Arrays.copyOf(builder.attributeValue, builder.attributeCount);
+        this.strings = builder.strings.toArray();
+        this.stringIds = builder.stringIds;
+
+        int nodeTag = lookup("node");
+        for (int node = 0; node < size; node++) {
+            // uiautomator dumps name every element "node"; XPath name tests use the class instead
+            if (tag[node] == nodeTag) {
+                tag[node] = className[node];
+            }
+            if ((flags[node] & HAS_DISPLAYED) == 0 && right(node) > left(node) && bottom(node) > top(node)) {
+                flags[node] |= DISPLAYED;
+            }
+        }
+    }
+
+    public static CompactHierarchy parse(String source) {
+        return parse(new ByteArrayInputStream(source.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static CompactHierarchy parse(Path dump) {
+        try (InputStream in = Files.newInputStream(dump)) {
+            return parse(in);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read hierarchy dump " + dump + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Single streaming pass; no DOM is built.
+     */
+    public static CompactHierarchy parse(InputStream in) {
+        try {
+            XMLStreamReader reader = XML.createXMLStreamReader(in);
+            try {
+                Builder builder = null;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        if (builder == null) {
+                            builder = new Builder(reader.getLocalName());
+                            continue;
+                        }
+                        builder.start(reader.getLocalName());
+                        for (int i = 0; i < reader.getAttributeCount(); i++) {
+                            builder.attribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT && builder != null && builder.depth > 0) {
+                        builder.end();
+                    }
+                }
+                if (builder == null) {
+                    throw new RuntimeException("Invalid hierarchy dump: no root element");
+                }
+                return builder.build();
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new RuntimeException("Invalid hierarchy dump: " + e.getMessage(), e);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getRootTag() {
+        return rootTag;
+    }
+
+    /**
+     * Parent node, or -1 for top-level nodes.
+     */
+    public int parent(int node) {
+        return parent[node];
+    }
+
+    /**
+     * Exclusive end of the node's subtree: its descendants are node + 1 .. subtreeEnd - 1.
+     */
+    public int subtreeEnd(int node) {
+        return subtreeEnd[node];
+    }
+
+    public int firstChild(int node) {
+        return node + 1 < subtreeEnd[node] ? node + 1 : -1;
+    }
+
+    public int nextSibling(int node) {
+        int next = subtreeEnd[node];
+        int parentNode = parent[node];
+        int end = parentNode < 0 ? size : subtreeEnd[parentNode];
+        return next < end ? next : -1;
+    }
+
+    /**
+     * Element name used by XPath name tests: the class for uiautomator dumps.
+     */
+    public String tag(int node) {
+        return strings[tag[node]];
+    }
+
+    public String text(int node) {
+        return strings[text[node]];
+    }
+
+    public String resourceId(int node) {
+        return strings[resourceId[node]];
+    }
+
+    public String className(int node) {
+        return strings[className[node]];
+    }
+
+    public String contentDesc(int node) {
+        return strings[contentDesc[node]];
+    }
+
+    public String packageName(int node) {
+        return strings[packageName[node]];
+    }
+
+    public int tagId(int node) {
+        return tag[node];
+    }
+
+    public int textId(int node) {
+        return text[node];
+    }
+
+    public int resourceIdId(int node) {
+        return resourceId[node];
+    }
+
+    public int classNameId(int node) {
+        return className[node];
+    }
+
+    public int contentDescId(int node) {
+        return contentDesc[node];
+    }
+
+    public int packageNameId(int node) {
+        return packageName[node];
+    }
+
+    /**
+     * @param flag one of the flag constants, e.g. {@link #CHECKED}
+     */
+    public boolean is(int node, int flag) {
+        return (flags[node] & flag) != 0;
+    }
+
+    public boolean isDisplayed(int node) {
+        return is(node, DISPLAYED);
+    }
+
+    public int left(int node) {
+        return bounds[node * 4];
+    }
+
+    public int top(int node) {
+        return bounds[node * 4 + 1];
+    }
+
+    public int right(int node) {
+        return bounds[node * 4 + 2];
+    }
+
+    public int bottom(int node) {
+        return bounds[node * 4 + 3];
+    }
+
+    /**
+     * Hash of what the whole screen shows; see {@link #fingerprint(int)}.
+     */
+    public long fingerprint() {
+        long hash = FNV_OFFSET;
+        for (int node = 0; node < size; node = subtreeEnd[node]) {
+            hash = mix(hash, fingerprint(node));
+        }
+        return hash;
+    }
+
+    /**
+     * Hash of what the subtree shows: shape, class, text, id, description, bounds and state flags
+     * of every node. Equal across two page sources when nothing visible changed in between; other
+     * attributes (package, index) are left out.
+     */
+    public long fingerprint(int node) {
+        long hash = FNV_OFFSET;
+        for (int i = node; i < subtreeEnd[node]; i++) {
+            hash = mix(hash, subtreeEnd[i] - i);
+            hash = mix(hash, strings[tag[i]].hashCode());
+            hash = mix(hash, strings[text[i]].hashCode());
+            hash = mix(hash, strings[resourceId[i]].hashCode());
+            hash = mix(hash, strings[contentDesc[i]].hashCode());
+            for (int edge = i * 4; edge < i * 4 + 4; edge++) {
+                hash = mix(hash, bounds[edge]);
+            }
+            hash = mix(hash, flags[i]);
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        return (hash ^ value) * FNV_PRIME;
+    }
+
+    /**
+     * Any attribute as written in the source, or null when the node does not have it.
+     */
+    public String attribute(int node, String name) {
+        int nameId = lookup(name);
+        if (nameId < 0) {
+            return null;
+        }
+        for (int i = attributeStart[node]; i < attributeStart[node + 1]; i++) {
+            if (attributeName[i] == nameId) {
+                return strings[attributeValue[i]];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Pool id of the string, or -1 if it does not occur on this screen.
+     */
+    public int lookup(String value) {
+        Integer id = stringIds.get(value);
+        return id == null ? -1 : id;
+    }
+
+    public String string(int id) {
+        return strings[id];
+    }
+
+    /**
+     * Number of distinct strings in the pool.
+     */
+    public int stringCount() {
+        return strings.length;
+    }
+
+    /**
+     * Streaming construction: {@link #start(String)} a node, add its {@link #attribute attributes},
+     * then its children, then {@link #end()} it.
+     */
+    public static final class Builder {
+        private final String rootTag;
+        private final StringPool strings = new StringPool();
+        private final Map<String, Integer> stringIds = strings.ids;
+        private final int empty;
+        private int size;
+        private int depth;
+        private int current = -1;
+        private int[] parent = new int[64];
+        private int[] subtreeEnd = new int[64];
+        private int[] tag = new int[64];
+        private int[] text = new int[64];
+        private int[] resourceId = new int[64];
+        private int[] className = new int[64];
+        private int[] contentDesc = new int[64];
+        private int[] packageName = new int[64];
+        private int[] flags = new int[64];
+        private int[] bounds = new int[256];
+        private int[] attributeStart = new int[65];
+        private int attributeCount;
+        private int[] attributeName = new int[1024];
+        private int[] attributeValue = new int[1024];
+
+        public Builder(String rootTag) {
+            this.rootTag = rootTag;
+            this.empty = strings.intern("");
+        }
+
+        public Builder start(String elementName) {
+            if (size == parent.length) {
+                grow();
+            }
+            int node = size++;
+            parent[node] = current;
+            tag[node] = strings.intern(elementName);
+            text[node] = empty;
+            resourceId[node] = empty;
+            className[node] = empty;
+            contentDesc[node] = empty;
+            packageName[node] = empty;
+            flags[node] = 0;
+            attributeStart[node] = attributeCount;
+            current = node;
+            depth++;
+            return this;
+        }
+
+        public Builder attribute(String name, String value) {
+            if (attributeCount == attributeName.length) {
+                attributeName = Arrays.copyOf(attributeName, attributeCount * 2);
+                attributeValue = Arrays.copyOf(attributeValue, attributeCount * 2);
+            }
+            int valueId = strings.intern(value);
+            attributeName[attributeCount] = strings.intern(name);
+            attributeValue[attributeCount++] = valueId;
+            int node = current;
+            switch (name) {
+                case "text":
+                    text[node] = valueId;
+                    break;
+                case "resource-id":
+                    resourceId[node] = valueId;
+                    break;
+                case "class":
+                    className[node] = valueId;
+                    break;
+                case "content-desc":
+                    contentDesc[node] = valueId;
+                    break;
+                case "package":
+                    packageName[node] = valueId;
+                    break;
+                case "bounds":
+                    parseBounds(node, value);
+                    break;
+                case "displayed":
+                    flags[node] |= HAS_DISPLAYED | ("true".equals(value) ? DISPLAYED : 0);
+                    break;
+                default:
+                    int flag = flagOf(name);
+                    if (flag != 0 && "true".equals(value)) {
+                        flags[node] |= flag;
+                    }
+                    break;
+            }
+            return this;
+        }
+
+        public Builder end() {
+            subtreeEnd[current] = size;
+            current = parent[current];
+            depth--;
+            return this;
+        }
+
+        public CompactHierarchy build() {
+            if (depth != 0) {
+                throw new IllegalStateException(depth + " node(s) not ended");
+            }
+            return new CompactHierarchy(this);
+        }
+
+        private void parseBounds(int node, String value) {
+            // "[left,top][right,bottom]"
+            int[] parsed = new int[4];
+            int field = 0;
+            int number = 0;
+            boolean negative = false;
+            boolean inNumber = false;
+            for (int i = 0; i < value.length() && field < 4; i++) {
+                char c = value.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    number = number * 10 + (c - '0');
+                    inNumber = true;
+                } else if (c == '-') {
+                    negative = true;
+                } else if (inNumber) {
+                    parsed[field++] = negative ? -number : number;
+                    number = 0;
+                    negative = false;
+                    inNumber = false;
+                }
+            }
+            if (field == 4) {
+                System.arraycopy(parsed, 0, bounds, node * 4, 4);
+            }
+        }
+
+        private void grow() {
+            int capacity = parent.length * 2;
+            parent = Arrays.copyOf(parent, capacity);
+            subtreeEnd = Arrays.copyOf(subtreeEnd, capacity);
+            tag = Arrays.copyOf(tag, capacity);
+            text = Arrays.copyOf(text, capacity);
+            resourceId = Arrays.copyOf(resourceId, capacity);
+            className = Arrays.copyOf(className, capacity);
+            contentDesc = Arrays.copyOf(contentDesc, capacity);
+            packageName = Arrays.copyOf(packageName, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            bounds = Arrays.copyOf(bounds, capacity * 4);
+            attributeStart = Arrays.copyOf(attributeStart, capacity + 1);
+        }
+    }
+
+    /**
+     * Bit of a boolean attribute name (UiAutomator spelling), or 0 if it is not one.
+     */
+    public static int flagOf(String attribute) {
+        switch (attribute) {
+            case "checkable":
+                return CHECKABLE;
+            case "checked":
+                return CHECKED;
+            case "clickable":
+                return CLICKABLE;
+            case "enabled":
+                return ENABLED;
+            case "focusable":
+                return FOCUSABLE;
+            case "focused":
+                return FOCUSED;
+            case "scrollable":
+                return SCROLLABLE;
+            case "long-clickable":
+                return LONG_CLICKABLE;
+            case "password":
+                return PASSWORD;
+            case "selected":
+                return SELECTED;
+            case "displayed":
+                return DISPLAYED;
+            default:
+                return 0;
+        }
+    }
+
+    private static final class StringPool {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private String[] values = new String[256];
+
+        int intern(String value) {
+            Integer id = ids.get(value);
+            if (id != null) {
+                return id;
+            }
+            int next = ids.size();
+            if (next == values.length) {
+                values = Arrays.copyOf(values, next * 2);
+            }
+            values[next] = value;
+            ids.put(value, next);
+            return next;
+        }
+
+        String[] toArray() {
+            return Arrays.copyOf(values, ids.size());
+        }
+    }
+}
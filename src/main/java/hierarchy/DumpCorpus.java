@@ -0,0 +1,602 @@
+package hierarchy;
+
+import metrics.EventJournal;
+import org.openqa.selenium.json.Json;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Index of many hierarchy dumps in which every distinct subtree is stored once, with structural
+ * diffs between any two indexed states.
+ *
+ * Each element is content-addressed: its id hashes its tag, its attributes and the ids of its
+ * children, so identical subtrees (and identical screens) share one id and one stored object.
+ * The index is a directory holding:
+ * <ul>
+ *   <li>{@code objects.tsv}: {@code id TAB json} per distinct subtree, append-only</li>
+ *   <li>{@code states.tsv}: {@code name TAB rootId TAB nodes}, one line per indexed dump; a
+ *       later line for the same name replaces the earlier one</li>
+ * </ul>
+ *
+ * Dumps are read with one StAX pass each and never held whole: a subtree is hashed when its end
+ * tag is read, so parsing needs memory for the open elements only. What stays in memory is an
+ * id to file offset entry per distinct subtree, which grows with what differs between screens,
+ * not with the number of dumps. A diff reads the objects it needs from disk and stops at equal ids.
+ */
+public final class DumpCorpus implements Closeable {
+    static final String OBJECTS = "objects.tsv";
+    static final String STATES = "states.tsv";
+
+    private static final XMLInputFactory XML = XMLInputFactory.newFactory();
+    private static final int MAX_LABEL = 40;
+
+    static {
+        XML.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private final Path directory;
+    private final Json json = new Json();
+    private final Map<Long, Long> offsets = new HashMap<>();
+    private final Map<String, State> states = new LinkedHashMap<>();
+    private final FileChannel objects;
+    private final OutputStream objectsOut;
+    private final Writer statesOut;
+    private long objectsEnd;
+
+    private DumpCorpus(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        Path objectsFile = directory.resolve(OBJECTS);
+        Path statesFile = directory.resolve(STATES);
+        if (Files.exists(objectsFile)) {
+            scanObjects(objectsFile);
+        }
+        if (Files.exists(statesFile)) {
+            try (Stream<String> lines = Files.lines(statesFile)) {
+                lines.map(State::parse).filter(Objects::nonNull).forEach(state -> states.put(state.name, state));
+            }
+        }
+        this.objects = FileChannel.open(objectsFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        objects.truncate(objectsEnd);
+        objects.position(objectsEnd);
+        this.objectsOut = new BufferedOutputStream(Channels.newOutputStream(objects));
+        this.statesOut = Files.newBufferedWriter(statesFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Open the index in the directory, creating it if needed.
+     */
+    public static DumpCorpus open(Path directory) {
+        try {
+            return new DumpCorpus(directory);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not open dump index " + directory + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Record where each object line starts, from the ids at the start of the lines. A last line
+     * cut short by a crash is dropped.
+     */
+    private void scanObjects(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            long offset = 0;
+            long lineStart = 0;
+            ByteArrayOutputStream id = new ByteArrayOutputStream(16);
+            int b;
+            while ((b = in.read()) != -1) {
+                offset++;
+                if (b == '\n') {
+                    offsets.put(Long.parseUnsignedLong(id.toString(StandardCharsets.US_ASCII), 16), lineStart);
+                    lineStart = offset;
+                    id.reset();
+                } else if (offset - lineStart <= 16) {
+                    id.write(b);
+                }
+            }
+            objectsEnd = lineStart;
+        }
+    }
+
+    /**
+     * Index every dump in a directory (recursively, *.xml) or a single dump. XML files that are
+     * not hierarchy dumps are skipped.
+     */
+    public List<State> addAll(Path path) {
+        List<Path> dumps;
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> files = Files.walk(path)) {
+                dumps = files.filter(file -> file.toString().endsWith(".xml") && Files.isRegularFile(file))
+                        .sorted()
+                        .collect(Collectors.toList());
+            } catch (IOException e) {
+                throw new RuntimeException("Could not list dumps in " + path + ": " + e.getMessage(), e);
+            }
+        } else {
+            dumps = List.of(path);
+        }
+        List<State> added = new ArrayList<>();
+        for (Path dump : dumps) {
+            String name = Files.isDirectory(path) ? path.relativize(dump).toString() : dump.getFileName().toString();
+            State state = add(name, dump);
+            if (state != null) {
+                added.add(state);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Index one dump under the name, replacing an earlier state of that name.
+     *
+     * @return the state, or null when the file is not a hierarchy dump
+     */
+    public State add(String name, Path dump) {
+        try (InputStream in = Files.newInputStream(dump)) {
+            return add(name, in);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read hierarchy dump " + dump + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Index one dump read from the stream; see {@link #add(String, Path)}.
+     */
+    public State add(String name, InputStream in) {
+        if (name.contains("\t") || name.contains("\n")) {
+            throw new IllegalArgumentException("State names cannot contain tabs or line breaks: " + name);
+        }
+        try {
+            XMLStreamReader reader = XML.createXMLStreamReader(in);
+            try {
+                Deque<Element> open = new ArrayDeque<>();
+                long root = 0;
+                int nodes = 0;
+                int stored = 0;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        if (open.isEmpty() && nodes == 0 && !reader.getLocalName().equals("hierarchy")) {
+                            EventJournal.record("corpus.skip", "dump", name, "reason", "not a hierarchy dump");
+                            return null;
+                        }
+                        Map<String, String> attributes = new LinkedHashMap<>();
+                        for (int i = 0; i < reader.getAttributeCount(); i++) {
+                            attributes.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                        }
+                        open.push(new Element(reader.getLocalName(), attributes));
+                        nodes++;
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        Element element = open.pop();
+                        long id = element.id();
+                        if (!offsets.containsKey(id)) {
+                            store(id, element);
+                            stored++;
+                        }
+                        if (open.isEmpty()) {
+                            root = id;
+                        } else {
+                            open.peek().children.add(id);
+                        }
+                    }
+                }
+                if (nodes == 0) {
+                    throw new RuntimeException("Invalid hierarchy dump " + name + ": no root element");
+                }
+                objectsOut.flush();
+                State state = new State(name, root, nodes, stored);
+                states.remove(name);
+                states.put(name, state);
+                statesOut.write(state.format());
+                statesOut.write('\n');
+                statesOut.flush();
+                return state;
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new RuntimeException("Invalid hierarchy dump " + name + ": " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write dump index " + directory + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void store(long id, Element element) throws IOException {
+        Map<String, Object> object = new LinkedHashMap<>();
+        object.put("tag", element.tag);
+        object.put("attributes", element.attributes);
+        object.put("children", element.children.stream().map(DumpCorpus::hex).collect(Collectors.toList()));
+        StringBuilder line = new StringBuilder(hex(id)).append('\t');
+        json.newOutput(line).setPrettyPrint(false).writeClassName(false).write(object);
+        byte[] bytes = line.append('\n').toString().getBytes(StandardCharsets.UTF_8);
+        objectsOut.write(bytes);
+        offsets.put(id, objectsEnd);
+        objectsEnd += bytes.length;
+    }
+
+    /**
+     * Indexed states by name, in the order they were (last) added.
+     */
+    public Map<String, State> getStates() {
+        return new LinkedHashMap<>(states);
+    }
+
+    /**
+     * Groups of states showing the identical screen, each group in indexing order.
+     */
+    public List<List<String>> getDuplicates() {
+        Map<Long, List<String>> byRoot = new LinkedHashMap<>();
+        states.values().forEach(state -> byRoot.computeIfAbsent(state.root, root -> new ArrayList<>()).add(state.name));
+        return byRoot.values().stream().filter(names -> names.size() > 1).collect(Collectors.toList());
+    }
+
+    /**
+     * Number of distinct subtrees stored.
+     */
+    public int getObjectCount() {
+        return offsets.size();
+    }
+
+    /**
+     * Elements over all indexed states, as if each were stored whole.
+     */
+    public long getNodeCount() {
+        return states.values().stream().mapToLong(state -> state.nodes).sum();
+    }
+
+    /**
+     * Structural differences from state a to state b, one line per changed element in document
+     * order: {@code Switch#switch1 checked false→true, text 'Switch 1 OFF'→'Switch 1 ON'}, and
+     * {@code - label} / {@code + label} for removed and added subtrees. Empty when identical.
+     *
+     * @throws IllegalArgumentException when a state is not indexed
+     */
+    public List<String> diff(String a, String b) {
+        List<String> changes = new ArrayList<>();
+        diff(state(a).root, state(b).root, changes);
+        return changes;
+    }
+
+    private State state(String name) {
+        State state = states.get(name);
+        if (state == null) {
+            throw new IllegalArgumentException("No state " + name + " in " + directory);
+        }
+        return state;
+    }
+
+    private void diff(long a, long b, List<String> changes) {
+        if (a == b) {
+            return;
+        }
+        StoredElement before = load(a);
+        StoredElement after = load(b);
+        if (!before.tag.equals(after.tag) || !Objects.equals(before.get("class"), after.get("class"))) {
+            changes.add("- " + before.label());
+            changes.add("+ " + after.label());
+            return;
+        }
+        List<String> attributes = new ArrayList<>();
+        before.attributes.forEach((name, value) -> {
+            String changed = after.attributes.get(name);
+            if (!Objects.equals(value, changed)) {
+                attributes.add(name + " " + quote(value) + "→" + quote(changed));
+            }
+        });
+        after.attributes.forEach((name, value) -> {
+            if (!before.attributes.containsKey(name)) {
+                attributes.add(name + " " + quote(null) + "→" + quote(value));
+            }
+        });
+        if (!attributes.isEmpty()) {
+            changes.add(before.label() + " " + String.join(", ", attributes));
+        }
+
+        // Pair children in order by identity (id, else description and text); the rest were removed or added
+        List<StoredElement> beforeChildren = load(before.children);
+        List<StoredElement> afterChildren = load(after.children);
+        int next = 0;
+        for (StoredElement child : beforeChildren) {
+            int match = next;
+            while (match < afterChildren.size() && !afterChildren.get(match).key().equals(child.key())) {
+                match++;
+            }
+            if (match == afterChildren.size()) {
+                changes.add("- " + child.label());
+                continue;
+            }
+            for (int added = next; added < match; added++) {
+                changes.add("+ " + afterChildren.get(added).label());
+            }
+            diff(child.id, afterChildren.get(match).id, changes);
+            next = match + 1;
+        }
+        for (int added = next; added < afterChildren.size(); added++) {
+            changes.add("+ " + afterChildren.get(added).label());
+        }
+    }
+
+    private List<StoredElement> load(List<Long> ids) {
+        List<StoredElement> elements = new ArrayList<>(ids.size());
+        for (long id : ids) {
+            elements.add(load(id));
+        }
+        return elements;
+    }
+
+    @SuppressWarnings("unchecked")
+    private StoredElement load(long id) {
+        Long offset = offsets.get(id);
+        if (offset == null) {
+            throw new IllegalStateException("Dump index " + directory + " has no object " + hex(id));
+        }
+        try {
+            objectsOut.flush();
+            String line = readLine(offset);
+            Map<String, Object> object = json.toType(line.substring(line.indexOf('\t') + 1), Map.class);
+            List<Long> children = new ArrayList<>();
+            for (Object child : (List<Object>) object.get("children")) {
+                children.add(Long.parseUnsignedLong((String) child, 16));
+            }
+            Map<String, String> attributes = new LinkedHashMap<>();
+            ((Map<String, Object>) object.get("attributes")).forEach((name, value) -> attributes.put(name, String.valueOf(value)));
+            return new StoredElement(id, (String) object.get("tag"), attributes, children);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read dump index " + directory + ": " + e.getMessage(), e);
+        }
+    }
+
+    private String readLine(long offset) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(512);
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long position = offset;
+        while (true) {
+            buffer.clear();
+            int read = objects.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    line.write(buffer.array(), 0, i);
+                    return line.toString(StandardCharsets.UTF_8);
+                }
+            }
+            line.write(buffer.array(), 0, read);
+            position += read;
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        try {
+            objectsOut.close();
+            statesOut.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not close dump index " + directory + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "(none)";
+        }
+        if (value.equals("true") || value.equals("false")) {
+            return value;
+        }
+        return "'" + value.replace("\n", "\\n") + "'";
+    }
+
+    private static String hex(long id) {
+        return String.format("%016x", id);
+    }
+
+    /**
+     * Index dumps, or diff two indexed states:
+     * {@code DumpCorpus index <indexDir> <dump.xml|dir>...} and
+     * {@code DumpCorpus diff <indexDir> <stateA> <stateB>}.
+     */
+    public static void main(String[] args) {
+        if (args.length < 3 || !(args[0].equals("index") || args[0].equals("diff") && args.length == 4)) {
+            System.out.println("Usage: DumpCorpus index <indexDir> <dump.xml|dir>...");
+            System.out.println("       DumpCorpus diff <indexDir> <stateA> <stateB>");
+            return;
+        }
+        try (DumpCorpus corpus = open(Path.of(args[1]))) {
+            if (args[0].equals("diff")) {
+                List<String> changes = corpus.diff(args[2], args[3]);
+                if (changes.isEmpty()) {
+                    System.out.println("Identical screens");
+                }
+                changes.forEach(System.out::println);
+                return;
+            }
+            int added = 0;
+            int stored = 0;
+            for (int i = 2; i < args.length; i++) {
+                for (State state : corpus.addAll(Path.of(args[i]))) {
+                    added++;
+                    stored += state.stored;
+                }
+            }
+            System.out.println("🗂 Indexed " + added + " dumps (" + stored + " new subtrees); index holds "
+                    + corpus.getStates().size() + " states, " + corpus.getNodeCount() + " elements in "
+                    + corpus.getObjectCount() + " distinct subtrees: " + args[1]);
+            corpus.getDuplicates().forEach(names -> System.out.println("   same screen: " + String.join(" = ", names)));
+        }
+    }
+
+    /**
+     * One indexed dump.
+     */
+    public static final class State {
+        private final String name;
+        private final long root;
+        private final int nodes;
+        private final int stored;
+
+        private State(String name, long root, int nodes, int stored) {
+            this.name = name;
+            this.root = root;
+            this.nodes = nodes;
+            this.stored = stored;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Id of the whole screen; equal ids mean identical dumps.
+         */
+        public String getRootId() {
+            return hex(root);
+        }
+
+        public int getNodes() {
+            return nodes;
+        }
+
+        /**
+         * Subtrees this dump added to the index when it was indexed; 0 for a screen seen before.
+         */
+        public int getStored() {
+            return stored;
+        }
+
+        private String format() {
+            return name + "\t" + hex(root) + "\t" + nodes;
+        }
+
+        private static State parse(String line) {
+            String[] fields = line.split("\t", -1);
+            try {
+                return fields.length == 3
+                        ? new State(fields[0], Long.parseUnsignedLong(fields[1], 16), Integer.parseInt(fields[2]), 0)
+                        : null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * An element being read: its id is known once all its children are.
+     */
+    private static final class Element {
+        private final String tag;
+        private final Map<String, String> attributes;
+        private final List<Long> children = new ArrayList<>();
+
+        private Element(String tag, Map<String, String> attributes) {
+            this.tag = tag;
+            this.attributes = attributes;
+        }
+
+        /**
+         * First 64 bits of SHA-256 over tag, attributes and child ids.
+         */
+        private long id() {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 unavailable", e);
+            }
+            update(digest, tag);
+            attributes.forEach((name, value) -> {
+                update(digest, name);
+                update(digest, value);
+            });
+            for (long child : children) {
+                update(digest, hex(child));
+            }
+            return ByteBuffer.wrap(digest.digest()).getLong();
+        }
+
+        private static void update(MessageDigest digest, String value) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+    }
+
+    private static final class StoredElement {
+        private final long id;
+        private final String tag;
+        private final Map<String, String> attributes;
+        private final List<Long> children;
+
+        private StoredElement(long id, String tag, Map<String, String> attributes, List<Long> children) {
+            this.id = id;
+            this.tag = tag;
+            this.attributes = attributes;
+            this.children = children;
+        }
+
+        private String get(String attribute) {
+            return attributes.getOrDefault(attribute, "");
+        }
+
+        /**
+         * What pairs an element with its counterpart in another state.
+         */
+        private String key() {
+            String resourceId = get("resource-id");
+            return get("class") + "#" + (resourceId.isEmpty() ? get("content-desc") + "|" + get("text") : resourceId);
+        }
+
+        /**
+         * Short class name and the first of resource id, description or text, e.g. Switch#switch1.
+         */
+        private String label() {
+            String className = get("class").isEmpty() ? tag : get("class");
+            String label = className.substring(className.lastIndexOf('.') + 1);
+            String resourceId = get("resource-id");
+            if (!resourceId.isEmpty()) {
+                return label + "#" + resourceId.substring(resourceId.indexOf(":id/") < 0 ? 0 : resourceId.indexOf(":id/") + 4);
+            }
+            if (!get("content-desc").isEmpty()) {
+                return label + " [" + shorten(get("content-desc")) + "]";
+            }
+            return get("text").isEmpty() ? label : label + " '" + shorten(get("text")) + "'";
+        }
+
+        private static String shorten(String value) {
+            String line = value.replace("\n", "\\n");
+            return line.length() > MAX_LABEL ? line.substring(0, MAX_LABEL) + "…" : line;
+        }
+    }
+}
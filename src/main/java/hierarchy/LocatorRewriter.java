@@ -0,0 +1,315 @@
+package hierarchy;
+
+import io.appium.java_client.AppiumBy;
+import metrics.EventJournal;
+import org.openqa.selenium.By;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Finds cheaper locators that select exactly the same nodes as a page-object locator on every
+ * recorded screen.
+ *
+ * Text-based UiSelector and XPath locators make UiAutomator compare every node of the tree,
+ * while resource-id and accessibility id lookups are the cheap strategies LoginPage already
+ * uses. Candidates come from the attributes of the nodes the original locator matches, and one
+ * is accepted only if it selects the identical nodes on every dump, including nothing where
+ * the original matches nothing, so absence checks keep their meaning.
+ *
+ * id and accessibility id equivalents are substituted by {@link #rewrite(By)} only for locators
+ * whose criteria are exact equalities on static attributes, such as text("Save") or
+ * //*[@text='Button 2']. A textContains, textStartsWith or textMatches filter checks content an
+ * id does not, and the dumps cannot prove the check holds in states nobody recorded, so those
+ * equivalents are reported but not applied. For nodes with neither id nor content-desc, a
+ * childSelector scoped to the nearest labelled ancestor is proposed but not applied.
+ */
+public final class LocatorRewriter {
+    private static final String EQUALITY = "@(text|content-desc|resource-id|class)\\s*=\\s*'[^']*'";
+    private static final Pattern EXACT_XPATH =
+            Pattern.compile("//(\\*|[\\w.]+)(\\[" + EQUALITY + "(\\s+and\\s+" + EQUALITY + ")*])?");
+
+    private final List<CompactHierarchy> screens;
+    private final Map<String, Proposal> proposals = new ConcurrentHashMap<>();
+
+    public LocatorRewriter(List<CompactHierarchy> screens) {
+        this.screens = List.copyOf(screens);
+    }
+
+    /**
+     * Read every uiautomator dump (root element "hierarchy") in the directory; other XML files,
+     * such as pom.xml and the TestNG suites, are skipped.
+     */
+    public static LocatorRewriter load(Path dumpDir) {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(dumpDir)) {
+            files = listing.filter(path -> path.toString().endsWith(".xml")).sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to list hierarchy dumps in " + dumpDir, e);
+        }
+        List<CompactHierarchy> screens = new ArrayList<>();
+        for (Path file : files) {
+            try {
+                CompactHierarchy screen = CompactHierarchy.parse(file);
+                if ("hierarchy".equals(screen.getRootTag())) {
+                    screens.add(screen);
+                }
+            } catch (RuntimeException e) {
+                EventJournal.record("rewriter.skip", "dump", file.toString(), "error", String.valueOf(e.getMessage()));
+            }
+        }
+        return new LocatorRewriter(screens);
+    }
+
+    public int getScreenCount() {
+        return screens.size();
+    }
+
+    /**
+     * The verified equivalent when one is substitutable, otherwise the locator itself.
+     */
+    public By rewrite(By locator) {
+        if (!(locator instanceof By.Remotable)) {
+            return locator;
+        }
+        By.Remotable.Parameters parameters = ((By.Remotable) locator).getRemoteParameters();
+        Proposal proposal = propose(parameters.using(), String.valueOf(parameters.value()));
+        return proposal.isSubstitutable() ? proposal.getReplacement() : locator;
+    }
+
+    /**
+     * Analyse a locator once; later calls return the cached result.
+     */
+    public Proposal propose(String using, String value) {
+        return proposals.computeIfAbsent(using + "=" + value, key -> analyse(using, value));
+    }
+
+    /**
+     * Every locator analysed so far.
+     */
+    public List<Proposal> getProposals() {
+        return new ArrayList<>(proposals.values());
+    }
+
+    /**
+     * Proposals whose replacement is the given locator key, i.e. what it was substituted for.
+     */
+    public List<String> substitutedBy(String replacementLocator) {
+        List<String> originals = new ArrayList<>();
+        for (Proposal proposal : proposals.values()) {
+            if (proposal.isSubstitutable() && replacementLocator.equals(proposal.getReplacementLocator())) {
+                originals.add(proposal.getLocator());
+            }
+        }
+        Collections.sort(originals);
+        return originals;
+    }
+
+    private Proposal analyse(String using, String value) {
+        if (using.equals("id")) {
+            return Proposal.none(using, value, "already a resource-id lookup");
+        }
+        NodeQuery original;
+        try {
+            original = Locators.compile(using, value);
+        } catch (IllegalArgumentException e) {
+            return Proposal.none(using, value, "not resolvable on a dump: " + e.getMessage());
+        }
+        if (original.isScrollIntoView()) {
+            return Proposal.none(using, value, "scrollIntoView scrolls the device first");
+        }
+
+        int[][] expected = new int[screens.size()][];
+        int matchedScreens = 0;
+        int example = -1;
+        for (int i = 0; i < screens.size(); i++) {
+            expected[i] = original.select(screens.get(i), -1);
+            if (expected[i].length > 0) {
+                matchedScreens++;
+                example = example < 0 ? i : example;
+            }
+        }
+        if (matchedScreens == 0) {
+            return Proposal.none(using, value, "matches nothing on the " + screens.size() + " recorded screens");
+        }
+
+        CompactHierarchy screen = screens.get(example);
+        int node = expected[example][0];
+        boolean exact = isExactMatch(using, value, original);
+        for (String[] candidate : candidates(using, value, screen, node)) {
+            if (selectsSame(candidate[0], candidate[1], expected)) {
+                boolean scoped = candidate[0].equals("-android uiautomator");
+                String reason = scoped ? "scoped selector, same nodes on " + matchedScreens + " screens"
+                        : !exact ? "drops the content filter, same nodes on " + matchedScreens + " recorded screens only"
+                        : "same nodes on " + matchedScreens + " screens";
+                return new Proposal(using, value, candidate[0], candidate[1], exact && !scoped, matchedScreens, reason);
+            }
+        }
+        return Proposal.none(using, value, "no cheaper locator selects the same nodes on every screen");
+    }
+
+    /**
+     * Whether the locator only compares static attributes for equality, so an id selecting the
+     * same nodes checks nothing less. XPath is judged by its shape: //class or
+     * //*[@text='...'], with and-ed equalities on text, content-desc, resource-id or class.
+     */
+    private static boolean isExactMatch(String using, String value, NodeQuery query) {
+        switch (using) {
+            case "accessibility id":
+            case "class name":
+                return true;
+            case "-android uiautomator":
+                return ((UiSelector) query).isExactMatch();
+            case "xpath":
+                return EXACT_XPATH.matcher(value.trim()).matches();
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Cheapest first: the node's resource-id, its content-desc, then a selector scoped to the
+     * nearest ancestor that has either.
+     */
+    private static List<String[]> candidates(String using, String value, CompactHierarchy screen, int node) {
+        List<String[]> candidates = new ArrayList<>();
+        if (!screen.resourceId(node).isEmpty()) {
+            candidates.add(new String[]{"id", screen.resourceId(node)});
+        }
+        if (!screen.contentDesc(node).isEmpty() && !using.equals("accessibility id")) {
+            candidates.add(new String[]{"accessibility id", screen.contentDesc(node)});
+        }
+        if (!using.equals("accessibility id") && !using.equals("class name")) {
+            String scoped = scopedSelector(screen, node);
+            if (scoped != null && !scoped.equals(value)) {
+                candidates.add(new String[]{"-android uiautomator", scoped});
+            }
+        }
+        return candidates;
+    }
+
+    private static String scopedSelector(CompactHierarchy screen, int node) {
+        int ancestor = screen.parent(node);
+        while (ancestor >= 0 && screen.resourceId(ancestor).isEmpty() && screen.contentDesc(ancestor).isEmpty()) {
+            ancestor = screen.parent(ancestor);
+        }
+        if (ancestor < 0) {
+            return null;
+        }
+        int instance = 0;
+        for (int other = ancestor + 1; other < node; other++) {
+            if (screen.classNameId(other) == screen.classNameId(node)) {
+                instance++;
+            }
+        }
+        String scope = screen.resourceId(ancestor).isEmpty()
+                ? "description(" + quote(screen.contentDesc(ancestor)) + ")"
+                : "resourceId(" + quote(screen.resourceId(ancestor)) + ")";
+        return "new UiSelector()." + scope + ".childSelector(new UiSelector().className("
+                + quote(screen.className(node)) + ").instance(" + instance + "))";
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    private boolean selectsSame(String using, String value, int[][] expected) {
+        NodeQuery candidate = Locators.compile(using, value);
+        for (int i = 0; i < screens.size(); i++) {
+            if (!Arrays.equals(candidate.select(screens.get(i), -1), expected[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Outcome of analysing one locator: a verified replacement, or the reason there is none.
+     */
+    public static final class Proposal {
+        private final String using;
+        private final String value;
+        private final String replacementUsing;
+        private final String replacementValue;
+        private final boolean substitutable;
+        private final int matchedScreens;
+        private final String reason;
+
+        Proposal(String using, String value, String replacementUsing, String replacementValue,
+                 boolean substitutable, int matchedScreens, String reason) {
+            this.using = using;
+            this.value = value;
+            this.replacementUsing = replacementUsing;
+            this.replacementValue = replacementValue;
+            this.substitutable = substitutable;
+            this.matchedScreens = matchedScreens;
+            this.reason = reason;
+        }
+
+        static Proposal none(String using, String value, String reason) {
+            return new Proposal(using, value, null, null, false, 0, reason);
+        }
+
+        /**
+         * "strategy=value", the same key CommandMetrics records find commands under.
+         */
+        public String getLocator() {
+            return using + "=" + value;
+        }
+
+        public boolean hasReplacement() {
+            return replacementUsing != null;
+        }
+
+        /**
+         * An id or accessibility id equivalent that {@link LocatorRewriter#rewrite(By)} applies.
+         */
+        public boolean isSubstitutable() {
+            return substitutable;
+        }
+
+        /**
+         * "strategy=value" of the replacement, or null when there is none.
+         */
+        public String getReplacementLocator() {
+            return hasReplacement() ? replacementUsing + "=" + replacementValue : null;
+        }
+
+        public By getReplacement() {
+            if (!hasReplacement()) {
+                return null;
+            }
+            switch (replacementUsing) {
+                case "id":
+                    return AppiumBy.id(replacementValue);
+                case "accessibility id":
+                    return AppiumBy.accessibilityId(replacementValue);
+                default:
+                    return AppiumBy.androidUIAutomator(replacementValue);
+            }
+        }
+
+        public int getMatchedScreens() {
+            return matchedScreens;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return getLocator() + (hasReplacement() ? " -> " + getReplacementLocator() : "") + " (" + reason + ")";
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package hierarchy;
+
+import org.openqa.selenium.By;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+/**
+ * Compiles W3C/Appium locator strategies into {@link NodeQuery} objects, resolving them the
+ * way UiAutomator2 does: id, accessibility id, class name, -android uiautomator and xpath.
+ *
+ * Compiled queries are immutable and cached by strategy and value, since page objects look up
+ * the same few dozen locators over and over.
+ */
+public final class Locators {
+    private static final int CACHE_LIMIT = 1024;
+    private static final Map<String, NodeQuery> cache = new ConcurrentHashMap<>();
+
+    private Locators() {
+    }
+
+    /**
+     * @throws IllegalArgumentException for unsupported strategies or malformed selectors
+     */
+    public static NodeQuery compile(String using, String value) {
+        String key = using + '\u0000' + value;
+        NodeQuery query = cache.get(key);
+        if (query == null) {
+            query = create(using, value);
+            if (cache.size() >= CACHE_LIMIT) {
+                cache.clear();
+            }
+            cache.put(key, query);
+        }
+        return query;
+    }
+
+    /**
+     * Compile a Selenium/Appium locator (AppiumBy and the remotable By variants).
+     */
+    public static NodeQuery compile(By locator) {
+        if (!(locator instanceof By.Remotable)) {
+            throw new IllegalArgumentException("Locator cannot be resolved locally: " + locator);
+        }
+        By.Remotable.Parameters parameters = ((By.Remotable) locator).getRemoteParameters();
+        return compile(parameters.using(), String.valueOf(parameters.value()));
+    }
+
+    /**
+     * Shorthand for compiling and selecting over the whole hierarchy.
+     */
+    public static int[] find(CompactHierarchy hierarchy, String using, String value) {
+        return compile(using, value).select(hierarchy, -1);
+    }
+
+    private static NodeQuery create(String using, String value) {
+        switch (using) {
+            case "id":
+                return new IdQuery(value);
+            case "accessibility id":
+                return attributeEquals(CompactHierarchy::contentDescId, value);
+            case "class name":
+                return attributeEquals(CompactHierarchy::classNameId, value);
+            case "-android uiautomator":
+                return UiSelector.parse(value);
+            case "xpath":
+                return XPath.parse(value);
+            default:
+                throw new IllegalArgumentException("Unsupported locator strategy: " + using);
+        }
+    }
+
+    private static NodeQuery attributeEquals(UiSelector.Column column, String value) {
+        return (hierarchy, scope) -> {
+            int wanted = hierarchy.lookup(value);
+            if (wanted < 0) {
+                return new int[0];
+            }
+            return scan(hierarchy, scope, node -> column.id(hierarchy, node) == wanted);
+        };
+    }
+
+    /**
+     * Full resource id, or the bare id qualified with each node's own package.
+     */
+    private static final class IdQuery implements NodeQuery {
+        private final String value;
+        private final boolean qualified;
+
+        IdQuery(String value) {
+            this.value = value;
+            this.qualified = value.contains(":id/");
+        }
+
+        @Override
+        public int[] select(CompactHierarchy hierarchy, int scope) {
+            if (qualified) {
+                int wanted = hierarchy.lookup(value);
+                return wanted < 0 ? new int[0]
+                        : scan(hierarchy, scope, node -> hierarchy.resourceIdId(node) == wanted);
+            }
+            String suffix = ":id/" + value;
+            return scan(hierarchy, scope, node -> {
+                String resourceId = hierarchy.resourceId(node);
+                return resourceId.endsWith(suffix)
+                        && resourceId.length() == hierarchy.packageName(node).length() + suffix.length()
+                        && resourceId.startsWith(hierarchy.packageName(node));
+            });
+        }
+    }
+
+    private static int[] scan(CompactHierarchy hierarchy, int scope, IntPredicate test) {
+        int from = scope < 0 ? 0 : scope + 1;
+        int to = scope < 0 ? hierarchy.size() : hierarchy.subtreeEnd(scope);
+        int[] matches = new int[8];
+        int count = 0;
+        for (int node = from; node < to; node++) {
+            if (test.test(node)) {
+                if (count == matches.length) {
+                    matches = Arrays.copyOf(matches, count * 2);
+                }
+                matches[count++] = node;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+}
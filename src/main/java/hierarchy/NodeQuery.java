@@ -0,0 +1,22 @@
+package hierarchy;
+
+/**
+ * A compiled locator evaluated against a {@link CompactHierarchy}.
+ */
+public interface NodeQuery {
+
+    /**
+     * Matching nodes in document order.
+     *
+     * @param scope node whose descendants are searched, or -1 for the whole hierarchy
+     */
+    int[] select(CompactHierarchy hierarchy, int scope);
+
+    /**
+     * True for UiScrollable.scrollIntoView: on a device the target may be scrolled to first,
+     * which a static hierarchy cannot do.
+     */
+    default boolean isScrollIntoView() {
+        return false;
+    }
+}
@@ -0,0 +1,360 @@
+package hierarchy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Parser and evaluator for the UiAutomator selector expressions used with
+ * {@code AppiumBy.androidUIAutomator}, e.g. {@code new UiSelector().text("Submit")}
+ * or {@code new UiScrollable(new UiSelector().scrollable(true)).scrollIntoView(new UiSelector().text("Item 5"))}.
+ *
+ * Exact-match criteria compare string pool ids, so text("Submit") on a screen without that
+ * string is rejected before any node is visited.
+ */
+public final class UiSelector implements NodeQuery {
+    private static final Set<String> EXACT_METHODS =
+            Set.of("text", "description", "resourceId", "className", "packageName", "instance");
+
+    private final List<Criterion> criteria = new ArrayList<>();
+    private int instance = -1;
+    private boolean exact = true;
+    private boolean scrollIntoView;
+    private UiSelector child;
+
+    private UiSelector() {
+    }
+
+    /**
+     * @throws IllegalArgumentException for expressions or methods that are not supported
+     */
+    public static UiSelector parse(String expression) {
+        Parser parser = new Parser(expression);
+        UiSelector selector = parser.parseExpression();
+        parser.expectEnd();
+        return selector;
+    }
+
+    @Override
+    public boolean isScrollIntoView() {
+        return scrollIntoView;
+    }
+
+    /**
+     * True when every criterion, here and in child selectors, is an equality on a static
+     * attribute (text, description, resourceId, className, packageName) or an instance(n):
+     * no contains/startsWith/matches filter and no state flag such as checked.
+     */
+    public boolean isExactMatch() {
+        return exact && (child == null || child.isExactMatch());
+    }
+
+    /**
+     * Matching nodes in document order, narrowed to one by instance(n). With childSelector(...)
+     * the result is the child selector's matches below any node this selector matches.
+     */
+    @Override
+    public int[] select(CompactHierarchy hierarchy, int scope) {
+        int[] matches = selectOwn(hierarchy, scope);
+        if (child == null || matches.length == 0) {
+            return matches;
+        }
+        boolean[] found = new boolean[hierarchy.size()];
+        int count = 0;
+        for (int parent : matches) {
+            for (int node : child.select(hierarchy, parent)) {
+                if (!found[node]) {
+                    found[node] = true;
+                    count++;
+                }
+            }
+        }
+        int[] nodes = new int[count];
+        for (int node = 0, i = 0; i < count; node++) {
+            if (found[node]) {
+                nodes[i++] = node;
+            }
+        }
+        return nodes;
+    }
+
+    private int[] selectOwn(CompactHierarchy hierarchy, int scope) {
+        IntPredicate[] bound = new IntPredicate[criteria.size()];
+        for (int i = 0; i < bound.length; i++) {
+            bound[i] = criteria.get(i).bind(hierarchy);
+            if (bound[i] == null) {
+                return new int[0];
+            }
+        }
+        int from = scope < 0 ? 0 : scope + 1;
+        int to = scope < 0 ? hierarchy.size() : hierarchy.subtreeEnd(scope);
+        int[] matches = new int[8];
+        int count = 0;
+        for (int node = from; node < to; node++) {
+            if (test(bound, node)) {
+                if (count == instance) {
+                    return new int[]{node};
+                }
+                if (count == matches.length) {
+                    matches = Arrays.copyOf(matches, count * 2);
+                }
+                matches[count++] = node;
+            }
+        }
+        return instance < 0 ? Arrays.copyOf(matches, count) : new int[0];
+    }
+
+    private static boolean test(IntPredicate[] criteria, int node) {
+        for (IntPredicate criterion : criteria) {
+            if (!criterion.test(node)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A condition prepared for one hierarchy; null from {@link #bind} means nothing can match.
+     */
+    interface Criterion {
+        IntPredicate bind(CompactHierarchy hierarchy);
+    }
+
+    /**
+     * String-valued column of the hierarchy, read as pool ids.
+     */
+    interface Column {
+        int id(CompactHierarchy hierarchy, int node);
+    }
+
+    static Criterion equalTo(Column column, String value) {
+        return hierarchy -> {
+            int wanted = hierarchy.lookup(value);
+            return wanted < 0 ? null : node -> column.id(hierarchy, node) == wanted;
+        };
+    }
+
+    static Criterion stringTest(Column column, Predicate<String> test) {
+        return hierarchy -> node -> test.test(hierarchy.string(column.id(hierarchy, node)));
+    }
+
+    private void addCriterion(String method, Object argument) {
+        if (!EXACT_METHODS.contains(method)) {
+            exact = false;
+        }
+        switch (method) {
+            case "text":
+                criteria.add(equalTo(CompactHierarchy::textId, (String) argument));
+                break;
+            case "textContains":
+                criteria.add(stringTest(CompactHierarchy::textId, value -> value.contains((String) argument)));
+                break;
+            case "textStartsWith":
+                criteria.add(stringTest(CompactHierarchy::textId, value -> value.startsWith((String) argument)));
+                break;
+            case "textMatches":
+                criteria.add(stringTest(CompactHierarchy::textId, regex((String) argument)));
+                break;
+            case "description":
+                criteria.add(equalTo(CompactHierarchy::contentDescId, (String) argument));
+                break;
+            case "descriptionContains":
+                criteria.add(stringTest(CompactHierarchy::contentDescId, value -> value.contains((String) argument)));
+                break;
+            case "descriptionStartsWith":
+                criteria.add(stringTest(CompactHierarchy::contentDescId, value -> value.startsWith((String) argument)));
+                break;
+            case "descriptionMatches":
+                criteria.add(stringTest(CompactHierarchy::contentDescId, regex((String) argument)));
+                break;
+            case "resourceId":
+                criteria.add(equalTo(CompactHierarchy::resourceIdId, (String) argument));
+                break;
+            case "resourceIdMatches":
+                criteria.add(stringTest(CompactHierarchy::resourceIdId, regex((String) argument)));
+                break;
+            case "className":
+                criteria.add(equalTo(CompactHierarchy::classNameId, (String) argument));
+                break;
+            case "classNameMatches":
+                criteria.add(stringTest(CompactHierarchy::classNameId, regex((String) argument)));
+                break;
+            case "packageName":
+                criteria.add(equalTo(CompactHierarchy::packageNameId, (String) argument));
+                break;
+            case "index":
+                String index = String.valueOf(argument);
+                criteria.add(hierarchy -> node -> index.equals(hierarchy.attribute(node, "index")));
+                break;
+            case "instance":
+                instance = (Integer) argument;
+                break;
+            case "checkable":
+            case "checked":
+            case "clickable":
+            case "enabled":
+            case "focusable":
+            case "focused":
+            case "scrollable":
+            case "selected":
+            case "longClickable":
+                int flag = CompactHierarchy.flagOf(method.equals("longClickable") ? "long-clickable" : method);
+                boolean expected = (Boolean) argument;
+                criteria.add(hierarchy -> node -> hierarchy.is(node, flag) == expected);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported UiSelector method: " + method);
+        }
+    }
+
+    private static Predicate<String> regex(String regex) {
+        Pattern pattern = Pattern.compile(regex);
+        return value -> pattern.matcher(value).matches();
+    }
+
+    /**
+     * Recursive-descent parser over the small Java-like expression language of UiSelector chains.
+     */
+    private static final class Parser {
+        private final String input;
+        private int pos;
+
+        Parser(String input) {
+            this.input = input;
+        }
+
+        UiSelector parseExpression() {
+            expect("new");
+            String type = identifier();
+            expect("(");
+            if (type.equals("UiSelector")) {
+                expect(")");
+                return parseChain(new UiSelector());
+            }
+            if (type.equals("UiScrollable")) {
+                parseExpression();
+                expect(")");
+                return parseScrollable();
+            }
+            throw error("Unsupported type " + type);
+        }
+
+        private UiSelector parseChain(UiSelector selector) {
+            while (peek('.')) {
+                expect(".");
+                String method = identifier();
+                expect("(");
+                if (method.equals("childSelector")) {
+                    selector.child = parseExpression();
+                    expect(")");
+                    continue;
+                }
+                Object argument = argument();
+                expect(")");
+                selector.addCriterion(method, argument);
+            }
+            return selector;
+        }
+
+        private UiSelector parseScrollable() {
+            UiSelector target = null;
+            while (peek('.')) {
+                expect(".");
+                String method = identifier();
+                expect("(");
+                if (method.equals("scrollIntoView") || method.equals("getChildByText")) {
+                    target = parseExpression();
+                    target.scrollIntoView = true;
+                } else if (!peek(')')) {
+                    argument();
+                }
+                expect(")");
+            }
+            if (target == null) {
+                throw error("UiScrollable without scrollIntoView");
+            }
+            return target;
+        }
+
+        private Object argument() {
+            skipWhitespace();
+            if (peek('"')) {
+                return string();
+            }
+            String token = identifier();
+            if (token.equals("true") || token.equals("false")) {
+                return Boolean.parseBoolean(token);
+            }
+            try {
+                return Integer.parseInt(token);
+            } catch (NumberFormatException e) {
+                throw error("Unexpected argument " + token);
+            }
+        }
+
+        private String string() {
+            expect("\"");
+            StringBuilder value = new StringBuilder();
+            while (pos < input.length() && input.charAt(pos) != '"') {
+                char c = input.charAt(pos++);
+                if (c == '\\' && pos < input.length()) {
+                    c = input.charAt(pos++);
+                }
+                value.append(c);
+            }
+            expect("\"");
+            return value.toString();
+        }
+
+        private String identifier() {
+            skipWhitespace();
+            int start = pos;
+            while (pos < input.length()
+                    && (Character.isLetterOrDigit(input.charAt(pos)) || input.charAt(pos) == '-')) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error("Expected identifier");
+            }
+            return input.substring(start, pos);
+        }
+
+        private boolean peek(char c) {
+            skipWhitespace();
+            return pos < input.length() && input.charAt(pos) == c;
+        }
+
+        private void expect(String token) {
+            skipWhitespace();
+            if (!input.startsWith(token, pos)) {
+                throw error("Expected '" + token + "'");
+            }
+            pos += token.length();
+        }
+
+        void expectEnd() {
+            skipWhitespace();
+            if (peek(';')) {
+                pos++;
+                skipWhitespace();
+            }
+            if (pos != input.length()) {
+                throw error("Unexpected trailing input");
+            }
+        }
+
+        private void skipWhitespace() {
+            while (pos < input.length() && Character.isWhitespace(input.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos + " in: " + input);
+        }
+    }
+}
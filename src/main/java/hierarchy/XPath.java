@@ -0,0 +1,837 @@
+package hierarchy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The XPath 1.0 subset Appium locators use, evaluated over a {@link CompactHierarchy}:
+ * location paths with / and //, the child, descendant(-or-self), self, parent, ancestor,
+ * following-sibling, preceding-sibling and attribute axes (with the ., .. and @ shorthands),
+ * name, * and node() tests, predicates, parenthesised paths such as (//x)[2], unions,
+ * and / or / = / != / &lt; / &gt;, and the functions contains, starts-with, not, position,
+ * last, count, string, normalize-space, string-length, true and false.
+ *
+ * Element names are the node classes (android.widget.TextView), as in UiAutomator2 page source.
+ */
+public final class XPath implements NodeQuery {
+    /** The document node, parent of the &lt;hierarchy&gt; element. */
+    private static final int DOCUMENT = -2;
+    /** The &lt;hierarchy&gt; element, parent of the top-level nodes. */
+    private static final int ROOT = -1;
+
+    private final String expression;
+    private final Expr root;
+
+    private XPath(String expression, Expr root) {
+        this.expression = expression;
+        this.root = root;
+    }
+
+    /**
+     * @throws IllegalArgumentException for syntax outside the supported subset
+     */
+    public static XPath parse(String expression) {
+        Parser parser = new Parser(expression);
+        Expr root = parser.parseExpr();
+        parser.expectEnd();
+        return new XPath(expression, root);
+    }
+
+    /**
+     * Matching element nodes in document order. Relative paths start at the scope node
+     * (the document when scope is -1); absolute paths always start at the document.
+     */
+    @Override
+    public int[] select(CompactHierarchy hierarchy, int scope) {
+        Object result = root.eval(new Context(hierarchy, scope < 0 ? DOCUMENT : scope, 1, 1));
+        if (!(result instanceof NodeSet)) {
+            throw new IllegalArgumentException("XPath does not select elements: " + expression);
+        }
+        int[] nodes = ((NodeSet) result).nodes;
+        int start = 0;
+        while (start < nodes.length && nodes[start] < 0) {
+            start++;
+        }
+        return Arrays.copyOfRange(nodes, start, nodes.length);
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    // ============ EVALUATION ============
+
+    private static final class Context {
+        final CompactHierarchy hierarchy;
+        final int node;
+        final int position;
+        final int size;
+
+        Context(CompactHierarchy hierarchy, int node, int position, int size) {
+            this.hierarchy = hierarchy;
+            this.node = node;
+            this.position = position;
+            this.size = size;
+        }
+    }
+
+    private interface Expr {
+        Object eval(Context context);
+    }
+
+    /**
+     * Element nodes in document order (DOCUMENT &lt; ROOT &lt; 0 .. size - 1).
+     */
+    private static final class NodeSet {
+        final int[] nodes;
+
+        NodeSet(int[] nodes) {
+            this.nodes = nodes;
+        }
+    }
+
+    /**
+     * Values selected by an attribute step; attributes are not modelled as nodes.
+     */
+    private static final class AttributeValues {
+        final List<String> values;
+
+        AttributeValues(List<String> values) {
+            this.values = values;
+        }
+    }
+
+    private enum Axis {
+        CHILD, DESCENDANT, DESCENDANT_OR_SELF, SELF, PARENT, ANCESTOR, FOLLOWING_SIBLING, PRECEDING_SIBLING, ATTRIBUTE
+    }
+
+    private static final class Step {
+        final Axis axis;
+        /** Element or attribute name; "*" for any, null for node(), "#text" for text(). */
+        final String name;
+        final List<Expr> predicates = new ArrayList<>();
+
+        Step(Axis axis, String name) {
+            this.axis = axis;
+            this.name = name;
+        }
+    }
+
+    private static final class LocationPath implements Expr {
+        final boolean absolute;
+        final List<Step> steps;
+
+        LocationPath(boolean absolute, List<Step> steps) {
+            this.absolute = absolute;
+            this.steps = steps;
+        }
+
+        @Override
+        public Object eval(Context context) {
+            int[] start = {absolute ? DOCUMENT : context.node};
+            return applySteps(context.hierarchy, start, steps);
+        }
+    }
+
+    /**
+     * (expr)[predicates]/more/steps
+     */
+    private static final class FilterPath implements Expr {
+        final Expr primary;
+        final List<Expr> predicates;
+        final List<Step> steps;
+
+        FilterPath(Expr primary, List<Expr> predicates, List<Step> steps) {
+            this.primary = primary;
+            this.predicates = predicates;
+            this.steps = steps;
+        }
+
+        @Override
+        public Object eval(Context context) {
+            Object value = primary.eval(context);
+            if (predicates.isEmpty() && steps.isEmpty()) {
+                return value;
+            }
+            if (!(value instanceof NodeSet)) {
+                throw new IllegalArgumentException("Predicates and steps need a node-set");
+            }
+            int[] nodes = filter(context.hierarchy, ((NodeSet) value).nodes, predicates);
+            return steps.isEmpty() ? new NodeSet(nodes) : applySteps(context.hierarchy, nodes, steps);
+        }
+    }
+
+    private static Object applySteps(CompactHierarchy hierarchy, int[] context, List<Step> steps) {
+        int[] current = context;
+        for (int i = 0; i < steps.size(); i++) {
+            Step step = steps.get(i);
+            if (step.axis == Axis.ATTRIBUTE) {
+                if (i != steps.size() - 1) {
+                    throw new IllegalArgumentException("Attribute step must be the last step");
+                }
+                List<String> values = new ArrayList<>();
+                for (int node : current) {
+                    if (node >= 0 && !step.name.equals("*")) {
+                        String value = hierarchy.attribute(node, step.name);
+                        if (value != null) {
+                            values.add(value);
+                        }
+                    }
+                }
+                return new AttributeValues(values);
+            }
+            current = applyStep(hierarchy, current, step);
+        }
+        return new NodeSet(current);
+    }
+
+    private static int[] applyStep(CompactHierarchy hierarchy, int[] context, Step step) {
+        // Marks indexed by node + 2 so DOCUMENT and ROOT fit; keeps the union duplicate-free
+        boolean[] selected = new boolean[hierarchy.size() + 2];
+        int count = 0;
+        for (int node : context) {
+            int[] candidates = axis(hierarchy, node, step.axis);
+            int kept = 0;
+            for (int candidate : candidates) {
+                if (matches(hierarchy, candidate, step.name)) {
+                    candidates[kept++] = candidate;
+                }
+            }
+            int[] matched = filter(hierarchy, Arrays.copyOf(candidates, kept), step.predicates);
+            for (int match : matched) {
+                if (!selected[match + 2]) {
+                    selected[match + 2] = true;
+                    count++;
+                }
+            }
+        }
+        int[] result = new int[count];
+        int next = 0;
+        for (int i = 0; i < selected.length; i++) {
+            if (selected[i]) {
+                result[next++] = i - 2;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Apply predicates in turn; positions are 1-based over the nodes surviving so far.
+     */
+    private static int[] filter(CompactHierarchy hierarchy, int[] nodes, List<Expr> predicates) {
+        for (Expr predicate : predicates) {
+            int kept = 0;
+            int[] survivors = new int[nodes.length];
+            for (int i = 0; i < nodes.length; i++) {
+                Object value = predicate.eval(new Context(hierarchy, nodes[i], i + 1, nodes.length));
+                boolean keep = value instanceof Double ? ((Double) value) == i + 1 : toBoolean(value);
+                if (keep) {
+                    survivors[kept++] = nodes[i];
+                }
+            }
+            nodes = Arrays.copyOf(survivors, kept);
+        }
+        return nodes;
+    }
+
+    private static boolean matches(CompactHierarchy hierarchy, int node, String name) {
+        if (name == null) {
+            return true;
+        }
+        if (node == DOCUMENT || name.equals("#text")) {
+            return false;
+        }
+        if (name.equals("*")) {
+            return true;
+        }
+        return name.equals(node == ROOT ? hierarchy.getRootTag() : hierarchy.tag(node));
+    }
+
+    /**
+     * Nodes along the axis in proximity order (nearest first for reverse axes).
+     */
+    private static int[] axis(CompactHierarchy hierarchy, int node, Axis axis) {
+        IntList nodes = new IntList();
+        switch (axis) {
+            case SELF:
+                nodes.add(node);
+                break;
+            case CHILD:
+                addChildren(hierarchy, node, nodes);
+                break;
+            case DESCENDANT_OR_SELF:
+                nodes.add(node);
+                addDescendants(hierarchy, node, nodes);
+                break;
+            case DESCENDANT:
+                addDescendants(hierarchy, node, nodes);
+                break;
+            case PARENT:
+                if (node != DOCUMENT) {
+                    nodes.add(parentOf(hierarchy, node));
+                }
+                break;
+            case ANCESTOR:
+                for (int ancestor = node; ancestor != DOCUMENT; ) {
+                    ancestor = parentOf(hierarchy, ancestor);
+                    nodes.add(ancestor);
+                }
+                break;
+            case FOLLOWING_SIBLING:
+                if (node >= 0) {
+                    for (int sibling = hierarchy.nextSibling(node); sibling >= 0; sibling = hierarchy.nextSibling(sibling)) {
+                        nodes.add(sibling);
+                    }
+                }
+                break;
+            case PRECEDING_SIBLING:
+                if (node >= 0) {
+                    IntList before = new IntList();
+                    addChildren(hierarchy, parentOf(hierarchy, node), before);
+                    for (int i = before.size - 1; i >= 0; i--) {
+                        if (before.values[i] < node) {
+                            nodes.add(before.values[i]);
+                        }
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported axis " + axis);
+        }
+        return nodes.toArray();
+    }
+
+    private static int parentOf(CompactHierarchy hierarchy, int node) {
+        if (node == ROOT) {
+            return DOCUMENT;
+        }
+        return hierarchy.parent(node);
+    }
+
+    private static void addChildren(CompactHierarchy hierarchy, int node, IntList nodes) {
+        if (node == DOCUMENT) {
+            nodes.add(ROOT);
+            return;
+        }
+        int child = node == ROOT ? (hierarchy.size() > 0 ? 0 : -1) : hierarchy.firstChild(node);
+        for (; child >= 0; child = hierarchy.nextSibling(child)) {
+            nodes.add(child);
+        }
+    }
+
+    private static void addDescendants(CompactHierarchy hierarchy, int node, IntList nodes) {
+        if (node == DOCUMENT) {
+            nodes.add(ROOT);
+        }
+        int from = node < 0 ? 0 : node + 1;
+        int to = node < 0 ? hierarchy.size() : hierarchy.subtreeEnd(node);
+        for (int descendant = from; descendant < to; descendant++) {
+            nodes.add(descendant);
+        }
+    }
+
+    // ============ VALUES AND FUNCTIONS ============
+
+    private static boolean toBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof Double) {
+            double number = (Double) value;
+            return number != 0 && !Double.isNaN(number);
+        }
+        if (value instanceof String) {
+            return !((String) value).isEmpty();
+        }
+        if (value instanceof NodeSet) {
+            return ((NodeSet) value).nodes.length > 0;
+        }
+        return !((AttributeValues) value).values.isEmpty();
+    }
+
+    private static String toStringValue(Object value) {
+        if (value instanceof String) {
+            return (String) value;
+        }
+        if (value instanceof Boolean) {
+            return value.toString();
+        }
+        if (value instanceof Double) {
+            double number = (Double) value;
+            return number == Math.rint(number) ? String.valueOf((long) number) : String.valueOf(number);
+        }
+        if (value instanceof AttributeValues) {
+            List<String> values = ((AttributeValues) value).values;
+            return values.isEmpty() ? "" : values.get(0);
+        }
+        // Elements of a hierarchy dump have no text children
+        return "";
+    }
+
+    private static double toNumber(Object value) {
+        if (value instanceof Double) {
+            return (Double) value;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        try {
+            return Double.parseDouble(toStringValue(value).trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * XPath 1.0 comparison: a node-set side matches if any of its string values does.
+     */
+    private static boolean compare(Object left, Object right, String operator) {
+        if (left instanceof AttributeValues || left instanceof NodeSet) {
+            for (String value : stringsOf(left)) {
+                if (compare(value, right, operator)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (right instanceof AttributeValues || right instanceof NodeSet) {
+            for (String value : stringsOf(right)) {
+                if (compare(left, value, operator)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        switch (operator) {
+            case "=":
+            case "!=":
+                boolean equal;
+                if (left instanceof Boolean || right instanceof Boolean) {
+                    equal = toBoolean(left) == toBoolean(right);
+                } else if (left instanceof Double || right instanceof Double) {
+                    equal = toNumber(left) == toNumber(right);
+                } else {
+                    equal = toStringValue(left).equals(toStringValue(right));
+                }
+                return operator.equals("=") == equal;
+            case "<":
+                return toNumber(left) < toNumber(right);
+            case "<=":
+                return toNumber(left) <= toNumber(right);
+            case ">":
+                return toNumber(left) > toNumber(right);
+            default:
+                return toNumber(left) >= toNumber(right);
+        }
+    }
+
+    private static List<String> stringsOf(Object nodes) {
+        if (nodes instanceof AttributeValues) {
+            return ((AttributeValues) nodes).values;
+        }
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < ((NodeSet) nodes).nodes.length; i++) {
+            values.add("");
+        }
+        return values;
+    }
+
+    private static Object call(String function, List<Expr> arguments, Context context) {
+        switch (function) {
+            case "contains":
+                return arity(function, arguments, 2)
+                        && toStringValue(arguments.get(0).eval(context)).contains(toStringValue(arguments.get(1).eval(context)));
+            case "starts-with":
+                return arity(function, arguments, 2)
+                        && toStringValue(arguments.get(0).eval(context)).startsWith(toStringValue(arguments.get(1).eval(context)));
+            case "not":
+                return arity(function, arguments, 1) && !toBoolean(arguments.get(0).eval(context));
+            case "position":
+                arity(function, arguments, 0);
+                return (double) context.position;
+            case "last":
+                arity(function, arguments, 0);
+                return (double) context.size;
+            case "count":
+                arity(function, arguments, 1);
+                Object nodes = arguments.get(0).eval(context);
+                return (double) (nodes instanceof NodeSet ? ((NodeSet) nodes).nodes.length : stringsOf(nodes).size());
+            case "string":
+                arity(function, arguments, 1);
+                return toStringValue(arguments.get(0).eval(context));
+            case "normalize-space":
+                arity(function, arguments, 1);
+                return toStringValue(arguments.get(0).eval(context)).trim().replaceAll("\\s+", " ");
+            case "string-length":
+                arity(function, arguments, 1);
+                return (double) toStringValue(arguments.get(0).eval(context)).length();
+            case "true":
+                return arity(function, arguments, 0);
+            case "false":
+                return !arity(function, arguments, 0);
+            default:
+                throw new IllegalArgumentException("Unsupported XPath function " + function + "()");
+        }
+    }
+
+    private static boolean arity(String function, List<Expr> arguments, int expected) {
+        if (arguments.size() != expected) {
+            throw new IllegalArgumentException(function + "() takes " + expected + " argument(s)");
+        }
+        return true;
+    }
+
+    private static final class IntList {
+        int[] values = new int[16];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    // ============ PARSER ============
+
+    /**
+     * Recursive-descent parser producing the expression tree above.
+     */
+    private static final class Parser {
+        private final String input;
+        private int pos;
+
+        Parser(String input) {
+            this.input = input;
+        }
+
+        Expr parseExpr() {
+            Expr left = parseAnd();
+            while (keyword("or")) {
+                Expr first = left;
+                Expr second = parseAnd();
+                left = context -> toBoolean(first.eval(context)) || toBoolean(second.eval(context));
+            }
+            return left;
+        }
+
+        private Expr parseAnd() {
+            Expr left = parseEquality();
+            while (keyword("and")) {
+                Expr first = left;
+                Expr second = parseEquality();
+                left = context -> toBoolean(first.eval(context)) && toBoolean(second.eval(context));
+            }
+            return left;
+        }
+
+        private Expr parseEquality() {
+            Expr left = parseRelational();
+            while (true) {
+                String operator = accept("!=") ? "!=" : accept("=") ? "=" : null;
+                if (operator == null) {
+                    return left;
+                }
+                left = comparison(left, parseRelational(), operator);
+            }
+        }
+
+        private Expr parseRelational() {
+            Expr left = parseUnion();
+            while (true) {
+                String operator = accept("<=") ? "<=" : accept(">=") ? ">="
+                        : accept("<") ? "<" : accept(">") ? ">" : null;
+                if (operator == null) {
+                    return left;
+                }
+                left = comparison(left, parseUnion(), operator);
+            }
+        }
+
+        private static Expr comparison(Expr left, Expr right, String operator) {
+            return context -> compare(left.eval(context), right.eval(context), operator);
+        }
+
+        private Expr parseUnion() {
+            Expr left = parsePathExpr();
+            while (accept("|")) {
+                Expr first = left;
+                Expr second = parsePathExpr();
+                left = context -> union(first.eval(context), second.eval(context));
+            }
+            return left;
+        }
+
+        private static Object union(Object first, Object second) {
+            if (!(first instanceof NodeSet) || !(second instanceof NodeSet)) {
+                throw new IllegalArgumentException("| needs node-sets on both sides");
+            }
+            int[] a = ((NodeSet) first).nodes;
+            int[] b = ((NodeSet) second).nodes;
+            int[] merged = Arrays.copyOf(a, a.length + b.length);
+            System.arraycopy(b, 0, merged, a.length, b.length);
+            return new NodeSet(Arrays.stream(merged).sorted().distinct().toArray());
+        }
+
+        private Expr parsePathExpr() {
+            skipWhitespace();
+            if (pos >= input.length()) {
+                throw error("Unexpected end of expression");
+            }
+            char c = input.charAt(pos);
+            if (c == '"' || c == '\'') {
+                String literal = literal();
+                return context -> literal;
+            }
+            if (Character.isDigit(c) || (c == '.' && pos + 1 < input.length() && Character.isDigit(input.charAt(pos + 1)))) {
+                double number = number();
+                return context -> number;
+            }
+            if (c == '(') {
+                pos++;
+                Expr primary = parseExpr();
+                expect(")");
+                return filterPath(primary);
+            }
+            if (c == '-') {
+                pos++;
+                Expr operand = parsePathExpr();
+                return context -> -toNumber(operand.eval(context));
+            }
+            int mark = pos;
+            if (isNameStart(c)) {
+                String name = name();
+                if (peek('(') && !name.equals("node") && !name.equals("text")) {
+                    expect("(");
+                    List<Expr> arguments = new ArrayList<>();
+                    if (!peek(')')) {
+                        do {
+                            arguments.add(parseExpr());
+                        } while (accept(","));
+                    }
+                    expect(")");
+                    return filterPath(context -> call(name, arguments, context));
+                }
+            }
+            pos = mark;
+            return parseLocationPath();
+        }
+
+        private Expr filterPath(Expr primary) {
+            List<Expr> predicates = predicates();
+            List<Step> steps = new ArrayList<>();
+            if (peekPathSeparator()) {
+                relativeSteps(steps);
+            }
+            return predicates.isEmpty() && steps.isEmpty() ? primary : new FilterPath(primary, predicates, steps);
+        }
+
+        private Expr parseLocationPath() {
+            List<Step> steps = new ArrayList<>();
+            boolean absolute = false;
+            if (peekPathSeparator()) {
+                absolute = true;
+                if (accept("//")) {
+                    steps.add(new Step(Axis.DESCENDANT_OR_SELF, null));
+                    steps.add(step());
+                } else {
+                    expect("/");
+                    if (!startsStep()) {
+                        return new LocationPath(true, steps);
+                    }
+                    steps.add(step());
+                }
+            } else {
+                steps.add(step());
+            }
+            relativeSteps(steps);
+            return new LocationPath(absolute, steps);
+        }
+
+        private void relativeSteps(List<Step> steps) {
+            while (peekPathSeparator()) {
+                if (accept("//")) {
+                    steps.add(new Step(Axis.DESCENDANT_OR_SELF, null));
+                } else {
+                    expect("/");
+                }
+                steps.add(step());
+            }
+        }
+
+        private Step step() {
+            if (accept("..")) {
+                return new Step(Axis.PARENT, null);
+            }
+            if (accept(".")) {
+                return new Step(Axis.SELF, null);
+            }
+            Axis axis = Axis.CHILD;
+            if (accept("@")) {
+                axis = Axis.ATTRIBUTE;
+            }
+            String name = accept("*") ? "*" : name();
+            if (axis == Axis.CHILD && accept("::")) {
+                axis = axisNamed(name);
+                name = accept("*") ? "*" : name();
+            }
+            if (axis != Axis.ATTRIBUTE && peek('(')) {
+                expect("(");
+                expect(")");
+                if (name.equals("node")) {
+                    name = null;
+                } else if (name.equals("text")) {
+                    name = "#text";
+                } else {
+                    throw error("Unsupported node test " + name + "()");
+                }
+            }
+            Step step = new Step(axis, name);
+            step.predicates.addAll(predicates());
+            return step;
+        }
+
+        private Axis axisNamed(String name) {
+            switch (name) {
+                case "child":
+                    return Axis.CHILD;
+                case "descendant":
+                    return Axis.DESCENDANT;
+                case "descendant-or-self":
+                    return Axis.DESCENDANT_OR_SELF;
+                case "self":
+                    return Axis.SELF;
+                case "parent":
+                    return Axis.PARENT;
+                case "ancestor":
+                    return Axis.ANCESTOR;
+                case "following-sibling":
+                    return Axis.FOLLOWING_SIBLING;
+                case "preceding-sibling":
+                    return Axis.PRECEDING_SIBLING;
+                case "attribute":
+                    return Axis.ATTRIBUTE;
+                default:
+                    throw error("Unsupported axis " + name);
+            }
+        }
+
+        private List<Expr> predicates() {
+            List<Expr> predicates = new ArrayList<>();
+            while (accept("[")) {
+                predicates.add(parseExpr());
+                expect("]");
+            }
+            return predicates;
+        }
+
+        private boolean startsStep() {
+            skipWhitespace();
+            if (pos >= input.length()) {
+                return false;
+            }
+            char c = input.charAt(pos);
+            return isNameStart(c) || c == '*' || c == '@' || c == '.';
+        }
+
+        private boolean peekPathSeparator() {
+            return peek('/');
+        }
+
+        private boolean keyword(String word) {
+            skipWhitespace();
+            int end = pos + word.length();
+            if (input.startsWith(word, pos) && (end >= input.length() || !isNameChar(input.charAt(end)))) {
+                pos = end;
+                return true;
+            }
+            return false;
+        }
+
+        private String name() {
+            skipWhitespace();
+            int start = pos;
+            if (pos < input.length() && isNameStart(input.charAt(pos))) {
+                pos++;
+                while (pos < input.length() && isNameChar(input.charAt(pos))) {
+                    pos++;
+                }
+            }
+            if (start == pos) {
+                throw error("Expected name");
+            }
+            return input.substring(start, pos);
+        }
+
+        private static boolean isNameStart(char c) {
+            return Character.isLetter(c) || c == '_';
+        }
+
+        private static boolean isNameChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.';
+        }
+
+        private String literal() {
+            char quote = input.charAt(pos++);
+            int end = input.indexOf(quote, pos);
+            if (end < 0) {
+                throw error("Unterminated string literal");
+            }
+            String value = input.substring(pos, end);
+            pos = end + 1;
+            return value;
+        }
+
+        private double number() {
+            int start = pos;
+            while (pos < input.length() && (Character.isDigit(input.charAt(pos)) || input.charAt(pos) == '.')) {
+                pos++;
+            }
+            return Double.parseDouble(input.substring(start, pos));
+        }
+
+        private boolean peek(char c) {
+            skipWhitespace();
+            return pos < input.length() && input.charAt(pos) == c;
+        }
+
+        private boolean accept(String token) {
+            skipWhitespace();
+            if (input.startsWith(token, pos)) {
+                pos += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String token) {
+            if (!accept(token)) {
+                throw error("Expected '" + token + "'");
+            }
+        }
+
+        void expectEnd() {
+            skipWhitespace();
+            if (pos != input.length()) {
+                throw error("Unexpected trailing input");
+            }
+        }
+
+        private void skipWhitespace() {
+            while (pos < input.length() && Character.isWhitespace(input.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos + " in XPath: " + input);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package metrics;
+
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Suite-wide latency of every WebDriver command sent through {@link TimedCommandExecutor}.
+ * Commands are aggregated per command name, per locator (find commands only) and per
+ * running test. The test is set by the test listener on the thread that runs it.
+ */
+public final class CommandMetrics {
+    private static final String NO_TEST = "(outside tests)";
+
+    private static final Map<String, LatencyHistogram> byCommand = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> byLocator = new ConcurrentHashMap<>();
+    private static final Map<String, Map<String, LatencyHistogram>> byTest = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicLong> errorsByCommand = new ConcurrentHashMap<>();
+    private static final ThreadLocal<String> currentTest = new ThreadLocal<>();
+
+    private CommandMetrics() {
+    }
+
+    /**
+     * Attribute commands issued by the calling thread to the given test until cleared.
+     */
+    public static void setCurrentTest(String testName) {
+        currentTest.set(testName);
+    }
+
+    public static void clearCurrentTest() {
+        currentTest.remove();
+    }
+
+    /**
+     * @param locator "strategy=value" for find commands, null otherwise
+     * @param failed  the command returned an error (e.g. no such element after the implicit wait)
+     */
+    static void record(String command, String locator, long nanos, boolean failed) {
+        byCommand.computeIfAbsent(command, key -> new LatencyHistogram()).record(nanos);
+        if (locator != null) {
+            byLocator.computeIfAbsent(locator, key -> new LatencyHistogram()).record(nanos);
+        }
+        String test = currentTest.get() == null ? NO_TEST : currentTest.get();
+        byTest.computeIfAbsent(test, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(command, key -> new LatencyHistogram())
+                .record(nanos);
+        if (failed) {
+            errorsByCommand.computeIfAbsent(command, key -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    public static LatencyHistogram getCommand(String command) {
+        return byCommand.get(command);
+    }
+
+    public static LatencyHistogram getLocator(String locator) {
+        return byLocator.get(locator);
+    }
+
+    /**
+     * Find-command latency per "strategy=value" locator.
+     */
+    public static Map<String, LatencyHistogram> getLocators() {
+        return Map.copyOf(byLocator);
+    }
+
+    public static Map<String, LatencyHistogram> getTest(String testName) {
+        return byTest.getOrDefault(testName, Map.of());
+    }
+
+    public static long getErrors(String command) {
+        AtomicLong errors = errorsByCommand.get(command);
+        return errors == null ? 0 : errors.get();
+    }
+
+    /**
+     * All metrics as nested maps: commands, locators and tests, each sorted by name.
+     */
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> commands = new TreeMap<>();
+        byCommand.forEach((command, histogram) -> {
+            Map<String, Object> entry = histogram.toMap();
+            entry.put("errors", getErrors(command));
+            commands.put(command, entry);
+        });
+        Map<String, Object> tests = new TreeMap<>();
+        byTest.forEach((test, perCommand) -> tests.put(test, toMaps(perCommand)));
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("commands", commands);
+        snapshot.put("locators", toMaps(byLocator));
+        snapshot.put("tests", tests);
+        return snapshot;
+    }
+
+    private static Map<String, Object> toMaps(Map<String, LatencyHistogram> histograms) {
+        Map<String, Object> maps = new TreeMap<>();
+        histograms.forEach((name, histogram) -> maps.put(name, histogram.toMap()));
+        return maps;
+    }
+
+    /**
+     * Write {@link #snapshot()} as JSON, creating parent directories as needed.
+     */
+    public static void writeJson(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            writer.write(new Json().toJson(snapshot()));
+        }
+    }
+
+    /**
+     * One line per command, slowest total first, for the console run summary.
+     */
+    public static List<String> summaryLines(int limit) {
+        List<Map.Entry<String, LatencyHistogram>> entries = new ArrayList<>(byCommand.entrySet());
+        entries.sort(Comparator.comparingLong(
+                (Map.Entry<String, LatencyHistogram> entry) -> entry.getValue().getTotalNanos()).reversed());
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, LatencyHistogram> entry : entries.subList(0, Math.min(limit, entries.size()))) {
+            Map<String, Object> stats = entry.getValue().toMap();
+            lines.add(entry.getKey() + ": " + stats.get("count") + "x, total " + stats.get("totalMs")
+                    + "ms, p50 " + stats.get("p50Ms") + "ms, p95 " + stats.get("p95Ms")
+                    + "ms, max " + stats.get("maxMs") + "ms");
+        }
+        return lines;
+    }
+
+    /**
+     * Clear all metrics. Used between framework test runs.
+     */
+    public static void reset() {
+        byCommand.clear();
+        byLocator.clear();
+        byTest.clear();
+        errorsByCommand.clear();
+    }
+}
@@ -0,0 +1,334 @@
+package metrics;
+
+import org.openqa.selenium.json.Json;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only JSONL journal of what a run did: suite and test boundaries, sessions, driver
+ * commands, waits, sleeps and artifacts, one JSON object per line.
+ *
+ * Every line carries "ts" (epoch nanoseconds, monotonic within the run), "run", "seq", "thread"
+ * (the thread id; Selenium renames threads while a command is in flight), "device" and "type",
+ * plus the event's own fields. Recording only timestamps the event and
+ * offers it to a bounded queue. A single writer thread serialises and appends it, and a full
+ * queue drops the event (counted) rather than slow the test down. With no journal started,
+ * recording is a null check. Journals of several shards or machines combine into one timeline
+ * with {@link #merge}.
+ */
+public final class EventJournal implements AutoCloseable {
+    private static final int MERGE_WINDOW = 1024;
+    private static final Comparator<Map<String, Object>> TIMELINE = Comparator
+            .comparingLong((Map<String, Object> event) -> ((Number) event.get("ts")).longValue())
+            .thenComparing(event -> String.valueOf(event.get("run")))
+            .thenComparingLong(event -> ((Number) event.get("seq")).longValue());
+
+    private static volatile EventJournal active;
+    private static final ThreadLocal<String> threadDevice = new ThreadLocal<>();
+
+    // Epoch nanos = nanoTime + offset: a wall-clock scale that never steps back within the run
+    private static final long EPOCH_OFFSET_NANOS = epochNanos(Instant.now()) - System.nanoTime();
+
+    private final Path file;
+    private final String run;
+    private final BlockingQueue<Event> queue;
+    private final BufferedWriter out;
+    private final Thread writer;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Json json = new Json();
+    private long written;
+    private volatile boolean closing;
+
+    private EventJournal(Path file, String run, int capacity) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.file = file;
+        this.run = run;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.out = Files.newBufferedWriter(file);
+        this.writer = new Thread(this::drain, "event-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Start journaling to the file; replaces (and closes) a journal already running.
+     *
+     * @param run      identifies this process among merged journals, e.g. a shard or host name
+     * @param capacity events that may wait for the writer before new ones are dropped
+     */
+    public static synchronized EventJournal start(Path file, String run, int capacity) {
+        if (active != null) {
+            active.close();
+        }
+        try {
+            active = new EventJournal(file, run, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open event journal " + file, e);
+        }
+        return active;
+    }
+
+    /**
+     * The running journal, or null when none was started.
+     */
+    public static EventJournal getActive() {
+        return active;
+    }
+
+    /**
+     * Stop the running journal, writing everything recorded so far.
+     */
+    public static synchronized void stop() {
+        if (active != null) {
+            active.close();
+            active = null;
+        }
+    }
+
+    /**
+     * Whether a journal is running; lets callers skip building an event's fields.
+     */
+    public static boolean isEnabled() {
+        return active != null;
+    }
+
+    /**
+     * Tag the calling thread's events with the device its session runs on (null to clear).
+     */
+    public static void setThreadDevice(String device) {
+        if (device == null) {
+            threadDevice.remove();
+        } else {
+            threadDevice.set(device);
+        }
+    }
+
+    /**
+     * Record an event with alternating field names and values, e.g.
+     * {@code record("command", "name", "findElement", "ns", 1234)}.
+     */
+    public static void record(String type, Object... fields) {
+        EventJournal journal = active;
+        if (journal == null) {
+            return;
+        }
+        Event event = new Event(System.nanoTime() + EPOCH_OFFSET_NANOS, Thread.currentThread().getId(),
+                threadDevice.get(), type, fields);
+        if (journal.closing || !journal.queue.offer(event)) {
+            journal.dropped.incrementAndGet();
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Events lost to a full queue.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Events written so far (exact once closed).
+     */
+    public synchronized long getWritten() {
+        return written;
+    }
+
+    /**
+     * Write what is queued and close the file; a last "journal" event reports the drop count.
+     */
+    @Override
+    public void close() {
+        closing = true;
+        writer.interrupt();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                List<Event> rest = new ArrayList<>();
+                queue.drainTo(rest);
+                rest.add(new Event(System.nanoTime() + EPOCH_OFFSET_NANOS, Thread.currentThread().getId(), null,
+                        "journal", new Object[]{"events", written + rest.size(), "dropped", dropped.get()}));
+                write(rest);
+                out.close();
+            } catch (IOException e) {
+                System.out.println("⚠ Failed to close event journal " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void drain() {
+        List<Event> batch = new ArrayList<>();
+        while (!closing) {
+            try {
+                Event first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch);
+                synchronized (this) {
+                    write(batch);
+                    if (queue.isEmpty()) {
+                        out.flush();
+                    }
+                }
+                batch.clear();
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                System.out.println("⚠ Event journal write failed: " + e.getMessage());
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Event> batch) throws IOException {
+        // Threads timestamp before they enqueue, so a batch can be slightly out of order
+        batch.sort(Comparator.comparingLong(event -> event.ts));
+        for (Event event : batch) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("ts", event.ts);
+            line.put("run", run);
+            line.put("seq", written++);
+            line.put("thread", event.thread);
+            line.put("device", event.device);
+            line.put("type", event.type);
+            for (int i = 0; i + 1 < event.fields.length; i += 2) {
+                line.put(String.valueOf(event.fields[i]), event.fields[i + 1]);
+            }
+            writeLine(out, line);
+        }
+    }
+
+    private void writeLine(Writer target, Map<String, Object> line) throws IOException {
+        StringBuilder text = new StringBuilder();
+        json.newOutput(text).setPrettyPrint(false).writeClassName(false).write(line);
+        target.write(text.toString());
+        target.write('\n');
+    }
+
+    /**
+     * Merge journals into one file ordered by time (then run and sequence). Inputs are streamed.
+     * Lines only need to be in order within a window of {@value #MERGE_WINDOW} lines per input,
+     * which holds for journals written by this class.
+     *
+     * @return lines written
+     */
+    public static long merge(List<Path> inputs, Path output) throws IOException {
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        Json json = new Json();
+        List<BufferedReader> readers = new ArrayList<>();
+        PriorityQueue<Pending> heads = new PriorityQueue<>((a, b) -> TIMELINE.compare(a.event, b.event));
+        long lines = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(output)) {
+            for (Path input : inputs) {
+                BufferedReader reader = Files.newBufferedReader(input);
+                readers.add(reader);
+                for (int i = 0; i < MERGE_WINDOW && readNext(reader, json, heads); i++) {
+                    // Prime the window
+                }
+            }
+            while (!heads.isEmpty()) {
+                Pending next = heads.poll();
+                out.write(next.line);
+                out.write('\n');
+                lines++;
+                readNext(next.reader, json, heads);
+            }
+        } finally {
+            for (BufferedReader reader : readers) {
+                reader.close();
+            }
+        }
+        return lines;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean readNext(BufferedReader reader, Json json, PriorityQueue<Pending> heads) throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+        } while (line != null && line.isBlank());
+        if (line == null) {
+            return false;
+        }
+        heads.add(new Pending(line, (Map<String, Object>) json.toType(line, Map.class), reader));
+        return true;
+    }
+
+    /**
+     * Merge journals: {@code EventJournal <output.jsonl> <input.jsonl>...}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: EventJournal <output.jsonl> <input.jsonl>...");
+            return;
+        }
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            inputs.add(Path.of(args[i]));
+        }
+        long lines = merge(inputs, Path.of(args[0]));
+        System.out.println("🧾 Merged " + inputs.size() + " journals, " + lines + " events: " + args[0]);
+    }
+
+    private static long epochNanos(Instant instant) {
+        return TimeUnit.SECONDS.toNanos(instant.getEpochSecond()) + instant.getNano();
+    }
+
+    private static final class Event {
+        private final long ts;
+        private final long thread;
+        private final String device;
+        private final String type;
+        private final Object[] fields;
+
+        private Event(long ts, long thread, String device, String type, Object[] fields) {
+            this.ts = ts;
+            this.thread = thread;
+            this.device = device;
+            this.type = type;
+            this.fields = fields;
+        }
+    }
+
+    private static final class Pending {
+        private final String line;
+        private final Map<String, Object> event;
+        private final BufferedReader reader;
+
+        private Pending(String line, Map<String, Object> event, BufferedReader reader) {
+            this.line = line;
+            this.event = event;
+            this.reader = reader;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with logarithmic buckets.
+ * Buckets are a quarter of a power of two wide (about 19%), from 1µs up to several days,
+ * so percentiles are accurate to within one bucket whatever the command's typical latency.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS_PER_DOUBLING = 4;
+    private static final int BUCKET_COUNT = 40 * BUCKETS_PER_DOUBLING + 2;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        totalNanos.addAndGet(value);
+        maxNanos.accumulateAndGet(value, Math::max);
+    }
+
+    private static int bucketOf(long nanos) {
+        long micros = nanos / 1_000;
+        if (micros < 1) {
+            return 0;
+        }
+        int index = (int) Math.floor(Math.log(micros) / Math.log(2) * BUCKETS_PER_DOUBLING) + 1;
+        return Math.min(index, BUCKET_COUNT - 1);
+    }
+
+    private static long upperBoundNanos(int bucket) {
+        return Math.round(Math.pow(2, (double) bucket / BUCKETS_PER_DOUBLING) * 1_000);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Latency below which the given fraction of samples fall, reported as the upper bound
+     * of the matching bucket (never above the observed maximum).
+     *
+     * @param quantile between 0 and 1, e.g. 0.95
+     */
+    public long getPercentileNanos(double quantile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundNanos(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * Count, total, p50/p95/p99 and max in milliseconds, ready for the metrics file.
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", getCount());
+        map.put("totalMs", toMillis(getTotalNanos()));
+        map.put("p50Ms", toMillis(getPercentileNanos(0.50)));
+        map.put("p95Ms", toMillis(getPercentileNanos(0.95)));
+        map.put("p99Ms", toMillis(getPercentileNanos(0.99)));
+        map.put("maxMs", toMillis(getMaxNanos()));
+        return map;
+    }
+
+    static double toMillis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+}
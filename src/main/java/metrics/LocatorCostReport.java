@@ -0,0 +1,98 @@
+package metrics;
+
+import hierarchy.LocatorRewriter;
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Locators ranked by the cumulative time their find commands took on the device, each with the
+ * cheaper equivalent {@link LocatorRewriter} verified on the recorded screens. A locator that
+ * was substituted lists the originals it stands in for, so the page-object locator to change
+ * can be read straight off the report.
+ */
+public final class LocatorCostReport {
+
+    private LocatorCostReport() {
+    }
+
+    /**
+     * Rank the locators recorded by {@link CommandMetrics}.
+     */
+    public static List<Map<String, Object>> rank(LocatorRewriter rewriter) {
+        return rank(CommandMetrics.getLocators(), rewriter);
+    }
+
+    /**
+     * One entry per locator, highest total time first.
+     *
+     * @param locators find-command latency per "strategy=value" locator
+     */
+    public static List<Map<String, Object>> rank(Map<String, LatencyHistogram> locators, LocatorRewriter rewriter) {
+        List<Map.Entry<String, LatencyHistogram>> entries = new ArrayList<>(locators.entrySet());
+        entries.sort(Comparator.comparingLong(
+                (Map.Entry<String, LatencyHistogram> entry) -> entry.getValue().getTotalNanos()).reversed()
+                .thenComparing(Map.Entry::getKey));
+
+        List<Map<String, Object>> ranking = new ArrayList<>();
+        for (Map.Entry<String, LatencyHistogram> entry : entries) {
+            String locator = entry.getKey();
+            int separator = locator.indexOf('=');
+            LocatorRewriter.Proposal proposal = rewriter.propose(
+                    locator.substring(0, separator), locator.substring(separator + 1));
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("locator", locator);
+            row.putAll(entry.getValue().toMap());
+            List<String> originals = rewriter.substitutedBy(locator);
+            if (!originals.isEmpty()) {
+                row.put("substitutedFor", originals);
+            }
+            row.put("replacement", proposal.getReplacementLocator());
+            row.put("substitutable", proposal.isSubstitutable());
+            row.put("reason", proposal.getReason());
+            ranking.add(row);
+        }
+        return ranking;
+    }
+
+    /**
+     * Write {@link #rank(LocatorRewriter)} as JSON, creating parent directories as needed.
+     */
+    public static void writeJson(Path file, LocatorRewriter rewriter) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            writer.write(new Json().toJson(rank(rewriter)));
+        }
+    }
+
+    /**
+     * One line per locator, costliest first, for the console run summary.
+     */
+    public static List<String> summaryLines(LocatorRewriter rewriter, int limit) {
+        List<String> lines = new ArrayList<>();
+        for (Map<String, Object> row : rank(rewriter)) {
+            if (lines.size() == limit) {
+                break;
+            }
+            String line = row.get("locator") + ": " + row.get("count") + "x, total " + row.get("totalMs") + "ms";
+            if (row.containsKey("substitutedFor")) {
+                line += ", substituted for " + row.get("substitutedFor");
+            } else if (row.get("replacement") != null) {
+                line += ", try " + row.get("replacement");
+            }
+            lines.add(line);
+        }
+        return lines;
+    }
+}
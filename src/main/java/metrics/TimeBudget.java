@@ -0,0 +1,298 @@
+package metrics;
+
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Where each test's wall-clock time went: command round trips, explicit wait polling, implicit
+ * waits of finds that matched nothing, deliberate sleeps, artifact capture, and the rest (test
+ * code, assertions, the JVM) as OTHER.
+ *
+ * Timed sections nest, and every nanosecond goes to the innermost one: a command sent while an
+ * explicit wait polls is a command, only the pauses between polls are the wait's. Capture is
+ * the exception and keeps everything inside it. So the categories of a test add up to its
+ * duration. Sections are tracked per thread, and only between {@link #startTest} and
+ * {@link #finishTest} on that thread.
+ */
+public final class TimeBudget {
+
+    public enum Category {
+        COMMAND(false, false),
+        EXPLICIT_WAIT(true, false),
+        IMPLICIT_WAIT(true, false),
+        SLEEP(true, false),
+        // The screenshot or page-source command of a capture is part of the capture
+        CAPTURE(false, true),
+        OTHER(false, false);
+
+        private final boolean idle;
+        private final boolean claimsNested;
+
+        Category(boolean idle, boolean claimsNested) {
+            this.idle = idle;
+            this.claimsNested = claimsNested;
+        }
+
+        /**
+         * Time spent waiting rather than working: the first place to look for speed-ups.
+         */
+        public boolean isIdle() {
+            return idle;
+        }
+    }
+
+    private static final Map<String, long[]> byTest = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Budget> currentBudget = new ThreadLocal<>();
+    private static final ThreadLocal<Deque<long[]>> openSections = ThreadLocal.withInitial(ArrayDeque::new);
+    private static final ThreadLocal<Boolean> claimed = ThreadLocal.withInitial(() -> false);
+
+    private TimeBudget() {
+    }
+
+    /**
+     * Start accounting the calling thread's time to the test.
+     */
+    public static void startTest(String testName) {
+        currentBudget.set(new Budget(testName, System.nanoTime()));
+        openSections.get().clear();
+    }
+
+    /**
+     * Close the calling thread's test: whatever no section claimed becomes OTHER. A test run
+     * several times (invocation count, retries) accumulates.
+     *
+     * @return milliseconds per category of this run, empty if no test was started
+     */
+    public static Map<Category, Long> finishTest() {
+        Budget budget = currentBudget.get();
+        currentBudget.remove();
+        openSections.get().clear();
+        claimed.remove();
+        if (budget == null) {
+            return Map.of();
+        }
+        long wall = System.nanoTime() - budget.start;
+        long attributed = 0;
+        for (long nanos : budget.nanos) {
+            attributed += nanos;
+        }
+        budget.nanos[Category.OTHER.ordinal()] += Math.max(0, wall - attributed);
+        byTest.merge(budget.test, budget.nanos.clone(), (sum, run) -> {
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] += run[i];
+            }
+            return sum;
+        });
+        return toMillis(budget.nanos);
+    }
+
+    /**
+     * Open a timed section on the calling thread; the category is decided when it closes.
+     */
+    public static void open() {
+        openSections.get().push(new long[]{System.nanoTime(), 0});
+    }
+
+    /**
+     * Close the innermost open section, charging its own time (less nested sections) to the category.
+     */
+    public static void close(Category category) {
+        Deque<long[]> sections = openSections.get();
+        long[] section = sections.poll();
+        if (section == null || claimed.get()) {
+            return;
+        }
+        long elapsed = System.nanoTime() - section[0];
+        if (!sections.isEmpty()) {
+            sections.peek()[1] += elapsed;
+        }
+        Budget budget = currentBudget.get();
+        if (budget != null) {
+            budget.nanos[category.ordinal()] += Math.max(0, elapsed - section[1]);
+        }
+    }
+
+    /**
+     * Run the action as one section of the category, journaled as an event named after the
+     * category ("explicit_wait", "sleep", ...) with its total duration.
+     */
+    public static <T> T measure(Category category, Supplier<T> action) {
+        long start = System.nanoTime();
+        open();
+        boolean outerClaimed = claimed.get();
+        claimed.set(outerClaimed || category.claimsNested);
+        try {
+            return action.get();
+        } finally {
+            claimed.set(outerClaimed);
+            close(category);
+            EventJournal.record(category.name().toLowerCase(), "ns", System.nanoTime() - start);
+        }
+    }
+
+    public static void measure(Category category, Runnable action) {
+        measure(category, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * A deliberate sleep, accounted as SLEEP.
+     */
+    public static void sleep(Duration duration) {
+        measure(Category.SLEEP, () -> {
+            try {
+                Thread.sleep(duration.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    /**
+     * Milliseconds per category of every finished test.
+     */
+    public static Map<String, Map<Category, Long>> getTests() {
+        Map<String, Map<Category, Long>> tests = new TreeMap<>();
+        byTest.forEach((test, nanos) -> tests.put(test, toMillis(nanos)));
+        return tests;
+    }
+
+    /**
+     * Idle milliseconds (explicit and implicit waits, sleeps) of a finished test.
+     */
+    public static long getIdleMillis(String testName) {
+        long[] nanos = byTest.get(testName);
+        return nanos == null ? 0 : idleNanos(nanos) / 1_000_000;
+    }
+
+    /**
+     * Tests ranked by idle time, then the suite totals per category.
+     */
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> tests = new LinkedHashMap<>();
+        long[] totals = new long[Category.values().length];
+        for (Map.Entry<String, long[]> entry : rankedByIdle()) {
+            Map<String, Object> test = new LinkedHashMap<>();
+            test.put("idleMs", idleNanos(entry.getValue()) / 1_000_000);
+            test.put("totalMs", sum(entry.getValue()) / 1_000_000);
+            toMillis(entry.getValue()).forEach((category, millis) -> test.put(category.name(), millis));
+            tests.put(entry.getKey(), test);
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] += entry.getValue()[i];
+            }
+        }
+        Map<String, Object> suite = new LinkedHashMap<>();
+        toMillis(totals).forEach((category, millis) -> suite.put(category.name(), millis));
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("suite", suite);
+        snapshot.put("tests", tests);
+        return snapshot;
+    }
+
+    /**
+     * Write {@link #snapshot()} as JSON, creating parent directories as needed.
+     */
+    public static void writeJson(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            writer.write(new Json().toJson(snapshot()));
+        }
+    }
+
+    /**
+     * One line per test, most idle time first, for the console run summary.
+     */
+    public static List<String> summaryLines(int limit) {
+        List<Map.Entry<String, long[]>> ranked = rankedByIdle();
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : ranked.subList(0, Math.min(limit, ranked.size()))) {
+            long[] nanos = entry.getValue();
+            StringBuilder line = new StringBuilder(entry.getKey())
+                    .append(": idle ").append(idleNanos(nanos) / 1_000_000)
+                    .append("ms of ").append(sum(nanos) / 1_000_000).append("ms (");
+            String separator = "";
+            for (Category category : Category.values()) {
+                long millis = nanos[category.ordinal()] / 1_000_000;
+                if (millis > 0) {
+                    line.append(separator).append(category.name().toLowerCase()).append(' ').append(millis);
+                    separator = ", ";
+                }
+            }
+            lines.add(line.append(")").toString());
+        }
+        return lines;
+    }
+
+    /**
+     * Clear all budgets. Used between framework test runs.
+     */
+    public static void reset() {
+        byTest.clear();
+    }
+
+    private static List<Map.Entry<String, long[]>> rankedByIdle() {
+        List<Map.Entry<String, long[]>> entries = new ArrayList<>(byTest.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, long[]> entry) -> idleNanos(entry.getValue()))
+                .reversed()
+                .thenComparing(Map.Entry::getKey));
+        return entries;
+    }
+
+    private static long idleNanos(long[] nanos) {
+        long idle = 0;
+        for (Category category : Category.values()) {
+            if (category.isIdle()) {
+                idle += nanos[category.ordinal()];
+            }
+        }
+        return idle;
+    }
+
+    private static long sum(long[] nanos) {
+        long total = 0;
+        for (long value : nanos) {
+            total += value;
+        }
+        return total;
+    }
+
+    private static Map<Category, Long> toMillis(long[] nanos) {
+        Map<Category, Long> millis = new EnumMap<>(Category.class);
+        for (Category category : Category.values()) {
+            millis.put(category, nanos[category.ordinal()] / 1_000_000);
+        }
+        return millis;
+    }
+
+    private static final class Budget {
+        private final String test;
+        private final long start;
+        private final long[] nanos = new long[Category.values().length];
+
+        private Budget(String test, long start) {
+            this.test = test;
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package metrics;
+
+import io.appium.java_client.MobileCommand;
+import io.appium.java_client.remote.AppiumCommandExecutor;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.Response;
+
+import java.net.URL;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Appium command executor that times every command round trip into {@link CommandMetrics}.
+ * Sits below the driver, so page objects, waits and the driver manager's own calls are all
+ * measured without wrapping the AndroidDriver itself.
+ *
+ * Each command is also a {@link TimeBudget} section: a find that matched nothing while the
+ * session had an implicit wait spent that time waiting on the server and counts as
+ * IMPLICIT_WAIT, every other command as COMMAND. The executor follows the session's implicit
+ * wait from the timeouts commands it sends. Every command is recorded in the {@link EventJournal}.
+ */
+public class TimedCommandExecutor extends AppiumCommandExecutor {
+    private volatile long implicitWaitMillis;
+
+    public TimedCommandExecutor(URL appiumUrl) {
+        super(MobileCommand.commandRepository, appiumUrl);
+    }
+
+    @Override
+    public Response execute(Command command) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        boolean found = false;
+        TimeBudget.open();
+        try {
+            Response response = super.execute(command);
+            failed = isError(response);
+            found = !failed && !(response.getValue() instanceof Collection && ((Collection<?>) response.getValue()).isEmpty());
+            if (!failed && command.getName().equals(DriverCommand.SET_TIMEOUT)
+                    && command.getParameters().get("implicit") instanceof Number) {
+                implicitWaitMillis = ((Number) command.getParameters().get("implicit")).longValue();
+            }
+            return response;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            String locator = locatorOf(command);
+            CommandMetrics.record(nameOf(command), locator, elapsed, failed);
+            boolean waitedImplicitly = !found && implicitWaitMillis > 0 && locator != null;
+            if (EventJournal.isEnabled()) {
+                EventJournal.record("command", "name", nameOf(command), "locator", locator, "ns", elapsed,
+                        "failed", failed, "implicitWait", waitedImplicitly);
+            }
+            TimeBudget.close(waitedImplicitly ? TimeBudget.Category.IMPLICIT_WAIT : TimeBudget.Category.COMMAND);
+        }
+    }
+
+    /**
+     * W3C error responses carry the error code ("no such element") as their state and the
+     * decoded WebDriverException as their value; an exception thrown by the call also counts.
+     */
+    static boolean isError(Response response) {
+        return response.getValue() instanceof WebDriverException
+                || response.getState() != null && !"success".equals(response.getState());
+    }
+
+    /**
+     * Command name; script executions are split by script, so each "mobile:" extension
+     * (scrollGesture, clearApp, ...) gets its own histogram.
+     */
+    static String nameOf(Command command) {
+        Object script = command.getParameters().get("script");
+        if (script != null && (command.getName().equals(DriverCommand.EXECUTE_SCRIPT)
+                || command.getName().equals(DriverCommand.EXECUTE_ASYNC_SCRIPT))) {
+            return command.getName() + " " + script;
+        }
+        return command.getName();
+    }
+
+    static String locatorOf(Command command) {
+        switch (command.getName()) {
+            case DriverCommand.FIND_ELEMENT:
+            case DriverCommand.FIND_ELEMENTS:
+            case DriverCommand.FIND_CHILD_ELEMENT:
+            case DriverCommand.FIND_CHILD_ELEMENTS:
+                Map<String, ?> parameters = command.getParameters();
+                return parameters.get("using") + "=" + parameters.get("value");
+            default:
+                return null;
+        }
+    }
+}
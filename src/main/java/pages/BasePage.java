@@ -1,72 +1,167 @@
 package pages;
 
+import config.AppConfig;
 import config.DriverManager;
+import hierarchy.LocatorRewriter;
 import io.appium.java_client.android.AndroidDriver;
 import io.appium.java_client.AppiumBy;
+import io.appium.java_client.driverscripts.ScriptOptions;
+import metrics.EventJournal;
 import org.openqa.selenium.By;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.UnsupportedCommandException;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
+import waits.WaitEngine;
 
+import java.nio.file.Paths;
 import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 /**
  * Base page class with common methods for all page objects.
  * All page classes should extend this class.
  */
 public class BasePage {
+    /**
+     * Snapshot shared by all page objects of the thread's session, so an action through one
+     * page invalidates what another page read before it.
+     */
+    private static final ThreadLocal<PageSnapshot> currentSnapshot = new ThreadLocal<>();
+
+    private static volatile LocatorRewriter locatorRewriter;
+
+    /**
+     * Sessions (drivers) whose Appium server refused driver scripts; they fill forms field by field.
+     */
+    private static final Set<AndroidDriver> noDriverScripts =
+            Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
     protected AndroidDriver driver;
     protected WebDriverWait wait;
+    protected WaitEngine waits;
+    protected final ElementCache elements = new ElementCache(AppConfig.isElementCacheEnabled());
 
+    /**
+     * Binds the page to the calling thread's driver session.
+     */
     public BasePage() {
         this.driver = DriverManager.getDriver();
         this.wait = DriverManager.getWait();
+        this.waits = DriverManager.getWaitEngine();
+        // A new page object usually means a new test step; never hand it an older screen
+        invalidateSnapshot();
     }
 
     /**
      * Wait for element to be visible and return it.
      */
     protected WebElement waitForElement(By locator) {
-        return wait.until(ExpectedConditions.visibilityOfElementLocated(locator));
+        return wait.until(ExpectedConditions.visibilityOfElementLocated(optimized(locator)));
     }
 
     /**
      * Wait for element to be clickable and return it.
      */
     protected WebElement waitForClickable(By locator) {
-        return wait.until(ExpectedConditions.elementToBeClickable(locator));
+        return wait.until(ExpectedConditions.elementToBeClickable(optimized(locator)));
     }
 
     /**
      * Click on element with wait.
+     * A handle cached by an earlier action on this page is clicked directly.
      */
     protected void click(By locator) {
-        waitForClickable(locator).click();
+        invalidateSnapshot();
+        elements.apply(locator, this::waitForClickable, element -> {
+            element.click();
+            return null;
+        });
+    }
+
+    /**
+     * Perform the taps as one W3C Actions request instead of a find and click per tap.
+     * Elements come from the element cache; UiAutomator2 resolves every origin before it
+     * injects any event, so a stale handle fails the whole request and it is retried once
+     * with fresh elements.
+     */
+    protected void tap(TapSequence taps) {
+        invalidateSnapshot();
+        try {
+            driver.perform(List.of(taps.compile(this::tapTarget)));
+        } catch (StaleElementReferenceException e) {
+            invalidateElements();
+            driver.perform(List.of(taps.compile(this::tapTarget)));
+        }
+    }
+
+    private WebElement tapTarget(By locator) {
+        return elements.apply(locator, this::waitForClickable, element -> element);
     }
 
     /**
      * Type text into element.
      */
     protected void type(By locator, String text) {
-        WebElement element = waitForElement(locator);
-        element.clear();
-        element.sendKeys(text);
+        invalidateSnapshot();
+        elements.apply(locator, this::waitForElement, element -> {
+            element.clear();
+            element.sendKeys(text);
+            return null;
+        });
+    }
+
+    /**
+     * Fill the fields and click in one executeDriverScript round trip instead of a wait, clear
+     * and sendKeys per field. Needs login.bulk on and an Appium server started with
+     * --allow-insecure=execute_driver_script; otherwise, or if the script fails, the form is
+     * filled step by step with type() and click().
+     */
+    protected void fill(FormFill form) {
+        invalidateSnapshot();
+        if (AppConfig.isBulkFillEnabled() && form.isBatchable() && !noDriverScripts.contains(driver)) {
+            long waitMillis = AppConfig.getExplicitWait() * 1000L;
+            try {
+                driver.executeDriverScript(form.toDriverScript(waitMillis),
+                        new ScriptOptions().withTimeout(waitMillis * form.size() + 5_000));
+                return;
+            } catch (UnsupportedCommandException e) {
+                noDriverScripts.add(driver);
+            } catch (WebDriverException e) {
+                if (String.valueOf(e.getMessage()).contains("execute_driver_script")) {
+                    noDriverScripts.add(driver);
+                } else {
+                    EventJournal.record("fill.fallback", "error", String.valueOf(e.getMessage()));
+                }
+            }
+        }
+        for (int step = 0; step < form.size(); step++) {
+            if (form.getValue(step) == null) {
+                click(form.getLocator(step));
+            } else {
+                type(form.getLocator(step), form.getValue(step));
+            }
+        }
     }
 
     /**
      * Get text from element.
      */
     protected String getText(By locator) {
-        return waitForElement(locator).getText();
+        return elements.apply(locator, this::waitForElement, WebElement::getText);
     }
 
     /**
-     * Check if element is displayed.
+     * Check if element is displayed right now, without waiting.
      */
     protected boolean isDisplayed(By locator) {
         try {
-            return driver.findElement(locator).isDisplayed();
+            return waits.isPresent(optimized(locator), Duration.ZERO);
         } catch (Exception e) {
             return false;
         }
@@ -74,28 +169,61 @@ public class BasePage {
 
     /**
      * Check if element is displayed with custom timeout.
+     * Polls with the implicit wait off, so a missing element costs the timeout and no more.
      */
     protected boolean isDisplayed(By locator, int timeoutSeconds) {
         try {
-            WebDriverWait customWait = new WebDriverWait(driver, Duration.ofSeconds(timeoutSeconds));
-            customWait.until(ExpectedConditions.visibilityOfElementLocated(locator));
-            return true;
+            return waits.isPresent(optimized(locator), Duration.ofSeconds(timeoutSeconds));
         } catch (Exception e) {
             return false;
         }
     }
 
+    /**
+     * Check that element is gone (or never appears) within the timeout.
+     * Returns as soon as it is not displayed.
+     */
+    protected boolean isAbsent(By locator, Duration timeout) {
+        return waits.isAbsent(optimized(locator), timeout);
+    }
+
     /**
      * Find all elements matching locator.
      */
     protected List<WebElement> findElements(By locator) {
-        return driver.findElements(locator);
+        return driver.findElements(optimized(locator));
+    }
+
+    /**
+     * The locator sent to the device: with locator.rewrite on, a resource-id or accessibility id
+     * that selects the same node on every recorded dump; otherwise the locator itself.
+     */
+    protected By optimized(By locator) {
+        return AppConfig.isLocatorRewriteEnabled() ? getLocatorRewriter().rewrite(locator) : locator;
+    }
+
+    /**
+     * Rewriter over the recorded dumps, loaded on first use and shared by all page objects.
+     */
+    public static LocatorRewriter getLocatorRewriter() {
+        LocatorRewriter rewriter = locatorRewriter;
+        if (rewriter == null) {
+            synchronized (BasePage.class) {
+                if (locatorRewriter == null) {
+                    locatorRewriter = LocatorRewriter.load(Paths.get(AppConfig.getStubDumpDir()));
+                }
+                rewriter = locatorRewriter;
+            }
+        }
+        return rewriter;
     }
 
     /**
      * Scroll down on the screen.
      */
     protected void scrollDown() {
+        invalidateSnapshot();
+        invalidateElements();
         driver.executeScript("mobile: scrollGesture", java.util.Map.of(
             "left", 100,
             "top", 500,
@@ -110,6 +238,8 @@ public class BasePage {
      * Scroll up on the screen.
      */
     protected void scrollUp() {
+        invalidateSnapshot();
+        invalidateElements();
         driver.executeScript("mobile: scrollGesture", java.util.Map.of(
             "left", 100,
             "top", 500,
@@ -124,11 +254,118 @@ public class BasePage {
      * Scroll to element with specific text.
      */
     protected WebElement scrollToText(String text) {
+        return scrollIntoView("new UiSelector().text(\"" + text + "\")");
+    }
+
+    /**
+     * Scroll to the element a UiSelector expression matches.
+     */
+    protected WebElement scrollIntoView(String uiSelector) {
+        invalidateSnapshot();
+        invalidateElements();
         return driver.findElement(AppiumBy.androidUIAutomator(
-            "new UiScrollable(new UiSelector().scrollable(true)).scrollIntoView(new UiSelector().text(\"" + text + "\"))"
+            "new UiScrollable(new UiSelector().scrollable(true)).scrollIntoView(" + uiSelector + ")"
         ));
     }
 
+    /**
+     * The current screen read with a single page-source call, reused by every query until an
+     * action invalidates it. Actions performed outside the page helpers (a WebElement clicked
+     * directly, for example) must call {@link #invalidateSnapshot()} themselves.
+     */
+    protected PageSnapshot snapshot() {
+        PageSnapshot snapshot = currentSnapshot.get();
+        if (snapshot == null) {
+            snapshot = PageSnapshot.capture(driver);
+            currentSnapshot.set(snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Like {@link #snapshot()}, but waits (explicit timeout) until the element is displayed on it,
+     * re-reading the page source between attempts.
+     */
+    protected PageSnapshot snapshotShowing(By locator) {
+        PageSnapshot snapshot = currentSnapshot.get();
+        if (snapshot != null && snapshot.isDisplayed(locator)) {
+            return snapshot;
+        }
+        snapshot = wait.until(d -> {
+            PageSnapshot current = PageSnapshot.capture(driver);
+            return current.isDisplayed(locator) ? current : null;
+        });
+        currentSnapshot.set(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Wait until the screen stops changing after an action, instead of sleeping a fixed time.
+     * The settled screen becomes the current snapshot, so reads that follow cost no extra
+     * page source.
+     *
+     * @throws org.openqa.selenium.TimeoutException if it is still changing after wait.stable.timeout
+     */
+    public void waitForStable() {
+        waitForStable(null);
+    }
+
+    /**
+     * Like {@link #waitForStable()}, only watching the first element the region locator matches.
+     */
+    public void waitForStable(By region) {
+        String source = waits.waitForStable(region == null ? null : optimized(region),
+                Duration.ofMillis(AppConfig.getStableQuiet()), Duration.ofMillis(AppConfig.getStableTimeout()));
+        currentSnapshot.set(PageSnapshot.parse(source));
+    }
+
+    /**
+     * Run the action and wait until the region has changed, then stopped changing. For results
+     * the app computes after a delay, which {@link #waitForStable()} could read before they
+     * start; the settled screen becomes the current snapshot. A region still unchanged after
+     * wait.stable.timeout is taken as settled, the result being the same as before.
+     *
+     * @throws org.openqa.selenium.TimeoutException if the region is still changing after wait.stable.timeout
+     */
+    protected void waitForChange(By region, Runnable action) {
+        By watched = optimized(region);
+        String before = driver.getPageSource();
+        action.run();
+        String source = waits.waitForChange(watched, before,
+                Duration.ofMillis(AppConfig.getStableQuiet()), Duration.ofMillis(AppConfig.getStableTimeout()));
+        currentSnapshot.set(PageSnapshot.parse(source));
+    }
+
+    /**
+     * Drop the cached snapshot; the next query reads the screen again.
+     */
+    public void invalidateSnapshot() {
+        currentSnapshot.remove();
+    }
+
+    /**
+     * Drop this page's cached element handles. Navigation methods call it after changing
+     * screens; scrolling does too, since list rows are recycled views.
+     */
+    protected void invalidateElements() {
+        elements.clear();
+    }
+
+    /**
+     * The screen this session was last seen on or moved to (see {@link Navigator}), or null
+     * when unknown. A hint to confirm, not a fact.
+     */
+    protected Navigator.Screen recallScreen() {
+        return Navigator.recall(String.valueOf(driver.getSessionId()), DriverManager.getAppResetCount());
+    }
+
+    /**
+     * Record the screen an action left the session on; null when the action may have led anywhere.
+     */
+    protected void rememberScreen(Navigator.Screen screen) {
+        Navigator.remember(String.valueOf(driver.getSessionId()), DriverManager.getAppResetCount(), screen);
+    }
+
     /**
      * Take screenshot for debugging.
      */
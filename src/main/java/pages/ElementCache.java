@@ -0,0 +1,104 @@
+package pages;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebElement;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Resolved element handles of one page object, keyed by locator.
+ *
+ * Repeating an action on the same locator (ButtonsTest clicks button1 again and again) reuses
+ * the handle instead of finding and checking the element again. A handle that went stale is
+ * dropped, re-resolved and the action retried once. Navigation clears the cache: views of a
+ * tab that is merely hidden can stay attached and would not report stale.
+ *
+ * Page objects are confined to the thread of their session, so the map is not synchronized;
+ * the counters are suite-wide.
+ */
+public class ElementCache {
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong staleRetries = new AtomicLong();
+
+    private final Map<By, WebElement> elements = new HashMap<>();
+    private final boolean enabled;
+
+    public ElementCache(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Run the action on the cached handle, resolving the locator on a miss or after the handle
+     * went stale.
+     *
+     * @param resolver waits for and finds the element (the uncached path)
+     */
+    public <T> T apply(By locator, Function<By, WebElement> resolver, Function<WebElement, T> action) {
+        if (!enabled) {
+            return action.apply(resolver.apply(locator));
+        }
+        WebElement cached = elements.get(locator);
+        if (cached != null) {
+            try {
+                T result = action.apply(cached);
+                hits.incrementAndGet();
+                return result;
+            } catch (StaleElementReferenceException e) {
+                staleRetries.incrementAndGet();
+                elements.remove(locator);
+            }
+        }
+        misses.incrementAndGet();
+        WebElement element = resolver.apply(locator);
+        elements.put(locator, element);
+        return action.apply(element);
+    }
+
+    /**
+     * Forget every handle, e.g. after switching tabs or scrolling a recycled list.
+     */
+    public void clear() {
+        elements.clear();
+    }
+
+    public int size() {
+        return elements.size();
+    }
+
+    /**
+     * Actions served from a cached handle, each saving a find and its visibility checks.
+     */
+    public static long getHits() {
+        return hits.get();
+    }
+
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Cached handles that turned out stale and were re-resolved.
+     */
+    public static long getStaleRetries() {
+        return staleRetries.get();
+    }
+
+    public static String summary() {
+        return "Element cache: " + getHits() + " hits, " + getMisses() + " misses, "
+                + getStaleRetries() + " stale re-resolves";
+    }
+
+    /**
+     * Clear the counters. Used between framework test runs.
+     */
+    public static void resetStats() {
+        hits.set(0);
+        misses.set(0);
+        staleRetries.set(0);
+    }
+}
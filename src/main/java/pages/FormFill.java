@@ -0,0 +1,107 @@
+package pages;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.json.Json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Values for several fields followed by clicks (typically submit), filled in one
+ * {@code executeDriverScript} round trip when the Appium server allows driver scripts.
+ *
+ * The script is data-driven: a JSON list of [selector, value] pairs, a null value meaning
+ * click, walked by a fixed WebdriverIO loop that waits for each element to be displayed.
+ */
+public class FormFill {
+    private final List<By> locators = new ArrayList<>();
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * Replace the field's content with the value.
+     */
+    public FormFill set(By field, String value) {
+        locators.add(field);
+        values.add(value == null ? "" : value);
+        return this;
+    }
+
+    public FormFill click(By target) {
+        locators.add(target);
+        values.add(null);
+        return this;
+    }
+
+    public int size() {
+        return locators.size();
+    }
+
+    public By getLocator(int step) {
+        return locators.get(step);
+    }
+
+    /**
+     * Value to type at this step, or null for a click.
+     */
+    public String getValue(int step) {
+        return values.get(step);
+    }
+
+    /**
+     * True when every locator has a WebdriverIO selector (id, accessibility id, UiSelector, xpath).
+     */
+    public boolean isBatchable() {
+        return locators.stream().allMatch(locator -> selectorOf(locator) != null);
+    }
+
+    /**
+     * WebdriverIO script performing all steps, each element waited for up to the timeout.
+     *
+     * @throws IllegalStateException when a locator cannot be expressed as a WebdriverIO selector
+     */
+    public String toDriverScript(long waitMillis) {
+        List<List<String>> steps = new ArrayList<>();
+        for (int i = 0; i < locators.size(); i++) {
+            String selector = selectorOf(locators.get(i));
+            if (selector == null) {
+                throw new IllegalStateException("No driver-script selector for " + locators.get(i));
+            }
+            steps.add(Arrays.asList(selector, values.get(i)));
+        }
+        return "const steps = " + new Json().toJson(steps).replaceAll("\\s*\\n\\s*", "") + ";\n"
+                + "for (const [selector, value] of steps) {\n"
+                + "  const element = await driver.$(selector);\n"
+                + "  await element.waitForDisplayed({timeout: " + waitMillis + "});\n"
+                + "  if (value === null) {\n"
+                + "    await element.click();\n"
+                + "  } else {\n"
+                + "    await element.setValue(value);\n"
+                + "  }\n"
+                + "}\n"
+                + "return steps.length;\n";
+    }
+
+    /**
+     * WebdriverIO selector syntax for a remotable locator, or null when there is none.
+     */
+    static String selectorOf(By locator) {
+        if (!(locator instanceof By.Remotable)) {
+            return null;
+        }
+        By.Remotable.Parameters parameters = ((By.Remotable) locator).getRemoteParameters();
+        String value = String.valueOf(parameters.value());
+        switch (parameters.using()) {
+            case "id":
+                return "id=" + value;
+            case "accessibility id":
+                return "~" + value;
+            case "-android uiautomator":
+                return "android=" + value;
+            case "xpath":
+                return value;
+            default:
+                return null;
+        }
+    }
+}
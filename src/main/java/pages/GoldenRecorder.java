@@ -0,0 +1,105 @@
+package pages;
+
+import artifacts.ArtifactWriter;
+import config.AppConfig;
+import hierarchy.CompactHierarchy;
+import io.appium.java_client.android.AndroidDriver;
+import metrics.EventJournal;
+import stub.TrustTestApp;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the golden states replay mode runs against, from a live run with golden.record.dir set.
+ *
+ * Page objects hand over a screen (a {@link TrustTestApp} screen name) once they have confirmed
+ * the app shows it; the first confirmation of each screen in the run reads the page source and
+ * writes it in the background under the file name the app model loads it from. A golden state
+ * whose visible content did not change is left alone, so the recorded directory only changes
+ * when the app did.
+ */
+public final class GoldenRecorder {
+
+    private static final Map<String, String> recorded = new ConcurrentHashMap<>();
+
+    private GoldenRecorder() {
+    }
+
+    public static boolean isRecording() {
+        return !AppConfig.getGoldenRecordDir().isEmpty();
+    }
+
+    /**
+     * Record a screen page objects just confirmed, if recording and not yet recorded in this run.
+     */
+    static void record(AndroidDriver driver, Navigator.Screen screen) {
+        if (isRecording()) {
+            record(driver, screen.getTab() == null ? TrustTestApp.LOGIN : screen.name().toLowerCase());
+        }
+    }
+
+    /**
+     * Record the login form showing the credentials error.
+     */
+    static void recordLoginError(AndroidDriver driver) {
+        record(driver, TrustTestApp.LOGIN_ERROR);
+    }
+
+    private static void record(AndroidDriver driver, String screen) {
+        if (!isRecording() || recorded.putIfAbsent(screen, "recording") != null) {
+            return;
+        }
+        Path target = Paths.get(AppConfig.getGoldenRecordDir(), TrustTestApp.dumpFile(screen));
+        String status;
+        try {
+            String source = driver.getPageSource();
+            status = compare(target, source);
+            if (!status.equals("unchanged")) {
+                ArtifactWriter.shared().submitText(target, source, false);
+            }
+        } catch (Exception e) {
+            status = "failed: " + e.getMessage();
+        }
+        recorded.put(screen, target.getFileName() + " (" + status + ")");
+        EventJournal.record("golden", "screen", screen, "path", target.toString(), "status", status);
+    }
+
+    /**
+     * new, unchanged or changed, comparing what the screens show (not attribute order or index).
+     */
+    private static String compare(Path golden, String source) {
+        if (!Files.exists(golden)) {
+            return "new";
+        }
+        try {
+            return CompactHierarchy.parse(golden).fingerprint() == CompactHierarchy.parse(source).fingerprint()
+                    ? "unchanged" : "changed";
+        } catch (RuntimeException e) {
+            return "changed";
+        }
+    }
+
+    /**
+     * One line per screen recorded in this run, for the console run summary.
+     */
+    public static List<String> summaryLines() {
+        List<String> lines = new ArrayList<>();
+        new TreeMap<>(recorded).forEach((screen, result) -> lines.add(screen + ": " + result));
+        return lines;
+    }
+
+    /**
+     * Forget what was recorded, so the next run records every screen again. Used between
+     * framework test runs.
+     */
+    public static void reset() {
+        recorded.clear();
+    }
+}
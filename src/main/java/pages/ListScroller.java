@@ -0,0 +1,372 @@
+package pages;
+
+import hierarchy.CompactHierarchy;
+import hierarchy.Locators;
+import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.interactions.Pause;
+import org.openqa.selenium.interactions.PointerInput;
+import org.openqa.selenium.interactions.Sequence;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Scrolls a list straight to a numbered item instead of searching for it step by step.
+ *
+ * The list bounds and row pitch are read from the page source. The target's position is
+ * extrapolated from the visible row whose number is closest, and the distance is covered by
+ * one W3C Actions request: slow drags, which move the content by the finger's travel less the
+ * touch slop, for up to two list heights, and flings beyond that. One page-source read then
+ * verifies arrival and measures how far the content really moved. That calibrates the next
+ * gesture: drag accuracy and the travel of one fling are learned per scroller.
+ *
+ * Each pass costs one request and one read whatever the distance, where
+ * UiScrollable.scrollIntoView searches the whole tree after every small step.
+ */
+public class ListScroller {
+    private static final int MAX_PASSES = 4;
+    // Android's touch slop is 8dp; 24px at the xxhdpi density of the reference device
+    private static final int TOUCH_SLOP_PX = 24;
+    private static final Duration DRAG_MOVE = Duration.ofMillis(400);
+    // A finger held still before release leaves no velocity, so a drag never turns into a fling
+    private static final Duration DRAG_HOLD = Duration.ofMillis(150);
+    private static final Duration FLING_MOVE = Duration.ofMillis(40);
+
+    private final AndroidDriver driver;
+    private final By list;
+    private final ToIntFunction<String> itemNumber;
+    private Duration flingSettle = Duration.ofMillis(1000);
+
+    private double dragScale = 1.0;
+    private double flingTravel;
+    private int lastPasses;
+    private int lastGestures;
+
+    /**
+     * @param list       the scrollable container
+     * @param itemNumber number of the item a row's text shows, or -1 for other text
+     */
+    public ListScroller(AndroidDriver driver, By list, ToIntFunction<String> itemNumber) {
+        this.driver = driver;
+        this.list = list;
+        this.itemNumber = itemNumber;
+    }
+
+    /**
+     * Time a fling is given to come to rest before the next gesture or read.
+     */
+    public ListScroller setFlingSettle(Duration flingSettle) {
+        this.flingSettle = flingSettle;
+        return this;
+    }
+
+    /**
+     * Seed the content travel of one fling, e.g. from an earlier run on the same device;
+     * otherwise the first long scroll measures it.
+     */
+    public ListScroller setFlingTravel(double pixels) {
+        this.flingTravel = pixels;
+        return this;
+    }
+
+    public double getFlingTravel() {
+        return flingTravel;
+    }
+
+    /**
+     * Content travel per pixel of requested drag, as measured so far (1 until measured).
+     */
+    public double getDragScale() {
+        return dragScale;
+    }
+
+    /**
+     * Gesture requests sent by the last {@link #scrollTo} call.
+     */
+    public int getLastPasses() {
+        return lastPasses;
+    }
+
+    /**
+     * Drags and flings performed by the last {@link #scrollTo} call.
+     */
+    public int getLastGestures() {
+        return lastGestures;
+    }
+
+    /**
+     * Bring the item fully into view.
+     *
+     * @return the item's text as displayed, or null when it could not be reached
+     *         (end of the list, or not there after {@value #MAX_PASSES} passes)
+     * @throws NoSuchElementException when the list is not on screen
+     */
+    public String scrollTo(int target) {
+        lastPasses = 0;
+        lastGestures = 0;
+        View view = observe();
+        while (!view.isFullyVisible(target)) {
+            ScrollPlan plan = plan(view, target);
+            if (lastPasses == MAX_PASSES || plan.isEmpty()) {
+                return null;
+            }
+            driver.perform(List.of(compile(view, plan)));
+            lastPasses++;
+            lastGestures += plan.getFlings() + plan.getDrags().size();
+
+            View after = observe();
+            double moved = after.travelSince(view);
+            if (Math.abs(moved) < 1) {
+                // Nothing moved: the list cannot scroll further that way
+                return null;
+            }
+            learn(plan, Math.abs(moved));
+            view = after;
+        }
+        return view.text(target);
+    }
+
+    /**
+     * The gestures to bring the target row to the middle of the list, cheapest first: up to two
+     * drags when that reaches it, otherwise as many calibrated flings as fit in the distance
+     * plus drags for the rest. With no fling measured yet, one fling is sent to measure it.
+     */
+    public ScrollPlan plan(View view, int target) {
+        if (view.isFullyVisible(target)) {
+            return new ScrollPlan(0, List.of(), 0);
+        }
+        double distance = view.predictTop(target) + view.pitch / 2 - view.centerY();
+        int direction = distance > 0 ? 1 : -1;
+        double remaining = Math.abs(distance);
+        int capacity = view.dragCapacity();
+
+        int flings = 0;
+        if (remaining > 2 * capacity) {
+            if (flingTravel <= 0) {
+                return new ScrollPlan(1, List.of(), direction);
+            }
+            flings = Math.max(0, (int) ((remaining - capacity) / flingTravel));
+            remaining -= flings * flingTravel;
+        }
+        List<Integer> drags = new ArrayList<>();
+        while (remaining >= 1) {
+            double travel = Math.min(remaining, capacity);
+            drags.add((int) Math.round(travel / dragScale) + TOUCH_SLOP_PX);
+            remaining -= travel;
+        }
+        return new ScrollPlan(flings, drags, direction);
+    }
+
+    private void learn(ScrollPlan plan, double moved) {
+        double dragTravel = 0;
+        for (int finger : plan.getDrags()) {
+            dragTravel += (finger - TOUCH_SLOP_PX) * dragScale;
+        }
+        if (plan.getFlings() == 0) {
+            // Clamp: a drag cut short by the end of the list says little about accuracy
+            dragScale = Math.max(0.5, Math.min(1.5, dragScale * moved / dragTravel));
+        } else if (moved > dragTravel) {
+            flingTravel = (moved - dragTravel) / plan.getFlings();
+        }
+    }
+
+    private Sequence compile(View view, ScrollPlan plan) {
+        PointerInput finger = new PointerInput(PointerInput.Kind.TOUCH, "finger");
+        Sequence sequence = new Sequence(finger, 0);
+        // Content moves opposite to the finger: to reveal later rows the finger goes up
+        int start = plan.getDirection() > 0 ? view.listBottom - view.margin() : view.listTop + view.margin();
+        int flingLength = view.dragCapacity() / 2;
+        for (int i = 0; i < plan.getFlings(); i++) {
+            swipe(sequence, finger, view.centerX, start, start - plan.getDirection() * flingLength, FLING_MOVE, Duration.ZERO);
+            sequence.addAction(new Pause(finger, flingSettle));
+        }
+        for (int length : plan.getDrags()) {
+            swipe(sequence, finger, view.centerX, start, start - plan.getDirection() * length, DRAG_MOVE, DRAG_HOLD);
+        }
+        return sequence;
+    }
+
+    private static void swipe(Sequence sequence, PointerInput finger, int x, int fromY, int toY,
+                              Duration move, Duration hold) {
+        sequence.addAction(finger.createPointerMove(Duration.ZERO, PointerInput.Origin.viewport(), x, fromY));
+        sequence.addAction(finger.createPointerDown(PointerInput.MouseButton.LEFT.asArg()));
+        sequence.addAction(finger.createPointerMove(move, PointerInput.Origin.viewport(), x, toY));
+        if (!hold.isZero()) {
+            sequence.addAction(new Pause(finger, hold));
+        }
+        sequence.addAction(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
+    }
+
+    /**
+     * Read the list's bounds and visible rows with one page-source call.
+     */
+    public View observe() {
+        return View.of(PageSnapshot.capture(driver).getHierarchy(), list, itemNumber);
+    }
+
+    /**
+     * The list as seen in one page source: its bounds and the top edge of every visible row
+     * that shows an item number.
+     */
+    public static final class View {
+        private final int listTop;
+        private final int listBottom;
+        private final int centerX;
+        private final double pitch;
+        private final TreeMap<Integer, int[]> rows;
+        private final Map<Integer, String> texts;
+
+        private View(int listTop, int listBottom, int centerX, double pitch,
+                     TreeMap<Integer, int[]> rows, Map<Integer, String> texts) {
+            this.listTop = listTop;
+            this.listBottom = listBottom;
+            this.centerX = centerX;
+            this.pitch = pitch;
+            this.rows = rows;
+            this.texts = texts;
+        }
+
+        /**
+         * @throws NoSuchElementException when the list is not in the hierarchy
+         */
+        public static View of(CompactHierarchy hierarchy, By list, ToIntFunction<String> itemNumber) {
+            int[] lists = Locators.compile(list).select(hierarchy, -1);
+            if (lists.length == 0) {
+                throw new NoSuchElementException("List not on screen: " + list);
+            }
+            int container = lists[0];
+            TreeMap<Integer, int[]> rows = new TreeMap<>();
+            Map<Integer, String> texts = new TreeMap<>();
+            int firstTop = Integer.MAX_VALUE;
+            int lastTop = Integer.MIN_VALUE;
+            int maxHeight = 0;
+            for (int node = container + 1; node < hierarchy.subtreeEnd(container); node++) {
+                int number = itemNumber.applyAsInt(hierarchy.text(node));
+                if (number < 0 || !hierarchy.isDisplayed(node)) {
+                    continue;
+                }
+                rows.put(number, new int[]{hierarchy.top(node), hierarchy.bottom(node)});
+                texts.put(number, hierarchy.text(node));
+                firstTop = Math.min(firstTop, hierarchy.top(node));
+                lastTop = Math.max(lastTop, hierarchy.top(node));
+                maxHeight = Math.max(maxHeight, hierarchy.bottom(node) - hierarchy.top(node));
+            }
+            // Rows in screen order are evenly spaced even where the numbering is not
+            double pitch = rows.size() > 1 ? (double) (lastTop - firstTop) / (rows.size() - 1) : maxHeight;
+            return new View(hierarchy.top(container), hierarchy.bottom(container),
+                    (hierarchy.left(container) + hierarchy.right(container)) / 2, pitch, rows, texts);
+        }
+
+        public double getPitch() {
+            return pitch;
+        }
+
+        public int getListTop() {
+            return listTop;
+        }
+
+        public int getListBottom() {
+            return listBottom;
+        }
+
+        /**
+         * Item numbers of the visible rows.
+         */
+        public List<Integer> getVisibleItems() {
+            return new ArrayList<>(rows.keySet());
+        }
+
+        public boolean isFullyVisible(int item) {
+            int[] row = rows.get(item);
+            return row != null && row[0] >= listTop && row[1] <= listBottom;
+        }
+
+        String text(int item) {
+            return texts.get(item);
+        }
+
+        /**
+         * Where the item's top edge is, extrapolated from the visible row with the nearest number.
+         */
+        double predictTop(int item) {
+            if (rows.isEmpty()) {
+                throw new NoSuchElementException("No numbered rows visible in the list");
+            }
+            Integer below = rows.floorKey(item);
+            Integer above = rows.ceilingKey(item);
+            int anchor = below == null ? above : above == null ? below
+                    : (item - below <= above - item ? below : above);
+            return rows.get(anchor)[0] + (item - anchor) * pitch;
+        }
+
+        /**
+         * Content travel between the earlier view and this one, positive when it moved up
+         * (towards later items): where a row visible now was predicted to be, minus where it is.
+         */
+        double travelSince(View before) {
+            if (rows.isEmpty()) {
+                return 0;
+            }
+            int item = rows.firstKey();
+            return before.predictTop(item) - rows.get(item)[0];
+        }
+
+        double centerY() {
+            return (listTop + listBottom) / 2.0;
+        }
+
+        int margin() {
+            return (int) Math.max(pitch / 2, (listBottom - listTop) / 10.0);
+        }
+
+        /**
+         * Longest drag that starts and ends inside the list.
+         */
+        int dragCapacity() {
+            return Math.max(1, listBottom - listTop - 2 * margin() - TOUCH_SLOP_PX);
+        }
+    }
+
+    /**
+     * Gestures for one pass: flings first, then drags, all in one direction.
+     */
+    public static final class ScrollPlan {
+        private final int flings;
+        private final List<Integer> drags;
+        private final int direction;
+
+        ScrollPlan(int flings, List<Integer> drags, int direction) {
+            this.flings = flings;
+            this.drags = List.copyOf(drags);
+            this.direction = direction;
+        }
+
+        public int getFlings() {
+            return flings;
+        }
+
+        /**
+         * Finger travel of each drag in pixels, touch slop included.
+         */
+        public List<Integer> getDrags() {
+            return drags;
+        }
+
+        /**
+         * 1 to reveal later items, -1 for earlier ones.
+         */
+        public int getDirection() {
+            return direction;
+        }
+
+        public boolean isEmpty() {
+            return flings == 0 && drags.isEmpty();
+        }
+    }
+}
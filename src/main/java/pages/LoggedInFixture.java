@@ -0,0 +1,149 @@
+package pages;
+
+import config.AppConfig;
+import metrics.EventJournal;
+import pages.Navigator.Screen;
+import pages.TestPage.Tab;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Brings the app to "logged in, on tab X" by the quickest route that works, and checks that it
+ * got there with a single find for the selected tab.
+ *
+ * Routes, tried in order:
+ * <ul>
+ *   <li>KEPT_ALIVE: the session already shows a tab (a warm session whose reset was
+ *       deferred), so at most one tab tap is needed</li>
+ *   <li>DEEP_LINK: fixture.deeplink is set and opening it lands on the tab</li>
+ *   <li>UI_LOGIN: type the credentials and tap the tab, as a user would (the moves come from
+ *       {@link Navigator}, so there is no tap when the tab is List)</li>
+ * </ul>
+ * The route and time taken are kept per class for the run summary.
+ */
+public class LoggedInFixture {
+
+    public enum Route { KEPT_ALIVE, DEEP_LINK, UI_LOGIN }
+
+    private static final Map<String, Result> results = new ConcurrentHashMap<>();
+
+    private final TestPage testPage;
+
+    public LoggedInFixture() {
+        this(new TestPage());
+    }
+
+    LoggedInFixture(TestPage testPage) {
+        this.testPage = testPage;
+    }
+
+    /**
+     * Open the tab logged in and record the route under the owner (a test class name).
+     *
+     * @throws IllegalStateException when even the UI login did not end on the tab
+     */
+    public Result open(Tab tab, String owner) {
+        long start = System.nanoTime();
+        Route route = route(tab);
+        Result result = new Result(tab, route, (System.nanoTime() - start) / 1_000_000);
+        results.put(owner, result);
+        EventJournal.record("fixture", "owner", owner, "tab", tab.name(), "route", route.name(),
+                "ms", result.getMillis());
+        return result;
+    }
+
+    private Route route(Tab tab) {
+        // One page source tells both whether the tab is up and, if not, where the app is
+        Screen current = testPage.awaitScreen();
+        if (current == Screen.of(tab)) {
+            return Route.KEPT_ALIVE;
+        }
+        if (current != null && current != Screen.LOGIN) {
+            testPage.goToTab(tab);
+            if (testPage.isOnTab(tab, AppConfig.getExplicitWait())) {
+                return Route.KEPT_ALIVE;
+            }
+        }
+        String deepLink = AppConfig.getFixtureDeepLink();
+        if (!deepLink.isEmpty() && openDeepLink(deepLink.replace("{tab}", tab.name().toLowerCase()), tab)) {
+            return Route.DEEP_LINK;
+        }
+        testPage.navigateTo(Screen.of(tab));
+        if (!testPage.isOnTab(tab, AppConfig.getExplicitWait())) {
+            throw new IllegalStateException("Logged in, but the " + tab.getLabel() + " tab is not selected");
+        }
+        return Route.UI_LOGIN;
+    }
+
+    private boolean openDeepLink(String url, Tab tab) {
+        try {
+            testPage.driver.executeScript("mobile: deepLink", Map.of("url", url, "package", AppConfig.getAppPackage()));
+        } catch (Exception e) {
+            EventJournal.record("fixture.deeplink.failed", "url", url, "error", String.valueOf(e.getMessage()));
+            return false;
+        }
+        testPage.invalidateSnapshot();
+        testPage.invalidateElements();
+        testPage.rememberScreen(null);
+        return testPage.isOnTab(tab, AppConfig.getExplicitWait());
+    }
+
+    /**
+     * Route and time of every class's fixture, keyed by class.
+     */
+    public static Map<String, Result> getResults() {
+        return new TreeMap<>(results);
+    }
+
+    /**
+     * One line per class, for the console run summary.
+     */
+    public static List<String> summaryLines() {
+        List<String> lines = new ArrayList<>();
+        getResults().forEach((owner, result) -> lines.add(owner + ": " + result));
+        return lines;
+    }
+
+    /**
+     * Clear recorded results. Used between framework test runs.
+     */
+    public static void reset() {
+        results.clear();
+    }
+
+    /**
+     * How one class got logged in.
+     */
+    public static final class Result {
+        private final Tab tab;
+        private final Route route;
+        private final long millis;
+
+        private Result(Tab tab, Route route, long millis) {
+            this.tab = tab;
+            this.route = route;
+            this.millis = millis;
+        }
+
+        public Tab getTab() {
+            return tab;
+        }
+
+        public Route getRoute() {
+            return route;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        @Override
+        public String toString() {
+            return tab.getLabel() + " via " + route.name().toLowerCase() + " in " + millis + "ms";
+        }
+    }
+}
@@ -58,23 +58,31 @@ public class LoginPage extends BasePage {
      */
     public void clickSubmit() {
         click(submitButton);
+        invalidateElements();
+        rememberScreen(null);
     }
     
     /**
      * Perform complete login with given credentials.
-     * This is a convenience method combining all login steps.
+     * This is a convenience method combining all login steps, sent as one driver script
+     * when the server allows it (see {@link BasePage#fill}).
      */
     public void login(String username, String password) {
-        enterUsername(username);
-        enterPassword(password);
-        clickSubmit();
+        fill(new FormFill()
+                .set(usernameField, username)
+                .set(passwordField, password)
+                .click(submitButton));
+        invalidateElements();
+        rememberScreen(null);
     }
     
     /**
      * Perform login with valid credentials from config.
+     * The app then shows the List tab; if it does not, the next step that relies on it fails.
      */
     public void loginWithValidCredentials() {
         login(config.AppConfig.getUsername(), config.AppConfig.getPassword());
+        rememberScreen(Navigator.Screen.LIST);
     }
     
     // ============ VERIFICATIONS ============
@@ -83,7 +91,36 @@ public class LoginPage extends BasePage {
      * Check if login screen is displayed.
      */
     public boolean isLoginScreenDisplayed() {
-        return isDisplayed(submitButton, 5);
+        return isLoginScreenDisplayed(5);
+    }
+    
+    /**
+     * Check if login screen is displayed within the given time; 0 checks once without waiting.
+     */
+    public boolean isLoginScreenDisplayed(int timeoutSeconds) {
+        boolean displayed = isDisplayed(submitButton, timeoutSeconds);
+        if (displayed) {
+            rememberScreen(Navigator.Screen.LOGIN);
+            // The golden login screen is the fresh form, without the error
+            if (GoldenRecorder.isRecording() && !isDisplayed(errorMessage)) {
+                GoldenRecorder.record(driver, Navigator.Screen.LOGIN);
+            }
+        }
+        return displayed;
+    }
+    
+    /**
+     * Whether the snapshot shows the login form.
+     */
+    boolean isShownOn(PageSnapshot page) {
+        return page.exists(submitButton);
+    }
+    
+    /**
+     * The element whose presence means the login form is up.
+     */
+    By formMarker() {
+        return submitButton;
     }
     
     /**
@@ -97,7 +134,11 @@ public class LoginPage extends BasePage {
      * Check if error message is displayed.
      */
     public boolean isErrorDisplayed() {
-        return isDisplayed(errorMessage, 3);
+        boolean displayed = isDisplayed(errorMessage, 3);
+        if (displayed) {
+            GoldenRecorder.recordLoginError(driver);
+        }
+        return displayed;
     }
     
     /**
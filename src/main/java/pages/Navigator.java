@@ -0,0 +1,215 @@
+package pages;
+
+import pages.TestPage.Tab;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The app's screens and the moves between them (log in, tap a tab, navigate up), with a
+ * shortest-path planner, and what each thread's session is believed to show right now.
+ *
+ * A belief is recorded by whatever moved the app there, and is tied to the session and its app
+ * reset count, so a new session or a reset forgets it. A belief is never trusted blindly: page
+ * objects confirm it with one query before they skip a move.
+ */
+public final class Navigator {
+
+    public enum Screen {
+        LOGIN(null),
+        LIST(Tab.LIST),
+        BUTTONS(Tab.BUTTONS),
+        SWITCHES(Tab.SWITCHES),
+        INPUT(Tab.INPUT);
+
+        private final Tab tab;
+
+        Screen(Tab tab) {
+            this.tab = tab;
+        }
+
+        /**
+         * The tab this screen is, or null for the login screen.
+         */
+        public Tab getTab() {
+            return tab;
+        }
+
+        public static Screen of(Tab tab) {
+            for (Screen screen : values()) {
+                if (screen.tab == tab) {
+                    return screen;
+                }
+            }
+            throw new IllegalArgumentException("No screen for tab " + tab);
+        }
+    }
+
+    public enum Move { LOG_IN, TAP_TAB, NAVIGATE_UP }
+
+    /**
+     * One move and the screen it leads to.
+     */
+    public static final class Step {
+        private final Screen from;
+        private final Screen to;
+        private final Move move;
+
+        private Step(Screen from, Screen to, Move move) {
+            this.from = from;
+            this.to = to;
+            this.move = move;
+        }
+
+        public Screen getFrom() {
+            return from;
+        }
+
+        public Screen getTo() {
+            return to;
+        }
+
+        public Move getMove() {
+            return move;
+        }
+
+        @Override
+        public String toString() {
+            return from + " -" + move + "-> " + to;
+        }
+    }
+
+    private static final Map<Screen, List<Step>> moves = new EnumMap<>(Screen.class);
+    private static final ThreadLocal<Belief> belief = new ThreadLocal<>();
+    private static final AtomicLong skipped = new AtomicLong();
+    private static final AtomicLong performed = new AtomicLong();
+    private static final AtomicLong detected = new AtomicLong();
+
+    static {
+        for (Screen screen : Screen.values()) {
+            moves.put(screen, new ArrayList<>());
+        }
+        // Logging in lands on the List tab
+        moves.get(Screen.LOGIN).add(new Step(Screen.LOGIN, Screen.LIST, Move.LOG_IN));
+        for (Screen from : Screen.values()) {
+            if (from.tab == null) {
+                continue;
+            }
+            for (Screen to : Screen.values()) {
+                if (to.tab != null && to != from) {
+                    moves.get(from).add(new Step(from, to, Move.TAP_TAB));
+                }
+            }
+            moves.get(from).add(new Step(from, Screen.LOGIN, Move.NAVIGATE_UP));
+        }
+    }
+
+    private Navigator() {
+    }
+
+    /**
+     * Fewest moves from one screen to another (breadth-first); empty when they are the same.
+     */
+    public static List<Step> plan(Screen from, Screen to) {
+        Map<Screen, Step> reachedBy = new EnumMap<>(Screen.class);
+        Deque<Screen> queue = new ArrayDeque<>();
+        queue.add(from);
+        while (!queue.isEmpty() && !reachedBy.containsKey(to) && from != to) {
+            for (Step step : moves.get(queue.poll())) {
+                if (step.to != from && !reachedBy.containsKey(step.to)) {
+                    reachedBy.put(step.to, step);
+                    queue.add(step.to);
+                }
+            }
+        }
+        List<Step> path = new ArrayList<>();
+        for (Screen screen = to; screen != from; screen = reachedBy.get(screen).from) {
+            if (!reachedBy.containsKey(screen)) {
+                throw new IllegalArgumentException("No way from " + from + " to " + to);
+            }
+            path.add(reachedBy.get(screen));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * What the calling thread's session was last seen or moved to, or null if unknown.
+     */
+    static Screen recall(String sessionId, long appResets) {
+        Belief current = belief.get();
+        return current != null && current.sessionId.equals(sessionId) && current.appResets == appResets
+                ? current.screen : null;
+    }
+
+    /**
+     * Record the screen the calling thread's session shows (null to forget).
+     */
+    static void remember(String sessionId, long appResets, Screen screen) {
+        if (screen == null) {
+            belief.remove();
+        } else {
+            belief.set(new Belief(sessionId, appResets, screen));
+        }
+    }
+
+    static void countSkipped() {
+        skipped.incrementAndGet();
+    }
+
+    static void countPerformed(int steps) {
+        performed.addAndGet(steps);
+    }
+
+    static void countDetected() {
+        detected.incrementAndGet();
+    }
+
+    public static long getSkipped() {
+        return skipped.get();
+    }
+
+    public static long getPerformed() {
+        return performed.get();
+    }
+
+    public static long getDetected() {
+        return detected.get();
+    }
+
+    /**
+     * One line for the console run summary.
+     */
+    public static String summary() {
+        return "Navigation: " + skipped.get() + " moves skipped (already there), " + performed.get()
+                + " performed, " + detected.get() + " screens detected from the page source";
+    }
+
+    /**
+     * Clear counters. Used between framework test runs.
+     */
+    public static void reset() {
+        skipped.set(0);
+        performed.set(0);
+        detected.set(0);
+        belief.remove();
+    }
+
+    private static final class Belief {
+        private final String sessionId;
+        private final long appResets;
+        private final Screen screen;
+
+        private Belief(String sessionId, long appResets, Screen screen) {
+            this.sessionId = sessionId;
+            this.appResets = appResets;
+            this.screen = screen;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package pages;
+
+import hierarchy.CompactHierarchy;
+import hierarchy.Locators;
+import hierarchy.NodeQuery;
+import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.Rectangle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The screen as returned by one getPageSource call, answering locator queries locally.
+ *
+ * Reading N fields through the driver costs N find + read round trips; reading them from a
+ * snapshot costs one. A snapshot never changes, so it is only valid until the next action that
+ * mutates the screen - see {@link BasePage#snapshot()} for how pages cache and invalidate it.
+ *
+ * Locators are resolved by {@link Locators} like UiAutomator2 resolves them (id, accessibility id,
+ * class name, UiSelector and XPath); UiScrollable.scrollIntoView cannot be answered without scrolling.
+ */
+public class PageSnapshot {
+    private final CompactHierarchy hierarchy;
+    private final long capturedAtNanos = System.nanoTime();
+
+    private PageSnapshot(CompactHierarchy hierarchy) {
+        this.hierarchy = hierarchy;
+    }
+
+    /**
+     * Read the current screen of the session.
+     */
+    public static PageSnapshot capture(AndroidDriver driver) {
+        return parse(driver.getPageSource());
+    }
+
+    public static PageSnapshot parse(String pageSource) {
+        return new PageSnapshot(CompactHierarchy.parse(pageSource));
+    }
+
+    /**
+     * Milliseconds since the page source was read.
+     */
+    public long getAgeMillis() {
+        return (System.nanoTime() - capturedAtNanos) / 1_000_000;
+    }
+
+    public CompactHierarchy getHierarchy() {
+        return hierarchy;
+    }
+
+    public boolean exists(By locator) {
+        return findAll(locator).length > 0;
+    }
+
+    /**
+     * Whether the first match has an on-screen area; false when nothing matches.
+     */
+    public boolean isDisplayed(By locator) {
+        int[] matches = findAll(locator);
+        return matches.length > 0 && hierarchy.isDisplayed(matches[0]);
+    }
+
+    public String getText(By locator) {
+        return hierarchy.text(find(locator));
+    }
+
+    /**
+     * Texts of all matches in screen order.
+     */
+    public List<String> getTexts(By locator) {
+        List<String> texts = new ArrayList<>();
+        for (int node : findAll(locator)) {
+            texts.add(hierarchy.text(node));
+        }
+        return texts;
+    }
+
+    public int count(By locator) {
+        return findAll(locator).length;
+    }
+
+    public boolean isChecked(By locator) {
+        return hierarchy.is(find(locator), CompactHierarchy.CHECKED);
+    }
+
+    public boolean isEnabled(By locator) {
+        return hierarchy.is(find(locator), CompactHierarchy.ENABLED);
+    }
+
+    public Rectangle getBounds(By locator) {
+        int node = find(locator);
+        return new Rectangle(hierarchy.left(node), hierarchy.top(node),
+                hierarchy.bottom(node) - hierarchy.top(node), hierarchy.right(node) - hierarchy.left(node));
+    }
+
+    /**
+     * Raw attribute of the first match as it appears in the page source ("" when missing).
+     */
+    public String getAttribute(By locator, String attribute) {
+        String value = hierarchy.attribute(find(locator), attribute);
+        return value == null ? "" : value;
+    }
+
+    /**
+     * @throws NoSuchElementException when nothing on the snapshot matches
+     */
+    private int find(By locator) {
+        int[] matches = findAll(locator);
+        if (matches.length == 0) {
+            throw new NoSuchElementException("Not on page snapshot: " + locator);
+        }
+        return matches[0];
+    }
+
+    private int[] findAll(By locator) {
+        NodeQuery query = Locators.compile(locator);
+        if (query.isScrollIntoView()) {
+            throw new IllegalArgumentException("scrollIntoView needs the device, not a snapshot: " + locator);
+        }
+        return query.select(hierarchy, -1);
+    }
+}
@@ -0,0 +1,131 @@
+package pages;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.interactions.Pause;
+import org.openqa.selenium.interactions.PointerInput;
+import org.openqa.selenium.interactions.Sequence;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A series of single-finger taps sent to the device as one W3C Actions request.
+ *
+ * Taps target an element (its centre, passed as the action origin so no rect has to be read
+ * first) or a screen point. Consecutive taps are separated by the interval; {@link #pause}
+ * adds extra time at one point of the sequence. Human taps last 50-100 ms with 150-300 ms
+ * between them, so the defaults sit in that range.
+ */
+public class TapSequence {
+    private static final Duration DEFAULT_PRESS = Duration.ofMillis(60);
+
+    private final List<Object> steps = new ArrayList<>();
+    private final Duration interval;
+    private Duration pressDuration = DEFAULT_PRESS;
+
+    /**
+     * @param interval pause between the release of one tap and the press of the next
+     */
+    public TapSequence(Duration interval) {
+        this.interval = interval;
+    }
+
+    /**
+     * Tap the centre of the element found by the locator.
+     */
+    public TapSequence tap(By locator) {
+        steps.add(locator);
+        return this;
+    }
+
+    /**
+     * Tap the element found by the locator several times in a row.
+     */
+    public TapSequence tap(By locator, int times) {
+        for (int i = 0; i < times; i++) {
+            tap(locator);
+        }
+        return this;
+    }
+
+    /**
+     * Tap a point of the screen, e.g. the centre of bounds read from a page snapshot.
+     */
+    public TapSequence tap(Point point) {
+        steps.add(point);
+        return this;
+    }
+
+    /**
+     * Wait this long (in addition to the interval) before the next tap.
+     */
+    public TapSequence pause(Duration duration) {
+        steps.add(duration);
+        return this;
+    }
+
+    /**
+     * How long each tap holds the finger down.
+     */
+    public TapSequence setPressDuration(Duration pressDuration) {
+        this.pressDuration = pressDuration;
+        return this;
+    }
+
+    public int getTapCount() {
+        return (int) steps.stream().filter(step -> !(step instanceof Duration)).count();
+    }
+
+    /**
+     * Distinct locators the sequence taps, in first-use order.
+     */
+    public List<By> getLocators() {
+        List<By> locators = new ArrayList<>();
+        for (Object step : steps) {
+            if (step instanceof By && !locators.contains(step)) {
+                locators.add((By) step);
+            }
+        }
+        return locators;
+    }
+
+    /**
+     * Build the pointer action sequence.
+     *
+     * @param resolver finds the element for each distinct locator, once
+     */
+    public Sequence compile(Function<By, WebElement> resolver) {
+        Map<By, WebElement> elements = new HashMap<>();
+        PointerInput finger = new PointerInput(PointerInput.Kind.TOUCH, "finger");
+        Sequence sequence = new Sequence(finger, 0);
+        boolean first = true;
+        for (Object step : steps) {
+            if (step instanceof Duration) {
+                sequence.addAction(new Pause(finger, (Duration) step));
+                continue;
+            }
+            if (!first && !interval.isZero()) {
+                sequence.addAction(new Pause(finger, interval));
+            }
+            first = false;
+            if (step instanceof By) {
+                WebElement element = elements.computeIfAbsent((By) step, resolver);
+                sequence.addAction(finger.createPointerMove(Duration.ZERO, PointerInput.Origin.fromElement(element), 0, 0));
+            } else {
+                Point point = (Point) step;
+                sequence.addAction(finger.createPointerMove(Duration.ZERO, PointerInput.Origin.viewport(),
+                        point.getX(), point.getY()));
+            }
+            sequence.addAction(finger.createPointerDown(PointerInput.MouseButton.LEFT.asArg()));
+            sequence.addAction(new Pause(finger, pressDuration));
+            sequence.addAction(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
+        }
+        return sequence;
+    }
+}
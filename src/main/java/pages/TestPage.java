@@ -1,10 +1,17 @@
 package pages;
 
+import config.AppConfig;
 import io.appium.java_client.AppiumBy;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebElement;
+import pages.Navigator.Move;
+import pages.Navigator.Screen;
+import pages.Navigator.Step;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Page Object for the main Test screen with tabs.
@@ -21,47 +28,194 @@ import java.util.List;
  */
 public class TestPage extends BasePage {
     
+    /**
+     * The four tabs, by their label.
+     */
+    public enum Tab {
+        LIST("List"),
+        BUTTONS("Buttons"),
+        SWITCHES("Switches"),
+        INPUT("Input");
+        
+        private final String label;
+        private final By locator;
+        private final By selected;
+        
+        Tab(String label) {
+            this.label = label;
+            this.locator = AppiumBy.androidUIAutomator("new UiSelector().text(\"" + label + "\")");
+            // The tab itself (not its label) carries the description and the selected state
+            this.selected = AppiumBy.androidUIAutomator(
+                    "new UiSelector().description(\"" + label + "\").selected(true)");
+        }
+        
+        public String getLabel() {
+            return label;
+        }
+    }
+    
     // ============ TAB LOCATORS ============
     
-    private final By listTab = AppiumBy.androidUIAutomator("new UiSelector().text(\"List\")");
-    private final By buttonsTab = AppiumBy.androidUIAutomator("new UiSelector().text(\"Buttons\")");
-    private final By switchesTab = AppiumBy.androidUIAutomator("new UiSelector().text(\"Switches\")");
-    private final By inputTab = AppiumBy.androidUIAutomator("new UiSelector().text(\"Input\")");
+    private final By listTab = Tab.LIST.locator;
     private final By backButton = AppiumBy.accessibilityId("Navigate up");
     private final By pageTitle = AppiumBy.id("com.example.trusttest:id/toolbar_title");
+    private final By recyclerView = AppiumBy.id("com.example.trusttest:id/recyclerView");
+    private final By tabBar = AppiumBy.id("com.example.trusttest:id/tabLayout");
+
+    /** How long an app still starting up gets to show the login form or the tab bar. */
+    private static final Duration APP_START_WAIT = Duration.ofSeconds(5);
+
+    private static final Pattern ITEM_TEXT = Pattern.compile("Item\\p{Zs}+(\\d+)");
+    private ListScroller itemScroller;
+    private LoginPage loginPage;
     
     // ============ TAB NAVIGATION ============
     
+    /**
+     * Navigate to a tab.
+     * No tap when the session is known to be on it and one find confirms it is selected.
+     */
+    public TestPage goToTab(Tab tab) {
+        navigateTo(Screen.of(tab));
+        return this;
+    }
+    
+    /**
+     * Bring the app to a screen with the fewest moves (logging in if needed).
+     *
+     * Starts from the screen the session was last on: when that is the target, one find for the
+     * selected tab confirms it and nothing is done; when it is unknown or turned out wrong, one
+     * page source tells where the app is. If that is not recognised (the app still starting), the
+     * login form or the tab bar is waited for first; failing that, the move to the target is made
+     * directly.
+     */
+    public void navigateTo(Screen target) {
+        Screen current = recallScreen();
+        if (current == target) {
+            if (isOn(target)) {
+                Navigator.countSkipped();
+                return;
+            }
+            current = null;
+        }
+        if (current == null) {
+            current = awaitScreen();
+        }
+        if (current == null) {
+            move(target.getTab() == null ? Move.NAVIGATE_UP : Move.TAP_TAB, target);
+            Navigator.countPerformed(1);
+        } else {
+            List<Step> steps = Navigator.plan(current, target);
+            for (Step step : steps) {
+                move(step.getMove(), step.getTo());
+            }
+            Navigator.countPerformed(steps.size());
+        }
+        rememberScreen(target);
+    }
+    
+    /**
+     * Read the screen from one page source: the selected tab, the login form, or null when
+     * neither is recognised. The answer is remembered for the next navigation.
+     */
+    public Screen detectScreen() {
+        LoginPage login = loginPage();
+        invalidateSnapshot();
+        PageSnapshot page = snapshot();
+        Navigator.countDetected();
+        Screen screen = null;
+        for (Tab tab : Tab.values()) {
+            if (page.exists(tab.selected)) {
+                screen = Screen.of(tab);
+                break;
+            }
+        }
+        if (screen == null && login.isShownOn(page)) {
+            screen = Screen.LOGIN;
+        }
+        rememberScreen(screen);
+        return screen;
+    }
+    
+    /**
+     * Like {@link #detectScreen()}, but a screen not recognised yet gets up to five seconds to
+     * show the login form or the tab bar, then is read again.
+     */
+    public Screen awaitScreen() {
+        Screen screen = detectScreen();
+        if (screen == null && waits.isAnyPresent(APP_START_WAIT, loginPage().formMarker(), tabBar)) {
+            screen = detectScreen();
+        }
+        return screen;
+    }
+    
+    private boolean isOn(Screen screen) {
+        return screen.getTab() == null ? loginPage().isLoginScreenDisplayed(0) : isOnTab(screen.getTab(), 0);
+    }
+    
+    private void move(Move move, Screen to) {
+        switch (move) {
+            case LOG_IN:
+                loginPage().loginWithValidCredentials();
+                break;
+            case TAP_TAB:
+                click(to.getTab().locator);
+                break;
+            case NAVIGATE_UP:
+                click(backButton);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown move " + move);
+        }
+        invalidateElements();
+    }
+    
+    private LoginPage loginPage() {
+        if (loginPage == null) {
+            loginPage = new LoginPage();
+        }
+        return loginPage;
+    }
+    
     /**
      * Navigate to List tab.
      */
     public TestPage goToListTab() {
-        click(listTab);
-        return this;
+        return goToTab(Tab.LIST);
     }
     
     /**
      * Navigate to Buttons tab.
      */
     public TestPage goToButtonsTab() {
-        click(buttonsTab);
-        return this;
+        return goToTab(Tab.BUTTONS);
     }
     
     /**
      * Navigate to Switches tab.
      */
     public TestPage goToSwitchesTab() {
-        click(switchesTab);
-        return this;
+        return goToTab(Tab.SWITCHES);
     }
     
     /**
      * Navigate to Input (Crypto) tab.
      */
     public TestPage goToInputTab() {
-        click(inputTab);
-        return this;
+        return goToTab(Tab.INPUT);
+    }
+    
+    /**
+     * Check that the tab is the selected one within the given time; 0 checks once without
+     * waiting. One find when it is.
+     */
+    public boolean isOnTab(Tab tab, int timeoutSeconds) {
+        boolean selected = isDisplayed(tab.selected, timeoutSeconds);
+        if (selected) {
+            rememberScreen(Screen.of(tab));
+            GoldenRecorder.record(driver, Screen.of(tab));
+        }
+        return selected;
     }
     
     /**
@@ -69,6 +223,8 @@ public class TestPage extends BasePage {
      */
     public void goBack() {
         click(backButton);
+        invalidateElements();
+        rememberScreen(Screen.LOGIN);
     }
     
     /**
@@ -78,6 +234,13 @@ public class TestPage extends BasePage {
         return isDisplayed(listTab, 5);
     }
     
+    /**
+     * Check if Test page is displayed within the given time; 0 checks once without waiting.
+     */
+    public boolean isTestPageDisplayed(int timeoutSeconds) {
+        return isDisplayed(listTab, timeoutSeconds);
+    }
+    
     // ============================================
     // LIST TAB METHODS
     // ============================================
@@ -103,25 +266,73 @@ public class TestPage extends BasePage {
      * Click on a specific list item by number.
      */
     public void clickListItem(int itemNumber) {
-        By item = AppiumBy.androidUIAutomator(
-                "new UiSelector().text(\"Item " + itemNumber + "\")");
-        click(item);
+        click(item(itemNumber));
     }
     
     /**
      * Check if specific item is visible.
      */
     public boolean isItemVisible(int itemNumber) {
-        By item = AppiumBy.androidUIAutomator(
-                "new UiSelector().text(\"Item " + itemNumber + "\")");
-        return isDisplayed(item, 2);
+        return isDisplayed(item(itemNumber), 2);
+    }
+    
+    /**
+     * Check if specific item is visible within the given time; 0 checks once without waiting.
+     */
+    public boolean isItemVisible(int itemNumber, int timeoutSeconds) {
+        return isDisplayed(item(itemNumber), timeoutSeconds);
     }
     
     /**
      * Scroll to specific item in the list.
+     *
+     * With list.scroll.predictive the item's position is computed from the rows on screen and
+     * reached with one gesture request (see {@link ListScroller}); UiScrollable is the fallback.
      */
     public WebElement scrollToItem(int itemNumber) {
-        return scrollToText("Item " + itemNumber);
+        if (AppConfig.isPredictiveScrollEnabled()) {
+            invalidateSnapshot();
+            invalidateElements();
+            String text = itemScroller().scrollTo(itemNumber);
+            invalidateSnapshot();
+            if (text != null) {
+                return driver.findElement(AppiumBy.androidUIAutomator(
+                        "new UiSelector().text(\"" + text + "\")"));
+            }
+        }
+        return scrollIntoView(itemSelector(itemNumber));
+    }
+
+    /**
+     * The list scroller, kept with the page so what it learns about the list is reused.
+     */
+    private ListScroller itemScroller() {
+        if (itemScroller == null) {
+            itemScroller = new ListScroller(driver, recyclerView, TestPage::itemNumber);
+        }
+        return itemScroller;
+    }
+
+    /**
+     * The row showing the item; the app separates "Item" and the number with a no-break space.
+     */
+    private static By item(int itemNumber) {
+        return AppiumBy.androidUIAutomator(itemSelector(itemNumber));
+    }
+
+    /**
+     * UiSelector expression for the item's row, shared by {@link #item(int)} and the scroll fallback.
+     */
+    private static String itemSelector(int itemNumber) {
+        return "new UiSelector().textMatches(\"Item\\\\p{Zs}+" + itemNumber + "\")";
+    }
+
+    /**
+     * Number shown by a list row ("Item 7", the app separates with a no-break space), or -1.
+     */
+    private static int itemNumber(String text) {
+        Matcher matcher = ITEM_TEXT.matcher(text);
+        return matcher.matches() ? Integer.parseInt(matcher.group(1)) : -1;
     }
     
     // ============================================
@@ -157,6 +368,32 @@ public class TestPage extends BasePage {
         return this;
     }
     
+    /**
+     * Tap Buttons 1-3 in the given order as a single gesture, pausing the interval between taps.
+     * For example tapButtons(Duration.ofMillis(300), 1, 1, 1) runs Button 1 through its colour cycle.
+     */
+    public TestPage tapButtons(Duration interval, int... buttonNumbers) {
+        TapSequence taps = new TapSequence(interval);
+        for (int number : buttonNumbers) {
+            taps.tap(button(number));
+        }
+        tap(taps);
+        return this;
+    }
+    
+    private By button(int number) {
+        switch (number) {
+            case 1:
+                return button1;
+            case 2:
+                return button2;
+            case 3:
+                return button3;
+            default:
+                throw new IllegalArgumentException("No Button " + number + " on the Buttons tab");
+        }
+    }
+    
     /**
      * Click Reset states button.
      */
@@ -186,6 +423,18 @@ public class TestPage extends BasePage {
         return waitForElement(button3);
     }
     
+    /**
+     * Check that Buttons 1-3 are all displayed, from a single page-source read.
+     */
+    public boolean areAllButtonsDisplayed() {
+        try {
+            PageSnapshot page = snapshotShowing(button1);
+            return page.isDisplayed(button2) && page.isDisplayed(button3);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+    
     /**
      * Check if Reset button is displayed.
      */
@@ -197,13 +446,13 @@ public class TestPage extends BasePage {
     // SWITCHES TAB METHODS
     // ============================================
     
-    private final By switch1 = AppiumBy.androidUIAutomator("new UiSelector().text(\"Switch 1\")");
-    private final By switch2 = AppiumBy.androidUIAutomator("new UiSelector().text(\"Switch 2\")");
-    private final By switch3 = AppiumBy.androidUIAutomator("new UiSelector().text(\"Switch 3\")");
+    // Switch text may carry the state ("Switch 1 OFF", "Switch 1 ON") or be the bare label ("Switch 3")
+    private final By switch1 = AppiumBy.androidUIAutomator("new UiSelector().textMatches(\"Switch 1( ON| OFF)?\")");
+    private final By switch2 = AppiumBy.androidUIAutomator("new UiSelector().textMatches(\"Switch 2( ON| OFF)?\")");
+    private final By switch3 = AppiumBy.androidUIAutomator("new UiSelector().textMatches(\"Switch 3( ON| OFF)?\")");
     private final By saveButton = AppiumBy.androidUIAutomator("new UiSelector().text(\"Save\")");
-    private final By switchStatus1 = AppiumBy.androidUIAutomator("new UiSelector().textContains(\"Switch 1:\")");
-    private final By switchStatus2 = AppiumBy.androidUIAutomator("new UiSelector().textContains(\"Switch 2:\")");
-    private final By switchStatus3 = AppiumBy.androidUIAutomator("new UiSelector().textContains(\"Switch 3:\")");
+    // One TextView lists the saved states, a line per switch: "Switch 1: OFF\nSwitch 2: OFF\n Switch 3: OFF"
+    private final By switchStatus = AppiumBy.id("com.example.trusttest:id/saveStateText");
     
     /**
      * Toggle Switch 1.
@@ -238,24 +487,45 @@ public class TestPage extends BasePage {
     }
     
     /**
-     * Get Switch 1 status text.
+     * Get Switch 1 status text ("Switch 1: ON").
+     * Status reads share one page snapshot until the next toggle or save.
      */
     public String getSwitch1Status() {
-        return getText(switchStatus1);
+        return getSwitchStatuses().get(0);
     }
     
     /**
      * Get Switch 2 status text.
      */
     public String getSwitch2Status() {
-        return getText(switchStatus2);
+        return getSwitchStatuses().get(1);
     }
     
     /**
      * Get Switch 3 status text.
      */
     public String getSwitch3Status() {
-        return getText(switchStatus3);
+        return getSwitchStatuses().get(2);
+    }
+    
+    /**
+     * Get all three switch status texts from a single page-source read.
+     */
+    public List<String> getSwitchStatuses() {
+        String text = snapshotShowing(switchStatus).getText(switchStatus);
+        return List.of(statusLine(text, 1), statusLine(text, 2), statusLine(text, 3));
+    }
+    
+    /**
+     * The switch's own line of the status text, or "" when it has none.
+     */
+    private static String statusLine(String text, int switchNumber) {
+        for (String line : text.split("\n")) {
+            if (line.trim().startsWith("Switch " + switchNumber + ":")) {
+                return line.trim();
+            }
+        }
+        return "";
     }
     
     /**
@@ -271,8 +541,8 @@ public class TestPage extends BasePage {
     
     private final By networkDropdown = AppiumBy.id("com.example.trusttest:id/network_spinner");
     private final By tokenDropdown = AppiumBy.id("com.example.trusttest:id/token_spinner");
-    private final By amountInput = AppiumBy.id("com.example.trusttest:id/amount_input");
-    private final By conversionResult = AppiumBy.id("com.example.trusttest:id/conversion_result");
+    private final By amountInput = AppiumBy.id("com.example.trusttest:id/inputValue");
+    private final By conversionResult = AppiumBy.id("com.example.trusttest:id/outputValue");
     private final By fiatValue = AppiumBy.androidUIAutomator("new UiSelector().textStartsWith(\"Fiat value:\")");
     
     /**
@@ -305,6 +575,14 @@ public class TestPage extends BasePage {
         return this;
     }
     
+    /**
+     * Enter amount and wait for the conversion result to update and settle.
+     */
+    public TestPage enterAmountAndWaitForConversion(String amount) {
+        waitForChange(conversionResult, () -> type(amountInput, amount));
+        return this;
+    }
+    
     /**
      * Get conversion result text.
      */
@@ -0,0 +1,372 @@
+package scheduler;
+
+import metrics.EventJournal;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Durations, outcomes and devices of suites, test classes and test methods, kept between runs
+ * in an append-only file with one line per sample:
+ * {@code epochMillis TAB kind TAB name TAB millis TAB outcome TAB device}.
+ *
+ * A run appends only its own samples on {@link #save()} instead of rewriting what earlier runs
+ * wrote. Only the most recent {@value #MAX_SAMPLES} samples per name are kept; once the file
+ * holds twice as many lines as that, it is compacted (rewritten next to itself and moved into
+ * place). Saves hold an exclusive lock on a {@code .lock} file next to the history, so shards
+ * running as separate processes can share it: each appends in turn, and a compaction rewrites
+ * what is on disk, other shards' samples included. Estimates are percentiles of the kept
+ * samples, so one slow run does not dominate the schedule. Lines that do not parse are skipped.
+ */
+public class DurationHistory {
+    static final int MAX_SAMPLES = 50;
+    /** Samples compared against the older ones for {@link #getTrends}. */
+    static final int TREND_WINDOW = 5;
+    // File locks are held per process: histories within one process take turns before locking
+    private static final Object SAVE_LOCK = new Object();
+
+    public enum Kind { SUITE, CLASS, TEST }
+
+    public enum Outcome { PASS, FAIL, SKIP }
+
+    private final Path file;
+    private final Path lockFile;
+    private final Map<Kind, Map<String, Series>> series = newSeries();
+    private final List<Sample> unsaved = new ArrayList<>();
+
+    public DurationHistory(Path file) {
+        this.file = file;
+        this.lockFile = file.resolveSibling(file.getFileName() + ".lock");
+        try {
+            read(series);
+        } catch (IOException e) {
+            EventJournal.record("history.read.failed", "file", file.toString(), "error", String.valueOf(e.getMessage()));
+        }
+    }
+
+    /**
+     * Add the file's samples to the series.
+     *
+     * @return the number of lines read
+     */
+    private int read(Map<Kind, Map<String, Series>> into) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        int lines = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                Sample sample = Sample.parse(line);
+                if (sample != null) {
+                    add(into, sample);
+                }
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Add a measurement; it reaches the file on the next {@link #save()}.
+     *
+     * @param device device id, or null when unknown
+     */
+    public synchronized void record(Kind kind, String name, long millis, Outcome outcome, String device) {
+        Sample sample = new Sample(System.currentTimeMillis(), kind, name, millis, outcome, device);
+        add(series, sample);
+        unsaved.add(sample);
+    }
+
+    /**
+     * Median duration per test class, the estimate the shard scheduler balances.
+     */
+    public synchronized Map<String, Long> getDurations() {
+        return getDurations(Kind.CLASS, 0.5);
+    }
+
+    /**
+     * Duration percentile (0..1] of every name of the kind with at least one sample.
+     */
+    public synchronized Map<String, Long> getDurations(Kind kind, double percentile) {
+        Map<String, Long> durations = new HashMap<>();
+        series.get(kind).forEach((name, samples) -> durations.put(name, samples.percentile(percentile)));
+        return durations;
+    }
+
+    /**
+     * Duration percentile (0..1) of the kept samples, or -1 if the name has none.
+     */
+    public synchronized long getPercentile(Kind kind, String name, double percentile) {
+        Series samples = series.get(kind).get(name);
+        return samples == null ? -1 : samples.percentile(percentile);
+    }
+
+    public synchronized int getSampleCount(Kind kind, String name) {
+        Series samples = series.get(kind).get(name);
+        return samples == null ? 0 : samples.samples.size();
+    }
+
+    /**
+     * Share of failed runs among the kept samples of every name of the kind.
+     */
+    public synchronized Map<String, Double> getFailureRates(Kind kind) {
+        Map<String, Double> rates = new HashMap<>();
+        series.get(kind).forEach((name, samples) -> rates.put(name, samples.failureRate()));
+        return rates;
+    }
+
+    /**
+     * Names whose last {@value #TREND_WINDOW} samples have a median at least {@code minChange}
+     * (0.2 = 20%) above the median of their older samples, most slowed-down first. Needs
+     * {@value #TREND_WINDOW} older samples as the baseline.
+     */
+    public synchronized List<Trend> getTrends(double minChange) {
+        List<Trend> trends = new ArrayList<>();
+        series.forEach((kind, byName) -> byName.forEach((name, samples) -> {
+            if (samples.samples.size() < 2 * TREND_WINDOW) {
+                return;
+            }
+            long[] millis = samples.millis();
+            long baseline = median(Arrays.copyOfRange(millis, 0, millis.length - TREND_WINDOW));
+            long recent = median(Arrays.copyOfRange(millis, millis.length - TREND_WINDOW, millis.length));
+            Trend trend = new Trend(kind, name, baseline, recent);
+            if (baseline > 0 && trend.getChange() >= minChange) {
+                trends.add(trend);
+            }
+        }));
+        trends.sort(Comparator.comparingDouble(Trend::getChange).reversed().thenComparing(Trend::getName));
+        return trends;
+    }
+
+    /**
+     * Append the samples recorded since the last save, compacting the file when it has grown
+     * to twice what is kept.
+     */
+    public synchronized void save() {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            synchronized (SAVE_LOCK) {
+                saveLocked();
+            }
+        } catch (IOException e) {
+            EventJournal.record("history.write.failed", "file", file.toString(), "error", String.valueOf(e.getMessage()));
+        }
+    }
+
+    /**
+     * Append and compact holding the lock file, which is never replaced, unlike the history a
+     * compaction moves into place. Samples other shards appended are read back before compacting.
+     */
+    private void saveLocked() throws IOException {
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = channel.lock()) {
+            if (!unsaved.isEmpty()) {
+                try (Writer writer = Files.newBufferedWriter(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    for (Sample sample : unsaved) {
+                        writer.write(sample.format());
+                        writer.write('\n');
+                    }
+                }
+                unsaved.clear();
+            }
+            Map<Kind, Map<String, Series>> onDisk = newSeries();
+            if (read(onDisk) > 2 * retainedSamples(onDisk)) {
+                compact(onDisk);
+            }
+        }
+    }
+
+    /**
+     * Rewrite the file with only the kept samples, oldest first. Called with the lock held.
+     */
+    private void compact(Map<Kind, Map<String, Series>> onDisk) throws IOException {
+        List<Sample> kept = new ArrayList<>();
+        onDisk.values().forEach(byName -> byName.values().forEach(samples -> kept.addAll(samples.samples)));
+        kept.sort(Comparator.comparingLong(sample -> sample.timestamp));
+        Path partial = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".part");
+        try {
+            try (Writer writer = Files.newBufferedWriter(partial)) {
+                for (Sample sample : kept) {
+                    writer.write(sample.format());
+                    writer.write('\n');
+                }
+            }
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    private static Map<Kind, Map<String, Series>> newSeries() {
+        Map<Kind, Map<String, Series>> series = new EnumMap<>(Kind.class);
+        for (Kind kind : Kind.values()) {
+            series.put(kind, new HashMap<>());
+        }
+        return series;
+    }
+
+    private static void add(Map<Kind, Map<String, Series>> series, Sample sample) {
+        series.get(sample.kind).computeIfAbsent(sample.name, name -> new Series()).add(sample);
+    }
+
+    private static int retainedSamples(Map<Kind, Map<String, Series>> series) {
+        int retained = 0;
+        for (Map<String, Series> byName : series.values()) {
+            for (Series samples : byName.values()) {
+                retained += samples.samples.size();
+            }
+        }
+        return retained;
+    }
+
+    private static long median(long[] millis) {
+        Arrays.sort(millis);
+        return millis[(millis.length - 1) / 2];
+    }
+
+    /**
+     * A name that got slower: median of its older samples against that of its latest ones.
+     */
+    public static final class Trend {
+        private final Kind kind;
+        private final String name;
+        private final long baselineMillis;
+        private final long recentMillis;
+
+        private Trend(Kind kind, String name, long baselineMillis, long recentMillis) {
+            this.kind = kind;
+            this.name = name;
+            this.baselineMillis = baselineMillis;
+            this.recentMillis = recentMillis;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getBaselineMillis() {
+            return baselineMillis;
+        }
+
+        public long getRecentMillis() {
+            return recentMillis;
+        }
+
+        /**
+         * Relative change, 0.5 = 50% slower.
+         */
+        public double getChange() {
+            return baselineMillis == 0 ? 0 : (double) (recentMillis - baselineMillis) / baselineMillis;
+        }
+
+        @Override
+        public String toString() {
+            return kind.name().toLowerCase() + " " + name + ": median " + baselineMillis + "ms -> "
+                    + recentMillis + "ms (+" + Math.round(getChange() * 100) + "%)";
+        }
+    }
+
+    /**
+     * The kept samples of one name, oldest first, with their sorted durations cached for percentiles.
+     */
+    private static final class Series {
+        private final Deque<Sample> samples = new ArrayDeque<>();
+        private long[] sorted;
+
+        private void add(Sample sample) {
+            samples.addLast(sample);
+            if (samples.size() > MAX_SAMPLES) {
+                samples.removeFirst();
+            }
+            sorted = null;
+        }
+
+        private long percentile(double percentile) {
+            if (sorted == null) {
+                sorted = millis();
+                Arrays.sort(sorted);
+            }
+            int rank = (int) Math.ceil(percentile * sorted.length);
+            return sorted[Math.min(sorted.length - 1, Math.max(0, rank - 1))];
+        }
+
+        private long[] millis() {
+            long[] millis = new long[samples.size()];
+            int i = 0;
+            for (Sample sample : samples) {
+                millis[i++] = sample.millis;
+            }
+            return millis;
+        }
+
+        private double failureRate() {
+            int failed = 0;
+            for (Sample sample : samples) {
+                if (sample.outcome == Outcome.FAIL) {
+                    failed++;
+                }
+            }
+            return (double) failed / samples.size();
+        }
+    }
+
+    private static final class Sample {
+        private final long timestamp;
+        private final Kind kind;
+        private final String name;
+        private final long millis;
+        private final Outcome outcome;
+        private final String device;
+
+        private Sample(long timestamp, Kind kind, String name, long millis, Outcome outcome, String device) {
+            this.timestamp = timestamp;
+            this.kind = kind;
+            this.name = name;
+            this.millis = millis;
+            this.outcome = outcome;
+            this.device = device;
+        }
+
+        private String format() {
+            return timestamp + "\t" + kind + "\t" + name + "\t" + millis + "\t" + outcome + "\t"
+                    + (device == null || device.isEmpty() ? "-" : device);
+        }
+
+        private static Sample parse(String line) {
+            try {
+                String[] fields = line.split("\t", -1);
+                if (fields.length == 6) {
+                    return new Sample(Long.parseLong(fields[0]), Kind.valueOf(fields[1]), fields[2],
+                            Long.parseLong(fields[3]), Outcome.valueOf(fields[4]),
+                            fields[5].equals("-") ? null : fields[5]);
+                }
+            } catch (IllegalArgumentException e) {
+                // Skip corrupt entries, the name is treated as unknown
+            }
+            return null;
+        }
+    }
+}
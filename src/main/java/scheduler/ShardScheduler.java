@@ -0,0 +1,137 @@
+package scheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits test classes into one shard per device so that the shards finish together.
+ * Uses longest-processing-time-first: classes are taken from slowest to fastest and each
+ * goes to the shard with the smallest estimated total so far. {@link #order} decides the
+ * order the classes run in, which shards keep.
+ */
+public final class ShardScheduler {
+
+    /** Estimate for a class with no history when nothing else is known. */
+    static final long DEFAULT_ESTIMATE_MILLIS = 60_000;
+
+    private ShardScheduler() {
+    }
+
+    /**
+     * @param classes   class names in running order
+     * @param durations historical duration per class in milliseconds (may be incomplete)
+     * @param shards    number of shards (devices)
+     * @return exactly {@code shards} shards; classes inside a shard keep their running order
+     */
+    public static List<Shard> schedule(List<String> classes, Map<String, Long> durations, int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        long unknownEstimate = estimateForUnknown(classes, durations);
+
+        List<String> bySize = new ArrayList<>(classes);
+        // Stable sort: ties keep suite order, which makes the plan deterministic
+        bySize.sort(Comparator.comparingLong((String name) -> durations.getOrDefault(name, unknownEstimate))
+                .reversed());
+
+        List<Shard> result = new ArrayList<>();
+        for (int i = 0; i < shards; i++) {
+            result.add(new Shard(i));
+        }
+        for (String name : bySize) {
+            Shard lightest = result.get(0);
+            for (Shard shard : result) {
+                if (shard.estimatedMillis < lightest.estimatedMillis) {
+                    lightest = shard;
+                }
+            }
+            lightest.add(name, durations.getOrDefault(name, unknownEstimate));
+        }
+        for (Shard shard : result) {
+            shard.classes.sort(Comparator.comparingInt(classes::indexOf));
+        }
+        return result;
+    }
+
+    /**
+     * Sort classes for running; stable, so ties (and {@link TestOrder#SUITE}) keep suite order.
+     *
+     * @param durations    historical duration per class in milliseconds (may be incomplete)
+     * @param failureRates recent share of failed runs per class (may be incomplete)
+     */
+    public static List<String> order(List<String> classes, Map<String, Long> durations,
+                                     Map<String, Double> failureRates, TestOrder order) {
+        long unknownEstimate = estimateForUnknown(classes, durations);
+        Comparator<String> byDuration = Comparator.comparingLong(name -> durations.getOrDefault(name, unknownEstimate));
+        List<String> ordered = new ArrayList<>(classes);
+        switch (order) {
+            case SLOWEST_FIRST:
+                ordered.sort(byDuration.reversed());
+                break;
+            case FAILING_FIRST:
+                ordered.sort(Comparator.comparingDouble((String name) -> failureRates.getOrDefault(name, 0.0))
+                        .reversed()
+                        .thenComparing(byDuration));
+                break;
+            default:
+                break;
+        }
+        return ordered;
+    }
+
+    /**
+     * Classes never run before are assumed to take the median of the known ones.
+     */
+    private static long estimateForUnknown(List<String> classes, Map<String, Long> durations) {
+        List<Long> known = new ArrayList<>();
+        for (String name : classes) {
+            Long duration = durations.get(name);
+            if (duration != null) {
+                known.add(duration);
+            }
+        }
+        if (known.isEmpty()) {
+            return DEFAULT_ESTIMATE_MILLIS;
+        }
+        Collections.sort(known);
+        return known.get((known.size() - 1) / 2);
+    }
+
+    /**
+     * Classes assigned to one device.
+     */
+    public static final class Shard {
+        private final int index;
+        private final List<String> classes = new ArrayList<>();
+        private long estimatedMillis;
+
+        private Shard(int index) {
+            this.index = index;
+        }
+
+        private void add(String name, long millis) {
+            classes.add(name);
+            estimatedMillis += millis;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public List<String> getClasses() {
+            return Collections.unmodifiableList(classes);
+        }
+
+        public long getEstimatedMillis() {
+            return estimatedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "shard " + index + " (~" + estimatedMillis + "ms): " + classes;
+        }
+    }
+}
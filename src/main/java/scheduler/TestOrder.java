@@ -0,0 +1,24 @@
+package scheduler;
+
+/**
+ * Order in which test classes run within a device's shard.
+ */
+public enum TestOrder {
+    /** As listed in the suite. */
+    SUITE,
+    /** Longest classes first, so a parallel run does not end waiting on one long class. */
+    SLOWEST_FIRST,
+    /** Classes that failed most often recently first, quickest first among equals, so a broken build fails early. */
+    FAILING_FIRST;
+
+    public static TestOrder fromConfig(String value) {
+        String normalized = value.trim().replace('-', '_');
+        for (TestOrder order : values()) {
+            if (order.name().equalsIgnoreCase(normalized)) {
+                return order;
+            }
+        }
+        throw new IllegalArgumentException("Unknown schedule.order '" + value
+                + "', expected suite, slowest-first or failing-first");
+    }
+}
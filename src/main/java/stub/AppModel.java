@@ -0,0 +1,139 @@
+package stub;
+
+import hierarchy.CompactHierarchy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * State-transition model of an app for the stub server: named screens (recorded hierarchy
+ * dumps), click rules that move between screens or edit the current one, and scroll links
+ * between screens that show different parts of the same list.
+ * The first screen added is the launch screen.
+ */
+public class AppModel {
+
+    /**
+     * Reaction to a click on a node matched by a rule.
+     */
+    public interface ClickAction {
+        void apply(RunningApp app, UiNode clicked);
+    }
+
+    static final class ClickRule {
+        final String state;
+        final Predicate<UiNode> target;
+        final ClickAction action;
+
+        ClickRule(String state, Predicate<UiNode> target, ClickAction action) {
+            this.state = state;
+            this.target = target;
+            this.action = action;
+        }
+    }
+
+    private final Map<String, UiHierarchy> screens = new LinkedHashMap<>();
+    private final Map<String, CompactHierarchy> compactScreens = new ConcurrentHashMap<>();
+    private final List<ClickRule> clickRules = new ArrayList<>();
+    private final Map<String, Map<String, String>> scrollLinks = new HashMap<>();
+    private final Map<String, String> deepLinks = new HashMap<>();
+
+    public AppModel addScreen(String state, UiHierarchy screen) {
+        screens.put(state, screen);
+        compactScreens.remove(state);
+        return this;
+    }
+
+    /**
+     * @param state screen the rule applies to, or null for every screen
+     */
+    public AppModel onClick(String state, Predicate<UiNode> target, ClickAction action) {
+        clickRules.add(new ClickRule(state, target, action));
+        return this;
+    }
+
+    /**
+     * Clicking a matching node opens another screen.
+     */
+    public AppModel onClickGoTo(String state, Predicate<UiNode> target, String nextState) {
+        return onClick(state, target, (app, clicked) -> app.goTo(nextState));
+    }
+
+    /**
+     * A scroll gesture in the given direction ("up", "down", "left", "right") moves between two
+     * screens. The reverse direction is linked as well.
+     */
+    public AppModel onScroll(String state, String direction, String nextState) {
+        scrollLinks.computeIfAbsent(state, key -> new HashMap<>()).put(direction, nextState);
+        scrollLinks.computeIfAbsent(nextState, key -> new HashMap<>()).putIfAbsent(opposite(direction), state);
+        return this;
+    }
+
+    /**
+     * Opening the URL (mobile: deepLink) shows the screen, from any screen.
+     */
+    public AppModel onDeepLink(String url, String state) {
+        deepLinks.put(url, state);
+        return this;
+    }
+
+    private static String opposite(String direction) {
+        switch (direction) {
+            case "up":
+                return "down";
+            case "down":
+                return "up";
+            case "left":
+                return "right";
+            default:
+                return "left";
+        }
+    }
+
+    /**
+     * Start a fresh instance of the app on its launch screen.
+     */
+    public RunningApp launch() {
+        if (screens.isEmpty()) {
+            throw new IllegalStateException("App model has no screens");
+        }
+        return new RunningApp(this);
+    }
+
+    String getLaunchState() {
+        return screens.keySet().iterator().next();
+    }
+
+    String getDeepLinkState(String url) {
+        return deepLinks.get(url);
+    }
+
+    UiHierarchy getScreen(String state) {
+        UiHierarchy screen = screens.get(state);
+        if (screen == null) {
+            throw new IllegalArgumentException("Unknown screen: " + state);
+        }
+        return screen;
+    }
+
+    /**
+     * The recorded screen in compact form, for locator evaluation; built once per screen.
+     */
+    CompactHierarchy getCompactScreen(String state) {
+        return compactScreens.computeIfAbsent(state, key -> getScreen(key).toCompact());
+    }
+
+    List<ClickRule> getClickRules() {
+        return Collections.unmodifiableList(clickRules);
+    }
+
+    Map<String, String> getScrollLinks(String state) {
+        return scrollLinks.getOrDefault(state, Map.of());
+    }
+}
@@ -0,0 +1,240 @@
+package stub;
+
+import hierarchy.CompactHierarchy;
+import hierarchy.Locators;
+import hierarchy.NodeQuery;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.StaleElementReferenceException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One session's instance of an {@link AppModel}: the current screen and its live copy.
+ *
+ * Element ids encode the screen version they were found on. Moving to another screen bumps
+ * the version, so ids from the previous screen become stale exactly as on a device, while
+ * in-place edits (typing, toggling) keep them valid.
+ *
+ * Locators are evaluated on a compact copy of the screen, rebuilt after every edit.
+ */
+public class RunningApp {
+    private static final int LOGCAT_CAPACITY = 5000;
+    private final AppModel model;
+    private String state;
+    private UiHierarchy screen;
+    private List<UiNode> nodes;
+    private CompactHierarchy compact;
+    private int version;
+    private final Deque<Map<String, Object>> logcat = new ArrayDeque<>();
+
+    RunningApp(AppModel model) {
+        this.model = model;
+        goTo(model.getLaunchState());
+    }
+
+    public synchronized String getState() {
+        return state;
+    }
+
+    public synchronized UiHierarchy getScreen() {
+        return screen;
+    }
+
+    public synchronized int getVersion() {
+        return version;
+    }
+
+    /**
+     * Show another screen, discarding edits made to the current one.
+     */
+    public synchronized void goTo(String nextState) {
+        log("INFO", "ActivityTaskManager: Displayed screen " + nextState);
+        state = nextState;
+        screen = model.getScreen(nextState).copy();
+        nodes = screen.getNodes();
+        compact = null;
+        version++;
+    }
+
+    /**
+     * Append a line to the device log, as the app or the framework would write it to logcat.
+     */
+    public synchronized void log(String level, String message) {
+        if (logcat.size() == LOGCAT_CAPACITY) {
+            logcat.removeFirst();
+        }
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("timestamp", System.currentTimeMillis());
+        entry.put("level", level);
+        entry.put("message", message);
+        logcat.addLast(entry);
+    }
+
+    /**
+     * Log lines not read before, oldest first: like Appium, each read returns what is new since
+     * the previous one.
+     */
+    public synchronized List<Map<String, Object>> readLog() {
+        List<Map<String, Object>> entries = new ArrayList<>(logcat);
+        logcat.clear();
+        return entries;
+    }
+
+    /**
+     * Back to the launch screen, as after clearing app data.
+     */
+    public synchronized void reset() {
+        goTo(model.getLaunchState());
+    }
+
+    /**
+     * Find nodes on the current screen, or below the given node when scope is not null.
+     * UiScrollable.scrollIntoView selectors scroll to a linked screen that shows the target.
+     */
+    public synchronized List<UiNode> find(String using, String value, UiNode scope) {
+        NodeQuery query = Locators.compile(using, value);
+        int scopeIndex = -1;
+        if (scope != null) {
+            scopeIndex = nodes.indexOf(scope);
+            if (scopeIndex < 0) {
+                throw new StaleElementReferenceException("Element is no longer on screen: " + scope);
+            }
+        }
+        List<UiNode> matches = toNodes(query.select(compact(), scopeIndex));
+        if (matches.isEmpty() && scope == null && query.isScrollIntoView() && scrollTo(query)) {
+            matches = toNodes(query.select(compact(), -1));
+        }
+        return matches;
+    }
+
+    /**
+     * Replace a field's text, as typing or clearing does.
+     */
+    public synchronized void setText(UiNode node, String text) {
+        node.set("text", text);
+        compact = null;
+    }
+
+    private CompactHierarchy compact() {
+        if (compact == null) {
+            compact = screen.toCompact();
+        }
+        return compact;
+    }
+
+    private List<UiNode> toNodes(int[] indexes) {
+        List<UiNode> matches = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            matches.add(nodes.get(index));
+        }
+        return matches;
+    }
+
+    private boolean scrollTo(NodeQuery query) {
+        Deque<String> queue = new ArrayDeque<>(List.of(state));
+        Set<String> seen = new HashSet<>(queue);
+        while (!queue.isEmpty()) {
+            String candidate = queue.poll();
+            if (query.select(model.getCompactScreen(candidate), -1).length > 0) {
+                if (!candidate.equals(state)) {
+                    goTo(candidate);
+                }
+                return true;
+            }
+            for (String next : model.getScrollLinks(candidate).values()) {
+                if (seen.add(next)) {
+                    queue.add(next);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Apply the first click rule matching the node or its nearest ancestor; clicks nothing
+     * reacts to are ignored, as taps on static views are on a device.
+     */
+    public synchronized void click(UiNode clicked) {
+        for (UiNode node = clicked; node != null; node = node.getParent()) {
+            for (AppModel.ClickRule rule : model.getClickRules()) {
+                if ((rule.state == null || rule.state.equals(state)) && rule.target.test(node)) {
+                    log("DEBUG", "ViewRootImpl: click on " + node);
+                    rule.action.apply(this, node);
+                    // Rules may edit the screen in place
+                    compact = null;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * The node a tap at the point lands on: the last displayed node in document order whose
+     * bounds contain it, i.e. the deepest and topmost. Null outside every node.
+     */
+    public synchronized UiNode nodeAt(int x, int y) {
+        UiNode hit = null;
+        for (UiNode node : nodes) {
+            int[] bounds = node.getBounds();
+            if (node.isDisplayed() && x >= bounds[0] && x < bounds[2] && y >= bounds[1] && y < bounds[3]) {
+                hit = node;
+            }
+        }
+        return hit;
+    }
+
+    /**
+     * @return false when there is no linked screen in that direction (end of the list)
+     */
+    public synchronized boolean scroll(String direction) {
+        String next = model.getScrollLinks(state).get(direction);
+        if (next == null) {
+            return false;
+        }
+        goTo(next);
+        return true;
+    }
+
+    /**
+     * Open a deep link like an intent with that data URI would.
+     *
+     * @throws IllegalArgumentException when no screen handles the URL
+     */
+    public synchronized void openDeepLink(String url) {
+        String next = model.getDeepLinkState(url);
+        if (next == null) {
+            throw new IllegalArgumentException("Activity not started, unable to resolve Intent for " + url);
+        }
+        log("I", "ActivityTaskManager: START u0 {act=android.intent.action.VIEW dat=" + url + "}");
+        goTo(next);
+    }
+
+    public synchronized String elementId(UiNode node) {
+        int index = nodes.indexOf(node);
+        if (index < 0) {
+            throw new StaleElementReferenceException("Element is no longer on screen: " + node);
+        }
+        return version + "-" + index;
+    }
+
+    public synchronized UiNode resolve(String elementId) {
+        int dash = elementId.indexOf('-');
+        try {
+            int elementVersion = Integer.parseInt(elementId.substring(0, dash));
+            int index = Integer.parseInt(elementId.substring(dash + 1));
+            if (elementVersion != version || index >= nodes.size()) {
+                throw new StaleElementReferenceException("Element " + elementId + " belongs to a previous screen");
+            }
+            return nodes.get(index);
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new NoSuchElementException("Unknown element id: " + elementId);
+        }
+    }
+}
@@ -0,0 +1,640 @@
+package stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import config.AppConfig;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Embeddable W3C WebDriver server standing in for Appium + UiAutomator2.
+ *
+ * Every session runs its own instance of an {@link AppModel} (by default the Trust Test app
+ * built from the recorded dumps) and implements the commands the page objects use: find
+ * (id, accessibility id, class name, UiSelector, XPath), click, clear, sendKeys, text and state
+ * queries, page source, W3C pointer taps, form-fill driver scripts, {@code mobile: scrollGesture},
+ * deep links the model declares and app reset. Per-command latency and
+ * the implicit wait of a failing find can be injected so timings resemble a real device.
+ *
+ * Run standalone with {@code java -cp ... stub.StubAppiumServer [port] [dumpDir]}.
+ */
+public class StubAppiumServer implements AutoCloseable {
+    private static final Pattern SESSION_PATH = Pattern.compile("^/session/([^/]+)(/.*)?$");
+    private static final Pattern ELEMENT_PATH = Pattern.compile("^/element/([^/]+)(/.*)?$");
+    private static final String ELEMENT_KEY = "element-6066-11e4-a52e-4f735466cecf";
+    private static final Pattern DRIVER_SCRIPT_STEPS = Pattern.compile("^const steps = (\\[.*\\]);$", Pattern.MULTILINE);
+    // Travel beyond which a touch is a swipe rather than a tap (Android's touch slop is 8dp)
+    private static final int SWIPE_THRESHOLD_PX = 24;
+    // 1x1 transparent PNG
+    private static final String SCREENSHOT =
+            "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAQAAAC1HAwCAAAAC0lEQVR42mNkYAAAAAYAAjCB0C8AAAAASUVORK5CYII=";
+
+    static {
+        // Without TCP_NODELAY every response stalls ~40 ms on delayed ACKs, which would swamp
+        // the client-side costs the stub is meant to expose. Read once, when HttpServer first loads.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final Json json = new Json();
+    private final AppModel model;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "stub-appium");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger sessionCounter = new AtomicInteger();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final List<String> createdSessionIds = new CopyOnWriteArrayList<>();
+    private final Map<String, Duration> latencies = new ConcurrentHashMap<>();
+    private volatile Duration commandLatency = Duration.ZERO;
+    private volatile Duration sessionCreationLatency = Duration.ZERO;
+    private volatile boolean honorImplicitWait = true;
+    private volatile boolean driverScriptsEnabled;
+
+    /**
+     * Trust Test app from the dumps in stub.dumps, on a free local port.
+     */
+    public StubAppiumServer() throws IOException {
+        this(TrustTestApp.model(Paths.get(AppConfig.getStubDumpDir())), 0);
+    }
+
+    /**
+     * @param port 0 picks a free port
+     */
+    public StubAppiumServer(AppModel model, int port) throws IOException {
+        this.model = model;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 4723;
+        String dumpDir = args.length > 1 ? args[1] : AppConfig.getStubDumpDir();
+        StubAppiumServer stub = new StubAppiumServer(TrustTestApp.model(Paths.get(dumpDir)), port);
+        System.out.println("Stub Appium server listening on " + stub.getUrl());
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    // ============ LATENCY INJECTION ============
+
+    /**
+     * Delay added to every command (device round trip).
+     */
+    public StubAppiumServer setCommandLatency(Duration latency) {
+        this.commandLatency = latency;
+        return this;
+    }
+
+    /**
+     * Delay for one command, replacing the common latency.
+     *
+     * @param command Selenium command name, e.g. "findElement", "getPageSource", "clickElement"
+     */
+    public StubAppiumServer setLatency(String command, Duration latency) {
+        latencies.put(command, latency);
+        return this;
+    }
+
+    /**
+     * Session handshake time (APK install, UiAutomator2 start).
+     */
+    public StubAppiumServer setSessionCreationLatency(Duration latency) {
+        this.sessionCreationLatency = latency;
+        return this;
+    }
+
+    /**
+     * When true (default), a find that matches nothing blocks for the session's implicit wait
+     * before failing, as UiAutomator2 does.
+     */
+    public StubAppiumServer setHonorImplicitWait(boolean honorImplicitWait) {
+        this.honorImplicitWait = honorImplicitWait;
+        return this;
+    }
+
+    /**
+     * Accept /appium/execute_driver, as Appium started with --allow-insecure=execute_driver_script
+     * does. Off by default, like Appium. Only the data-driven step scripts of pages.FormFill are
+     * understood, not arbitrary WebdriverIO code.
+     */
+    public StubAppiumServer setDriverScriptsEnabled(boolean driverScriptsEnabled) {
+        this.driverScriptsEnabled = driverScriptsEnabled;
+        return this;
+    }
+
+    // ============ INSPECTION ============
+
+    /**
+     * Ids of every session created so far, in creation order.
+     */
+    public List<String> getCreatedSessionIds() {
+        return new ArrayList<>(createdSessionIds);
+    }
+
+    /**
+     * The udid capability the session was created with.
+     */
+    public String getUdid(String sessionId) {
+        return sessions.get(sessionId).udid;
+    }
+
+    /**
+     * The session's running app, to inspect or drive its state directly.
+     */
+    public RunningApp getApp(String sessionId) {
+        return sessions.get(sessionId).app;
+    }
+
+    public int getCommandCount(String sessionId) {
+        return sessions.get(sessionId).commandLog.size();
+    }
+
+    /**
+     * Commands received by the session, e.g. "POST /element" or "POST /execute/sync mobile: clearApp".
+     */
+    public List<String> getCommandLog(String sessionId) {
+        return sessions.get(sessionId).commandLog;
+    }
+
+    public boolean isOpen(String sessionId) {
+        return sessions.get(sessionId).open;
+    }
+
+    // ============ PROTOCOL ============
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            Map<String, Object> body = readBody(exchange);
+
+            if ("POST".equals(method) && "/session".equals(path)) {
+                pause(sessionCreationLatency);
+                respond(exchange, 200, newSession(body));
+                return;
+            }
+            if ("GET".equals(method) && "/status".equals(path)) {
+                respond(exchange, 200, Map.of("ready", true, "message", "stub"));
+                return;
+            }
+            Matcher matcher = SESSION_PATH.matcher(path);
+            Session session = matcher.matches() ? sessions.get(matcher.group(1)) : null;
+            if (session == null || !session.open) {
+                respondError(exchange, 404, "invalid session id", "Unknown or closed session: " + path);
+                return;
+            }
+            String command = matcher.group(2) == null ? "" : matcher.group(2);
+            session.commandLog.add(method + " " + command
+                    + (command.startsWith("/execute") && body.containsKey("script") ? " " + body.get("script") : ""));
+
+            String name = commandName(method, command);
+            pause(latencies.getOrDefault(name, commandLatency));
+            respond(exchange, 200, execute(session, method, command, body));
+        } catch (NoSuchElementException e) {
+            respondError(exchange, 404, "no such element", e.getRawMessage());
+        } catch (StaleElementReferenceException e) {
+            respondError(exchange, 404, "stale element reference", e.getRawMessage());
+        } catch (IllegalArgumentException e) {
+            respondError(exchange, 400, "invalid argument", e.getMessage());
+        } catch (RuntimeException e) {
+            respondError(exchange, 500, "unknown error", e.toString());
+        }
+    }
+
+    private Object execute(Session session, String method, String command, Map<String, Object> body) {
+        RunningApp app = session.app;
+        if ("DELETE".equals(method) && command.isEmpty()) {
+            session.open = false;
+            return null;
+        }
+        switch (command) {
+            case "/timeouts":
+                if ("POST".equals(method) && body.get("implicit") instanceof Number) {
+                    session.implicitWaitMillis = ((Number) body.get("implicit")).longValue();
+                }
+                return Map.of("implicit", session.implicitWaitMillis);
+            case "/element":
+                return toElement(app, find(session, body, null, true).get(0));
+            case "/elements":
+                return toElements(app, find(session, body, null, false));
+            case "/source":
+                return app.getScreen().toXml();
+            case "/screenshot":
+                return SCREENSHOT;
+            case "/se/log":
+                return "logcat".equals(body.get("type")) ? app.readLog() : List.of();
+            case "/se/log/types":
+                return List.of("logcat");
+            case "/execute/sync":
+            case "/execute":
+                return executeScript(app, body);
+            case "/actions":
+                return "POST".equals(method) ? performActions(app, body) : null;
+            case "/appium/execute_driver":
+                return executeDriverScript(session, body);
+            default:
+                break;
+        }
+        Matcher element = ELEMENT_PATH.matcher(command);
+        if (element.matches()) {
+            UiNode node = app.resolve(element.group(1));
+            return executeOnElement(session, node, method, element.group(2) == null ? "" : element.group(2), body);
+        }
+        // Settings, device info and other commands the page objects do not depend on
+        return null;
+    }
+
+    private Object executeOnElement(Session session, UiNode node, String method, String command,
+                                    Map<String, Object> body) {
+        RunningApp app = session.app;
+        switch (command) {
+            case "/element":
+                return toElement(app, find(session, body, node, true).get(0));
+            case "/elements":
+                return toElements(app, find(session, body, node, false));
+            case "/click":
+                app.click(node);
+                return null;
+            case "/clear":
+                app.setText(node, "");
+                return null;
+            case "/value":
+                // UiAutomator2 replaces the field content
+                app.setText(node, String.valueOf(body.getOrDefault("text", "")));
+                return null;
+            case "/text":
+                return node.getText();
+            case "/displayed":
+                return node.isDisplayed();
+            case "/enabled":
+                return node.is("enabled");
+            case "/selected":
+                return node.is("selected");
+            case "/name":
+                return node.getClassName();
+            case "/rect":
+                int[] bounds = node.getBounds();
+                return Map.of("x", bounds[0], "y", bounds[1],
+                        "width", bounds[2] - bounds[0], "height", bounds[3] - bounds[1]);
+            default:
+                if (command.startsWith("/attribute/")) {
+                    return attribute(node, command.substring("/attribute/".length()));
+                }
+                return null;
+        }
+    }
+
+    private static Object attribute(UiNode node, String name) {
+        switch (name) {
+            case "displayed":
+                return String.valueOf(node.isDisplayed());
+            case "contentDescription":
+            case "content-desc":
+                return node.getContentDesc();
+            case "resourceId":
+            case "resource-id":
+                return node.getResourceId();
+            case "className":
+                return node.getClassName();
+            default:
+                return node.getAttributes().get(name);
+        }
+    }
+
+    /**
+     * @param single findElement semantics: fail with "no such element" when nothing matches
+     */
+    private List<UiNode> find(Session session, Map<String, Object> body, UiNode scope, boolean single) {
+        String using = String.valueOf(body.get("using"));
+        String value = String.valueOf(body.get("value"));
+        List<UiNode> matches = session.app.find(using, value, scope);
+        if (matches.isEmpty() && honorImplicitWait && session.implicitWaitMillis > 0) {
+            // Nothing changes a stub screen on its own, so waiting once is enough
+            pause(Duration.ofMillis(session.implicitWaitMillis));
+            matches = session.app.find(using, value, scope);
+        }
+        if (matches.isEmpty() && single) {
+            throw new NoSuchElementException("An element could not be located using " + using + "=" + value);
+        }
+        return matches;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object executeScript(RunningApp app, Map<String, Object> body) {
+        String script = String.valueOf(body.get("script"));
+        List<Object> args = (List<Object>) body.getOrDefault("args", List.of());
+        Map<String, Object> params = args.isEmpty() || !(args.get(0) instanceof Map)
+                ? Map.of() : (Map<String, Object>) args.get(0);
+        switch (script) {
+            case "mobile: scrollGesture":
+            case "mobile: swipeGesture":
+                // Returns whether the view can scroll further in that direction
+                return app.scroll(String.valueOf(params.getOrDefault("direction", "down")));
+            case "mobile: clearApp":
+            case "mobile: terminateApp":
+                app.reset();
+                return true;
+            case "mobile: deepLink":
+                app.openDeepLink(String.valueOf(params.get("url")));
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Run the steps of a form-fill driver script: set each field's text or click it, failing like
+     * a find when an element is missing.
+     */
+    @SuppressWarnings("unchecked")
+    private Object executeDriverScript(Session session, Map<String, Object> body) {
+        if (!driverScriptsEnabled) {
+            throw new IllegalStateException("Potentially insecure feature 'execute_driver_script' has not been enabled");
+        }
+        Matcher steps = DRIVER_SCRIPT_STEPS.matcher(String.valueOf(body.get("script")));
+        if (!steps.find()) {
+            throw new IllegalArgumentException("Only form-fill step scripts are supported");
+        }
+        List<List<Object>> parsed = json.toType(steps.group(1), List.class);
+        for (List<Object> step : parsed) {
+            String selector = String.valueOf(step.get(0));
+            Map<String, Object> locator;
+            if (selector.startsWith("id=")) {
+                locator = Map.of("using", "id", "value", selector.substring(3));
+            } else if (selector.startsWith("~")) {
+                locator = Map.of("using", "accessibility id", "value", selector.substring(1));
+            } else if (selector.startsWith("android=")) {
+                locator = Map.of("using", "-android uiautomator", "value", selector.substring(8));
+            } else {
+                locator = Map.of("using", "xpath", "value", selector);
+            }
+            UiNode node = find(session, locator, null, true).get(0);
+            if (step.get(1) == null) {
+                session.app.click(node);
+            } else {
+                session.app.setText(node, String.valueOf(step.get(1)));
+            }
+        }
+        return Map.of("result", parsed.size(), "logs", Map.of("log", List.of(), "warn", List.of(), "error", List.of()));
+    }
+
+    /**
+     * W3C Actions for touch pointers: a press released where it started becomes a tap on the node
+     * under the pointer, one that travelled further is a swipe and scrolls one step the opposite
+     * way (the finger going up reveals what is below), and pauses are waited out. Like UiAutomator2, element origins are resolved
+     * before anything is dispatched, so a stale element fails the request without a single tap.
+     */
+    @SuppressWarnings("unchecked")
+    private Object performActions(RunningApp app, Map<String, Object> body) {
+        List<Map<String, Object>> sources = (List<Map<String, Object>>) body.getOrDefault("actions", List.of());
+        Map<String, UiNode> origins = new HashMap<>();
+        for (Map<String, Object> source : sources) {
+            for (Map<String, Object> action : (List<Map<String, Object>>) source.getOrDefault("actions", List.of())) {
+                if (action.get("origin") instanceof Map) {
+                    String elementId = String.valueOf(((Map<String, Object>) action.get("origin")).get(ELEMENT_KEY));
+                    origins.put(elementId, app.resolve(elementId));
+                }
+            }
+        }
+
+        for (Map<String, Object> source : sources) {
+            if (!"pointer".equals(source.get("type"))) {
+                continue;
+            }
+            int x = 0;
+            int y = 0;
+            int downX = 0;
+            int downY = 0;
+            boolean down = false;
+            for (Map<String, Object> action : (List<Map<String, Object>>) source.getOrDefault("actions", List.of())) {
+                long duration = ((Number) action.getOrDefault("duration", 0)).longValue();
+                switch (String.valueOf(action.get("type"))) {
+                    case "pointerMove":
+                        int offsetX = ((Number) action.getOrDefault("x", 0)).intValue();
+                        int offsetY = ((Number) action.getOrDefault("y", 0)).intValue();
+                        Object origin = action.getOrDefault("origin", "viewport");
+                        if (origin instanceof Map) {
+                            int[] bounds = origins.get(String.valueOf(((Map<String, Object>) origin).get(ELEMENT_KEY))).getBounds();
+                            x = (bounds[0] + bounds[2]) / 2 + offsetX;
+                            y = (bounds[1] + bounds[3]) / 2 + offsetY;
+                        } else if ("pointer".equals(origin)) {
+                            x += offsetX;
+                            y += offsetY;
+                        } else {
+                            x = offsetX;
+                            y = offsetY;
+                        }
+                        pause(Duration.ofMillis(duration));
+                        break;
+                    case "pointerDown":
+                        down = true;
+                        downX = x;
+                        downY = y;
+                        break;
+                    case "pointerUp":
+                        int dx = x - downX;
+                        int dy = y - downY;
+                        if (down && Math.hypot(dx, dy) >= SWIPE_THRESHOLD_PX) {
+                            app.scroll(Math.abs(dy) >= Math.abs(dx)
+                                    ? (dy < 0 ? "down" : "up")
+                                    : (dx < 0 ? "right" : "left"));
+                        } else {
+                            UiNode target = down ? app.nodeAt(x, y) : null;
+                            if (target != null) {
+                                app.click(target);
+                            }
+                        }
+                        down = false;
+                        break;
+                    case "pause":
+                        pause(Duration.ofMillis(duration));
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Map<String, Object> toElement(RunningApp app, UiNode node) {
+        return Map.of(ELEMENT_KEY, app.elementId(node));
+    }
+
+    private List<Map<String, Object>> toElements(RunningApp app, List<UiNode> nodes) {
+        List<Map<String, Object>> elements = new ArrayList<>();
+        for (UiNode node : nodes) {
+            elements.add(toElement(app, node));
+        }
+        return elements;
+    }
+
+    /**
+     * Selenium command name of a request, used to look up per-command latency.
+     */
+    static String commandName(String method, String command) {
+        if (command.isEmpty()) {
+            return "DELETE".equals(method) ? "quit" : "getSession";
+        }
+        Matcher element = ELEMENT_PATH.matcher(command);
+        String sub = element.matches() ? (element.group(2) == null ? "" : element.group(2)) : null;
+        if (sub == null) {
+            switch (command) {
+                case "/element":
+                    return "findElement";
+                case "/elements":
+                    return "findElements";
+                case "/source":
+                    return "getPageSource";
+                case "/screenshot":
+                    return "screenshot";
+                case "/se/log":
+                    return "getLog";
+                case "/se/log/types":
+                    return "getAvailableLogTypes";
+                case "/timeouts":
+                    return "setTimeout";
+                case "/execute/sync":
+                case "/execute":
+                    return "executeScript";
+                case "/actions":
+                    return "POST".equals(method) ? "actions" : "clearActionState";
+                case "/appium/execute_driver":
+                    return "executeDriverScript";
+                default:
+                    return method + " " + command;
+            }
+        }
+        switch (sub) {
+            case "/element":
+                return "findChildElement";
+            case "/elements":
+                return "findChildElements";
+            case "/click":
+                return "clickElement";
+            case "/clear":
+                return "clearElement";
+            case "/value":
+                return "sendKeysToElement";
+            case "/text":
+                return "getElementText";
+            case "/displayed":
+                return "isElementDisplayed";
+            case "/enabled":
+                return "isElementEnabled";
+            case "/selected":
+                return "isElementSelected";
+            case "/rect":
+                return "getElementRect";
+            default:
+                return sub.startsWith("/attribute/") ? "getElementAttribute" : method + " /element" + sub;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> newSession(Map<String, Object> body) {
+        Map<String, Object> capabilities = (Map<String, Object>) body.getOrDefault("capabilities", Map.of());
+        Map<String, Object> alwaysMatch = (Map<String, Object>) capabilities.getOrDefault("alwaysMatch", Map.of());
+
+        Session session = new Session("stub-" + sessionCounter.incrementAndGet(),
+                String.valueOf(alwaysMatch.getOrDefault("appium:udid", "")), model.launch());
+        sessions.put(session.id, session);
+        createdSessionIds.add(session.id);
+
+        Map<String, Object> returned = new HashMap<>(alwaysMatch);
+        returned.put("platformName", "Android");
+        returned.put("automationName", "UiAutomator2");
+        return Map.of("sessionId", session.id, "capabilities", returned);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            String raw = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            if (raw.isBlank()) {
+                return Map.of();
+            }
+            return json.toType(raw, Map.class);
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, Object value) throws IOException {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("value", value);
+        write(exchange, status, json.toJson(payload));
+    }
+
+    private void respondError(HttpExchange exchange, int status, String error, String message) throws IOException {
+        write(exchange, status, json.toJson(Map.of("value",
+                Map.of("error", error, "message", String.valueOf(message), "stacktrace", ""))));
+    }
+
+    private void write(HttpExchange exchange, int status, String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void pause(Duration duration) {
+        if (duration.isZero() || duration.isNegative()) {
+            return;
+        }
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private static final class Session {
+        private final String id;
+        private final String udid;
+        private final RunningApp app;
+        private final List<String> commandLog = new CopyOnWriteArrayList<>();
+        private volatile long implicitWaitMillis;
+        private volatile boolean open = true;
+
+        private Session(String id, String udid, RunningApp app) {
+            this.id = id;
+            this.udid = udid;
+            this.app = app;
+        }
+    }
+}
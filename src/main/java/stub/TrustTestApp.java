@@ -0,0 +1,127 @@
+package stub;
+
+import config.AppConfig;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * {@link AppModel} of the Trust Test app, built from the hierarchy dumps recorded on a device.
+ *
+ * Covers the login flow (valid credentials open the Test page, anything else shows the
+ * generic error), tab navigation, the list scrolled to its end, switch toggling and saving,
+ * and text entry. Button colours and crypto conversion are not modelled.
+ */
+public final class TrustTestApp {
+    public static final String LOGIN = "login";
+    public static final String LOGIN_ERROR = "loginError";
+    public static final String LIST = "list";
+    public static final String LIST_END = "listEnd";
+    public static final String BUTTONS = "buttons";
+    public static final String SWITCHES = "switches";
+    public static final String INPUT = "input";
+
+    private static final String ID_PREFIX = "com.example.trusttest:id/";
+    private static final List<String> TAB_SCREENS = List.of(LIST, LIST_END, BUTTONS, SWITCHES, INPUT);
+    private static final Map<String, String> DUMPS = new LinkedHashMap<>();
+
+    static {
+        DUMPS.put(LOGIN, "fresh.xml");
+        DUMPS.put(LOGIN_ERROR, "error.xml");
+        DUMPS.put(LIST, "testpage.xml");
+        DUMPS.put(LIST_END, "top_list.xml");
+        DUMPS.put(BUTTONS, "buttons_tab.xml");
+        DUMPS.put(SWITCHES, "sw_t1.xml");
+        DUMPS.put(INPUT, "input_tab.xml");
+    }
+
+    private TrustTestApp() {
+    }
+
+    /**
+     * @param dumpDir directory holding the recorded dumps (fresh.xml, testpage.xml, ...)
+     */
+    public static AppModel model(Path dumpDir) {
+        AppModel model = new AppModel();
+        DUMPS.forEach((screen, dump) -> model.addScreen(screen, UiHierarchy.parse(dumpDir.resolve(dump))));
+
+        for (String screen : List.of(LOGIN, LOGIN_ERROR)) {
+            model.onClick(screen, id("buttonSubmit"), TrustTestApp::submitLogin);
+        }
+        for (String screen : TAB_SCREENS) {
+            model.onClickGoTo(screen, description("List"), LIST)
+                    .onClickGoTo(screen, description("Buttons"), BUTTONS)
+                    .onClickGoTo(screen, description("Switches"), SWITCHES)
+                    .onClickGoTo(screen, description("Input"), INPUT)
+                    .onClickGoTo(screen, description("Navigate up"), LOGIN);
+        }
+        model.onScroll(LIST, "down", LIST_END);
+
+        model.onClick(SWITCHES, node -> node.is("checkable"), (app, node) -> toggle(node))
+                .onClick(SWITCHES, id("saveButton"), (app, node) -> saveSwitches(app));
+        return model;
+    }
+
+    /**
+     * File name of the dump a screen is loaded from (fresh.xml for {@link #LOGIN}, ...).
+     *
+     * @throws IllegalArgumentException for a screen the model does not have
+     */
+    public static String dumpFile(String screen) {
+        String dump = DUMPS.get(screen);
+        if (dump == null) {
+            throw new IllegalArgumentException("No screen " + screen + " in the Trust Test app model");
+        }
+        return dump;
+    }
+
+    private static Predicate<UiNode> id(String id) {
+        return node -> node.getResourceId().equals(ID_PREFIX + id);
+    }
+
+    private static Predicate<UiNode> description(String description) {
+        return node -> node.getContentDesc().equals(description);
+    }
+
+    private static void submitLogin(RunningApp app, UiNode submit) {
+        String username = textOf(app, "editTextUsername");
+        String password = textOf(app, "editTextPassword");
+        if (username.equals(AppConfig.getUsername()) && password.equals(AppConfig.getPassword())) {
+            app.goTo(LIST);
+            return;
+        }
+        app.goTo(LOGIN_ERROR);
+        // The error screen keeps what was typed
+        app.getScreen().findFirst(id("editTextUsername")).set("text", username);
+        app.getScreen().findFirst(id("editTextPassword")).set("text", password);
+    }
+
+    private static String textOf(RunningApp app, String id) {
+        UiNode node = app.getScreen().findFirst(id(id));
+        return node == null ? "" : node.getText();
+    }
+
+    private static void toggle(UiNode node) {
+        boolean checked = !node.is("checked");
+        node.set("checked", String.valueOf(checked));
+        node.set("text", node.getText().replaceAll("(ON|OFF)$", checked ? "ON" : "OFF"));
+        if (!node.getContentDesc().isEmpty()) {
+            node.set("content-desc", node.getContentDesc().replaceAll("(enabled|disabled)$",
+                    checked ? "enabled" : "disabled"));
+        }
+    }
+
+    private static void saveSwitches(RunningApp app) {
+        UiHierarchy screen = app.getScreen();
+        screen.findFirst(id("saveStateText")).set("text",
+                "Switch 1: " + state(screen, "switch1") + "\nSwitch 2: " + state(screen, "switch2")
+                        + "\n Switch 3: " + state(screen, "switch3"));
+    }
+
+    private static String state(UiHierarchy screen, String switchId) {
+        return screen.findFirst(id(switchId)).is("checked") ? "ON" : "OFF";
+    }
+}
@@ -0,0 +1,235 @@
+package stub;
+
+import hierarchy.CompactHierarchy;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A parsed uiautomator hierarchy dump (the XML returned by getPageSource / "uiautomator dump").
+ */
+public class UiHierarchy {
+    private final Map<String, String> rootAttributes;
+    private final List<UiNode> roots;
+
+    private UiHierarchy(Map<String, String> rootAttributes, List<UiNode> roots) {
+        this.rootAttributes = rootAttributes;
+        this.roots = roots;
+    }
+
+    public static UiHierarchy parse(Path dump) {
+        try (InputStream in = Files.newInputStream(dump)) {
+            return parse(in);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read hierarchy dump " + dump + ": " + e.getMessage(), e);
+        }
+    }
+
+    public static UiHierarchy parse(InputStream in) {
+        try {
+            Element hierarchy = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                    .parse(in).getDocumentElement();
+            List<UiNode> roots = new ArrayList<>();
+            for (Node child = hierarchy.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (child instanceof Element) {
+                    roots.add(toNode((Element) child));
+                }
+            }
+            return new UiHierarchy(attributesOf(hierarchy), roots);
+        } catch (ParserConfigurationException | SAXException | IOException e) {
+            throw new RuntimeException("Invalid hierarchy dump: " + e.getMessage(), e);
+        }
+    }
+
+    private static UiNode toNode(Element element) {
+        UiNode node = new UiNode(attributesOf(element));
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element) {
+                node.addChild(toNode((Element) child));
+            }
+        }
+        return node;
+    }
+
+    private static Map<String, String> attributesOf(Element element) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        NamedNodeMap map = element.getAttributes();
+        for (int i = 0; i < map.getLength(); i++) {
+            attributes.put(map.item(i).getNodeName(), map.item(i).getNodeValue());
+        }
+        // DOM does not keep attribute order; restore the order uiautomator writes
+        return DumpOrder.sort(attributes);
+    }
+
+    /**
+     * Deep copy, so a running app can mutate its screen without touching the recorded dump.
+     */
+    public UiHierarchy copy() {
+        List<UiNode> copies = new ArrayList<>();
+        for (UiNode root : roots) {
+            copies.add(root.copy());
+        }
+        return new UiHierarchy(new LinkedHashMap<>(rootAttributes), copies);
+    }
+
+    /**
+     * All nodes in document order (the order findElements returns them on a device).
+     */
+    public List<UiNode> getNodes() {
+        List<UiNode> nodes = new ArrayList<>();
+        for (UiNode root : roots) {
+            collect(root, nodes);
+        }
+        return nodes;
+    }
+
+    private static void collect(UiNode node, List<UiNode> nodes) {
+        nodes.add(node);
+        for (UiNode child : node.getChildren()) {
+            collect(child, nodes);
+        }
+    }
+
+    /**
+     * Nodes below (not including) the given node, in document order.
+     */
+    public static List<UiNode> descendantsOf(UiNode node) {
+        List<UiNode> nodes = new ArrayList<>();
+        for (UiNode child : node.getChildren()) {
+            collect(child, nodes);
+        }
+        return nodes;
+    }
+
+    public List<UiNode> findAll(Predicate<UiNode> predicate) {
+        List<UiNode> matches = new ArrayList<>();
+        for (UiNode node : getNodes()) {
+            if (predicate.test(node)) {
+                matches.add(node);
+            }
+        }
+        return matches;
+    }
+
+    public UiNode findFirst(Predicate<UiNode> predicate) {
+        for (UiNode node : getNodes()) {
+            if (predicate.test(node)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Immutable compact copy for locator evaluation; its node i is {@code getNodes().get(i)}.
+     */
+    public CompactHierarchy toCompact() {
+        CompactHierarchy.Builder builder = new CompactHierarchy.Builder("hierarchy");
+        for (UiNode root : roots) {
+            addTo(builder, root);
+        }
+        return builder.build();
+    }
+
+    private static void addTo(CompactHierarchy.Builder builder, UiNode node) {
+        builder.start("node");
+        for (Map.Entry<String, String> attribute : node.getAttributes().entrySet()) {
+            builder.attribute(attribute.getKey(), attribute.getValue());
+        }
+        for (UiNode child : node.getChildren()) {
+            addTo(builder, child);
+        }
+        builder.end();
+    }
+
+    /**
+     * Serialize in the same shape as a device dump.
+     */
+    public String toXml() {
+        StringBuilder xml = new StringBuilder("<?xml version='1.0' encoding='UTF-8' standalone='yes' ?>");
+        xml.append("<hierarchy");
+        appendAttributes(xml, rootAttributes);
+        xml.append('>');
+        for (UiNode root : roots) {
+            append(xml, root);
+        }
+        return xml.append("</hierarchy>").toString();
+    }
+
+    private static void append(StringBuilder xml, UiNode node) {
+        xml.append("<node");
+        appendAttributes(xml, node.getAttributes());
+        if (node.getChildren().isEmpty()) {
+            xml.append(" />");
+            return;
+        }
+        xml.append('>');
+        for (UiNode child : node.getChildren()) {
+            append(xml, child);
+        }
+        xml.append("</node>");
+    }
+
+    private static void appendAttributes(StringBuilder xml, Map<String, String> attributes) {
+        attributes.forEach((name, value) -> xml.append(' ').append(name).append("=\"").append(escape(value)).append('"'));
+    }
+
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '&':
+                    escaped.append("&amp;");
+                    break;
+                case '<':
+                    escaped.append("&lt;");
+                    break;
+                case '>':
+                    escaped.append("&gt;");
+                    break;
+                case '"':
+                    escaped.append("&quot;");
+                    break;
+                case '\n':
+                    escaped.append("&#10;");
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Attribute order of uiautomator dumps.
+     */
+    private static final class DumpOrder {
+        private static final List<String> ORDER = List.of("rotation", "index", "text", "resource-id", "class",
+                "package", "content-desc", "checkable", "checked", "clickable", "enabled", "focusable",
+                "focused", "scrollable", "long-clickable", "password", "selected", "bounds");
+
+        static Map<String, String> sort(Map<String, String> attributes) {
+            Map<String, String> sorted = new LinkedHashMap<>();
+            for (String name : ORDER) {
+                if (attributes.containsKey(name)) {
+                    sorted.put(name, attributes.get(name));
+                }
+            }
+            attributes.forEach(sorted::putIfAbsent);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package stub;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One &lt;node&gt; of a uiautomator hierarchy dump, with its attributes in dump order.
+ * Attributes are mutable so the stub can type into fields and toggle switches in place.
+ */
+public class UiNode {
+    private static final Pattern BOUNDS = Pattern.compile("\\[(-?\\d+),(-?\\d+)]\\[(-?\\d+),(-?\\d+)]");
+
+    private final Map<String, String> attributes;
+    private final List<UiNode> children = new ArrayList<>();
+    private UiNode parent;
+
+    public UiNode(Map<String, String> attributes) {
+        this.attributes = new LinkedHashMap<>(attributes);
+    }
+
+    UiNode copy() {
+        UiNode copy = new UiNode(attributes);
+        for (UiNode child : children) {
+            copy.addChild(child.copy());
+        }
+        return copy;
+    }
+
+    void addChild(UiNode child) {
+        child.parent = this;
+        children.add(child);
+    }
+
+    public String get(String attribute) {
+        return attributes.getOrDefault(attribute, "");
+    }
+
+    public void set(String attribute, String value) {
+        attributes.put(attribute, value);
+    }
+
+    public Map<String, String> getAttributes() {
+        return Collections.unmodifiableMap(attributes);
+    }
+
+    public List<UiNode> getChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
+    public UiNode getParent() {
+        return parent;
+    }
+
+    public String getText() {
+        return get("text");
+    }
+
+    public String getResourceId() {
+        return get("resource-id");
+    }
+
+    public String getContentDesc() {
+        return get("content-desc");
+    }
+
+    public String getClassName() {
+        return get("class");
+    }
+
+    public boolean is(String booleanAttribute) {
+        return Boolean.parseBoolean(get(booleanAttribute));
+    }
+
+    /**
+     * Bounds as {left, top, right, bottom}; all zero when the node has none.
+     */
+    public int[] getBounds() {
+        Matcher matcher = BOUNDS.matcher(get("bounds"));
+        if (!matcher.matches()) {
+            return new int[4];
+        }
+        return new int[]{Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)),
+                Integer.parseInt(matcher.group(3)), Integer.parseInt(matcher.group(4))};
+    }
+
+    /**
+     * UiAutomator2 reports nodes with an empty on-screen area as not displayed.
+     */
+    public boolean isDisplayed() {
+        int[] bounds = getBounds();
+        return bounds[2] > bounds[0] && bounds[3] > bounds[1];
+    }
+
+    @Override
+    public String toString() {
+        return getClassName() + "[text=" + getText() + ", id=" + getResourceId() + "]";
+    }
+}
@@ -0,0 +1,24 @@
+package waits;
+
+import metrics.TimeBudget;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * WebDriverWait whose polling is accounted as {@link TimeBudget.Category#EXPLICIT_WAIT}; the
+ * commands each poll sends are still accounted as commands.
+ */
+public class BudgetedWait extends WebDriverWait {
+
+    public BudgetedWait(WebDriver driver, Duration timeout) {
+        super(driver, timeout);
+    }
+
+    @Override
+    public <V> V until(Function<? super WebDriver, V> isTrue) {
+        return TimeBudget.measure(TimeBudget.Category.EXPLICIT_WAIT, () -> super.until(isTrue));
+    }
+}
@@ -0,0 +1,245 @@
+package waits;
+
+import config.AppConfig;
+import hierarchy.CompactHierarchy;
+import hierarchy.Locators;
+import io.appium.java_client.android.AndroidDriver;
+import metrics.TimeBudget;
+import org.openqa.selenium.By;
+import org.openqa.selenium.NotFoundException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebElement;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Presence and absence checks that poll with the implicit wait switched off.
+ *
+ * The session keeps its implicit wait for ordinary finds, but a find that is expected to fail
+ * would block for the whole implicit timeout on every poll, and an explicit wait stacked on top
+ * of it can never return earlier than that. Probes here set the implicit wait to zero for the
+ * duration of the check, poll with a growing pause (interval, interval x backoff, ... up to the
+ * maximum), and restore the session's value afterwards.
+ *
+ * One engine belongs to one driver session; change the session's implicit wait through
+ * {@link #setImplicitWait(Duration)} so the value restored after a probe stays correct.
+ */
+public class WaitEngine {
+    private final AndroidDriver driver;
+    private Duration implicitWait;
+    private Duration pollInterval;
+    private double backoff;
+    private Duration maxPollInterval;
+
+    /**
+     * @param driver session to probe
+     * @param implicitWait implicit wait currently set on the session
+     */
+    public WaitEngine(AndroidDriver driver, Duration implicitWait) {
+        this.driver = driver;
+        this.implicitWait = implicitWait;
+        this.pollInterval = Duration.ofMillis(AppConfig.getPollInterval());
+        this.backoff = AppConfig.getPollBackoff();
+        this.maxPollInterval = Duration.ofMillis(AppConfig.getPollMaxInterval());
+    }
+
+    /**
+     * Change the polling schedule. A backoff of 1 polls at a fixed interval.
+     */
+    public WaitEngine setPolling(Duration interval, double backoff, Duration maxInterval) {
+        if (interval.isNegative() || backoff < 1 || maxInterval.compareTo(interval) < 0) {
+            throw new IllegalArgumentException("Invalid polling: interval=" + interval
+                    + ", backoff=" + backoff + ", max=" + maxInterval);
+        }
+        this.pollInterval = interval;
+        this.backoff = backoff;
+        this.maxPollInterval = maxInterval;
+        return this;
+    }
+
+    public Duration getImplicitWait() {
+        return implicitWait;
+    }
+
+    /**
+     * Set the session's implicit wait and remember it as the value to restore after probes.
+     */
+    public void setImplicitWait(Duration implicitWait) {
+        driver.manage().timeouts().implicitlyWait(implicitWait);
+        this.implicitWait = implicitWait;
+    }
+
+    /**
+     * Whether an element matching the locator is displayed within the timeout.
+     * A zero timeout checks exactly once.
+     */
+    public boolean isPresent(By locator, Duration timeout) {
+        return poll(() -> isDisplayedNow(locator), timeout);
+    }
+
+    /**
+     * Whether an element matching any of the locators is displayed within the timeout.
+     */
+    public boolean isAnyPresent(Duration timeout, By... locators) {
+        return poll(() -> Arrays.stream(locators).anyMatch(this::isDisplayedNow), timeout);
+    }
+
+    /**
+     * Whether no displayed element matches the locator within the timeout.
+     * A zero timeout checks exactly once.
+     */
+    public boolean isAbsent(By locator, Duration timeout) {
+        return poll(() -> !isDisplayedNow(locator), timeout);
+    }
+
+    /**
+     * Return as soon as no displayed element matches the locator.
+     *
+     * @throws TimeoutException if one is still displayed when the timeout expires
+     */
+    public void assertAbsentWithin(By locator, Duration timeout) {
+        long start = System.nanoTime();
+        if (!isAbsent(locator, timeout)) {
+            throw new TimeoutException("Element still displayed after "
+                    + (System.nanoTime() - start) / 1_000_000 + "ms: " + locator);
+        }
+    }
+
+    /**
+     * Return as soon as the screen has stopped changing: the page source is read every poll
+     * interval (no backoff, the quiet period needs a steady sample), and once the same
+     * fingerprint has been seen for the whole quiet period the screen counts as settled.
+     * Replaces a fixed sleep after an action: a fast device returns after one quiet period, a
+     * slow one gets as long as its animation or recalculation takes.
+     *
+     * @param region only changes inside the first element it matches count; null for the whole
+     *               screen. A region that is not on screen fingerprints as absent.
+     * @return the page source of the settled screen, for callers that want to read it
+     * @throws TimeoutException if the screen is still changing when the timeout expires
+     */
+    public String waitForStable(By region, Duration quiet, Duration timeout) {
+        return TimeBudget.measure(TimeBudget.Category.EXPLICIT_WAIT, () -> pollUntilStable(region, null, quiet, timeout));
+    }
+
+    /**
+     * Like {@link #waitForStable}, but the quiet period only starts once the region differs from
+     * how it was in {@code before}, a page source read before the action. A still screen does
+     * not count as settled, so a result the app computes after a delay (a debounced conversion)
+     * is waited for rather than read before it appears. A region that never changes (the new
+     * result equals the old one) counts as settled once the timeout expires.
+     *
+     * @return the page source of the settled screen, or of the unchanged one after the timeout
+     * @throws TimeoutException if the region is still changing when the timeout expires
+     */
+    public String waitForChange(By region, String before, Duration quiet, Duration timeout) {
+        long baseline = fingerprint(before, region);
+        return TimeBudget.measure(TimeBudget.Category.EXPLICIT_WAIT, () -> pollUntilStable(region, baseline, quiet, timeout));
+    }
+
+    /**
+     * @param baseline fingerprint the region must have left before the quiet period counts, or null
+     */
+    private String pollUntilStable(By region, Long baseline, Duration quiet, Duration timeout) {
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        String source = driver.getPageSource();
+        long fingerprint = fingerprint(source, region);
+        long unchangedSince = System.nanoTime();
+        int reads = 1;
+        while (baseline != null && fingerprint == baseline || System.nanoTime() - unchangedSince < quiet.toNanos()) {
+            long remainingMillis = (deadline - System.nanoTime()) / 1_000_000;
+            if (remainingMillis <= 0) {
+                if (baseline != null && fingerprint == baseline) {
+                    return source;
+                }
+                throw new TimeoutException("Screen still changing after " + (System.nanoTime() - start) / 1_000_000
+                        + "ms (" + reads + " page sources read)" + (region == null ? "" : ": " + region));
+            }
+            long untilQuiet = quiet.toMillis() - (System.nanoTime() - unchangedSince) / 1_000_000;
+            long pause = baseline != null && fingerprint == baseline ? pollInterval.toMillis()
+                    : Math.min(pollInterval.toMillis(), untilQuiet);
+            sleep(Math.max(0, Math.min(pause, remainingMillis)));
+            source = driver.getPageSource();
+            reads++;
+            long current = fingerprint(source, region);
+            if (current != fingerprint) {
+                fingerprint = current;
+                unchangedSince = System.nanoTime();
+            }
+        }
+        return source;
+    }
+
+    private static long fingerprint(String source, By region) {
+        CompactHierarchy hierarchy = CompactHierarchy.parse(source);
+        if (region == null) {
+            return hierarchy.fingerprint();
+        }
+        int[] matches = Locators.compile(region).select(hierarchy, -1);
+        return matches.length == 0 ? 0 : hierarchy.fingerprint(matches[0]);
+    }
+
+    /**
+     * Run the action with the implicit wait switched off, restoring the session's value afterwards.
+     */
+    public <T> T withoutImplicitWait(Supplier<T> action) {
+        if (implicitWait.isZero()) {
+            return action.get();
+        }
+        driver.manage().timeouts().implicitlyWait(Duration.ZERO);
+        try {
+            return action.get();
+        } finally {
+            driver.manage().timeouts().implicitlyWait(implicitWait);
+        }
+    }
+
+    /**
+     * Evaluate the condition until it holds or the timeout expires, backing off between polls.
+     * The implicit wait is switched off once for the whole loop, not per poll.
+     */
+    private boolean poll(Supplier<Boolean> condition, Duration timeout) {
+        return TimeBudget.measure(TimeBudget.Category.EXPLICIT_WAIT, () -> withoutImplicitWait(() -> {
+            long deadline = System.nanoTime() + timeout.toNanos();
+            long pauseMillis = pollInterval.toMillis();
+            while (true) {
+                if (condition.get()) {
+                    return true;
+                }
+                long remainingMillis = (deadline - System.nanoTime()) / 1_000_000;
+                if (remainingMillis <= 0) {
+                    return false;
+                }
+                sleep(Math.min(pauseMillis, remainingMillis));
+                pauseMillis = Math.min((long) (pauseMillis * backoff), maxPollInterval.toMillis());
+            }
+        }));
+    }
+
+    private boolean isDisplayedNow(By locator) {
+        List<WebElement> matches = driver.findElements(locator);
+        for (WebElement element : matches) {
+            try {
+                if (element.isDisplayed()) {
+                    return true;
+                }
+            } catch (StaleElementReferenceException | NotFoundException e) {
+                // Gone between the find and the check: counts as not displayed
+            }
+        }
+        return false;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting", e);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package framework;
+
+import artifacts.ArtifactWriter;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Verifies that artifacts are written in the background, bounded, and all on disk after a flush.
+ */
+public class ArtifactWriterTest {
+
+    @Test(description = "Screenshots, bytes and gzipped text land complete, with no partial files left")
+    public void testArtifactsWritten() throws Exception {
+        Path dir = Files.createTempDirectory("artifacts");
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', 0, 1, 2, 3};
+        try (ArtifactWriter writer = new ArtifactWriter(4, 2)) {
+            writer.submitBase64(dir.resolve("shots/failure.png"), Base64.getEncoder().encodeToString(png));
+            writer.submit(dir.resolve("raw.bin"), new byte[]{42});
+            writer.submitText(dir.resolve("source.xml.gz"), "<hierarchy rotation=\"0\"/>", true);
+            writer.submitText(dir.resolve("log.txt"), "Ünïcode", false);
+
+            Assert.assertTrue(writer.flush(Duration.ofSeconds(5)));
+            Assert.assertEquals(writer.getWritten(), 4);
+            Assert.assertEquals(writer.getFailed(), 0);
+        }
+        Assert.assertEquals(Files.readAllBytes(dir.resolve("shots/failure.png")), png);
+        Assert.assertEquals(Files.readAllBytes(dir.resolve("raw.bin")), new byte[]{42});
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(dir.resolve("source.xml.gz")))) {
+            Assert.assertEquals(new String(in.readAllBytes(), StandardCharsets.UTF_8), "<hierarchy rotation=\"0\"/>");
+        }
+        Assert.assertEquals(Files.readString(dir.resolve("log.txt")), "Ünïcode");
+        Assert.assertEquals(countFiles(dir, ".part"), 0);
+    }
+
+    @Test(description = "A full queue blocks submitters instead of buffering without bound")
+    public void testBackpressure() throws Exception {
+        Path dir = Files.createTempDirectory("artifacts");
+        String page = "<node text=\"row\"/>".repeat(100_000);
+        ArtifactWriter writer = new ArtifactWriter(2, 1);
+        for (int i = 0; i < 30; i++) {
+            writer.submitText(dir.resolve("source-" + i + ".xml.gz"), page + i, true);
+        }
+        Assert.assertTrue(writer.getMaxQueued() <= 2, "Queue held " + writer.getMaxQueued());
+        Assert.assertTrue(writer.getStallMillis() > 0, "30 large artifacts should outrun one writer");
+
+        writer.close();
+        Assert.assertEquals(writer.getWritten(), 30);
+        Assert.assertEquals(countFiles(dir, ".gz"), 30);
+        Assert.assertThrows(IllegalStateException.class, () -> writer.submit(dir.resolve("late.bin"), new byte[1]));
+    }
+
+    private static long countFiles(Path dir, String suffix) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(file -> file.toString().endsWith(suffix)).count();
+        }
+    }
+}
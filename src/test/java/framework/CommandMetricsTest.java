@@ -0,0 +1,139 @@
+package framework;
+
+import config.DriverManager;
+import io.appium.java_client.AppiumBy;
+import io.appium.java_client.android.AndroidDriver;
+import metrics.CommandMetrics;
+import metrics.LatencyHistogram;
+import metrics.TimeBudget;
+import metrics.TimeBudget.Category;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.json.Json;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import waits.BudgetedWait;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Verifies per-command latency histograms and their attribution to the running test, and the
+ * per-test time budget by category.
+ */
+public class CommandMetricsTest extends StubServerTest {
+
+    @BeforeClass
+    public void resetMetrics() {
+        CommandMetrics.reset();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void clearTestAttribution() {
+        CommandMetrics.clearCurrentTest();
+    }
+
+    @Test(description = "Percentiles land within one bucket of the true value and never exceed the max")
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 100; millis++) {
+            histogram.record(millis * 1_000_000L);
+        }
+
+        Assert.assertEquals(histogram.getCount(), 100);
+        Assert.assertEquals(histogram.getMaxNanos(), 100_000_000L);
+        assertWithinBucket(histogram.getPercentileNanos(0.50), 50_000_000L);
+        assertWithinBucket(histogram.getPercentileNanos(0.95), 95_000_000L);
+        assertWithinBucket(histogram.getPercentileNanos(0.99), 99_000_000L);
+        Assert.assertEquals(histogram.getPercentileNanos(1.0), 100_000_000L);
+        Assert.assertEquals(new LatencyHistogram().getPercentileNanos(0.5), 0);
+    }
+
+    @Test(description = "Driver commands are timed per command, per locator and per test, and dumped as JSON")
+    @SuppressWarnings("unchecked")
+    public void testCommandsAreTimedAndAttributed() throws Exception {
+        CommandMetrics.setCurrentTest("Probe.login");
+        AndroidDriver driver = DriverManager.getDriver();
+        driver.findElement(AppiumBy.id("com.example.trusttest:id/editTextUsername")).sendKeys("admin");
+        driver.findElement(AppiumBy.id("com.example.trusttest:id/editTextUsername")).getText();
+        driver.executeScript("mobile: clearApp", Map.of("appId", "com.example.trusttest"));
+        CommandMetrics.clearCurrentTest();
+
+        Assert.assertEquals(CommandMetrics.getCommand("findElement").getCount(), 2);
+        Assert.assertEquals(CommandMetrics.getCommand("sendKeysToElement").getCount(), 1);
+        Assert.assertEquals(CommandMetrics.getCommand("executeScript mobile: clearApp").getCount(), 1);
+        Assert.assertEquals(CommandMetrics.getLocator("id=com.example.trusttest:id/editTextUsername").getCount(), 2);
+        Assert.assertEquals(CommandMetrics.getTest("Probe.login").get("findElement").getCount(), 2);
+        Assert.assertTrue(CommandMetrics.getTest("Probe.login").containsKey("newSession"),
+                "Session creation inside the test should be attributed to it");
+
+        Path file = Files.createTempFile("command-latency", ".json");
+        try {
+            CommandMetrics.writeJson(file);
+            Map<String, Object> dump = new Json().toType(Files.readString(file), Map.class);
+            Map<String, Object> commands = (Map<String, Object>) dump.get("commands");
+            Map<String, Object> find = (Map<String, Object>) commands.get("findElement");
+            Assert.assertEquals(((Number) find.get("count")).longValue(), 2);
+            Assert.assertTrue(find.containsKey("p95Ms") && find.containsKey("p99Ms") && find.containsKey("maxMs"));
+            Assert.assertTrue(((Map<String, Object>) dump.get("locators"))
+                    .containsKey("id=com.example.trusttest:id/editTextUsername"));
+            Assert.assertTrue(((Map<String, Object>) dump.get("tests")).containsKey("Probe.login"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test(description = "Every millisecond of a test goes to exactly one category, waits and sleeps ranked as idle")
+    @SuppressWarnings("unchecked")
+    public void testTimeBudgetAttribution() {
+        AndroidDriver driver = DriverManager.getDriver();
+        server.setLatency("getPageSource", Duration.ofMillis(50)).setLatency("screenshot", Duration.ofMillis(100));
+        TimeBudget.reset();
+        long start = System.nanoTime();
+        TimeBudget.startTest("Probe.budget");
+
+        TimeBudget.sleep(Duration.ofMillis(200));
+        driver.manage().timeouts().implicitlyWait(Duration.ofMillis(300));
+        Assert.assertTrue(driver.findElements(AppiumBy.id("missing")).isEmpty());
+        driver.manage().timeouts().implicitlyWait(Duration.ZERO);
+        int[] polls = {0};
+        new BudgetedWait(driver, Duration.ofSeconds(2)).pollingEvery(Duration.ofMillis(150))
+                .until(d -> d.getPageSource() != null && ++polls[0] == 3);
+        TimeBudget.measure(Category.CAPTURE, () -> driver.getScreenshotAs(OutputType.BYTES));
+
+        Map<Category, Long> budget = TimeBudget.finishTest();
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+        server.setLatency("getPageSource", Duration.ZERO).setLatency("screenshot", Duration.ZERO);
+
+        Assert.assertTrue(budget.get(Category.SLEEP) >= 200, budget.toString());
+        Assert.assertTrue(budget.get(Category.IMPLICIT_WAIT) >= 300, budget.toString());
+        Assert.assertTrue(budget.get(Category.EXPLICIT_WAIT) >= 300, "Two pauses between three polls: " + budget);
+        Assert.assertTrue(budget.get(Category.COMMAND) >= 150, "Polls' page sources are commands: " + budget);
+        Assert.assertTrue(budget.get(Category.CAPTURE) >= 100, "The screenshot command belongs to the capture: " + budget);
+        // Against the wall time the budget recorded: the interval measured here also spans startTest and finishTest
+        long total = budget.values().stream().mapToLong(Long::longValue).sum();
+        long recordedMillis = ((Number) ((Map<String, Map<String, Object>>) TimeBudget.snapshot().get("tests"))
+                .get("Probe.budget").get("totalMs")).longValue();
+        Assert.assertTrue(total <= recordedMillis && total >= recordedMillis - Category.values().length,
+                "Categories add up to the test's recorded duration: " + total + " vs " + recordedMillis + "ms");
+        Assert.assertTrue(recordedMillis <= wallMillis, "Recorded within the test: " + recordedMillis + " vs " + wallMillis + "ms");
+        Assert.assertEquals(TimeBudget.getIdleMillis("Probe.budget"),
+                budget.get(Category.SLEEP) + budget.get(Category.IMPLICIT_WAIT) + budget.get(Category.EXPLICIT_WAIT), 3);
+
+        TimeBudget.startTest("Probe.busy");
+        driver.getPageSource();
+        TimeBudget.finishTest();
+        List<String> lines = TimeBudget.summaryLines(5);
+        Assert.assertTrue(lines.get(0).startsWith("Probe.budget: idle "), lines.toString());
+        Assert.assertTrue(lines.get(1).startsWith("Probe.busy: idle 0ms"), lines.toString());
+    }
+
+    private static void assertWithinBucket(long actualNanos, long expectedNanos) {
+        Assert.assertTrue(actualNanos >= expectedNanos && actualNanos <= expectedNanos * 1.2,
+                "Expected about " + expectedNanos + "ns but was " + actualNanos + "ns");
+    }
+}
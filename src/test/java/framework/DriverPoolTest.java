@@ -0,0 +1,120 @@
+package framework;
+
+import config.DeviceTarget;
+import config.DriverManager;
+import io.appium.java_client.AppiumBy;
+import io.appium.java_client.android.AndroidDriver;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import pages.BasePage;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies that DriverManager confines one session to each worker thread and device.
+ * Runs against an in-process stub Appium server, no device needed.
+ */
+public class DriverPoolTest extends StubServerTest {
+
+    private static final int THREADS = 4;
+    private static final int ROUNDS = 25;
+
+    @Test(description = "N threads drive N independent sessions without cross-talk")
+    public void testThreadsGetIndependentSessions() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        List<Future<String>> results = new ArrayList<>();
+        int sessionsBefore = server.getCreatedSessionIds().size();
+
+        for (int i = 0; i < THREADS; i++) {
+            DeviceTarget device = new DeviceTarget("device-" + i, server.getUrl(), 8200 + i);
+            String value = "value-" + i;
+            results.add(executor.submit(workerFor(device, value, barrier)));
+        }
+
+        Set<String> sessionIds = new HashSet<>();
+        for (int i = 0; i < THREADS; i++) {
+            String sessionId = results.get(i).get(60, TimeUnit.SECONDS);
+            sessionIds.add(sessionId);
+            Assert.assertEquals(server.getUdid(sessionId), "device-" + i,
+                    "Session should be created on the thread's own device");
+            Assert.assertFalse(server.isOpen(sessionId), "Session should be closed by quitDriver()");
+        }
+        executor.shutdown();
+
+        Assert.assertEquals(sessionIds.size(), THREADS, "Every thread should own a distinct session");
+        Assert.assertEquals(server.getCreatedSessionIds().size() - sessionsBefore, THREADS,
+                "No extra sessions should be created");
+    }
+
+    @Test(description = "Pooled devices are leased to one thread at a time")
+    public void testPooledDeviceIsLeasedExclusively() throws Exception {
+        DeviceTarget only = new DeviceTarget("pooled", server.getUrl());
+        DriverManager.configureDevices(List.of(only));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        Future<String> first = executor.submit(() -> {
+            AndroidDriver driver = DriverManager.getDriver();
+            Thread.sleep(300);
+            String id = driver.getSessionId().toString();
+            DriverManager.quitDriver();
+            return id;
+        });
+        Thread.sleep(100);
+        Future<String> second = executor.submit(() -> {
+            AndroidDriver driver = DriverManager.getDriver();
+            Assert.assertEquals(DriverManager.getCurrentDevice(), only);
+            String id = driver.getSessionId().toString();
+            DriverManager.quitDriver();
+            return id;
+        });
+
+        String firstId = first.get(30, TimeUnit.SECONDS);
+        String secondId = second.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        Assert.assertNotEquals(firstId, secondId, "Second thread should get its own session");
+        Assert.assertFalse(server.isOpen(firstId), "First session should be closed before the device is reused");
+    }
+
+    private Callable<String> workerFor(DeviceTarget device, String value, CyclicBarrier barrier) {
+        return () -> {
+            DriverManager.bindDevice(device);
+            try {
+                AndroidDriver driver = DriverManager.getDriver();
+                ProbePage page = new ProbePage();
+                Assert.assertSame(page.driver(), driver, "BasePage should pick up the calling thread's driver");
+                Assert.assertEquals(DriverManager.getCurrentDevice(), device);
+
+                barrier.await(30, TimeUnit.SECONDS);
+                for (int round = 0; round < ROUNDS; round++) {
+                    driver.findElement(AppiumBy.id("com.example.trusttest:id/editTextUsername")).sendKeys(value + "#" + round);
+                    Assert.assertEquals(driver.findElement(AppiumBy.id("com.example.trusttest:id/editTextUsername")).getText(), value + "#" + round,
+                            "Session state leaked between threads");
+                }
+                return driver.getSessionId().toString();
+            } finally {
+                DriverManager.quitDriver();
+                DriverManager.bindDevice(null);
+            }
+        };
+    }
+
+    /**
+     * Exposes the driver a page object was bound to.
+     */
+    private static class ProbePage extends BasePage {
+        AndroidDriver driver() {
+            return driver;
+        }
+    }
+}
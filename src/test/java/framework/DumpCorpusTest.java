@@ -0,0 +1,61 @@
+package framework;
+
+import config.AppConfig;
+import hierarchy.DumpCorpus;
+import hierarchy.DumpCorpus.State;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Verifies the dump index: identical subtrees stored once, identical screens grouped, and
+ * structural diffs between indexed states, also after reopening the index.
+ */
+public class DumpCorpusTest {
+
+    private static final List<String> DUMPS = List.of("sw_t1.xml", "sw_t2.xml", "sw_t6.xml", "sw_test1.xml", "testpage.xml");
+
+    @Test(description = "Repeated screens and subtrees are stored once; a diff names the changed attributes")
+    public void testIndexAndDiff() throws IOException {
+        Path directory = Files.createTempDirectory("dump-index");
+        try (DumpCorpus corpus = DumpCorpus.open(directory)) {
+            for (String dump : DUMPS) {
+                Assert.assertNotNull(corpus.add(dump, Paths.get(AppConfig.getStubDumpDir(), dump)), dump);
+            }
+            Assert.assertNull(corpus.add("testng.xml", Paths.get("testng.xml")), "Not a hierarchy dump");
+
+            Assert.assertEquals(corpus.getDuplicates(), List.of(List.of("sw_t1.xml", "sw_t6.xml", "sw_test1.xml")));
+            Assert.assertEquals(corpus.getStates().get("sw_t6.xml").getStored(), 0, "Seen before, nothing stored");
+            Assert.assertTrue(corpus.getStates().get("sw_t2.xml").getStored() < 20,
+                    "Only the path to the toggled switch is new: " + corpus.getStates().get("sw_t2.xml").getStored());
+            Assert.assertTrue(corpus.getObjectCount() < corpus.getNodeCount() / 2,
+                    corpus.getObjectCount() + " subtrees for " + corpus.getNodeCount() + " elements");
+
+            List<String> changes = corpus.diff("sw_t1.xml", "sw_t2.xml");
+            Assert.assertTrue(changes.contains("Switch#switch1 text 'Switch 1 OFF'→'Switch 1 ON', checked false→true"),
+                    changes.toString());
+            Assert.assertTrue(changes.stream().anyMatch(line -> line.startsWith("TextView#saveStateText text 'Switch 1: OFF")),
+                    changes.toString());
+            Assert.assertEquals(changes.size(), 2, changes.toString());
+            Assert.assertTrue(corpus.diff("sw_t1.xml", "sw_test1.xml").isEmpty());
+        }
+
+        try (DumpCorpus reopened = DumpCorpus.open(directory)) {
+            int objects = reopened.getObjectCount();
+            Assert.assertEquals(reopened.getStates().keySet(), new LinkedHashSet<>(DUMPS));
+            Assert.assertEquals(reopened.diff("sw_t2.xml", "sw_t1.xml").get(0),
+                    "Switch#switch1 text 'Switch 1 ON'→'Switch 1 OFF', checked true→false");
+            State again = reopened.add("sw_t2.xml", Paths.get(AppConfig.getStubDumpDir(), "sw_t2.xml"));
+            Assert.assertEquals(again.getStored(), 0);
+            Assert.assertEquals(reopened.getObjectCount(), objects);
+            Assert.assertTrue(reopened.diff("testpage.xml", "sw_t1.xml").stream().anyMatch(line -> line.startsWith("+ ")),
+                    "Different tabs add and remove subtrees");
+        }
+    }
+}
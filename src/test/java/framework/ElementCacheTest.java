@@ -0,0 +1,94 @@
+package framework;
+
+import config.DriverManager;
+import io.appium.java_client.AppiumBy;
+import io.appium.java_client.android.AndroidDriver;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import pages.ElementCache;
+import pages.LoginPage;
+import pages.TestPage;
+
+import java.util.List;
+
+/**
+ * Verifies that page objects reuse element handles, re-resolve stale ones and drop them on navigation.
+ */
+public class ElementCacheTest extends StubServerTest {
+
+    @BeforeMethod
+    public void resetStats() {
+        ElementCache.resetStats();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void closeSession() {
+        DriverManager.quitDriver();
+    }
+
+    @Test(description = "Repeated clicks on one locator resolve it once")
+    public void testRepeatedClicksReuseHandle() {
+        TestPage testPage = openButtonsTab();
+        List<String> log = commandLog();
+        int before = log.size();
+
+        for (int i = 0; i < 5; i++) {
+            testPage.clickButton1();
+        }
+        List<String> commands = log.subList(before, log.size());
+
+        Assert.assertEquals(finds(commands), 1, "Only the first click should find the button: " + commands);
+        Assert.assertEquals(commands.stream().filter(command -> command.endsWith("/click")).count(), 5);
+        Assert.assertEquals(ElementCache.getMisses(), 1);
+        Assert.assertEquals(ElementCache.getHits(), 4);
+    }
+
+    @Test(description = "A handle gone stale behind the page's back is re-resolved and the click retried")
+    public void testStaleHandleIsReresolved() {
+        TestPage testPage = openButtonsTab();
+        testPage.clickButton1();
+
+        // Leave and re-open the tab without going through the page object
+        AndroidDriver driver = DriverManager.getDriver();
+        driver.findElement(AppiumBy.accessibilityId("List")).click();
+        driver.findElement(AppiumBy.accessibilityId("Buttons")).click();
+
+        testPage.clickButton1();
+        Assert.assertEquals(ElementCache.getStaleRetries(), 1);
+        Assert.assertEquals(ElementCache.getMisses(), 2);
+        Assert.assertEquals(ElementCache.getHits(), 0);
+
+        testPage.clickButton1();
+        Assert.assertEquals(ElementCache.getHits(), 1, "The re-resolved handle is cached again");
+    }
+
+    @Test(description = "Tab navigation clears the cache")
+    public void testNavigationInvalidates() {
+        TestPage testPage = openButtonsTab();
+        testPage.clickButton1();
+
+        testPage.goToListTab().goToButtonsTab();
+        testPage.clickButton1();
+
+        Assert.assertEquals(ElementCache.getStaleRetries(), 0, "Navigation should drop handles before they go stale");
+        Assert.assertEquals(ElementCache.getMisses(), 4, "Button 1 twice plus both tabs");
+    }
+
+    private TestPage openButtonsTab() {
+        new LoginPage().loginWithValidCredentials();
+        TestPage testPage = new TestPage();
+        testPage.goToButtonsTab();
+        ElementCache.resetStats();
+        return testPage;
+    }
+
+    private List<String> commandLog() {
+        return server.getCommandLog(DriverManager.getDriver().getSessionId().toString());
+    }
+
+    private static long finds(List<String> commands) {
+        return commands.stream().filter(command -> command.equals("POST /element")).count();
+    }
+}
@@ -0,0 +1,136 @@
+package framework;
+
+import config.DriverManager;
+import io.appium.java_client.AppiumBy;
+import metrics.EventJournal;
+import metrics.TimeBudget;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.json.Json;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Verifies that the event journal records commands, waits and sessions as JSONL, drops rather
+ * than blocks when full, and merges shards into one timeline.
+ */
+public class EventJournalTest extends StubServerTest {
+
+    @AfterMethod(alwaysRun = true)
+    public void stopJournal() {
+        EventJournal.stop();
+    }
+
+    @Test(description = "Commands, sleeps and sessions are journaled with time, thread and device")
+    public void testEventsJournaled() throws Exception {
+        Path file = Files.createTempDirectory("journal").resolve("shard-a.jsonl");
+        EventJournal journal = EventJournal.start(file, "shard-a", 1024);
+        DriverManager.getDriver().findElement(AppiumBy.id("com.example.trusttest:id/editTextUsername"));
+        DriverManager.getDriver().manage().timeouts().implicitlyWait(Duration.ZERO);
+        Assert.assertThrows(NoSuchElementException.class,
+                () -> DriverManager.getDriver().findElement(AppiumBy.id("com.example.trusttest:id/nowhere")));
+        TimeBudget.sleep(Duration.ofMillis(5));
+        DriverManager.quitDriver();
+        EventJournal.stop();
+
+        List<Map<String, Object>> events = read(file);
+        Assert.assertEquals(events.size(), journal.getWritten());
+        Assert.assertEquals(journal.getDropped(), 0);
+        Map<String, Object> find = find(events, "command", "findElement");
+        Assert.assertEquals(find.get("run"), "shard-a");
+        Assert.assertEquals(find.get("device"), device.toString());
+        Assert.assertEquals(((Number) find.get("thread")).longValue(), Thread.currentThread().getId());
+        Assert.assertEquals(find.get("locator"), "id=com.example.trusttest:id/editTextUsername");
+        Assert.assertEquals(find.get("failed"), false);
+        Assert.assertEquals(events.stream().filter(event -> "id=com.example.trusttest:id/nowhere".equals(event.get("locator")))
+                .findFirst().orElseThrow().get("failed"), true, "A no such element error is a failed command");
+        Assert.assertTrue(((Number) find.get("ns")).longValue() > 0);
+        Assert.assertTrue(((Number) find(events, "sleep", null).get("ns")).longValue() >= 5_000_000L);
+        Assert.assertNotNull(find(events, "session.start", null).get("sessionId"));
+        Assert.assertNotNull(find(events, "session.quit", null));
+        Assert.assertNull(find(events, "journal", null).get("device"));
+
+        for (int i = 1; i < events.size(); i++) {
+            Assert.assertTrue(ts(events.get(i)) >= ts(events.get(i - 1)), "Out of order at line " + i);
+            Assert.assertEquals(((Number) events.get(i).get("seq")).longValue(), i);
+        }
+        Assert.assertTrue(Math.abs(ts(events.get(0)) / 1_000_000 - System.currentTimeMillis()) < 60_000,
+                "Timestamps should be epoch nanoseconds");
+    }
+
+    @Test(description = "A full queue drops and counts events instead of blocking the recording thread")
+    public void testFullQueueDrops() throws Exception {
+        Path file = Files.createTempDirectory("journal").resolve("burst.jsonl");
+        EventJournal journal = EventJournal.start(file, "burst", 4);
+        for (int i = 0; i < 50_000; i++) {
+            EventJournal.record("burst", "i", i);
+        }
+        EventJournal.stop();
+
+        List<Map<String, Object>> events = read(file);
+        Assert.assertTrue(journal.getDropped() > 0, "50000 events should overflow a queue of 4");
+        Assert.assertEquals(events.size(), journal.getWritten());
+        // Everything recorded is either written or counted, plus the closing "journal" line
+        Assert.assertEquals(events.size() - 1 + journal.getDropped(), 50_000);
+        Map<String, Object> summary = events.get(events.size() - 1);
+        Assert.assertEquals(summary.get("type"), "journal");
+        Assert.assertEquals(((Number) summary.get("dropped")).longValue(), journal.getDropped());
+
+        EventJournal.record("ignored");
+        Assert.assertNull(EventJournal.getActive());
+    }
+
+    @Test(description = "Shard journals merge into one file ordered by timestamp")
+    public void testMergeShards() throws Exception {
+        Path dir = Files.createTempDirectory("journal");
+        List<Path> shards = new ArrayList<>();
+        for (String shard : List.of("shard-a", "shard-b")) {
+            Path file = dir.resolve(shard + ".jsonl");
+            EventJournal.start(file, shard, 1024);
+            for (int i = 0; i < 200; i++) {
+                EventJournal.record("tick", "i", i);
+                if (i % 50 == 0) {
+                    Thread.sleep(1);
+                }
+            }
+            EventJournal.stop();
+            shards.add(file);
+        }
+        Path merged = dir.resolve("merged/all.jsonl");
+
+        Assert.assertEquals(EventJournal.merge(shards, merged), 402);
+        List<Map<String, Object>> events = read(merged);
+        Assert.assertEquals(events.size(), 402);
+        for (int i = 1; i < events.size(); i++) {
+            Assert.assertTrue(ts(events.get(i)) >= ts(events.get(i - 1)), "Out of order at line " + i);
+        }
+        Assert.assertEquals(events.stream().filter(event -> "shard-b".equals(event.get("run"))).count(), 201);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> read(Path file) throws Exception {
+        List<Map<String, Object>> events = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            events.add(new Json().toType(line, Map.class));
+        }
+        return events;
+    }
+
+    private static Map<String, Object> find(List<Map<String, Object>> events, String type, String name) {
+        return events.stream()
+                .filter(event -> type.equals(event.get("type")) && (name == null || name.equals(event.get("name"))))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No " + type + " event " + (name == null ? "" : name)));
+    }
+
+    private static long ts(Map<String, Object> event) {
+        return ((Number) event.get("ts")).longValue();
+    }
+}
@@ -0,0 +1,111 @@
+package framework;
+
+import artifacts.ArtifactWriter;
+import artifacts.FailureCapture;
+import config.DriverManager;
+import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.json.Json;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import pages.LoginPage;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Verifies that failure bundles are fetched concurrently, complete, and capped in time.
+ */
+public class FailureCaptureTest extends StubServerTest {
+
+    private ArtifactWriter writer;
+
+    @BeforeClass
+    public void createWriter() {
+        writer = new ArtifactWriter(8, 1);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void closeSession() {
+        server.setLatency("getPageSource", Duration.ZERO);
+        server.setLatency("getLog", Duration.ZERO);
+        DriverManager.quitDriver();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void closeWriter() {
+        writer.close();
+    }
+
+    @Test(description = "Screenshot, page source and logcat tail land in one bundle with a manifest")
+    @SuppressWarnings("unchecked")
+    public void testBundleWritten() throws Exception {
+        new LoginPage().loginWithValidCredentials();
+        Path bundle = Files.createTempDirectory("bundle");
+
+        Map<String, Object> manifest = new FailureCapture(writer, Duration.ofSeconds(5), 50)
+                .capture(DriverManager.getDriver(), "Probe.fails", new AssertionError("expected [a] but found [b]"), bundle);
+        Map<String, Object> artifacts = (Map<String, Object>) manifest.get("artifacts");
+        Assert.assertTrue(String.valueOf(artifacts.get(FailureCapture.SCREENSHOT)).startsWith("ok"), artifacts.toString());
+        Assert.assertTrue(String.valueOf(artifacts.get(FailureCapture.PAGE_SOURCE)).startsWith("ok"), artifacts.toString());
+
+        Assert.assertTrue(FailureCapture.awaitBundles(Duration.ofSeconds(5)));
+        Assert.assertTrue(writer.flush(Duration.ofSeconds(5)));
+        Assert.assertTrue(Files.size(bundle.resolve(FailureCapture.SCREENSHOT)) > 0);
+        Assert.assertTrue(Files.readString(bundle.resolve(FailureCapture.PAGE_SOURCE)).contains("<hierarchy"));
+        Assert.assertTrue(Files.readString(bundle.resolve(FailureCapture.LOGCAT)).contains("Displayed screen list"),
+                "Logcat tail should show the login leading to the list");
+
+        Map<String, Object> written = new Json().toType(Files.readString(bundle.resolve(FailureCapture.MANIFEST)), Map.class);
+        Assert.assertEquals(written.get("test"), "Probe.fails");
+        Assert.assertTrue(String.valueOf(written.get("failure")).contains("expected [a]"));
+        Assert.assertTrue(String.valueOf(((Map<String, Object>) written.get("artifacts")).get(FailureCapture.LOGCAT)).startsWith("ok"));
+    }
+
+    @Test(description = "A hung fetch is abandoned at the cap; the rest of the bundle is kept")
+    @SuppressWarnings("unchecked")
+    public void testHungCaptureIsCapped() throws Exception {
+        AndroidDriver driver = DriverManager.getDriver();
+        server.setLatency("getPageSource", Duration.ofSeconds(3));
+        Path bundle = Files.createTempDirectory("bundle");
+
+        long start = System.nanoTime();
+        Map<String, Object> manifest = new FailureCapture(writer, Duration.ofMillis(500), 50)
+                .capture(driver, "Probe.hangs", null, bundle);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        Assert.assertTrue(elapsedMillis < 1500, "The cap bounds the wait, took " + elapsedMillis + "ms");
+        Map<String, Object> artifacts = (Map<String, Object>) manifest.get("artifacts");
+        Assert.assertTrue(String.valueOf(artifacts.get(FailureCapture.PAGE_SOURCE)).startsWith("timeout"), artifacts.toString());
+        Assert.assertTrue(String.valueOf(artifacts.get(FailureCapture.SCREENSHOT)).startsWith("ok"), artifacts.toString());
+
+        Assert.assertTrue(FailureCapture.awaitBundles(Duration.ofSeconds(2)));
+        Assert.assertTrue(writer.flush(Duration.ofSeconds(2)));
+        Assert.assertTrue(Files.exists(bundle.resolve(FailureCapture.SCREENSHOT)));
+        Assert.assertFalse(Files.exists(bundle.resolve(FailureCapture.PAGE_SOURCE)));
+        Assert.assertTrue(Files.readString(bundle.resolve(FailureCapture.MANIFEST)).contains("timeout after 500ms"));
+    }
+
+    @Test(description = "Quitting the failed session waits for the logcat fetch still reading from it")
+    @SuppressWarnings("unchecked")
+    public void testQuitWaitsForBackgroundLogcat() throws Exception {
+        AndroidDriver driver = DriverManager.getDriver();
+        server.setLatency("getLog", Duration.ofMillis(800));
+        Path bundle = Files.createTempDirectory("bundle");
+
+        Map<String, Object> manifest = new FailureCapture(writer, Duration.ofSeconds(5), 50)
+                .capture(driver, "Probe.quits", null, bundle);
+        Assert.assertEquals(((Map<String, Object>) manifest.get("artifacts")).get(FailureCapture.LOGCAT), "pending");
+        DriverManager.quitDriver();
+
+        Assert.assertTrue(FailureCapture.awaitBundles(Duration.ofSeconds(5)));
+        Assert.assertTrue(writer.flush(Duration.ofSeconds(5)));
+        Map<String, Object> written = new Json().toType(Files.readString(bundle.resolve(FailureCapture.MANIFEST)), Map.class);
+        Assert.assertTrue(String.valueOf(((Map<String, Object>) written.get("artifacts")).get(FailureCapture.LOGCAT)).startsWith("ok"),
+                "Logcat was read before the session was quit: " + written.get("artifacts"));
+    }
+}
@@ -0,0 +1,88 @@
+package framework;
+
+import config.DriverManager;
+import io.appium.java_client.AppiumBy;
+import org.openqa.selenium.By;
+import org.openqa.selenium.json.Json;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import pages.FormFill;
+import pages.LoginPage;
+import pages.TestPage;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Verifies that login is filled with one driver script, and field by field where scripts are refused.
+ */
+public class FormFillTest extends StubServerTest {
+
+    private static final String EXECUTE_DRIVER = "POST /appium/execute_driver";
+
+    @AfterMethod(alwaysRun = true)
+    public void closeSession() {
+        DriverManager.quitDriver();
+        server.setDriverScriptsEnabled(false);
+    }
+
+    @Test(description = "With driver scripts allowed, login is a single round trip")
+    public void testLoginInOneRoundTrip() {
+        server.setDriverScriptsEnabled(true);
+        LoginPage loginPage = new LoginPage();
+        List<String> log = commandLog();
+        int before = log.size();
+
+        loginPage.loginWithValidCredentials();
+
+        Assert.assertEquals(log.subList(before, log.size()), List.of(EXECUTE_DRIVER));
+        Assert.assertTrue(new TestPage().isTestPageDisplayed(0), "Login should open the Test page");
+    }
+
+    @Test(description = "Rejected credentials through the script land on the error screen with the typed values")
+    public void testInvalidLoginThroughScript() {
+        server.setDriverScriptsEnabled(true);
+        LoginPage loginPage = new LoginPage();
+        loginPage.login("admin", "wrong \"quoted\" password");
+
+        Assert.assertTrue(loginPage.isGenericErrorDisplayed());
+        Assert.assertEquals(loginPage.getPasswordValue(), "wrong \"quoted\" password");
+    }
+
+    @Test(description = "A server refusing driver scripts is asked once, then the per-field path is used")
+    public void testFallbackWhenScriptsRefused() {
+        LoginPage loginPage = new LoginPage();
+        loginPage.login("admin", "wrong");
+        Assert.assertTrue(loginPage.isGenericErrorDisplayed(), "Fallback should still submit the form");
+
+        loginPage.loginWithValidCredentials();
+        Assert.assertTrue(new TestPage().isTestPageDisplayed(0), "Second login should succeed");
+
+        List<String> log = commandLog();
+        Assert.assertEquals(log.stream().filter(EXECUTE_DRIVER::equals).count(), 1,
+                "The refusal is remembered for the session");
+        Assert.assertTrue(log.stream().filter(command -> command.endsWith("/value")).count() >= 4, log.toString());
+    }
+
+    @Test(description = "Scripts carry the steps as data; unsupported locators are not batched")
+    public void testScriptContent() {
+        By user = AppiumBy.id("com.example.trusttest:id/editTextUsername");
+        FormFill form = new FormFill()
+                .set(user, "a'b\"c")
+                .click(AppiumBy.androidUIAutomator("new UiSelector().text(\"Submit\")"));
+
+        String script = form.toDriverScript(1500);
+        String steps = script.substring("const steps = ".length(), script.indexOf(";\n"));
+        Assert.assertEquals(new Json().toType(steps, List.class), List.of(
+                List.of("id=com.example.trusttest:id/editTextUsername", "a'b\"c"),
+                Arrays.asList("android=new UiSelector().text(\"Submit\")", null)));
+        Assert.assertTrue(script.contains("waitForDisplayed({timeout: 1500})"));
+        Assert.assertTrue(form.isBatchable());
+        Assert.assertFalse(new FormFill().set(By.cssSelector("input"), "x").isBatchable());
+    }
+
+    private List<String> commandLog() {
+        return server.getCommandLog(DriverManager.getDriver().getSessionId().toString());
+    }
+}
@@ -0,0 +1,95 @@
+package framework;
+
+import artifacts.ArtifactWriter;
+import config.AppConfig;
+import config.DriverManager;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+import pages.GoldenRecorder;
+import pages.LoginPage;
+import pages.TestPage;
+import pages.TestPage.Tab;
+import utils.ReplayMode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Verifies recording golden states from a run and replaying a suite against them without a device.
+ */
+public class GoldenReplayTest extends StubServerTest {
+
+    @AfterMethod(alwaysRun = true)
+    public void quitSessions() {
+        DriverManager.quitAll();
+        System.clearProperty("golden.record.dir");
+        System.clearProperty("replay.enabled");
+        System.clearProperty("replay.dir");
+        GoldenRecorder.reset();
+    }
+
+    @Test(description = "Each confirmed screen is recorded once per run under its replay name; unchanged ones are kept")
+    public void testRecordGoldenStates() throws IOException {
+        Path golden = Files.createTempDirectory("golden");
+        Files.copy(Paths.get(AppConfig.getStubDumpDir(), "testpage.xml"), golden.resolve("testpage.xml"),
+                StandardCopyOption.REPLACE_EXISTING);
+        Files.writeString(golden.resolve("sw_t1.xml"), "<hierarchy rotation=\"0\"/>");
+        System.setProperty("golden.record.dir", golden.toString());
+
+        LoginPage loginPage = new LoginPage();
+        Assert.assertTrue(loginPage.isLoginScreenDisplayed());
+        loginPage.login("admin", "wrong");
+        Assert.assertTrue(loginPage.isErrorDisplayed());
+        loginPage.loginWithValidCredentials();
+        TestPage testPage = new TestPage();
+        Assert.assertTrue(testPage.isOnTab(Tab.LIST, 5));
+        testPage.goToTab(Tab.SWITCHES);
+        Assert.assertTrue(testPage.isOnTab(Tab.SWITCHES, 5));
+        testPage.goToTab(Tab.LIST);
+        Assert.assertTrue(testPage.isOnTab(Tab.LIST, 5), "A screen is recorded the first time only");
+        Assert.assertTrue(ArtifactWriter.shared().flush(Duration.ofSeconds(10)));
+
+        Assert.assertEquals(GoldenRecorder.summaryLines(), List.of(
+                "list: testpage.xml (unchanged)",
+                "login: fresh.xml (new)",
+                "loginError: error.xml (new)",
+                "switches: sw_t1.xml (changed)"));
+        Assert.assertTrue(Files.readString(golden.resolve("fresh.xml")).contains("buttonSubmit"));
+        Assert.assertFalse(Files.readString(golden.resolve("fresh.xml")).contains("textViewError"),
+                "The fresh form, not the error");
+        Assert.assertTrue(Files.readString(golden.resolve("sw_t1.xml")).contains("Switch 1 OFF"));
+        Assert.assertEquals(Files.mismatch(golden.resolve("testpage.xml"), Paths.get(AppConfig.getStubDumpDir(), "testpage.xml")), -1L);
+    }
+
+    @Test(description = "Replay mode serves the golden states as the only device, with short waits and device-only tests left out")
+    public void testReplayMode() {
+        System.setProperty("replay.enabled", "true");
+        System.setProperty("replay.dir", AppConfig.getStubDumpDir());
+        try {
+            ReplayMode.startIfEnabled();
+            Assert.assertEquals(DriverManager.getDevices().size(), 1);
+            Assert.assertEquals(AppConfig.getExplicitWait(), 1);
+
+            LoginPage loginPage = new LoginPage();
+            loginPage.loginWithValidCredentials();
+            Assert.assertTrue(new TestPage().goToTab(Tab.BUTTONS).areAllButtonsDisplayed());
+
+            XmlSuite suite = new XmlSuite();
+            XmlTest test = new XmlTest(suite);
+            ReplayMode.excludeDeviceOnlyTests(List.of(suite));
+            Assert.assertEquals(test.getExcludedGroups(), List.of(ReplayMode.DEVICE_ONLY));
+        } finally {
+            DriverManager.quitAll();
+            ReplayMode.stop();
+            DriverManager.configureDevices(List.of(device));
+        }
+    }
+}
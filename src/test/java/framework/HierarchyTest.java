@@ -0,0 +1,156 @@
+package framework;
+
+import config.AppConfig;
+import hierarchy.CompactHierarchy;
+import hierarchy.Locators;
+import hierarchy.UiSelector;
+import hierarchy.XPath;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import stub.UiHierarchy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Verifies the compact hierarchy model and its UiSelector / XPath evaluation on the recorded dumps.
+ */
+public class HierarchyTest {
+
+    private static final String ID_PREFIX = "com.example.trusttest:id/";
+
+    private List<Path> dumps;
+    private CompactHierarchy list;
+
+    @BeforeClass
+    public void loadDumps() throws IOException {
+        try (Stream<Path> files = Files.list(Paths.get(AppConfig.getStubDumpDir()))) {
+            dumps = files.filter(path -> path.toString().endsWith(".xml"))
+                    .filter(path -> path.getFileName().toString().matches("(?!pom|testng|framework-testng).*"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        list = CompactHierarchy.parse(Paths.get(AppConfig.getStubDumpDir(), "testpage.xml"));
+    }
+
+    @Test(description = "Every recorded dump parses to the same nodes as the DOM model, in milliseconds")
+    public void testParsesAllDumps() throws IOException {
+        Assert.assertTrue(dumps.size() > 10, "Expected the recorded dumps in " + AppConfig.getStubDumpDir());
+        long bytes = 0;
+        for (Path dump : dumps) {
+            bytes += Files.size(dump);
+            CompactHierarchy compact = CompactHierarchy.parse(dump);
+            UiHierarchy dom = UiHierarchy.parse(dump);
+            Assert.assertEquals(compact.size(), dom.getNodes().size(), "Node count of " + dump);
+            Assert.assertEquals(compact.text(compact.size() - 1), dom.getNodes().get(compact.size() - 1).getText());
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            for (Path dump : dumps) {
+                CompactHierarchy.parse(dump);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        Assert.assertTrue(best < 1_000_000_000L, "Parsing " + dumps.size() + " dumps (" + bytes / 1024 + " KB) took "
+                + best / 1_000_000 + "ms");
+    }
+
+    @Test(description = "Tree navigation, interning and packed attributes")
+    public void testCompactModel() {
+        int recycler = single(Locators.find(list, "id", ID_PREFIX + "recyclerView"));
+        Assert.assertTrue(list.is(recycler, CompactHierarchy.SCROLLABLE));
+        Assert.assertEquals(list.className(recycler), "androidx.recyclerview.widget.RecyclerView");
+        Assert.assertEquals(list.tag(recycler), list.className(recycler), "Dump nodes are named by class");
+
+        int firstItem = list.firstChild(recycler);
+        Assert.assertEquals(list.parent(firstItem), recycler);
+        int items = 0;
+        for (int child = firstItem; child >= 0; child = list.nextSibling(child)) {
+            items++;
+        }
+        Assert.assertEquals(items, 9, "Rows of the recycler view on the top screen");
+        Assert.assertTrue(list.subtreeEnd(recycler) > firstItem);
+
+        Assert.assertEquals(list.lookup("android.widget.TextView"), list.classNameId(single(
+                Locators.find(list, "-android uiautomator", "new UiSelector().text(\"Switches\")"))),
+                "Equal strings share one pool id");
+        Assert.assertEquals(list.lookup("no such text"), -1);
+        Assert.assertEquals(list.attribute(recycler, "scrollable"), "true");
+        Assert.assertNull(list.attribute(recycler, "no-such-attribute"));
+        Assert.assertTrue(list.right(recycler) > list.left(recycler) && list.isDisplayed(recycler));
+    }
+
+    @Test(description = "UiSelector criteria used by the page objects")
+    public void testUiSelector() {
+        Assert.assertEquals(select("new UiSelector().textStartsWith(\"Item\")").length, 9);
+        Assert.assertEquals(select("new UiSelector().textStartsWith(\"Item\").instance(2)").length, 1);
+        Assert.assertEquals(list.text(single(select("new UiSelector().textStartsWith(\"Item\").instance(2)"))),
+                "Item\u00a03");
+        Assert.assertEquals(select("new UiSelector().textContains(\"list below\")").length, 1);
+        Assert.assertEquals(select("new UiSelector().text(\"List\")").length, 1);
+        Assert.assertEquals(select("new UiSelector().text(\"Nowhere\")").length, 0);
+        Assert.assertEquals(select("new UiSelector().resourceId(\"" + ID_PREFIX + "tabLayout\")").length, 1);
+        Assert.assertEquals(select("new UiSelector().className(\"android.widget.TextView\")").length, 15);
+        Assert.assertEquals(select("new UiSelector().scrollable(true)").length,
+                Locators.find(list, "xpath", "//*[@scrollable='true']").length);
+        Assert.assertTrue(UiSelector.parse("new UiScrollable(new UiSelector().scrollable(true))"
+                + ".scrollIntoView(new UiSelector().text(\"Item 5\"))").isScrollIntoView());
+
+        // Scoped search only looks below the scope node
+        int recycler = single(Locators.find(list, "id", ID_PREFIX + "recyclerView"));
+        Assert.assertEquals(UiSelector.parse("new UiSelector().textStartsWith(\"Item\")").select(list, recycler).length, 9);
+        Assert.assertEquals(UiSelector.parse("new UiSelector().text(\"List\")").select(list, recycler).length, 0);
+        Assert.assertEquals(select("new UiSelector().resourceId(\"" + ID_PREFIX + "recyclerView\")"
+                + ".childSelector(new UiSelector().className(\"android.widget.TextView\").instance(1))").length, 1);
+        Assert.assertEquals(select("new UiSelector().description(\"List\")"
+                + ".childSelector(new UiSelector().className(\"android.widget.TextView\"))").length, 1);
+    }
+
+    @Test(description = "XPath paths, axes, predicates and functions")
+    public void testXPath() {
+        Assert.assertEquals(xpath("//android.widget.TextView[starts-with(@text, 'Item')]").length, 9);
+        Assert.assertEquals(xpath("//*[@resource-id='" + ID_PREFIX + "recyclerView']/*").length, 9);
+        Assert.assertEquals(list.text(single(xpath("(//android.widget.TextView[starts-with(@text,'Item')])[last()]"))),
+                "Item\u00a09");
+        Assert.assertEquals(list.text(single(xpath("(//*[starts-with(@text,'Item')])[position() = 2]"))), "Item\u00a02");
+        Assert.assertEquals(xpath("/hierarchy/*").length, 1, "One top-level node");
+        Assert.assertEquals(single(xpath("/hierarchy/android.widget.FrameLayout")), 0);
+        Assert.assertEquals(xpath("//*[@text='List' or @text='Input']").length, 2);
+        Assert.assertEquals(xpath("//*[contains(@text,'Item') and not(contains(@text,'1'))]").length, 8);
+        Assert.assertEquals(xpath("//*[@resource-id='" + ID_PREFIX + "recyclerView']/*[1]/..").length, 1);
+        Assert.assertEquals(xpath("//*[@text='List']/ancestor::*[@resource-id='" + ID_PREFIX + "tabLayout']").length, 1);
+        Assert.assertEquals(xpath("//*[count(*) = 9]").length, 1, "Only the recycler view has nine children");
+        Assert.assertEquals(xpath("//*[@text='Item\u00a02']/following-sibling::*").length, 7);
+        Assert.assertEquals(xpath("//*[@text='Item\u00a02']/preceding-sibling::*").length, 1);
+        Assert.assertEquals(xpath("//*[@text='List'] | //*[@text='Input']").length, 2);
+
+        int recycler = single(Locators.find(list, "id", ID_PREFIX + "recyclerView"));
+        Assert.assertEquals(XPath.parse(".//android.widget.TextView").select(list, recycler).length, 9,
+                "Relative paths start at the scope element");
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> XPath.parse("//*[@text='x'"));
+        Assert.assertThrows(IllegalArgumentException.class, () -> XPath.parse("//*[ends-with(@text,'x')]").select(list, -1));
+        Assert.assertThrows(IllegalArgumentException.class, () -> XPath.parse("//*/@text").select(list, -1));
+    }
+
+    private int[] select(String uiSelector) {
+        return Locators.find(list, "-android uiautomator", uiSelector);
+    }
+
+    private int[] xpath(String expression) {
+        return Locators.find(list, "xpath", expression);
+    }
+
+    private static int single(int[] nodes) {
+        Assert.assertEquals(nodes.length, 1, "Expected exactly one match");
+        return nodes[0];
+    }
+}
@@ -0,0 +1,98 @@
+package framework;
+
+import config.DriverManager;
+import hierarchy.CompactHierarchy;
+import io.appium.java_client.AppiumBy;
+import org.openqa.selenium.By;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import pages.ListScroller;
+import pages.LoginPage;
+import pages.TestPage;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Verifies that list items are reached with one computed gesture request and one read per pass.
+ */
+public class ListScrollerTest extends StubServerTest {
+
+    private static final By LIST = AppiumBy.id("com.example.trusttest:id/recyclerView");
+    private static final Pattern ITEM = Pattern.compile("Item\\p{Zs}+(\\d+)");
+
+    @AfterMethod(alwaysRun = true)
+    public void closeSession() {
+        DriverManager.quitDriver();
+    }
+
+    @Test(description = "Scrolling to item 15 and back costs one actions request each")
+    public void testScrollDownAndBack() {
+        new LoginPage().loginWithValidCredentials();
+        TestPage testPage = new TestPage();
+        List<String> log = server.getCommandLog(DriverManager.getDriver().getSessionId().toString());
+
+        int before = log.size();
+        Assert.assertEquals(testPage.scrollToItem(15).getText(), "Item\u00a015");
+        List<String> commands = List.copyOf(log.subList(before, log.size()));
+        Assert.assertEquals(count(commands, "POST /actions"), 1, commands.toString());
+        Assert.assertEquals(count(commands, "GET /source"), 2, "One read to plan, one to verify: " + commands);
+
+        before = log.size();
+        Assert.assertEquals(testPage.scrollToItem(1).getText(), "Item\u00a01");
+        Assert.assertEquals(count(log.subList(before, log.size()), "POST /actions"), 1);
+    }
+
+    @Test(description = "Drag accuracy and fling travel are measured from the rows that moved")
+    public void testLearnsFromGestures() {
+        new LoginPage().loginWithValidCredentials();
+        ListScroller scroller = new ListScroller(DriverManager.getDriver(), LIST, ListScrollerTest::itemNumber)
+                .setFlingSettle(Duration.ofMillis(10));
+
+        Assert.assertNotNull(scroller.scrollTo(19), "Item 19 sits out of order but is still found");
+        Assert.assertEquals(scroller.getLastPasses(), 1);
+        Assert.assertNotEquals(scroller.getDragScale(), 1.0, "The first drag calibrates the scale");
+
+        Assert.assertNotNull(scroller.scrollTo(1));
+        Assert.assertEquals(scroller.getLastGestures(), 1, "Beyond two list heights a single fling is sent");
+        Assert.assertTrue(scroller.getFlingTravel() > 1000, "Fling travel " + scroller.getFlingTravel());
+
+        Assert.assertNull(scroller.scrollTo(60), "Past the end of the list the scroller gives up");
+    }
+
+    @Test(description = "Plans come from the dump's geometry, a long list takes flings rather than steps")
+    public void testPlanFromGeometry() {
+        ListScroller.View view = ListScroller.View.of(
+                CompactHierarchy.parse(Path.of("testpage.xml")), LIST, ListScrollerTest::itemNumber);
+        Assert.assertEquals(view.getVisibleItems(), List.of(1, 2, 3, 4, 5, 6, 7, 8, 9));
+        Assert.assertEquals(view.getPitch(), 144.0, 1.0);
+        Assert.assertEquals(view.getListTop(), 626);
+        Assert.assertEquals(view.getListBottom(), 1920);
+
+        ListScroller scroller = new ListScroller(null, LIST, ListScrollerTest::itemNumber);
+        Assert.assertTrue(scroller.plan(view, 5).isEmpty(), "Visible items need no gesture");
+
+        ListScroller.ScrollPlan toFifteen = scroller.plan(view, 15);
+        Assert.assertEquals(toFifteen.getFlings(), 0);
+        Assert.assertEquals(toFifteen.getDrags().size(), 2);
+        Assert.assertEquals(toFifteen.getDirection(), 1);
+
+        Assert.assertEquals(scroller.plan(view, 500).getFlings(), 1, "Unknown fling travel: one fling to measure it");
+        ListScroller.ScrollPlan toFiveHundred = scroller.setFlingTravel(1584).plan(view, 500);
+        Assert.assertEquals(toFiveHundred.getFlings(), 44);
+        Assert.assertTrue(toFiveHundred.getDrags().size() <= 2, toFiveHundred.getDrags().toString());
+    }
+
+    private static int itemNumber(String text) {
+        Matcher matcher = ITEM.matcher(text);
+        return matcher.matches() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+
+    private static long count(List<String> commands, String command) {
+        return commands.stream().filter(command::equals).count();
+    }
+}
@@ -0,0 +1,117 @@
+package framework;
+
+import config.AppConfig;
+import hierarchy.CompactHierarchy;
+import hierarchy.LocatorRewriter;
+import hierarchy.Locators;
+import io.appium.java_client.AppiumBy;
+import metrics.LatencyHistogram;
+import metrics.LocatorCostReport;
+import org.openqa.selenium.By;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Verifies that locator rewrites are proven on the recorded dumps and that the cost report
+ * ranks locators by cumulative time.
+ */
+public class LocatorRewriterTest {
+
+    private static final String UIAUTOMATOR = "-android uiautomator";
+    private static final String ID_PREFIX = "com.example.trusttest:id/";
+
+    private LocatorRewriter rewriter;
+
+    @BeforeClass
+    public void loadDumps() {
+        rewriter = LocatorRewriter.load(Paths.get(AppConfig.getStubDumpDir()));
+    }
+
+    @Test(description = "Text locators with a unique resource-id equivalent are substituted")
+    public void testSubstitutesResourceIds() {
+        By button1 = AppiumBy.androidUIAutomator("new UiSelector().text(\"Button 1\")");
+        Assert.assertEquals(rewriter.rewrite(button1), AppiumBy.id(ID_PREFIX + "button1"));
+        Assert.assertEquals(rewriter.rewrite(AppiumBy.androidUIAutomator("new UiSelector().text(\"Save\")")),
+                AppiumBy.id(ID_PREFIX + "saveButton"));
+        Assert.assertEquals(rewriter.rewrite(AppiumBy.xpath("//*[@text='Button 2']")),
+                AppiumBy.id(ID_PREFIX + "button2"));
+    }
+
+    @Test(description = "Content filters are only proposed: an id would drop the text check")
+    public void testContentFiltersAreOnlyProposed() {
+        By status1 = AppiumBy.androidUIAutomator("new UiSelector().textContains(\"Switch 1:\")");
+        LocatorRewriter.Proposal status = rewriter.propose(UIAUTOMATOR, "new UiSelector().textContains(\"Switch 1:\")");
+        Assert.assertFalse(status.isSubstitutable(), status.toString());
+        Assert.assertEquals(status.getReplacementLocator(), "id=" + ID_PREFIX + "saveStateText");
+        Assert.assertTrue(status.getMatchedScreens() > 1, "Reported with the screens it was seen on");
+        Assert.assertSame(rewriter.rewrite(status1), status1);
+
+        By startsWith = AppiumBy.androidUIAutomator("new UiSelector().textStartsWith(\"Button 1\")");
+        Assert.assertSame(rewriter.rewrite(startsWith), startsWith);
+        By containsXPath = AppiumBy.xpath("//*[contains(@text, 'Button 2')]");
+        Assert.assertSame(rewriter.rewrite(containsXPath), containsXPath);
+    }
+
+    @Test(description = "Nodes without an id of their own only get a scoped selector proposal")
+    public void testScopedSelectorIsOnlyProposed() {
+        By listTab = AppiumBy.androidUIAutomator("new UiSelector().text(\"List\")");
+        LocatorRewriter.Proposal proposal = rewriter.propose(UIAUTOMATOR, "new UiSelector().text(\"List\")");
+
+        Assert.assertFalse(proposal.isSubstitutable());
+        Assert.assertEquals(proposal.getReplacementLocator(), UIAUTOMATOR + "=new UiSelector().description(\"List\")"
+                + ".childSelector(new UiSelector().className(\"android.widget.TextView\").instance(0))");
+        Assert.assertSame(rewriter.rewrite(listTab), listTab);
+
+        CompactHierarchy testPage = CompactHierarchy.parse(Paths.get(AppConfig.getStubDumpDir(), "testpage.xml"));
+        Assert.assertEquals(Locators.compile(proposal.getReplacement()).select(testPage, -1),
+                Locators.compile(listTab).select(testPage, -1));
+    }
+
+    @Test(description = "Locators are kept when no cheaper one is proven equivalent")
+    public void testKeepsUnprovenLocators() {
+        // Item rows share resource-id text1 with the spinner entries on the Input tab
+        Assert.assertFalse(rewriter.propose(UIAUTOMATOR, "new UiSelector().textStartsWith(\"Item\")").hasReplacement());
+        Assert.assertTrue(rewriter.propose(UIAUTOMATOR, "new UiSelector().text(\"Nowhere\")").getReason()
+                .startsWith("matches nothing"));
+        Assert.assertFalse(rewriter.propose("id", ID_PREFIX + "buttonSubmit").hasReplacement());
+        Assert.assertFalse(rewriter.propose(UIAUTOMATOR, "new UiScrollable(new UiSelector().scrollable(true))"
+                + ".scrollIntoView(new UiSelector().text(\"Button 1\"))").hasReplacement());
+        By unsupported = By.cssSelector("button");
+        Assert.assertSame(rewriter.rewrite(unsupported), unsupported);
+    }
+
+    @Test(description = "The report ranks locators by total time and names what was substituted")
+    @SuppressWarnings("unchecked")
+    public void testCostReport() {
+        rewriter.rewrite(AppiumBy.androidUIAutomator("new UiSelector().text(\"Reset states\")"));
+        Map<String, LatencyHistogram> locators = Map.of(
+                "id=" + ID_PREFIX + "resetButton", histogram(3, 100),
+                UIAUTOMATOR + "=new UiSelector().text(\"Buttons\")", histogram(2, 250),
+                "id=" + ID_PREFIX + "editTextUsername", histogram(5, 10));
+
+        List<Map<String, Object>> ranking = LocatorCostReport.rank(locators, rewriter);
+
+        Assert.assertEquals(ranking.get(0).get("locator"), UIAUTOMATOR + "=new UiSelector().text(\"Buttons\")");
+        Assert.assertEquals(ranking.get(0).get("count"), 2L);
+        Assert.assertEquals(ranking.get(0).get("substitutable"), false);
+        Assert.assertTrue(String.valueOf(ranking.get(0).get("replacement")).contains("childSelector"));
+        Assert.assertEquals(ranking.get(1).get("locator"), "id=" + ID_PREFIX + "resetButton");
+        Assert.assertEquals((List<String>) ranking.get(1).get("substitutedFor"),
+                List.of(UIAUTOMATOR + "=new UiSelector().text(\"Reset states\")"));
+        Assert.assertEquals(ranking.get(2).get("locator"), "id=" + ID_PREFIX + "editTextUsername");
+        Assert.assertNull(ranking.get(2).get("replacement"));
+    }
+
+    private static LatencyHistogram histogram(int count, long millis) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < count; i++) {
+            histogram.record(millis * 1_000_000L);
+        }
+        return histogram;
+    }
+}
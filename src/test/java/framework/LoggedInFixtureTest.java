@@ -0,0 +1,101 @@
+package framework;
+
+import config.DriverManager;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import pages.LoggedInFixture;
+import pages.LoggedInFixture.Route;
+import pages.LoginPage;
+import pages.TestPage.Tab;
+import stub.AppModel;
+import stub.TrustTestApp;
+
+import java.util.List;
+
+/**
+ * Verifies that classes starting logged in reach their tab by the quickest route: the app a
+ * previous class left logged in, a deep link, or the login form.
+ */
+public class LoggedInFixtureTest extends StubServerTest {
+
+    @Override
+    protected AppModel createModel() {
+        return super.createModel().onDeepLink("trusttest://tab/buttons", TrustTestApp.BUTTONS);
+    }
+
+    @BeforeClass
+    public void configureLifecycle() {
+        System.setProperty("session.lifecycle", "suite");
+        System.setProperty("session.reset.deferred", "true");
+        LoggedInFixture.reset();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void quitSessions() {
+        System.clearProperty("fixture.deeplink");
+        DriverManager.quitAll();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void clearLifecycle() {
+        System.clearProperty("session.lifecycle");
+        System.clearProperty("session.reset.deferred");
+    }
+
+    @Test(description = "The next class continues from the logged-in app; only a class wanting a fresh app resets it")
+    public void testKeptAliveSessionSkipsLogin() {
+        DriverManager.getDriverKeepingAppState();
+        String sessionId = DriverManager.getCurrentDriver().getSessionId().toString();
+        LoggedInFixture.Result first = new LoggedInFixture().open(Tab.SWITCHES, "SwitchesProbe");
+        Assert.assertEquals(first.getRoute(), Route.UI_LOGIN);
+        Assert.assertTrue(typedCredentials(server.getCommandLog(sessionId)));
+        Assert.assertEquals(server.getApp(sessionId).getState(), TrustTestApp.SWITCHES);
+        DriverManager.releaseDriver();
+        Assert.assertFalse(server.getCommandLog(sessionId).contains("POST /execute/sync mobile: clearApp"),
+                "The reset waits for the next class");
+
+        DriverManager.getDriverKeepingAppState();
+        int commandsBefore = server.getCommandLog(sessionId).size();
+        LoggedInFixture.Result second = new LoggedInFixture().open(Tab.BUTTONS, "ButtonsProbe");
+        Assert.assertEquals(second.getRoute(), Route.KEPT_ALIVE);
+        Assert.assertEquals(server.getApp(sessionId).getState(), TrustTestApp.BUTTONS);
+        List<String> commands = server.getCommandLog(sessionId).subList(commandsBefore,
+                server.getCommandLog(sessionId).size());
+        Assert.assertFalse(typedCredentials(commands), "A tab tap, no login: " + commands);
+        DriverManager.releaseDriver();
+
+        DriverManager.getDriver();
+        Assert.assertTrue(server.getCommandLog(sessionId).contains("POST /execute/sync mobile: clearApp"));
+        Assert.assertTrue(new LoginPage().isLoginScreenDisplayed(),
+                "A class not asking for a logged-in app starts fresh");
+        Assert.assertEquals(LoggedInFixture.getResults().get("ButtonsProbe").getTab(), Tab.BUTTONS);
+        Assert.assertTrue(LoggedInFixture.summaryLines().contains("ButtonsProbe: " + second),
+                LoggedInFixture.summaryLines().toString());
+    }
+
+    @Test(description = "A configured deep link replaces the login form, which stays the fallback")
+    public void testDeepLinkRoute() {
+        System.setProperty("fixture.deeplink", "trusttest://tab/{tab}");
+        DriverManager.getDriverKeepingAppState();
+        String sessionId = DriverManager.getCurrentDriver().getSessionId().toString();
+
+        Assert.assertEquals(new LoggedInFixture().open(Tab.BUTTONS, "DeepLinkProbe").getRoute(), Route.DEEP_LINK);
+        Assert.assertTrue(server.getCommandLog(sessionId).contains("POST /execute/sync mobile: deepLink"));
+        Assert.assertFalse(typedCredentials(server.getCommandLog(sessionId)), "No credentials typed");
+
+        server.getApp(sessionId).reset();
+        // The app has no link for this tab: the intent does not resolve and the form is used
+        Assert.assertEquals(new LoggedInFixture().open(Tab.INPUT, "FallbackProbe").getRoute(), Route.UI_LOGIN);
+        Assert.assertEquals(server.getApp(sessionId).getState(), TrustTestApp.INPUT);
+    }
+
+    /**
+     * Typed into fields one by one or filled with a driver script.
+     */
+    private static boolean typedCredentials(List<String> commands) {
+        return commands.stream().anyMatch(command -> command.endsWith("/value") || command.contains("execute_driver"));
+    }
+}
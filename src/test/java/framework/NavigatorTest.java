@@ -0,0 +1,86 @@
+package framework;
+
+import config.DriverManager;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import pages.Navigator;
+import pages.Navigator.Move;
+import pages.Navigator.Screen;
+import pages.Navigator.Step;
+import pages.TestPage;
+import pages.TestPage.Tab;
+import stub.TrustTestApp;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Verifies that tab navigation plans the fewest moves and skips a tab switch when the session
+ * is already on the tab.
+ */
+public class NavigatorTest extends StubServerTest {
+
+    @BeforeClass
+    public void resetNavigator() {
+        Navigator.reset();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void quitSessions() {
+        DriverManager.quitAll();
+    }
+
+    @Test(description = "Shortest move sequences between the login screen and the tabs")
+    public void testPlan() {
+        Assert.assertEquals(moves(Screen.LOGIN, Screen.SWITCHES), List.of(Move.LOG_IN, Move.TAP_TAB));
+        Assert.assertEquals(moves(Screen.LOGIN, Screen.LIST), List.of(Move.LOG_IN), "Login lands on List");
+        Assert.assertEquals(moves(Screen.BUTTONS, Screen.INPUT), List.of(Move.TAP_TAB));
+        Assert.assertEquals(moves(Screen.INPUT, Screen.LOGIN), List.of(Move.NAVIGATE_UP));
+        Assert.assertTrue(Navigator.plan(Screen.LIST, Screen.LIST).isEmpty());
+        Step last = Navigator.plan(Screen.LOGIN, Screen.SWITCHES).get(1);
+        Assert.assertEquals(last.getFrom(), Screen.LIST);
+        Assert.assertEquals(last.getTo(), Screen.SWITCHES);
+    }
+
+    @Test(description = "A switch to the tab already shown sends no tap; a reset makes the page look again")
+    public void testRedundantSwitchSkipped() {
+        DriverManager.getDriver();
+        String sessionId = DriverManager.getCurrentDriver().getSessionId().toString();
+
+        new TestPage().goToTab(Tab.BUTTONS);
+        Assert.assertEquals(server.getApp(sessionId).getState(), TrustTestApp.BUTTONS);
+        Assert.assertEquals(Navigator.getDetected(), 1, "Started from an unknown screen");
+
+        int clicks = clicks(sessionId);
+        long skipped = Navigator.getSkipped();
+        new TestPage().goToTab(Tab.BUTTONS);
+        Assert.assertEquals(clicks(sessionId), clicks, "No tap for the tab already selected");
+        Assert.assertEquals(Navigator.getSkipped(), skipped + 1);
+
+        TestPage page = new TestPage();
+        page.goToTab(Tab.INPUT);
+        Assert.assertEquals(clicks(sessionId), clicks + 1, "One tap, no screen detection");
+        Assert.assertEquals(Navigator.getDetected(), 1);
+
+        page.goBack();
+        page.goToTab(Tab.LIST);
+        Assert.assertEquals(server.getApp(sessionId).getState(), TrustTestApp.LIST);
+        Assert.assertTrue(page.isOnTab(Tab.LIST, 0));
+
+        DriverManager.resetApp();
+        page.goToTab(Tab.LIST);
+        Assert.assertEquals(Navigator.getDetected(), 2, "The reset dropped what the page knew");
+        Assert.assertEquals(server.getApp(sessionId).getState(), TrustTestApp.LIST);
+        Assert.assertTrue(Navigator.summary().contains("moves skipped"), Navigator.summary());
+    }
+
+    private static List<Move> moves(Screen from, Screen to) {
+        return Navigator.plan(from, to).stream().map(Step::getMove).collect(Collectors.toList());
+    }
+
+    private int clicks(String sessionId) {
+        return (int) server.getCommandLog(sessionId).stream().filter(command -> command.endsWith("/click")).count();
+    }
+}
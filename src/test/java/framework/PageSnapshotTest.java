@@ -0,0 +1,79 @@
+package framework;
+
+import config.DriverManager;
+import io.appium.java_client.AppiumBy;
+import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.Rectangle;
+import org.openqa.selenium.WebElement;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import pages.LoginPage;
+import pages.PageSnapshot;
+import pages.TestPage;
+
+import java.util.List;
+
+/**
+ * Verifies that multi-field reads are answered from one page-source snapshot.
+ */
+public class PageSnapshotTest extends StubServerTest {
+
+    @AfterMethod(alwaysRun = true)
+    public void closeSession() {
+        DriverManager.quitDriver();
+    }
+
+    @Test(description = "Switch statuses cost one page-source read until the next action")
+    public void testSwitchStatusesReadOnce() {
+        new LoginPage().loginWithValidCredentials();
+        TestPage testPage = new TestPage();
+        testPage.goToSwitchesTab();
+        AndroidDriver driver = DriverManager.getDriver();
+        driver.findElement(AppiumBy.id("com.example.trusttest:id/switch1")).click();
+        testPage.clickSave();
+
+        List<String> log = server.getCommandLog(driver.getSessionId().toString());
+        int before = log.size();
+        List<String> statuses = testPage.getSwitchStatuses();
+        testPage.getSwitch2Status();
+        testPage.getSwitch3Status();
+        List<String> commands = log.subList(before, log.size());
+
+        Assert.assertEquals(statuses, List.of("Switch 1: ON", "Switch 2: OFF", "Switch 3: OFF"), "A line per switch");
+        Assert.assertEquals(commands, List.of("GET /source"), "All reads should share one snapshot");
+
+        // Toggling outside the page helpers needs explicit invalidation
+        driver.findElement(AppiumBy.id("com.example.trusttest:id/switch2")).click();
+        testPage.invalidateSnapshot();
+        Assert.assertEquals(testPage.getSwitch2Status(), statuses.get(1), "Not saved yet");
+        testPage.clickSave();
+        Assert.assertEquals(testPage.getSwitch2Status(), "Switch 2: ON", "Save should invalidate the snapshot");
+    }
+
+    @Test(description = "Snapshot queries agree with the live driver")
+    public void testSnapshotMatchesDriver() {
+        AndroidDriver driver = DriverManager.getDriver();
+        By username = AppiumBy.id("com.example.trusttest:id/editTextUsername");
+        By submit = AppiumBy.androidUIAutomator("new UiSelector().text(\"Submit\")");
+        driver.findElement(username).sendKeys("admin");
+
+        PageSnapshot snapshot = PageSnapshot.capture(driver);
+        WebElement live = driver.findElement(username);
+        Assert.assertEquals(snapshot.getText(username), live.getText());
+        Assert.assertEquals(snapshot.getBounds(username), live.getRect());
+        Assert.assertTrue(snapshot.isEnabled(submit));
+        Assert.assertFalse(snapshot.isChecked(submit));
+        Assert.assertTrue(snapshot.isDisplayed(submit));
+        Assert.assertFalse(snapshot.exists(AppiumBy.id("com.example.trusttest:id/textViewError")));
+        Assert.assertThrows(NoSuchElementException.class,
+                () -> snapshot.getText(AppiumBy.accessibilityId("missing")));
+        Assert.assertThrows(IllegalArgumentException.class, () -> snapshot.exists(AppiumBy.androidUIAutomator(
+                "new UiScrollable(new UiSelector().scrollable(true)).scrollIntoView(new UiSelector().text(\"x\"))")));
+
+        Rectangle bounds = snapshot.getBounds(submit);
+        Assert.assertTrue(bounds.getWidth() > 0 && bounds.getHeight() > 0);
+    }
+}
@@ -0,0 +1,57 @@
+package framework;
+
+import config.DriverManager;
+import config.SessionStats;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies warm session reuse across test classes with session.lifecycle=suite.
+ */
+public class SessionLifecycleTest extends StubServerTest {
+
+    @BeforeClass
+    public void keepSessionsWarm() {
+        SessionStats.reset();
+        System.setProperty("session.lifecycle", "suite");
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void clearLifecycle() {
+        System.clearProperty("session.lifecycle");
+    }
+
+    @Test(description = "Released session is reset and handed to the next class instead of quit")
+    public void testSessionIsReusedAcrossClasses() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        String firstId = executor.submit(this::runClass).get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // The next "class" runs on a different worker thread, as with parallel="classes"
+        ExecutorService nextExecutor = Executors.newSingleThreadExecutor();
+        String secondId = nextExecutor.submit(this::runClass).get(30, TimeUnit.SECONDS);
+        nextExecutor.shutdown();
+
+        Assert.assertEquals(secondId, firstId, "Second class should reuse the warm session");
+        Assert.assertTrue(server.isOpen(firstId), "Warm session should stay open until suite end");
+        Assert.assertEquals(server.getCreatedSessionIds().size(), 1, "Only one session should be created");
+        Assert.assertEquals(SessionStats.getSessionsReused(), 1, "One session creation should be saved");
+        Assert.assertTrue(server.getCommandLog(firstId).contains("POST /execute/sync mobile: clearApp"),
+                "App data should be cleared between classes");
+
+        DriverManager.quitAll();
+        Assert.assertFalse(server.isOpen(firstId), "quitAll() should close parked sessions");
+    }
+
+    private String runClass() {
+        String id = DriverManager.getDriver().getSessionId().toString();
+        DriverManager.releaseDriver();
+        return id;
+    }
+}
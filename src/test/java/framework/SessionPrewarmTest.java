@@ -0,0 +1,52 @@
+package framework;
+
+import config.DriverManager;
+import config.SessionStats;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import stub.StubAppiumServer;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Verifies that pre-warmed session creation overlaps with suite setup.
+ */
+public class SessionPrewarmTest extends StubServerTest {
+
+    private static final long HANDSHAKE_MILLIS = 800;
+
+    @Override
+    protected StubAppiumServer createServer() throws IOException {
+        return super.createServer().setSessionCreationLatency(Duration.ofMillis(HANDSHAKE_MILLIS));
+    }
+
+    @BeforeClass
+    public void resetStats() {
+        SessionStats.reset();
+    }
+
+    @Test(description = "First getDriver() awaits the pre-warmed session instead of creating one")
+    public void testFirstTestAwaitsPrewarmedSession() throws Exception {
+        CompletableFuture<Void> prewarm = DriverManager.prewarm();
+
+        // Stand-in for TestNG parsing the suite and running configuration methods
+        Thread.sleep(HANDSHAKE_MILLIS / 2);
+
+        long start = System.nanoTime();
+        String sessionId = DriverManager.getDriver().getSessionId().toString();
+        long waitedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        Assert.assertTrue(prewarm.isDone(), "Pre-warm future should be complete once the session is claimed");
+        Assert.assertEquals(server.getCreatedSessionIds(), List.of(sessionId),
+                "The pre-warmed session should be the only one created");
+        Assert.assertTrue(waitedMillis < HANDSHAKE_MILLIS,
+                "First test should wait less than a full handshake, waited " + waitedMillis + "ms");
+        Assert.assertTrue(SessionStats.getPrewarmOverlapMillis() > 0, "Overlap gained should be reported");
+
+        DriverManager.quitDriver();
+    }
+}
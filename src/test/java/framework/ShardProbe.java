@@ -0,0 +1,56 @@
+package framework;
+
+import config.DriverManager;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Probe classes for {@link ShardingTest}, run by a nested TestNG instance.
+ * Each records which device its session was created on.
+ *
+ * Kept out of ShardingTest so the outer suite does not pick them up as nested test classes.
+ * The holder itself carries no TestNG annotations: TestNG also runs the sibling nested
+ * classes of an annotated enclosing class, which would defeat the sharding under test.
+ */
+public final class ShardProbe {
+
+    /** Device udid each probe class ran on, keyed by simple class name. */
+    static final Map<String, String> devicePerClass = new ConcurrentHashMap<>();
+
+    private ShardProbe() {
+    }
+
+    public abstract static class Probe {
+
+        @BeforeClass
+        public void setUp() {
+            DriverManager.getDriver();
+        }
+
+        @Test
+        public void recordDevice() {
+            devicePerClass.put(getClass().getSimpleName(), DriverManager.getCurrentDevice().getUdid());
+        }
+
+        @AfterClass(alwaysRun = true)
+        public void tearDown() {
+            DriverManager.quitDriver();
+        }
+    }
+
+    public static class One extends Probe {
+    }
+
+    public static class Two extends Probe {
+    }
+
+    public static class Three extends Probe {
+    }
+
+    public static class Four extends Probe {
+    }
+}
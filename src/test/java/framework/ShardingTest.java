@@ -0,0 +1,194 @@
+package framework;
+
+import config.AppConfig;
+import config.DriverManager;
+import org.testng.Assert;
+import org.testng.TestNG;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+import scheduler.DurationHistory;
+import scheduler.DurationHistory.Kind;
+import scheduler.DurationHistory.Outcome;
+import scheduler.ShardScheduler;
+import scheduler.TestOrder;
+import stub.StubAppiumServer;
+import utils.DeviceShardingListener;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies the duration history, class ordering, and duration-aware sharding of test classes
+ * across several stub Appium endpoints.
+ */
+public class ShardingTest {
+
+    private final List<StubAppiumServer> servers = new ArrayList<>();
+    private Path historyFile;
+
+    @BeforeClass
+    public void startServers() throws Exception {
+        servers.add(new StubAppiumServer());
+        servers.add(new StubAppiumServer());
+        historyFile = Files.createTempFile("class-durations", ".properties");
+        Files.delete(historyFile);
+        System.setProperty("history.path", historyFile.toString());
+        System.setProperty("device.list",
+                "phone-a@" + servers.get(0).getUrl() + ",phone-b@" + servers.get(1).getUrl());
+        DriverManager.configureDevices(AppConfig.getDevices());
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServers() throws Exception {
+        System.clearProperty("device.list");
+        System.clearProperty("history.path");
+        DriverManager.quitAll();
+        servers.forEach(StubAppiumServer::close);
+        Files.deleteIfExists(historyFile);
+    }
+
+    @Test(description = "Longest-processing-time-first balances shard totals")
+    public void testLongestFirstBalancesShards() {
+        List<String> classes = List.of("A", "B", "C", "D", "E");
+        Map<String, Long> durations = Map.of("A", 100L, "B", 90L, "C", 50L, "D", 40L, "E", 20L);
+
+        List<ShardScheduler.Shard> shards = ShardScheduler.schedule(classes, durations, 2);
+
+        Assert.assertEquals(shards.get(0).getClasses(), List.of("A", "D", "E"));
+        Assert.assertEquals(shards.get(1).getClasses(), List.of("B", "C"));
+        Assert.assertEquals(shards.get(0).getEstimatedMillis(), 160);
+        Assert.assertEquals(shards.get(1).getEstimatedMillis(), 140);
+    }
+
+    @Test(description = "Classes without history are estimated with the median of known classes")
+    public void testUnknownClassesUseMedianEstimate() {
+        List<ShardScheduler.Shard> shards = ShardScheduler.schedule(
+                List.of("Slow", "New", "Fast"), Map.of("Slow", 300L, "Fast", 100L), 2);
+
+        Assert.assertEquals(shards.get(0).getClasses(), List.of("Slow"));
+        Assert.assertEquals(shards.get(1).getClasses(), List.of("New", "Fast"));
+    }
+
+    @Test(description = "Slowest-first and failing-first orders are stable and keep suite order for ties")
+    public void testClassOrder() {
+        List<String> classes = List.of("A", "B", "C", "D");
+        Map<String, Long> durations = Map.of("A", 10L, "B", 300L, "C", 20L, "D", 300L);
+        Map<String, Double> failureRates = Map.of("C", 0.5, "D", 0.5, "A", 0.1);
+
+        Assert.assertEquals(ShardScheduler.order(classes, durations, failureRates, TestOrder.SUITE), classes);
+        Assert.assertEquals(ShardScheduler.order(classes, durations, failureRates, TestOrder.SLOWEST_FIRST),
+                List.of("B", "D", "C", "A"));
+        Assert.assertEquals(ShardScheduler.order(classes, durations, failureRates, TestOrder.FAILING_FIRST),
+                List.of("C", "D", "A", "B"));
+        Assert.assertEquals(TestOrder.fromConfig("failing-first"), TestOrder.FAILING_FIRST);
+    }
+
+    @Test(description = "History is appended per run, reloaded, queried by percentile and compacted")
+    public void testHistoryAppendsAndCompacts() throws Exception {
+        Path file = Files.createTempDirectory("history").resolve("durations.tsv");
+        Files.writeString(file, "1700000000000\tCLASS\ttests.EarlierTest\t1500\tPASS\t-\n");
+        DurationHistory history = new DurationHistory(file);
+        for (int run = 1; run <= 120; run++) {
+            history.record(Kind.TEST, "tests.LoginTest.testLogin", run * 10L, run % 4 == 0 ? Outcome.FAIL : Outcome.PASS,
+                    "phone-a@http://127.0.0.1:4723");
+            history.record(Kind.CLASS, "tests.LoginTest", run * 20L, Outcome.PASS, null);
+            if (run == 1) {
+                history.save();
+                Assert.assertEquals(Files.readAllLines(file).size(), 3, "The first run is appended to the earlier one");
+            }
+        }
+        history.save();
+
+        DurationHistory reloaded = new DurationHistory(file);
+        Assert.assertEquals(reloaded.getDurations().get("tests.EarlierTest"), 1500L);
+        Assert.assertEquals(reloaded.getSampleCount(Kind.TEST, "tests.LoginTest.testLogin"), 50, "Only recent samples are kept");
+        Assert.assertEquals(reloaded.getPercentile(Kind.TEST, "tests.LoginTest.testLogin", 0.5), 950);
+        Assert.assertEquals(reloaded.getPercentile(Kind.TEST, "tests.LoginTest.testLogin", 0.9), 1150);
+        Assert.assertEquals(reloaded.getPercentile(Kind.TEST, "tests.Unknown", 0.5), -1);
+        Assert.assertEquals(reloaded.getFailureRates(Kind.TEST).get("tests.LoginTest.testLogin"), 0.26, 0.001);
+        Assert.assertEquals(reloaded.getDurations().get("tests.LoginTest"), 1900L);
+        Assert.assertTrue(Files.readAllLines(file).size() <= 101, "Compacted to the kept samples");
+    }
+
+    @Test(description = "Shards sharing one history file keep each other's samples through appends and compaction")
+    public void testHistorySharedByShards() throws Exception {
+        Path file = Files.createTempDirectory("history").resolve("durations.tsv");
+        DurationHistory shardA = new DurationHistory(file);
+        DurationHistory shardB = new DurationHistory(file);
+        for (int run = 1; run <= 60; run++) {
+            shardA.record(Kind.CLASS, "tests.ListTest", 1000, Outcome.PASS, "phone-a");
+            shardB.record(Kind.CLASS, "tests.LoginTest", 2000, Outcome.PASS, "phone-b");
+            CompletableFuture.allOf(CompletableFuture.runAsync(shardA::save), CompletableFuture.runAsync(shardB::save))
+                    .get(10, TimeUnit.SECONDS);
+        }
+
+        DurationHistory reloaded = new DurationHistory(file);
+        Assert.assertEquals(reloaded.getSampleCount(Kind.CLASS, "tests.ListTest"), 50);
+        Assert.assertEquals(reloaded.getSampleCount(Kind.CLASS, "tests.LoginTest"), 50,
+                "A compaction by one shard keeps the other's samples");
+        Assert.assertTrue(Files.readAllLines(file).size() <= 200, "Compacted to the kept samples");
+    }
+
+    @Test(description = "Names whose latest runs are markedly slower than before are reported as trends")
+    public void testHistoryTrends() throws Exception {
+        DurationHistory history = new DurationHistory(Files.createTempDirectory("history").resolve("durations.tsv"));
+        for (int run = 0; run < 20; run++) {
+            boolean recent = run >= 15;
+            history.record(Kind.SUITE, "Trust Test Suite", recent ? 1300 : 1000 + run, Outcome.PASS, null);
+            history.record(Kind.TEST, "tests.ListTest.testScroll", recent ? 3000 : 1000, Outcome.PASS, null);
+            history.record(Kind.TEST, "tests.ListTest.testStable", 1000 + run % 3, Outcome.PASS, null);
+        }
+
+        List<DurationHistory.Trend> trends = history.getTrends(0.2);
+
+        Assert.assertEquals(trends.size(), 2, trends.toString());
+        Assert.assertEquals(trends.get(0).getName(), "tests.ListTest.testScroll");
+        Assert.assertEquals(trends.get(0).getChange(), 2.0, 0.001);
+        Assert.assertEquals(trends.get(1).getKind(), Kind.SUITE);
+        Assert.assertEquals(trends.get(0).toString(), "test tests.ListTest.testScroll: median 1000ms -> 3000ms (+200%)");
+    }
+
+    @Test(description = "Suite is split into one parallel <test> per device and each class runs on its shard's device")
+    public void testSuiteIsShardedAcrossEndpoints() {
+        XmlSuite suite = new XmlSuite();
+        suite.setName("Sharded");
+        XmlTest test = new XmlTest(suite);
+        test.setName("Probes");
+        List<XmlClass> classes = new ArrayList<>();
+        for (Class<?> probe : List.of(ShardProbe.One.class, ShardProbe.Two.class,
+                ShardProbe.Three.class, ShardProbe.Four.class)) {
+            classes.add(new XmlClass(probe));
+        }
+        test.setXmlClasses(classes);
+
+        TestNG testng = new TestNG();
+        testng.setUseDefaultListeners(false);
+        testng.setXmlSuites(List.of(suite));
+        testng.addListener(new DeviceShardingListener());
+        testng.run();
+
+        Assert.assertEquals(testng.getStatus(), 0, "Probe suite should pass");
+        Assert.assertEquals(suite.getTests().size(), 2, "One <test> per device");
+        Assert.assertEquals(suite.getParallel(), XmlSuite.ParallelMode.TESTS);
+        Assert.assertEquals(ShardProbe.devicePerClass.size(), 4, "Every probe class should run");
+        Assert.assertEquals(new HashSet<>(ShardProbe.devicePerClass.values()), Set.of("phone-a", "phone-b"),
+                "Both devices should receive classes");
+        Assert.assertEquals(servers.get(0).getCreatedSessionIds().size()
+                + servers.get(1).getCreatedSessionIds().size(), 4, "One session per class");
+        Assert.assertTrue(Files.exists(historyFile), "Class durations should be recorded for the next run");
+        DurationHistory history = new DurationHistory(historyFile);
+        Assert.assertEquals(history.getDurations().size(), 4, "One sample per probe class");
+        Assert.assertEquals(history.getSampleCount(Kind.SUITE, "Sharded"), 1);
+    }
+}
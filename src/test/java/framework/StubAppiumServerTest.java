@@ -0,0 +1,146 @@
+package framework;
+
+import config.AppConfig;
+import config.DriverManager;
+import hierarchy.UiSelector;
+import io.appium.java_client.AppiumBy;
+import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebElement;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import pages.LoginPage;
+import pages.TestPage;
+import stub.TrustTestApp;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the page objects against the stub server serving the recorded hierarchy dumps.
+ */
+public class StubAppiumServerTest extends StubServerTest {
+
+    @BeforeClass
+    public void shortenImplicitWait() {
+        // Negative checks wait for the implicit timeout on every find; keep them short
+        System.setProperty("timeout.implicit", "1");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void closeSession() {
+        DriverManager.quitDriver();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void restoreImplicitWait() {
+        System.clearProperty("timeout.implicit");
+    }
+
+    @Test(description = "Wrong credentials show the generic error and keep the typed username")
+    public void testInvalidLoginShowsError() {
+        LoginPage loginPage = new LoginPage();
+        Assert.assertTrue(loginPage.isLoginScreenDisplayed());
+
+        loginPage.login("wrong", "secret");
+
+        Assert.assertTrue(loginPage.isGenericErrorDisplayed(), "Generic error should be shown");
+        Assert.assertEquals(loginPage.getUsernameValue(), "wrong");
+        Assert.assertEquals(currentState(), TrustTestApp.LOGIN_ERROR);
+    }
+
+    @Test(description = "Valid login opens the Test page; switches toggle and save their state")
+    public void testLoginAndSaveSwitches() {
+        new LoginPage().loginWithValidCredentials();
+        TestPage testPage = new TestPage();
+        Assert.assertTrue(testPage.isTestPageDisplayed(), "Test page should open after login");
+
+        testPage.goToSwitchesTab();
+        // The recorded switch texts read "Switch 1 OFF", so toggle by resource id
+        AndroidDriver driver = DriverManager.getDriver();
+        driver.findElement(AppiumBy.id("com.example.trusttest:id/switch1")).click();
+        driver.findElement(AppiumBy.id("com.example.trusttest:id/switch2")).click();
+        testPage.clickSave();
+
+        Assert.assertEquals(testPage.getSwitchStatuses(), List.of("Switch 1: ON", "Switch 2: ON", "Switch 3: OFF"));
+        Assert.assertEquals(currentState(), TrustTestApp.SWITCHES);
+    }
+
+    @Test(description = "Scroll gestures and UiScrollable move between the recorded list screens")
+    public void testListScrolling() {
+        new LoginPage().loginWithValidCredentials();
+        AndroidDriver driver = DriverManager.getDriver();
+        Map<String, Object> down = Map.of("left", 100, "top", 500, "width", 200, "height", 500,
+                "direction", "down", "percent", 0.75);
+
+        Assert.assertEquals(driver.executeScript("mobile: scrollGesture", down), true);
+        Assert.assertEquals(currentState(), TrustTestApp.LIST_END);
+        Assert.assertEquals(driver.executeScript("mobile: scrollGesture", down), false,
+                "End of the list should not scroll further");
+
+        new TestPage().goToListTab();
+        WebElement item = driver.findElement(AppiumBy.androidUIAutomator(
+                "new UiScrollable(new UiSelector().scrollable(true))"
+                        + ".scrollIntoView(new UiSelector().textStartsWith(\"Item\").textContains(\"20\"))"));
+        // The app renders list items with a non-breaking space
+        Assert.assertEquals(item.getText(), "Item\u00a020");
+        Assert.assertEquals(currentState(), TrustTestApp.LIST_END);
+    }
+
+    @Test(description = "Elements found before a screen change are stale afterwards")
+    public void testElementsGoStaleAcrossScreens() {
+        AndroidDriver driver = DriverManager.getDriver();
+        WebElement username = driver.findElement(AppiumBy.id("com.example.trusttest:id/editTextUsername"));
+        username.sendKeys(AppConfig.getUsername());
+        Assert.assertEquals(username.getText(), AppConfig.getUsername(), "Typing keeps the element valid");
+
+        driver.findElement(AppiumBy.id("com.example.trusttest:id/editTextPassword"))
+                .sendKeys(AppConfig.getPassword());
+        driver.findElement(AppiumBy.id("com.example.trusttest:id/buttonSubmit")).click();
+
+        Assert.assertThrows(StaleElementReferenceException.class, username::getText);
+    }
+
+    @Test(description = "Injected latency and the implicit wait of failing finds are applied")
+    public void testLatencyInjection() {
+        server.setLatency("getPageSource", Duration.ofMillis(200));
+        try {
+            AndroidDriver driver = DriverManager.getDriver();
+            driver.manage().timeouts().implicitlyWait(Duration.ofMillis(300));
+
+            long start = System.nanoTime();
+            String source = driver.getPageSource();
+            Assert.assertTrue(elapsedMillis(start) >= 200, "Page source should take the injected latency");
+            Assert.assertTrue(source.contains("text=\"Submit\""), "Page source should be the login dump");
+
+            start = System.nanoTime();
+            Assert.assertThrows(NoSuchElementException.class,
+                    () -> driver.findElement(AppiumBy.accessibilityId("missing")));
+            Assert.assertTrue(elapsedMillis(start) >= 300, "Failing find should wait for the implicit timeout");
+        } finally {
+            server.setLatency("getPageSource", Duration.ZERO);
+        }
+    }
+
+    @Test(description = "UiSelector expressions used by the page objects parse and match")
+    public void testUiSelectorParsing() {
+        UiSelector selector = UiSelector.parse("new UiSelector().textContains(\"Switch 1:\").instance(0)");
+        Assert.assertFalse(selector.isScrollIntoView());
+        Assert.assertTrue(UiSelector.parse("new UiScrollable(new UiSelector().scrollable(true))"
+                + ".scrollIntoView(new UiSelector().text(\"Item 5\"))").isScrollIntoView());
+        Assert.assertThrows(IllegalArgumentException.class, () -> UiSelector.parse("new UiSelector().bogus(1)"));
+    }
+
+    private String currentState() {
+        return server.getApp(DriverManager.getDriver().getSessionId().toString()).getState();
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
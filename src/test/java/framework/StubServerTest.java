@@ -0,0 +1,58 @@
+package framework;
+
+import config.AppConfig;
+import config.DeviceTarget;
+import config.DriverManager;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import stub.AppModel;
+import stub.StubAppiumServer;
+import stub.TrustTestApp;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Base for framework tests run against an in-process stub Appium server, no device needed.
+ *
+ * The server is started before the class and made the only device; after the class every
+ * session is quit and the server closed. Subclasses pick another app model with
+ * {@link #createModel()} or inject latency with {@link #createServer()}. Their own
+ * {@code @BeforeClass} methods run once the server is up, their {@code @AfterClass} methods
+ * before it is closed.
+ */
+public abstract class StubServerTest {
+
+    protected StubAppiumServer server;
+    protected DeviceTarget device;
+
+    /**
+     * The app the server simulates: the Trust Test app from the dumps in stub.dumps.
+     */
+    protected AppModel createModel() {
+        return TrustTestApp.model(Paths.get(AppConfig.getStubDumpDir()));
+    }
+
+    /**
+     * The server on a free local port; override to set latencies before the first session.
+     */
+    protected StubAppiumServer createServer() throws IOException {
+        return new StubAppiumServer(createModel(), 0);
+    }
+
+    @BeforeClass
+    public void startServer() throws Exception {
+        server = createServer();
+        device = new DeviceTarget(getClass().getSimpleName(), server.getUrl());
+        DriverManager.configureDevices(List.of(device));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() {
+        DriverManager.quitAll();
+        if (server != null) {
+            server.close();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package framework;
+
+import config.DriverManager;
+import io.appium.java_client.AppiumBy;
+import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.By;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.Rectangle;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import pages.LoginPage;
+import pages.PageSnapshot;
+import pages.TapSequence;
+import pages.TestPage;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Verifies that tap sequences are sent as one W3C Actions request and land on the right elements.
+ */
+public class TapSequenceTest extends StubServerTest {
+
+    private static final By SWITCH_1 = AppiumBy.id("com.example.trusttest:id/switch1");
+    private static final By SWITCH_2 = AppiumBy.id("com.example.trusttest:id/switch2");
+    private static final By SAVE = AppiumBy.id("com.example.trusttest:id/saveButton");
+
+    @AfterMethod(alwaysRun = true)
+    public void closeSession() {
+        DriverManager.quitDriver();
+    }
+
+    @Test(description = "Five button taps cost one actions request and a find per distinct button")
+    public void testTapsAreOneRequest() {
+        new LoginPage().loginWithValidCredentials();
+        TestPage testPage = new TestPage();
+        testPage.goToButtonsTab();
+        List<String> log = commandLog();
+
+        int before = log.size();
+        testPage.tapButtons(Duration.ofMillis(20), 1, 1, 1, 2, 3);
+        List<String> commands = List.copyOf(log.subList(before, log.size()));
+        Assert.assertEquals(count(commands, "POST /element"), 3, "One find per distinct button: " + commands);
+        Assert.assertEquals(count(commands, "POST /actions"), 1);
+        Assert.assertTrue(commands.stream().noneMatch(command -> command.endsWith("/click")), commands.toString());
+
+        before = log.size();
+        testPage.tapButtons(Duration.ofMillis(20), 3, 2, 1);
+        Assert.assertEquals(log.subList(before, log.size()), List.of("POST /actions"),
+                "Cached buttons need no find at all");
+    }
+
+    @Test(description = "Element and point taps reach the app, with the configured pauses")
+    public void testTapsReachApp() {
+        SwitchesPage page = openSwitches();
+        Rectangle save = PageSnapshot.capture(DriverManager.getDriver()).getBounds(SAVE);
+
+        long start = System.nanoTime();
+        page.perform(new TapSequence(Duration.ofMillis(100))
+                .tap(SWITCH_1, 2)
+                .tap(SWITCH_2)
+                .pause(Duration.ofMillis(150))
+                .tap(new Point(save.getX() + save.getWidth() / 2, save.getY() + save.getHeight() / 2)));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        Assert.assertEquals(page.getSwitchStatuses(), List.of("Switch 1: OFF", "Switch 2: ON", "Switch 3: OFF"));
+        Assert.assertTrue(elapsedMillis >= 450, "Three intervals and the extra pause take " + elapsedMillis + "ms");
+    }
+
+    @Test(description = "A stale target fails the request before any tap and is retried once")
+    public void testStaleTargetRetried() {
+        SwitchesPage page = openSwitches();
+        page.perform(new TapSequence(Duration.ZERO).tap(SWITCH_1));
+
+        // Re-open the tab behind the page's back: the switch is OFF again and its handle stale
+        AndroidDriver driver = DriverManager.getDriver();
+        driver.findElement(AppiumBy.accessibilityId("List")).click();
+        driver.findElement(AppiumBy.accessibilityId("Switches")).click();
+
+        List<String> log = commandLog();
+        int before = log.size();
+        page.perform(new TapSequence(Duration.ZERO).tap(SWITCH_1).tap(SAVE));
+        Assert.assertEquals(count(log.subList(before, log.size()), "POST /actions"), 2, "Rejected, then retried");
+        Assert.assertEquals(page.getSwitchStatuses(), List.of("Switch 1: ON", "Switch 2: OFF", "Switch 3: OFF"),
+                "Switch 1 must be toggled exactly once");
+    }
+
+    private SwitchesPage openSwitches() {
+        new LoginPage().loginWithValidCredentials();
+        SwitchesPage page = new SwitchesPage();
+        page.goToSwitchesTab();
+        return page;
+    }
+
+    private List<String> commandLog() {
+        return server.getCommandLog(DriverManager.getDriver().getSessionId().toString());
+    }
+
+    private static long count(List<String> commands, String command) {
+        return commands.stream().filter(command::equals).count();
+    }
+
+    /**
+     * Exposes the protected tap helper for arbitrary sequences.
+     */
+    private static class SwitchesPage extends TestPage {
+        void perform(TapSequence taps) {
+            tap(taps);
+        }
+    }
+}
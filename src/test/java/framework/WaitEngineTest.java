@@ -0,0 +1,187 @@
+package framework;
+
+import config.DriverManager;
+import io.appium.java_client.AppiumBy;
+import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.TimeoutException;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import pages.LoginPage;
+import pages.TestPage;
+import stub.RunningApp;
+import stub.TrustTestApp;
+import waits.WaitEngine;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies that presence/absence probes do not pay the session's implicit wait.
+ */
+public class WaitEngineTest extends StubServerTest {
+
+    private static final By ERROR = AppiumBy.id("com.example.trusttest:id/textViewError");
+    private static final By SUBMIT = AppiumBy.id("com.example.trusttest:id/buttonSubmit");
+
+    @BeforeClass
+    public void lengthenImplicitWait() {
+        // Long enough that paying it once would fail the timing assertions below
+        System.setProperty("timeout.implicit", "3");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void closeSession() {
+        DriverManager.quitDriver();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void restoreImplicitWait() {
+        System.clearProperty("timeout.implicit");
+    }
+
+    @Test(description = "Negative page checks return without the implicit wait, which is restored afterwards")
+    public void testNegativeChecksSkipImplicitWait() {
+        TestPage testPage = new TestPage();
+
+        long start = System.nanoTime();
+        Assert.assertFalse(testPage.isTestPageDisplayed(0), "Login screen is not the Test page");
+        Assert.assertFalse(testPage.isItemVisible(15, 0), "List is not shown on the login screen");
+        Assert.assertTrue(elapsedMillis(start) < 1000, "Single-shot probes took " + elapsedMillis(start) + "ms");
+
+        start = System.nanoTime();
+        Assert.assertFalse(new LoginPage().isErrorDisplayed(), "No error before submitting");
+        long elapsed = elapsedMillis(start);
+        Assert.assertTrue(elapsed >= 3000 && elapsed < 4500,
+                "Timed probe should take its own 3s timeout without stacking the implicit wait, took " + elapsed + "ms");
+
+        AndroidDriver driver = DriverManager.getDriver();
+        Assert.assertEquals(driver.manage().timeouts().getImplicitWaitTimeout(), Duration.ofSeconds(3));
+        start = System.nanoTime();
+        Assert.assertThrows(NoSuchElementException.class, () -> driver.findElement(ERROR));
+        Assert.assertTrue(elapsedMillis(start) >= 3000, "Plain finds should still honour the implicit wait");
+    }
+
+    @Test(description = "Polling backs off between misses and stops at the timeout")
+    public void testPollingBacksOff() {
+        WaitEngine waits = DriverManager.getWaitEngine()
+                .setPolling(Duration.ofMillis(100), 2, Duration.ofMillis(400));
+        String sessionId = DriverManager.getDriver().getSessionId().toString();
+        int before = server.getCommandCount(sessionId);
+
+        long start = System.nanoTime();
+        Assert.assertFalse(waits.isPresent(ERROR, Duration.ofMillis(1500)));
+        Assert.assertTrue(elapsedMillis(start) >= 1500);
+
+        // Pauses of 100, 200, 400, 400, 400 ms: six finds, plus switching the implicit wait off and back on
+        long finds = server.getCommandLog(sessionId).subList(before, server.getCommandCount(sessionId)).stream()
+                .filter(command -> command.equals("POST /elements"))
+                .count();
+        Assert.assertTrue(finds >= 5 && finds <= 7, "Expected about 6 polls, got " + finds);
+        Assert.assertTrue(waits.isPresent(SUBMIT, Duration.ZERO), "Present element is found on the first poll");
+    }
+
+    @Test(description = "assertAbsentWithin returns once the element disappears and fails if it stays")
+    public void testAssertAbsentWithin() throws Exception {
+        WaitEngine waits = DriverManager.getWaitEngine();
+        RunningApp app = server.getApp(DriverManager.getDriver().getSessionId().toString());
+
+        waits.assertAbsentWithin(ERROR, Duration.ZERO);
+
+        app.goTo(TrustTestApp.LOGIN_ERROR);
+        Assert.assertThrows(TimeoutException.class, () -> waits.assertAbsentWithin(ERROR, Duration.ofMillis(300)));
+
+        // The error goes away while the check is polling
+        CompletableFuture<Void> dismiss = CompletableFuture.runAsync(() -> {
+            sleep(500);
+            app.goTo(TrustTestApp.LOGIN);
+        });
+        long start = System.nanoTime();
+        waits.assertAbsentWithin(ERROR, Duration.ofSeconds(5));
+        long elapsed = elapsedMillis(start);
+        Assert.assertTrue(elapsed >= 500 && elapsed < 2500, "Should return soon after the error is gone, took " + elapsed + "ms");
+        dismiss.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test(description = "waitForStable returns one quiet period after the last change, and times out on a busy screen")
+    public void testWaitForStable() throws Exception {
+        WaitEngine waits = DriverManager.getWaitEngine().setPolling(Duration.ofMillis(50), 1, Duration.ofMillis(50));
+        RunningApp app = server.getApp(DriverManager.getDriver().getSessionId().toString());
+        Duration quiet = Duration.ofMillis(300);
+
+        long start = System.nanoTime();
+        String source = waits.waitForStable(null, quiet, Duration.ofSeconds(5));
+        long elapsed = elapsedMillis(start);
+        Assert.assertTrue(elapsed >= 300 && elapsed < 1000, "A still screen settles after one quiet period, took " + elapsed + "ms");
+        Assert.assertTrue(source.contains("buttonSubmit"), "The settled source is returned");
+
+        // The screen flips every 100ms for 700ms, then stays
+        CompletableFuture<Void> flips = CompletableFuture.runAsync(() -> flip(app, 7));
+        start = System.nanoTime();
+        waits.waitForStable(null, quiet, Duration.ofSeconds(5));
+        elapsed = elapsedMillis(start);
+        Assert.assertTrue(elapsed >= 900 && elapsed < 2000, "Should settle a quiet period after the flipping stops, took " + elapsed + "ms");
+        flips.get(1, TimeUnit.SECONDS);
+
+        // Changes outside the watched region do not count
+        flips = CompletableFuture.runAsync(() -> flip(app, 7));
+        start = System.nanoTime();
+        waits.waitForStable(AppiumBy.id("com.example.trusttest:id/tabLayout"), quiet, Duration.ofSeconds(5));
+        Assert.assertTrue(elapsedMillis(start) < 650, "Region stayed still, took " + elapsedMillis(start) + "ms");
+        flips.get(2, TimeUnit.SECONDS);
+
+        flips = CompletableFuture.runAsync(() -> flip(app, 20));
+        Assert.assertThrows(TimeoutException.class, () -> waits.waitForStable(null, quiet, Duration.ofMillis(800)));
+        flips.get(3, TimeUnit.SECONDS);
+    }
+
+    @Test(description = "waitForChange waits for a change that starts after one quiet period, and times out when none comes")
+    public void testWaitForChange() throws Exception {
+        WaitEngine waits = DriverManager.getWaitEngine().setPolling(Duration.ofMillis(50), 1, Duration.ofMillis(50));
+        RunningApp app = server.getApp(DriverManager.getDriver().getSessionId().toString());
+        Duration quiet = Duration.ofMillis(300);
+        String before = DriverManager.getDriver().getPageSource();
+
+        // waitForStable would return after 300ms, before this change starts
+        CompletableFuture<Void> late = CompletableFuture.runAsync(() -> {
+            sleep(600);
+            app.goTo(TrustTestApp.LIST);
+        });
+        long start = System.nanoTime();
+        String source = waits.waitForChange(null, before, quiet, Duration.ofSeconds(5));
+        long elapsed = elapsedMillis(start);
+        Assert.assertTrue(elapsed >= 900 && elapsed < 2500, "Should settle a quiet period after the late change, took " + elapsed + "ms");
+        Assert.assertFalse(source.contains("buttonSubmit"), "The changed screen is returned");
+        late.get(1, TimeUnit.SECONDS);
+
+        // Nothing changes: the screen is taken as settled once the timeout expires
+        start = System.nanoTime();
+        Assert.assertEquals(waits.waitForChange(null, source, quiet, Duration.ofMillis(800)), source);
+        Assert.assertTrue(elapsedMillis(start) >= 800, "Waits out the timeout for a change first");
+    }
+
+    private static void flip(RunningApp app, int times) {
+        for (int i = 0; i < times; i++) {
+            app.goTo(i % 2 == 0 ? TrustTestApp.LIST_END : TrustTestApp.LIST);
+            sleep(100);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
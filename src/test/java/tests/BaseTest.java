@@ -1,16 +1,24 @@
 package tests;
 
+import config.AppConfig;
 import config.DriverManager;
+import metrics.TimeBudget;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
+import pages.LoggedInFixture;
 import pages.LoginPage;
 import pages.TestPage;
+import pages.TestPage.Tab;
+
+import java.time.Duration;
 
 /**
  * Base test class that all test classes should extend.
  * Handles driver setup/teardown and provides common functionality.
+ * Classes that start logged in on a tab override {@link #loggedInTab()}; the
+ * {@link LoggedInFixture} gets them there by the quickest available route.
  */
 public class BaseTest {
     
@@ -24,9 +32,23 @@ public class BaseTest {
     @BeforeClass(alwaysRun = true)
     public void setUp() {
         System.out.println("\n🚀 Initializing test session...");
-        // Driver is initialized lazily when first accessed
-        DriverManager.getDriver();
-        System.out.println("✅ Driver initialized successfully!");
+        Tab tab = loggedInTab();
+        if (tab == null) {
+            // Driver is initialized lazily when first accessed
+            DriverManager.getDriver();
+            System.out.println("✅ Driver initialized successfully!");
+            return;
+        }
+        // Whatever the previous class left logged in is a head start, not something to reset
+        DriverManager.getDriverKeepingAppState();
+        new LoggedInFixture().open(tab, getClass().getSimpleName());
+    }
+    
+    /**
+     * Tab the class's tests start on, logged in; null (the default) to start on a freshly reset app.
+     */
+    protected Tab loggedInTab() {
+        return null;
     }
     
     /**
@@ -51,13 +73,14 @@ public class BaseTest {
     
     /**
      * Cleanup after all tests in the class.
-     * Quits the driver.
+     * Quits the driver, or resets the app and keeps the session warm when
+     * session.lifecycle=suite.
      */
     @AfterClass(alwaysRun = true)
     public void tearDown() {
         System.out.println("\n🧹 Cleaning up test session...");
-        DriverManager.quitDriver();
-        System.out.println("✅ Driver quit successfully!");
+        DriverManager.releaseDriver();
+        System.out.println("✅ Driver released (lifecycle: " + AppConfig.getSessionLifecycle() + ")");
     }
     
     /**
@@ -70,14 +93,11 @@ public class BaseTest {
     
     /**
      * Helper method to wait for a specific duration.
-     * Use sparingly - prefer explicit waits in page objects.
+     * Use sparingly - prefer waitForStable() or explicit waits in page objects.
+     * Accounted as SLEEP in the per-test time budget.
      */
     protected void sleep(int milliseconds) {
-        try {
-            Thread.sleep(milliseconds);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+        TimeBudget.sleep(Duration.ofMillis(milliseconds));
     }
 }
 
@@ -2,8 +2,10 @@ package tests;
 
 import org.openqa.selenium.WebElement;
 import org.testng.Assert;
-import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
+import pages.TestPage.Tab;
+
+import java.time.Duration;
 
 /**
  * Test class for Buttons Tab functionality.
@@ -11,29 +13,15 @@ import org.testng.annotations.Test;
  */
 public class ButtonsTest extends BaseTest {
     
-    @BeforeClass(alwaysRun = true)
     @Override
-    public void setUp() {
-        super.setUp();
-        // Login and navigate to Buttons tab
-        loginPage = new pages.LoginPage();
-        testPage = new pages.TestPage();
-        
-        if (loginPage.isLoginScreenDisplayed()) {
-            loginPage.loginWithValidCredentials();
-        }
-        testPage.goToButtonsTab();
+    protected Tab loggedInTab() {
+        return Tab.BUTTONS;
     }
     
     @Test(priority = 1, description = "Verify Buttons tab displays all three buttons")
     public void testButtonsDisplayed() {
-        WebElement btn1 = testPage.getButton1Element();
-        WebElement btn2 = testPage.getButton2Element();
-        WebElement btn3 = testPage.getButton3Element();
-        
-        Assert.assertNotNull(btn1, "Button 1 should be displayed");
-        Assert.assertNotNull(btn2, "Button 2 should be displayed");
-        Assert.assertNotNull(btn3, "Button 3 should be displayed");
+        Assert.assertTrue(testPage.areAllButtonsDisplayed(),
+                "Buttons 1, 2 and 3 should be displayed");
     }
     
     @Test(priority = 2, description = "Verify Reset button is displayed")
@@ -87,9 +75,8 @@ public class ButtonsTest extends BaseTest {
         testPage.clickResetStates();
         
         // Verify all buttons are still present (reset worked without errors)
-        Assert.assertNotNull(testPage.getButton1Element(), "Button 1 should be present after reset");
-        Assert.assertNotNull(testPage.getButton2Element(), "Button 2 should be present after reset");
-        Assert.assertNotNull(testPage.getButton3Element(), "Button 3 should be present after reset");
+        Assert.assertTrue(testPage.areAllButtonsDisplayed(),
+                "Buttons 1, 2 and 3 should be present after reset");
         
         System.out.println("✅ Reset completed successfully");
     }
@@ -98,16 +85,13 @@ public class ButtonsTest extends BaseTest {
     public void testButtonColorCycle() {
         // Reset first
         testPage.clickResetStates();
-        sleep(500);
+        testPage.waitForStable();
         
-        // Click Button 1 three times to go through color cycle (blue -> green -> red -> blue)
+        // Tap Button 1 three times to go through color cycle (blue -> green -> red -> blue),
+        // as one gesture at a human tapping rate
         System.out.println("📋 Testing color cycle for Button 1:");
-        
-        for (int i = 1; i <= 3; i++) {
-            testPage.clickButton1();
-            sleep(300);
-            System.out.println("   Click " + i + " completed");
-        }
+        testPage.tapButtons(Duration.ofMillis(300), 1, 1, 1);
+        System.out.println("   3 taps completed");
         
         // Verify button is still functional
         WebElement button1 = testPage.getButton1Element();
@@ -118,15 +102,10 @@ public class ButtonsTest extends BaseTest {
     public void testAllButtonsSequence() {
         // Reset first
         testPage.clickResetStates();
-        sleep(500);
+        testPage.waitForStable();
         
-        // Click each button once
-        testPage.clickButton1();
-        sleep(200);
-        testPage.clickButton2();
-        sleep(200);
-        testPage.clickButton3();
-        sleep(200);
+        // Tap each button once, 200ms apart
+        testPage.tapButtons(Duration.ofMillis(200), 1, 2, 3);
         
         // All buttons should still be present
         Assert.assertNotNull(testPage.getButton1Element(), "Button 1 present after sequence");
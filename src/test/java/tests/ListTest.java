@@ -1,8 +1,9 @@
 package tests;
 
 import org.testng.Assert;
-import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
+import pages.TestPage.Tab;
+import utils.ReplayMode;
 
 /**
  * Test class for List Tab functionality.
@@ -10,18 +11,9 @@ import org.testng.annotations.Test;
  */
 public class ListTest extends BaseTest {
     
-    @BeforeClass(alwaysRun = true)
     @Override
-    public void setUp() {
-        super.setUp();
-        // Login and navigate to List tab
-        loginPage = new pages.LoginPage();
-        testPage = new pages.TestPage();
-        
-        if (loginPage.isLoginScreenDisplayed()) {
-            loginPage.loginWithValidCredentials();
-        }
-        testPage.goToListTab();
+    protected Tab loggedInTab() {
+        return Tab.LIST;
     }
     
     @Test(priority = 1, description = "Verify List tab displays items")
@@ -39,10 +31,10 @@ public class ListTest extends BaseTest {
                 "Item 1 should be visible at the top of the list");
     }
     
-    @Test(priority = 3, description = "Verify scrolling down reveals more items")
+    @Test(priority = 3, groups = ReplayMode.DEVICE_ONLY, description = "Verify scrolling down reveals more items")
     public void testScrollDown() {
-        // Check if Item 15 is initially visible
-        boolean item15VisibleBefore = testPage.isItemVisible(15);
+        // Check if Item 15 is initially visible; once, instead of waiting for it
+        boolean item15VisibleBefore = testPage.isItemVisible(15, 0);
         System.out.println("📋 Item 15 visible before scroll: " + item15VisibleBefore);
         
         // Scroll to Item 15
@@ -53,7 +45,7 @@ public class ListTest extends BaseTest {
                 "Item 15 should be visible after scrolling");
     }
     
-    @Test(priority = 4, description = "Verify scrolling up returns to top items")
+    @Test(priority = 4, groups = ReplayMode.DEVICE_ONLY, description = "Verify scrolling up returns to top items")
     public void testScrollUp() {
         // First scroll down
         testPage.scrollToItem(15);
@@ -66,7 +58,7 @@ public class ListTest extends BaseTest {
                 "Item 1 should be visible after scrolling back up");
     }
     
-    @Test(priority = 5, description = "Verify clicking on list item triggers interaction")
+    @Test(priority = 5, groups = ReplayMode.DEVICE_ONLY, description = "Verify clicking on list item triggers interaction")
     public void testClickListItem() {
         // Make sure Item 1 is visible
         testPage.scrollToItem(1);
@@ -80,7 +72,7 @@ public class ListTest extends BaseTest {
                 "Should remain on Test page after clicking item");
     }
     
-    @Test(priority = 6, description = "Verify multiple items can be scrolled through")
+    @Test(priority = 6, groups = ReplayMode.DEVICE_ONLY, description = "Verify multiple items can be scrolled through")
     public void testScrollThroughMultipleItems() {
         // Scroll through items 5, 10, 15
         int[] itemsToCheck = {5, 10, 15};
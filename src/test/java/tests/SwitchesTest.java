@@ -1,8 +1,10 @@
 package tests;
 
 import org.testng.Assert;
-import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
+import pages.TestPage.Tab;
+
+import java.util.List;
 
 /**
  * Test class for Switches Tab functionality.
@@ -10,18 +12,9 @@ import org.testng.annotations.Test;
  */
 public class SwitchesTest extends BaseTest {
     
-    @BeforeClass(alwaysRun = true)
     @Override
-    public void setUp() {
-        super.setUp();
-        // Login and navigate to Switches tab
-        loginPage = new pages.LoginPage();
-        testPage = new pages.TestPage();
-        
-        if (loginPage.isLoginScreenDisplayed()) {
-            loginPage.loginWithValidCredentials();
-        }
-        testPage.goToSwitchesTab();
+    protected Tab loggedInTab() {
+        return Tab.SWITCHES;
     }
     
     @Test(priority = 1, description = "Verify Switches tab displays Save button")
@@ -34,11 +27,11 @@ public class SwitchesTest extends BaseTest {
     public void testToggleSwitch1() {
         // Toggle Switch 1
         testPage.toggleSwitch1();
-        sleep(300);
+        testPage.waitForStable();
         
         // Click Save to persist state
         testPage.clickSave();
-        sleep(300);
+        testPage.waitForStable();
         
         // Get status - should show ON or OFF
         String status = testPage.getSwitch1Status();
@@ -51,9 +44,9 @@ public class SwitchesTest extends BaseTest {
     @Test(priority = 3, description = "Verify Switch 2 can be toggled")
     public void testToggleSwitch2() {
         testPage.toggleSwitch2();
-        sleep(300);
+        testPage.waitForStable();
         testPage.clickSave();
-        sleep(300);
+        testPage.waitForStable();
         
         String status = testPage.getSwitch2Status();
         System.out.println("📋 Switch 2 status: " + status);
@@ -65,9 +58,9 @@ public class SwitchesTest extends BaseTest {
     @Test(priority = 4, description = "Verify Switch 3 can be toggled")
     public void testToggleSwitch3() {
         testPage.toggleSwitch3();
-        sleep(300);
+        testPage.waitForStable();
         testPage.clickSave();
-        sleep(300);
+        testPage.waitForStable();
         
         String status = testPage.getSwitch3Status();
         System.out.println("📋 Switch 3 status: " + status);
@@ -82,16 +75,17 @@ public class SwitchesTest extends BaseTest {
         testPage.toggleSwitch1();
         testPage.toggleSwitch2();
         testPage.toggleSwitch3();
-        sleep(300);
+        testPage.waitForStable();
         
         // Save state
         testPage.clickSave();
-        sleep(500);
+        testPage.waitForStable();
         
-        // Get all statuses
-        String status1 = testPage.getSwitch1Status();
-        String status2 = testPage.getSwitch2Status();
-        String status3 = testPage.getSwitch3Status();
+        // Get all statuses (one page-source read)
+        List<String> statuses = testPage.getSwitchStatuses();
+        String status1 = statuses.get(0);
+        String status2 = statuses.get(1);
+        String status3 = statuses.get(2);
         
         System.out.println("📋 All switch statuses after toggle:");
         System.out.println("   " + status1);
@@ -112,11 +106,11 @@ public class SwitchesTest extends BaseTest {
         
         // Toggle Switch 1
         testPage.toggleSwitch1();
-        sleep(300);
+        testPage.waitForStable();
         
         // Save
         testPage.clickSave();
-        sleep(500);
+        testPage.waitForStable();
         
         // Verify status changed
         String newStatus1 = testPage.getSwitch1Status();
@@ -130,11 +124,12 @@ public class SwitchesTest extends BaseTest {
     @Test(priority = 7, description = "Verify switch status pattern: OFF or ON displayed")
     public void testSwitchStatusPattern() {
         testPage.clickSave();
-        sleep(300);
+        testPage.waitForStable();
         
-        String status1 = testPage.getSwitch1Status();
-        String status2 = testPage.getSwitch2Status();
-        String status3 = testPage.getSwitch3Status();
+        List<String> statuses = testPage.getSwitchStatuses();
+        String status1 = statuses.get(0);
+        String status2 = statuses.get(1);
+        String status3 = statuses.get(2);
         
         // Verify each status contains either ON or OFF
         Assert.assertTrue(
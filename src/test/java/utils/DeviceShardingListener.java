@@ -0,0 +1,208 @@
+package utils;
+
+import config.AppConfig;
+import config.DeviceTarget;
+import config.DriverManager;
+import metrics.EventJournal;
+import org.testng.IAlterSuiteListener;
+import org.testng.IClassListener;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestClass;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+import scheduler.DurationHistory;
+import scheduler.DurationHistory.Kind;
+import scheduler.DurationHistory.Outcome;
+import scheduler.ShardScheduler;
+import scheduler.TestOrder;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * TestNG listener that shards test classes across all configured devices.
+ * 
+ * With more than one device in device.list, every suite is rewritten into one
+ * &lt;test&gt; per device (run in parallel), with classes balanced by their historical
+ * durations. Each class is bound to its shard's device before its setup runs.
+ * Classes run in the configured schedule.order (suite, slowest-first, failing-first), with
+ * or without sharding. Suite, class and test durations, outcomes and devices of every run are
+ * appended to the duration history to feed the next schedule; tests that got slower are
+ * reported at suite end.
+ */
+public class DeviceShardingListener implements IAlterSuiteListener, IClassListener, ISuiteListener, ITestListener {
+    
+    static final String UDID_PARAMETER = "device.udid";
+    static final String URL_PARAMETER = "appium.url";
+    
+    private final DurationHistory history = new DurationHistory(Paths.get(AppConfig.getDurationHistoryPath()));
+    private final Map<String, Long> classStarts = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> classFailed = new ConcurrentHashMap<>();
+    private final Map<String, String> classDevices = new ConcurrentHashMap<>();
+    // The plan is made before the suite starts (and its journal with it), so it is recorded in onStart
+    private final Map<String, ShardScheduler.Shard> shardPlan = new LinkedHashMap<>();
+    private volatile long suiteStart;
+    
+    @Override
+    public void alter(List<XmlSuite> suites) {
+        // The replay server replaces the configured devices before they are counted
+        ReplayMode.startIfEnabled();
+        ReplayMode.excludeDeviceOnlyTests(suites);
+        List<DeviceTarget> devices = DriverManager.getDevices();
+        for (XmlSuite suite : suites) {
+            if (devices.size() < 2) {
+                order(suite);
+            } else {
+                shard(suite, devices);
+            }
+        }
+    }
+    
+    private List<String> order(List<String> classes) {
+        return ShardScheduler.order(classes, history.getDurations(),
+                history.getFailureRates(Kind.CLASS), AppConfig.getTestOrder());
+    }
+    
+    private void order(XmlSuite suite) {
+        if (AppConfig.getTestOrder() == TestOrder.SUITE) {
+            return;
+        }
+        for (XmlTest test : suite.getTests()) {
+            Map<String, XmlClass> classes = new LinkedHashMap<>();
+            for (XmlClass xmlClass : test.getXmlClasses()) {
+                classes.putIfAbsent(xmlClass.getName(), xmlClass);
+            }
+            List<XmlClass> ordered = new ArrayList<>();
+            for (String name : order(new ArrayList<>(classes.keySet()))) {
+                ordered.add(classes.get(name));
+            }
+            test.setXmlClasses(ordered);
+        }
+    }
+    
+    private void shard(XmlSuite suite, List<DeviceTarget> devices) {
+        if (suite.getTests().isEmpty()) {
+            return;
+        }
+        Map<String, XmlClass> classes = new LinkedHashMap<>();
+        for (XmlTest test : suite.getTests()) {
+            for (XmlClass xmlClass : test.getXmlClasses()) {
+                classes.putIfAbsent(xmlClass.getName(), xmlClass);
+            }
+        }
+        String baseName = suite.getTests().get(0).getName();
+        List<ShardScheduler.Shard> shards = ShardScheduler.schedule(
+                order(new ArrayList<>(classes.keySet())), history.getDurations(), devices.size());
+        
+        suite.getTests().clear();
+        int used = 0;
+        for (ShardScheduler.Shard shard : shards) {
+            if (shard.getClasses().isEmpty()) {
+                continue;
+            }
+            DeviceTarget device = devices.get(shard.getIndex());
+            XmlTest test = new XmlTest(suite);
+            test.setName(baseName + " [" + device + "]");
+            test.addParameter(UDID_PARAMETER, device.getUdid());
+            test.addParameter(URL_PARAMETER, device.getAppiumUrl());
+            test.setParallel(XmlSuite.ParallelMode.NONE);
+            
+            List<XmlClass> shardClasses = new ArrayList<>();
+            for (String name : shard.getClasses()) {
+                XmlClass copy = new XmlClass(name, false);
+                copy.setIncludedMethods(classes.get(name).getIncludedMethods());
+                copy.setExcludedMethods(classes.get(name).getExcludedMethods());
+                copy.setXmlTest(test);
+                shardClasses.add(copy);
+            }
+            test.setXmlClasses(shardClasses);
+            used++;
+            shardPlan.put(device.toString(), shard);
+        }
+        suite.setParallel(XmlSuite.ParallelMode.TESTS);
+        suite.setThreadCount(used);
+    }
+    
+    @Override
+    public void onBeforeClass(ITestClass testClass) {
+        classStarts.put(testClass.getName(), System.nanoTime());
+        
+        String udid = testClass.getXmlTest().getParameter(UDID_PARAMETER);
+        String url = testClass.getXmlTest().getParameter(URL_PARAMETER);
+        if (udid == null || url == null) {
+            return;
+        }
+        DeviceTarget shardDevice = new DeviceTarget(udid, url);
+        for (DeviceTarget device : DriverManager.getDevices()) {
+            if (device.equals(shardDevice)) {
+                // Same key, but keeps the configured system port
+                shardDevice = device;
+            }
+        }
+        DriverManager.bindDevice(shardDevice);
+    }
+    
+    @Override
+    public void onAfterClass(ITestClass testClass) {
+        Long start = classStarts.remove(testClass.getName());
+        boolean failed = Boolean.TRUE.equals(classFailed.remove(testClass.getName()));
+        if (start != null) {
+            history.record(Kind.CLASS, testClass.getName(), (System.nanoTime() - start) / 1_000_000,
+                    failed ? Outcome.FAIL : Outcome.PASS, classDevices.remove(testClass.getName()));
+        }
+    }
+    
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        recordTest(result, Outcome.PASS);
+    }
+    
+    @Override
+    public void onTestFailure(ITestResult result) {
+        classFailed.put(result.getTestClass().getName(), true);
+        recordTest(result, Outcome.FAIL);
+    }
+    
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        recordTest(result, Outcome.SKIP);
+    }
+    
+    private void recordTest(ITestResult result, Outcome outcome) {
+        DeviceTarget device = DriverManager.getCurrentDevice();
+        if (device != null) {
+            classDevices.put(result.getTestClass().getName(), device.toString());
+        }
+        history.record(Kind.TEST, result.getTestClass().getName() + "." + result.getMethod().getMethodName(),
+                result.getEndMillis() - result.getStartMillis(), outcome, device == null ? null : device.toString());
+    }
+    
+    @Override
+    public void onStart(ISuite suite) {
+        suiteStart = System.nanoTime();
+        shardPlan.forEach((device, shard) -> EventJournal.record("shard", "target", device, "index", shard.getIndex(),
+                "estimatedMs", shard.getEstimatedMillis(), "classes", shard.getClasses()));
+    }
+    
+    @Override
+    public void onFinish(ISuite suite) {
+        boolean failed = suite.getResults().values().stream()
+                .anyMatch(result -> !result.getTestContext().getFailedTests().getAllResults().isEmpty());
+        history.record(Kind.SUITE, suite.getName(), (System.nanoTime() - suiteStart) / 1_000_000,
+                failed ? Outcome.FAIL : Outcome.PASS, null);
+        history.save();
+        
+        for (DurationHistory.Trend trend : history.getTrends(AppConfig.getTrendThreshold())) {
+            EventJournal.record("history.trend", "kind", trend.getKind().name(), "name", trend.getName(),
+                    "baselineMs", trend.getBaselineMillis(), "recentMs", trend.getRecentMillis());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package utils;
+
+import config.AppConfig;
+import config.DeviceTarget;
+import config.DriverManager;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+import stub.StubAppiumServer;
+import stub.TrustTestApp;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Replay mode (replay.enabled): the suite runs against stub.StubAppiumServer serving the golden
+ * states in replay.dir instead of a device, so page-object logic runs on any machine in seconds.
+ *
+ * The server is started in-process and becomes the only device before the first session is
+ * opened; the listeners start it as the suite loads and stop it at the end. Tests needing what
+ * the app model does not cover (scroll gestures, crypto conversion) are in the
+ * {@value #DEVICE_ONLY} group, which replay runs leave out.
+ */
+public final class ReplayMode {
+
+    /** Group of tests that need a live app. */
+    public static final String DEVICE_ONLY = "device-only";
+
+    private static StubAppiumServer server;
+
+    private ReplayMode() {
+    }
+
+    /**
+     * Start the replay server and point the device pool at it, once, when replay mode is on.
+     */
+    public static synchronized void startIfEnabled() {
+        if (!AppConfig.isReplayEnabled() || server != null) {
+            return;
+        }
+        try {
+            server = new StubAppiumServer(TrustTestApp.model(Paths.get(AppConfig.getReplayDir())), 0);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not start the replay server: " + e.getMessage(), e);
+        }
+        DriverManager.configureDevices(List.of(new DeviceTarget("replay", server.getUrl())));
+    }
+
+    /**
+     * Leave the {@value #DEVICE_ONLY} tests out of the suites when replaying.
+     */
+    public static void excludeDeviceOnlyTests(List<XmlSuite> suites) {
+        if (!AppConfig.isReplayEnabled()) {
+            return;
+        }
+        for (XmlSuite suite : suites) {
+            for (XmlTest test : suite.getTests()) {
+                test.addExcludedGroup(DEVICE_ONLY);
+            }
+        }
+    }
+
+    /**
+     * Stop the replay server; sessions on it must be quit first.
+     */
+    public static synchronized void stop() {
+        if (server != null) {
+            server.close();
+            server = null;
+        }
+    }
+}
@@ -1,38 +1,124 @@
 package utils;
 
+import artifacts.ArtifactWriter;
+import artifacts.FailureCapture;
+import config.AppConfig;
 import config.DriverManager;
-import org.openqa.selenium.OutputType;
-import org.openqa.selenium.TakesScreenshot;
+import config.SessionStats;
+import metrics.CommandMetrics;
+import metrics.EventJournal;
+import metrics.LocatorCostReport;
+import metrics.TimeBudget;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
 import org.testng.ITestListener;
 import org.testng.ITestResult;
+import org.testng.Reporter;
+import pages.BasePage;
+import pages.ElementCache;
+import pages.GoldenRecorder;
+import pages.LoggedInFixture;
+import pages.Navigator;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.util.Date;
+import java.util.Map;
 
 /**
- * TestNG Listener for test events.
- * Captures screenshots on test failures and logs test progress.
+ * TestNG Listener for test and suite events.
+ * Captures a failure bundle (screenshot, page source, logcat) on test failures, written in the background,
+ * logs test progress and records the run summary to the event journal.
+ * Attributes driver commands to the running test and writes their latencies and the locator cost ranking at suite end.
+ * Accounts each test's time by category (commands, waits, sleeps, capture) and ranks tests by idle time.
+ * Runs the event journal for the suite when journal.enabled is set, and the replay server when
+ * replay.enabled is.
  */
-public class TestListener implements ITestListener {
+public class TestListener implements ITestListener, ISuiteListener {
     
-    private static final String SCREENSHOT_DIR = "test-output/screenshots";
+    /** Result attribute holding the failure bundle directory, for reporters. */
+    public static final String FAILURE_BUNDLE_ATTRIBUTE = "failureBundle";
+    
+    private static final String FAILURES_DIR = "test-output/failures";
+    private static final String METRICS_FILE = "test-output/metrics/command-latency.json";
+    private static final String LOCATOR_REPORT_FILE = "test-output/metrics/locator-cost.json";
+    private static final String TIME_BUDGET_FILE = "test-output/metrics/time-budget.json";
+    private static final Duration ARTIFACT_FLUSH_TIMEOUT = Duration.ofSeconds(60);
+    
+    @Override
+    public void onStart(ISuite suite) {
+        if (AppConfig.isJournalEnabled() && EventJournal.getActive() == null) {
+            Path journalFile = Paths.get(AppConfig.getJournalDir(), AppConfig.getJournalRun() + ".jsonl");
+            EventJournal.start(journalFile, AppConfig.getJournalRun(), AppConfig.getJournalQueueCapacity());
+        }
+        EventJournal.record("suite.start", "suite", suite.getName());
+        ReplayMode.startIfEnabled();
+        // Overlap session creation with TestNG's own setup; the first getDriver() awaits it
+        if (AppConfig.isSessionPrewarmEnabled()) {
+            DriverManager.prewarm();
+        }
+    }
+    
+    @Override
+    public void onFinish(ISuite suite) {
+        // Failure bundles still being captured or written must be on disk before the run ends;
+        // their logcat fetches use the failed sessions, so they finish before those are quit
+        boolean flushed = FailureCapture.awaitBundles(ARTIFACT_FLUSH_TIMEOUT)
+                && ArtifactWriter.shared().flush(ARTIFACT_FLUSH_TIMEOUT);
+        // Warm sessions outlive their classes, so the suite closes whatever is left
+        DriverManager.quitAll();
+        ReplayMode.stop();
+        
+        // The run summary is a journal event; the metrics files hold the full rankings
+        EventJournal.record("run.summary", "suite", suite.getName(),
+                "sessions", SessionStats.summary(),
+                "elementCache", ElementCache.summary(),
+                "navigation", Navigator.summary(),
+                "artifacts", ArtifactWriter.shared().summary(),
+                "artifactsPending", flushed ? 0 : ArtifactWriter.shared().getPending(),
+                "fixtures", LoggedInFixture.summaryLines(),
+                "golden", GoldenRecorder.summaryLines(),
+                "slowestCommands", CommandMetrics.summaryLines(5),
+                "costliestLocators", LocatorCostReport.summaryLines(BasePage.getLocatorRewriter(), 5),
+                "idlestTests", TimeBudget.summaryLines(5));
+        try {
+            CommandMetrics.writeJson(Paths.get(METRICS_FILE));
+        } catch (IOException e) {
+            EventJournal.record("artifact", "path", METRICS_FILE, "error", String.valueOf(e.getMessage()));
+        }
+        try {
+            LocatorCostReport.writeJson(Paths.get(LOCATOR_REPORT_FILE), BasePage.getLocatorRewriter());
+        } catch (IOException e) {
+            EventJournal.record("artifact", "path", LOCATOR_REPORT_FILE, "error", String.valueOf(e.getMessage()));
+        }
+        try {
+            TimeBudget.writeJson(Paths.get(TIME_BUDGET_FILE));
+        } catch (IOException e) {
+            EventJournal.record("artifact", "path", TIME_BUDGET_FILE, "error", String.valueOf(e.getMessage()));
+        }
+        EventJournal.record("suite.end", "suite", suite.getName());
+        EventJournal.stop();
+    }
     
     @Override
     public void onTestStart(ITestResult result) {
         System.out.println("\n" + "=".repeat(60));
         System.out.println("▶ STARTING: " + result.getMethod().getMethodName());
         System.out.println("=".repeat(60));
+        String testName = testNameOf(result);
+        CommandMetrics.setCurrentTest(testName);
+        TimeBudget.startTest(testName);
+        EventJournal.record("test.start", "test", testName);
     }
     
     @Override
     public void onTestSuccess(ITestResult result) {
         System.out.println("✅ PASSED: " + result.getMethod().getMethodName());
         System.out.println("   Duration: " + getTestDuration(result) + "ms");
+        finishTest(result, "passed");
     }
     
     @Override
@@ -41,12 +127,13 @@ public class TestListener implements ITestListener {
         System.out.println("   Reason: " + result.getThrowable().getMessage());
         System.out.println("   Duration: " + getTestDuration(result) + "ms");
         
-        // Capture screenshot
-        captureScreenshot(result.getMethod().getMethodName());
+        // Capture screenshot, page source and logcat
+        TimeBudget.measure(TimeBudget.Category.CAPTURE, () -> captureFailureBundle(result, testNameOf(result)));
         
         // Print stack trace for debugging
         System.out.println("\n📋 Stack Trace:");
         result.getThrowable().printStackTrace();
+        finishTest(result, "failed");
     }
     
     @Override
@@ -55,37 +142,44 @@ public class TestListener implements ITestListener {
         if (result.getThrowable() != null) {
             System.out.println("   Reason: " + result.getThrowable().getMessage());
         }
+        finishTest(result, "skipped");
+    }
+    
+    private void finishTest(ITestResult result, String status) {
+        CommandMetrics.clearCurrentTest();
+        Map<TimeBudget.Category, Long> budget = TimeBudget.finishTest();
+        EventJournal.record("test.end", "test", testNameOf(result), "status", status,
+                "durationMs", getTestDuration(result), "budgetMs", budget,
+                "failure", result.getThrowable() == null ? null : String.valueOf(result.getThrowable()));
     }
     
     /**
-     * Capture screenshot and save to file.
+     * Capture the failure bundle (screenshot, page source, logcat tail) into its own directory
+     * and link it from the test result; the files are certain to exist once the suite has finished.
      */
-    private void captureScreenshot(String testName) {
-        try {
-            // Create screenshot directory if not exists
-            Path screenshotPath = Paths.get(SCREENSHOT_DIR);
-            if (!Files.exists(screenshotPath)) {
-                Files.createDirectories(screenshotPath);
-            }
-            
-            // Take screenshot
-            if (DriverManager.getDriver() != null) {
-                TakesScreenshot ts = (TakesScreenshot) DriverManager.getDriver();
-                File source = ts.getScreenshotAs(OutputType.FILE);
-                
-                // Generate filename with timestamp
-                String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
-                String fileName = testName + "_" + timestamp + ".png";
-                Path destination = screenshotPath.resolve(fileName);
-                
-                // Copy screenshot to destination
-                Files.copy(source.toPath(), destination);
-                
-                System.out.println("📸 Screenshot saved: " + destination.toAbsolutePath());
-            }
-        } catch (IOException e) {
-            System.out.println("⚠ Failed to capture screenshot: " + e.getMessage());
+    private void captureFailureBundle(ITestResult result, String testName) {
+        // Use the failing thread's driver (never start a new session here)
+        if (DriverManager.getCurrentDriver() == null) {
+            return;
         }
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+        Path bundleDir = Paths.get(FAILURES_DIR, testName + "_" + timestamp);
+        
+        new FailureCapture(ArtifactWriter.shared(),
+                Duration.ofMillis(AppConfig.getFailureCaptureTimeout()), AppConfig.getFailureLogcatLines())
+                .capture(DriverManager.getCurrentDriver(), testName, result.getThrowable(), bundleDir);
+        
+        result.setAttribute(FAILURE_BUNDLE_ATTRIBUTE, bundleDir.toAbsolutePath().toString());
+        EventJournal.record("failure.bundle", "test", testName, "dir", bundleDir.toString());
+        Reporter.log("Failure bundle: " + bundleDir.toAbsolutePath());
+        System.out.println("📸 Failure bundle: " + bundleDir.toAbsolutePath());
+    }
+    
+    /**
+     * "Class.method", the name metrics, budgets and failure bundles are filed under.
+     */
+    private static String testNameOf(ITestResult result) {
+        return result.getTestClass().getRealClass().getSimpleName() + "." + result.getMethod().getMethodName();
     }
     
     /**